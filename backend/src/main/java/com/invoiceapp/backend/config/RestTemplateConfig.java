@@ -1,5 +1,6 @@
 package com.invoiceapp.backend.config;
 
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
@@ -7,12 +8,14 @@ import org.springframework.web.client.RestTemplate;
 /**
  * Configuration for RestTemplate bean
  * Required for VIES service integration
+ * Built from Spring Boot's builder, so requests are observed (http.client.requests) and
+ * carry the trace context
  */
 @Configuration
 public class RestTemplateConfig {
 
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+        return builder.build();
     }
-}
\ No newline at end of file
+}
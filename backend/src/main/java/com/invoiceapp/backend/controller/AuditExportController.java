@@ -0,0 +1,53 @@
+package com.invoiceapp.backend.controller;
+
+import com.invoiceapp.backend.model.AuditExport;
+import com.invoiceapp.backend.service.saft.AuditExportService;
+import org.springframework.graphql.data.method.annotation.Argument;
+import org.springframework.graphql.data.method.annotation.MutationMapping;
+import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+
+import java.util.List;
+
+@Controller
+public class AuditExportController {
+
+    private final AuditExportService auditExportService;
+
+    public AuditExportController(AuditExportService auditExportService) {
+        this.auditExportService = auditExportService;
+    }
+
+    /**
+     * Поставя SAF-T експорт за период в опашката
+     */
+    @MutationMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public AuditExport startAuditExport(@Argument Long companyId, @Argument String periodFrom, @Argument String periodTo) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return auditExportService.start(companyId, periodFrom, periodTo, username);
+    }
+
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.canAccessAuditExport(authentication, #id)")
+    public AuditExport auditExport(@Argument Long id) {
+        return auditExportService.findById(id).orElse(null);
+    }
+
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public List<AuditExport> auditExportsByCompany(@Argument Long companyId) {
+        return auditExportService.findByCompany(companyId);
+    }
+
+    /**
+     * Път за изтегляне на готовия файл
+     */
+    @SchemaMapping(typeName = "AuditExport", field = "downloadUrl")
+    public String downloadUrl(AuditExport export) {
+        return export.isCompleted() ? "/api/audit-exports/" + export.getId() + "/file" : null;
+    }
+}
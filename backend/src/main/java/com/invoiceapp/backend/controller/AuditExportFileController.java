@@ -0,0 +1,46 @@
+package com.invoiceapp.backend.controller;
+
+import com.invoiceapp.backend.model.AuditExport;
+import com.invoiceapp.backend.service.saft.AuditExportService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.Path;
+
+/**
+ * Изтегляне на готов SAF-T експорт. Файлът се чете от диска на части, без да се зарежда в паметта.
+ */
+@RestController
+public class AuditExportFileController {
+
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    private final AuditExportService auditExportService;
+
+    public AuditExportFileController(AuditExportService auditExportService) {
+        this.auditExportService = auditExportService;
+    }
+
+    @GetMapping("/api/audit-exports/{exportId}/file")
+    @PreAuthorize("@customPermissionEvaluator.canAccessAuditExport(authentication, #exportId)")
+    public ResponseEntity<Resource> download(@PathVariable Long exportId) {
+        AuditExport export = auditExportService.findById(exportId).orElse(null);
+        Path file = export != null ? auditExportService.findFile(export).orElse(null) : null;
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String filename = auditExportService.fileName(export);
+        return ResponseEntity.ok()
+                .contentType(GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(new FileSystemResource(file));
+    }
+}
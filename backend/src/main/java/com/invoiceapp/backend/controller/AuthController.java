@@ -10,6 +10,7 @@ import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 
 @Controller
 public class AuthController {
@@ -24,6 +25,7 @@ public class AuthController {
     private JwtService jwtService;
 
     @MutationMapping
+    @Transactional(readOnly = true)
     public AuthResponse login(@Argument LoginInput input) {
         // Find user by username or email
         User user = userRepository.findByUsername(input.getUsername())
@@ -148,6 +148,26 @@ public class BackupController {
         if (input.getBackupCronExpression() != null) settings.setBackupCronExpression(input.getBackupCronExpression());
         if (input.getRetentionDays() != null) settings.setRetentionDays(input.getRetentionDays());
         if (input.getMaxBackups() != null) settings.setMaxBackups(input.getMaxBackups());
+        if (input.getBackupFormat() != null) {
+            if (!BackupSettings.FORMAT_PLAIN.equals(input.getBackupFormat())
+                    && !BackupSettings.FORMAT_DIRECTORY.equals(input.getBackupFormat())) {
+                throw new RuntimeException("Невалиден формат на backup: " + input.getBackupFormat());
+            }
+            settings.setBackupFormat(input.getBackupFormat());
+        }
+        if (input.getParallelJobs() != null) {
+            if (input.getParallelJobs() < 1 || input.getParallelJobs() > 16) {
+                throw new RuntimeException("Броят паралелни процеси трябва да е между 1 и 16");
+            }
+            settings.setParallelJobs(input.getParallelJobs());
+        }
+        if (input.getIncrementalEnabled() != null) settings.setIncrementalEnabled(input.getIncrementalEnabled());
+        if (input.getFullBackupIntervalDays() != null) {
+            if (input.getFullBackupIntervalDays() < 1 || input.getFullBackupIntervalDays() > 90) {
+                throw new RuntimeException("Интервалът за пълен backup трябва да е между 1 и 90 дни");
+            }
+            settings.setFullBackupIntervalDays(input.getFullBackupIntervalDays());
+        }
 
         settings = backupSettingsRepository.save(settings);
 
@@ -180,6 +200,13 @@ public class BackupController {
         return databaseBackupService.createBackup(username, "MANUAL");
     }
 
+    @MutationMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public BackupHistory createIncrementalBackup() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return databaseBackupService.createIncrementalBackup(username, "MANUAL");
+    }
+
     @MutationMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public Boolean deleteBackup(@Argument Long id) {
@@ -192,6 +219,18 @@ public class BackupController {
         }
     }
 
+    @MutationMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public String restoreBackup(@Argument Long id, @Argument String targetDatabase) {
+        return databaseBackupService.restoreBackup(id, targetDatabase);
+    }
+
+    @MutationMapping
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
+    public BackupHistory verifyBackup(@Argument Long id) {
+        return databaseBackupService.verifyBackup(id);
+    }
+
     @MutationMapping
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPER_ADMIN')")
     public String getBackupDownloadUrl(@Argument Long id) {
@@ -1,7 +1,9 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.Client;
 import com.invoiceapp.backend.model.Company;
+import com.invoiceapp.backend.model.dto.AutocompleteEntry;
 import com.invoiceapp.backend.model.dto.CreateClientInput;
 import com.invoiceapp.backend.model.dto.CreateClientWithViesInput;
 import com.invoiceapp.backend.model.dto.UpdateClientInput;
@@ -9,17 +11,24 @@ import com.invoiceapp.backend.model.dto.ClientCreationResult;
 import com.invoiceapp.backend.model.dto.DeleteClientResult;
 import com.invoiceapp.backend.repository.ClientRepository;
 import com.invoiceapp.backend.repository.CompanyRepository;
+import com.invoiceapp.backend.util.SearchTerms;
+import com.invoiceapp.backend.service.AutocompleteIndex;
 import com.invoiceapp.backend.service.ClientManagementService;
 import com.invoiceapp.backend.service.DocumentService;
+import com.invoiceapp.backend.service.OwnershipIndex;
 import com.invoiceapp.backend.service.ViesService;
 import com.invoiceapp.backend.service.ViesService.ViesCompanyData;
 import com.invoiceapp.backend.repository.UserRepository;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import com.invoiceapp.backend.service.ViesService.ViesValidationResult;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,6 +40,7 @@ import org.springframework.security.core.Authentication;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GraphQL контролер за управление на клиенти с VIES интеграция
@@ -48,6 +58,8 @@ public class ClientController {
     private final ClientManagementService clientManagementService;
     private final DocumentService documentService;
     private final ViesService viesService;
+    private final OwnershipIndex ownershipIndex;
+    private final AutocompleteIndex autocompleteIndex;
 
     private final UserRepository userRepository;
 
@@ -57,12 +69,16 @@ public class ClientController {
                            ClientManagementService clientManagementService,
                            DocumentService documentService,
                            ViesService viesService,
+                           OwnershipIndex ownershipIndex,
+                           AutocompleteIndex autocompleteIndex,
                            UserRepository userRepository) {
         this.clientRepository = clientRepository;
         this.companyRepository = companyRepository;
         this.clientManagementService = clientManagementService;
         this.documentService = documentService;
         this.viesService = viesService;
+        this.ownershipIndex = ownershipIndex;
+        this.autocompleteIndex = autocompleteIndex;
         this.userRepository = userRepository;
     }
 
@@ -104,17 +120,26 @@ public class ClientController {
     }
 
     /**
-     * Търси клиенти по име, ЕИК и ДДС номер
+     * Търси клиенти по име, ЕИК и ДДС номер - подредени по релевантност, най-много limit
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Client> searchClients(@Argument Long companyId, @Argument String searchTerm) {
+    public List<Client> searchClients(@Argument Long companyId, @Argument String searchTerm, @Argument Integer limit) {
         if (searchTerm == null || searchTerm.trim().isEmpty()) {
             return clientRepository.findByCompanyId(companyId);
         }
 
-        // Search by name, EIK, or VAT number
-        return clientRepository.searchByNameEikOrVatNumber(companyId, searchTerm.trim());
+        String term = searchTerm.trim();
+        return clientRepository.searchRanked(companyId, SearchTerms.likeEscape(term), term, SearchTerms.limit(limit));
+    }
+
+    /**
+     * Autocomplete по име, ЕИК или ДДС номер - от индекса в паметта, без заявка към базата при всеки клавиш
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public List<AutocompleteEntry> autocompleteClients(@Argument Long companyId, @Argument String prefix, @Argument Integer limit) {
+        return autocompleteIndex.clients(companyId, prefix, limit);
     }
 
     /**
@@ -181,6 +206,7 @@ public class ClientController {
         logger.info("Saving client: {}", client.getName());
         Client savedClient = clientRepository.save(client);
         logger.info("Client saved with ID: {}", savedClient.getId());
+        autocompleteIndex.clientSaved(savedClient);
         
         return savedClient;
     }
@@ -211,6 +237,7 @@ public class ClientController {
             
             // Конвертиране на резултата към GraphQL DTO
             if (result.isSuccess()) {
+                autocompleteIndex.clientSaved(result.getClient());
                 if (result.isFromVies()) {
                     return ClientCreationResult.success(result.getClient(), true);
                 } else if (result.requiresManualEntry()) {
@@ -247,6 +274,7 @@ public class ClientController {
         var result = clientManagementService.updateClientFromVies(clientId, newVatNumber);
         
         if (result.isSuccess()) {
+            autocompleteIndex.clientSaved(result.getClient());
             return ClientCreationResult.success(result.getClient(), true);
         } else {
             switch (result.getErrorType()) {
@@ -319,6 +347,7 @@ public class ClientController {
         logger.info("Saving manual client: {}", client.getName());
         Client savedClient = clientRepository.save(client);
         logger.info("Manual client saved with ID: {}", savedClient.getId());
+        autocompleteIndex.clientSaved(savedClient);
         
         return ClientCreationResult.success(savedClient, false);
     }
@@ -399,6 +428,7 @@ public class ClientController {
         
         Client savedClient = clientRepository.save(client);
         logger.info("Client updated successfully with ID: {}", savedClient.getId());
+        autocompleteIndex.clientSaved(savedClient);
         
         return savedClient;
     }
@@ -429,6 +459,8 @@ public class ClientController {
         
         try {
             clientRepository.delete(client);
+            ownershipIndex.evictClient(id);
+            autocompleteIndex.clientDeleted(client.getCompany().getId(), id);
             logger.info("Client deleted successfully with ID: {}", id);
             return DeleteClientResult.success();
         } catch (Exception e) {
@@ -436,4 +468,18 @@ public class ClientController {
             return DeleteClientResult.error("Грешка при изтриване на клиента: " + e.getMessage());
         }
     }
+
+    /**
+     * Фирмата на клиента през DataLoader (вместо отделна заявка за всеки клиент)
+     */
+    @SchemaMapping(typeName = "Client", field = "company")
+    public CompletableFuture<Company> company(Client client, DataFetchingEnvironment env) {
+        Company company = client.getCompany();
+        if (company == null || Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
 }
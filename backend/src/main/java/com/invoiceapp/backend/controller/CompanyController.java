@@ -1,18 +1,28 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
+import com.invoiceapp.backend.model.BankAccount;
 import com.invoiceapp.backend.model.Company;
+import com.invoiceapp.backend.model.PaymentMethod;
+import com.invoiceapp.backend.model.Role;
+import com.invoiceapp.backend.model.User;
 import com.invoiceapp.backend.repository.CompanyRepository;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import com.invoiceapp.backend.model.dto.CreateCompanyInput;
 import com.invoiceapp.backend.model.dto.UpdateCompanyInput;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class CompanyController {
@@ -118,4 +128,49 @@ public class CompanyController {
         
         return companyRepository.save(company);
     }
+
+    // --- DataLoader-based field resolvers (batch loading of company collections) ---
+
+    @SchemaMapping(typeName = "Company", field = "users")
+    public CompletableFuture<List<User>> users(Company company, DataFetchingEnvironment env) {
+        if (Hibernate.isInitialized(company.getUsers())) {
+            return CompletableFuture.completedFuture(company.getUsers());
+        }
+        DataLoader<Long, List<User>> dataLoader = env.getDataLoader(DataLoaderConfig.USERS_BY_COMPANY_ID);
+        return dataLoader.load(company.getId());
+    }
+
+    @SchemaMapping(typeName = "Company", field = "activeUserCount")
+    public CompletableFuture<Integer> activeUserCount(Company company, DataFetchingEnvironment env) {
+        return users(company, env).thenApply(users -> users == null ? 0
+                : (int) users.stream().filter(User::getIsActive).count());
+    }
+
+    @SchemaMapping(typeName = "Company", field = "adminUsername")
+    public CompletableFuture<String> adminUsername(Company company, DataFetchingEnvironment env) {
+        return users(company, env).thenApply(users -> users == null ? null
+                : users.stream()
+                        .filter(user -> user.getRole().equals(Role.ADMIN))
+                        .map(User::getUsername)
+                        .findFirst()
+                        .orElse(null));
+    }
+
+    @SchemaMapping(typeName = "Company", field = "paymentMethods")
+    public CompletableFuture<List<PaymentMethod>> paymentMethods(Company company, DataFetchingEnvironment env) {
+        if (Hibernate.isInitialized(company.getPaymentMethods())) {
+            return CompletableFuture.completedFuture(company.getPaymentMethods());
+        }
+        DataLoader<Long, List<PaymentMethod>> dataLoader = env.getDataLoader(DataLoaderConfig.PAYMENT_METHODS_BY_COMPANY_ID);
+        return dataLoader.load(company.getId());
+    }
+
+    @SchemaMapping(typeName = "Company", field = "bankAccounts")
+    public CompletableFuture<List<BankAccount>> bankAccounts(Company company, DataFetchingEnvironment env) {
+        if (Hibernate.isInitialized(company.getBankAccounts())) {
+            return CompletableFuture.completedFuture(company.getBankAccounts());
+        }
+        DataLoader<Long, List<BankAccount>> dataLoader = env.getDataLoader(DataLoaderConfig.BANK_ACCOUNTS_BY_COMPANY_ID);
+        return dataLoader.load(company.getId());
+    }
 }
@@ -1,23 +1,29 @@
 package com.invoiceapp.backend.controller;
 
 import com.invoiceapp.backend.config.CurrencyConfiguration;
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.Currency;
 import com.invoiceapp.backend.model.ExchangeRate;
 import com.invoiceapp.backend.repository.CurrencyRepository;
 import com.invoiceapp.backend.repository.ExchangeRateRepository;
 import com.invoiceapp.backend.service.ExchangeRateProviderService;
 import com.invoiceapp.backend.service.ExchangeRateService;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * GraphQL контролер за управление на валути и курсове
@@ -406,4 +412,18 @@ public class CurrencyController {
         public String getFromDate() { return fromDate; }
         public String getToDate() { return toDate; }
     }
-}
\ No newline at end of file
+
+    /**
+     * Валутата на курса през DataLoader - една заявка за всички курсове в отговора
+     */
+    @SchemaMapping(typeName = "ExchangeRate", field = "currency")
+    public CompletableFuture<Currency> currency(ExchangeRate exchangeRate, DataFetchingEnvironment env) {
+        Currency currency = exchangeRate.getCurrency();
+        if (currency == null || Hibernate.isInitialized(currency)) {
+            return CompletableFuture.completedFuture(currency);
+        }
+
+        DataLoader<String, Currency> dataLoader = env.getDataLoader(DataLoaderConfig.CURRENCY_BY_CODE);
+        return dataLoader.load(currency.getCode());
+    }
+}
@@ -6,15 +6,27 @@ import com.invoiceapp.backend.model.dto.CreateDocumentInput;
 import com.invoiceapp.backend.model.dto.CopyDocumentInput;
 import com.invoiceapp.backend.model.dto.ClientDocumentsCount;
 import com.invoiceapp.backend.model.dto.DashboardStats;
+import com.invoiceapp.backend.model.dto.DocumentSearchResult;
+import com.invoiceapp.backend.model.dto.ReceivablesAging;
 import com.invoiceapp.backend.model.dto.SendDocumentEmailInput;
 import com.invoiceapp.backend.model.dto.EmailResult;
 import com.invoiceapp.backend.repository.DocumentNumberSequenceRepository;
+import com.invoiceapp.backend.repository.UserRepository;
+import com.invoiceapp.backend.service.DocumentEmailComposer;
+import com.invoiceapp.backend.service.EmailAttachmentStorage;
 import com.invoiceapp.backend.service.DocumentNumberService;
+import com.invoiceapp.backend.service.DocumentSearchService;
+import com.invoiceapp.backend.service.ReceivablesService;
 import com.invoiceapp.backend.service.DocumentService;
+import com.invoiceapp.backend.service.EmailOutboxService;
 import com.invoiceapp.backend.service.EmailService;
 import com.invoiceapp.backend.service.export.UblExportService;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel;
+import com.invoiceapp.backend.service.pdf.DocumentPdfRenderer;
+import com.invoiceapp.backend.service.projection.DocumentProjectionService;
 import com.invoiceapp.backend.model.dto.UblExportResult;
 import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingFieldSelectionSet;
 import org.dataloader.DataLoader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
@@ -22,7 +34,9 @@ import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -50,15 +64,43 @@ public class DocumentController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+
+    @Autowired
+    private DocumentEmailComposer documentEmailComposer;
+
+    @Autowired
+    private EmailAttachmentStorage emailAttachmentStorage;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DocumentPdfRenderer documentPdfRenderer;
+
     @Autowired
     private UblExportService ublExportService;
 
+    @Autowired
+    private DocumentProjectionService documentProjectionService;
+
+    @Autowired
+    private DocumentSearchService documentSearchService;
+
+    @Autowired
+    private ReceivablesService receivablesService;
+
+    private static final List<DocumentType> TAX_DOCUMENT_TYPES =
+            List.of(DocumentType.INVOICE, DocumentType.CREDIT_NOTE, DocumentType.DEBIT_NOTE);
+
     // ========== QUERIES ==========
 
     /**
      * Експортира документ като UBL 2.1 XML
      */
     @QueryMapping
+    @Transactional(readOnly = true)
     @PreAuthorize("@customPermissionEvaluator.canAccessDocument(authentication, #documentId)")
     public UblExportResult exportDocumentAsUbl(@Argument Long documentId) {
         return documentService.findDocumentById(documentId)
@@ -76,11 +118,24 @@ public class DocumentController {
 
     /**
      * Намира всички документи на фирма
+     * Списъчните заявки четат само поисканите колони (виж DocumentProjectionService)
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public List<Document> documentsByCompany(@Argument Long companyId, DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocuments(companyId, null, null, selectionSet)
+                .orElseGet(() -> documentService.findDocumentsByCompany(companyId));
+    }
+
+    /**
+     * Пълнотекстово търсене в документите на фирма (номер, описания на редовете, бележки)
+     * Резултатите са по релевантност, на страници с first/after
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Document> documentsByCompany(@Argument Long companyId) {
-        return documentService.findDocumentsByCompany(companyId);
+    public DocumentSearchResult searchDocuments(@Argument Long companyId, @Argument String query,
+                                                @Argument Integer first, @Argument String after) {
+        return documentSearchService.search(companyId, query, first, after);
     }
 
     /**
@@ -88,8 +143,10 @@ public class DocumentController {
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Document> documentsByType(@Argument Long companyId, @Argument DocumentType documentType) {
-        return documentService.findDocumentsByCompanyAndType(companyId, documentType);
+    public List<Document> documentsByType(@Argument Long companyId, @Argument DocumentType documentType,
+                                          DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocuments(companyId, List.of(documentType), null, selectionSet)
+                .orElseGet(() -> documentService.findDocumentsByCompanyAndType(companyId, documentType));
     }
 
     /**
@@ -97,8 +154,10 @@ public class DocumentController {
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Document> documentsByStatus(@Argument Long companyId, @Argument DocumentStatus status) {
-        return documentService.findDocumentsByStatus(companyId, status);
+    public List<Document> documentsByStatus(@Argument Long companyId, @Argument DocumentStatus status,
+                                            DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocuments(companyId, null, status, selectionSet)
+                .orElseGet(() -> documentService.findDocumentsByStatus(companyId, status));
     }
 
     /**
@@ -106,8 +165,8 @@ public class DocumentController {
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.canAccessDocument(authentication, #id)")
-    public Optional<Document> documentById(@Argument Long id) {
-        return documentService.findDocumentById(id);
+    public Optional<Document> documentById(@Argument Long id, DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocumentById(id, selectionSet);
     }
 
     /**
@@ -124,8 +183,9 @@ public class DocumentController {
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Document> taxDocuments(@Argument Long companyId) {
-        return documentService.findTaxDocuments(companyId);
+    public List<Document> taxDocuments(@Argument Long companyId, DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocuments(companyId, TAX_DOCUMENT_TYPES, null, selectionSet)
+                .orElseGet(() -> documentService.findTaxDocuments(companyId));
     }
 
     /**
@@ -133,8 +193,9 @@ public class DocumentController {
      */
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Document> nonTaxDocuments(@Argument Long companyId) {
-        return documentService.findNonTaxDocuments(companyId);
+    public List<Document> nonTaxDocuments(@Argument Long companyId, DataFetchingFieldSelectionSet selectionSet) {
+        return documentProjectionService.findDocuments(companyId, List.of(DocumentType.PROFORMA), null, selectionSet)
+                .orElseGet(() -> documentService.findNonTaxDocuments(companyId));
     }
 
     /**
@@ -146,6 +207,15 @@ public class DocumentController {
         return documentService.findOverdueDocuments(companyId);
     }
 
+    /**
+     * Възрастов анализ на вземанията към дата (по подразбиране днес) - по клиенти и дни просрочие
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public ReceivablesAging receivablesAging(@Argument Long companyId, @Argument String asOf) {
+        return receivablesService.aging(companyId, asOf);
+    }
+
     /**
      * Получава следващия номер на документ
      */
@@ -303,6 +373,7 @@ public class DocumentController {
      * Изпраща документ по имейл с прикачен PDF (и опционално UBL XML за ERP интеграция)
      */
     @MutationMapping
+    @Transactional
     @PreAuthorize("@customPermissionEvaluator.canAccessDocument(authentication, #input.getDocumentId())")
     public EmailResult sendDocumentByEmail(@Argument SendDocumentEmailInput input) {
         try {
@@ -315,139 +386,54 @@ public class DocumentController {
                 return new EmailResult(false, "Не може да се изпрати документ в чернова");
             }
 
-            // Декодираме PDF от base64
-            byte[] pdfData = java.util.Base64.getDecoder().decode(input.getPdfBase64());
-
-            // Генерираме име на PDF файла
-            String pdfFilename = String.format("%s-%s.pdf",
-                document.getDocumentType().name().toLowerCase(),
-                document.getDocumentNumber());
-
-            // Генерираме тема на имейла
-            String subject = String.format("Документ %s-%s от %s",
-                getDocumentTypeLabel(document.getDocumentType()),
-                document.getDocumentNumber(),
-                document.getCompany().getName());
+            if (emailService.getActiveSmtpSettings() == null) {
+                return new EmailResult(false, "Грешка при изпращане на имейла. Проверете SMTP настройките.");
+            }
 
-            // Генерираме HTML съдържание
+            // Записваме имейла в опашката - изпраща се от фоновия диспечер
             boolean includeUbl = Boolean.TRUE.equals(input.getIncludeUblXml());
-            String htmlContent = buildDocumentEmailContent(document, includeUbl);
-
-            boolean success;
-
-            // Ако е заявен UBL XML, прикачваме и него
-            if (includeUbl) {
-                // Генерираме UBL XML
-                String ublXml = ublExportService.exportToUbl(document);
-                String ublFilename = String.format("ubl-%s-%s.xml",
-                    document.getDocumentType().name().toLowerCase(),
-                    document.getDocumentNumber());
-
-                success = emailService.sendDocumentEmailWithUbl(
-                    input.getRecipientEmail(),
-                    subject,
-                    htmlContent,
-                    pdfData,
-                    pdfFilename,
-                    ublXml,
-                    ublFilename
-                );
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            EmailOutbox entry;
+            if (input.getAttachmentToken() != null) {
+                // PDF е качен предварително през /api/email-attachments и е на диска - от потребител на същата фирма
+                User user = userRepository.findByUsername(username)
+                    .orElseThrow(() -> new RuntimeException("Потребителят не е намерен"));
+                Long companyId = user.getCompany() != null ? user.getCompany().getId() : null;
+                String pdfPath = emailAttachmentStorage.claim(input.getAttachmentToken(), companyId);
+                entry = documentEmailComposer.compose(document, input.getRecipientEmail(), pdfPath, includeUbl);
+            } else if (input.getPdfBase64() != null) {
+                // Декодираме PDF от base64
+                byte[] pdfData = java.util.Base64.getDecoder().decode(input.getPdfBase64());
+                entry = documentEmailComposer.compose(document, input.getRecipientEmail(), pdfData, includeUbl);
             } else {
-                success = emailService.sendDocumentEmail(
-                    input.getRecipientEmail(),
-                    subject,
-                    htmlContent,
-                    pdfData,
-                    pdfFilename
-                );
+                // Без PDF от клиента - генерираме го на сървъра
+                DocumentPdfModel pdfModel = documentService.findPdfModel(document.getId())
+                    .orElseThrow(() -> new RuntimeException("Документът не е намерен"));
+                String pdfPath = emailAttachmentStorage.storeGenerated(documentPdfRenderer.render(pdfModel));
+                entry = documentEmailComposer.compose(document, input.getRecipientEmail(), pdfPath, includeUbl);
             }
+            entry.setCreatedBy(username);
 
-            if (success) {
-                String message = includeUbl
-                    ? "Документът е изпратен успешно с PDF и UBL XML на " + input.getRecipientEmail()
-                    : "Документът е изпратен успешно на " + input.getRecipientEmail();
-                return new EmailResult(true, message);
-            } else {
-                return new EmailResult(false, "Грешка при изпращане на имейла. Проверете SMTP настройките.");
-            }
+            EmailOutbox queued = emailOutboxService.enqueue(entry);
+            String message = includeUbl
+                ? "Документът е добавен за изпращане с PDF и UBL XML на " + input.getRecipientEmail()
+                : "Документът е добавен за изпращане на " + input.getRecipientEmail();
+            return new EmailResult(true, message, queued.getId());
 
         } catch (IllegalArgumentException e) {
-            return new EmailResult(false, "Невалиден PDF формат");
+            return new EmailResult(false, input.getAttachmentToken() != null ? e.getMessage() : "Невалиден PDF формат");
         } catch (Exception e) {
             return new EmailResult(false, "Грешка: " + e.getMessage());
         }
     }
 
-    private String getDocumentTypeLabel(DocumentType type) {
-        switch (type) {
-            case INVOICE: return "Фактура";
-            case CREDIT_NOTE: return "Кредитно известие";
-            case DEBIT_NOTE: return "Дебитно известие";
-            case PROFORMA: return "Проформа";
-            default: return type.name();
-        }
-    }
-
-    private String buildDocumentEmailContent(Document document, boolean includeUbl) {
-        String typeLabel = getDocumentTypeLabel(document.getDocumentType());
-        String attachmentInfo = includeUbl
-            ? "Прикачени са PDF и UBL XML файлове. UBL XML файлът може да бъде импортиран директно във вашата ERP система."
-            : "Моля, вижте прикачения PDF файл за пълна информация.";
-
-        return String.format("""
-            <!DOCTYPE html>
-            <html>
-            <head>
-                <meta charset="UTF-8">
-                <title>%s</title>
-                <style>
-                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
-                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
-                    .header { background-color: #2196F3; color: white; padding: 20px; text-align: center; }
-                    .content { padding: 20px; background-color: #f9f9f9; }
-                    .footer { padding: 20px; font-size: 12px; color: #666; text-align: center; }
-                    .details { background-color: white; padding: 15px; border-radius: 4px; margin: 15px 0; }
-                    .amount { font-size: 24px; color: #2196F3; font-weight: bold; }
-                    .ubl-info { background-color: #e3f2fd; padding: 10px; border-left: 4px solid #2196F3; margin: 15px 0; font-size: 14px; }
-                </style>
-            </head>
-            <body>
-                <div class="container">
-                    <div class="header">
-                        <h1>%s %s</h1>
-                    </div>
-                    <div class="content">
-                        <p>Уважаеми клиенти,</p>
-                        <p>Прикачено ще намерите %s с номер <strong>%s</strong>.</p>
-                        <div class="details">
-                            <p><strong>Издател:</strong> %s</p>
-                            <p><strong>Дата на издаване:</strong> %s</p>
-                            <p><strong>Срок за плащане:</strong> %s</p>
-                            <p class="amount">Сума: %s %s</p>
-                        </div>
-                        <p>%s</p>
-                    </div>
-                    <div class="footer">
-                        <p>С уважение,<br>%s</p>
-                        <p>Този имейл е изпратен автоматично.</p>
-                    </div>
-                </div>
-            </body>
-            </html>
-            """,
-            typeLabel + " " + document.getDocumentNumber(),
-            typeLabel,
-            document.getDocumentNumber(),
-            typeLabel.toLowerCase(),
-            document.getDocumentNumber(),
-            document.getCompany().getName(),
-            document.getIssueDate().toString(),
-            document.getDueDate().toString(),
-            document.getTotalAmountWithVat().toString(),
-            document.getCurrencyCode(),
-            attachmentInfo,
-            document.getCompany().getName()
-        );
+    /**
+     * Статус на изпращанията по имейл за документ (от опашката)
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.canAccessDocument(authentication, #documentId)")
+    public List<EmailOutbox> emailDeliveriesByDocument(@Argument Long documentId) {
+        return emailOutboxService.findByDocument(documentId);
     }
 
     // ========== СТАТИСТИКИ ==========
@@ -548,11 +534,12 @@ public class DocumentController {
 
     /**
      * GraphQL schema mapping за isPaid - проверява дали документът е платен
-     * CASH и CARD са автоматично платени, иначе проверява paidAt
+     * CASH и CARD са автоматично платени, иначе проверява paidAt.
+     * Начинът на плащане идва през DataLoader, ако не е зареден
      */
     @SchemaMapping(typeName = "Document", field = "isPaid")
-    public boolean isPaid(Document document) {
-        return document.isPaid();
+    public CompletableFuture<Boolean> isPaid(Document document, DataFetchingEnvironment env) {
+        return paymentMethod(document, env).thenApply(document::isPaidWith);
     }
 
     /**
@@ -595,6 +582,15 @@ public class DocumentController {
 
     // ========== DATALOADER-BASED SCHEMA MAPPINGS ==========
 
+    /**
+     * DataLoader-based resolver for Document.clientName
+     * Reads the name from the batched client instead of the lazy association
+     */
+    @SchemaMapping(typeName = "Document", field = "clientName")
+    public CompletableFuture<String> clientName(Document document, DataFetchingEnvironment env) {
+        return client(document, env).thenApply(client -> client != null ? client.getName() : null);
+    }
+
     /**
      * DataLoader-based resolver for Document.client
      * Batches multiple client lookups into a single database query
@@ -687,4 +683,18 @@ public class DocumentController {
         DataLoader<Long, BankAccount> dataLoader = env.getDataLoader(DataLoaderConfig.BANK_ACCOUNT_BY_ID);
         return dataLoader.load(ba.getId());
     }
+
+    /**
+     * DataLoader-based resolver for DocumentNumberSequence.company
+     */
+    @SchemaMapping(typeName = "DocumentNumberSequence", field = "company")
+    public CompletableFuture<Company> sequenceCompany(DocumentNumberSequence sequence, DataFetchingEnvironment env) {
+        Company company = sequence.getCompany();
+        if (company == null || org.hibernate.Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
 }
\ No newline at end of file
@@ -1,8 +1,10 @@
 package com.invoiceapp.backend.controller;
 
 import com.invoiceapp.backend.dataloader.DataLoaderConfig;
+import com.invoiceapp.backend.model.Document;
 import com.invoiceapp.backend.model.DocumentItem;
 import com.invoiceapp.backend.model.Item;
+import com.invoiceapp.backend.model.VatExemptionReason;
 import graphql.schema.DataFetchingEnvironment;
 import org.dataloader.DataLoader;
 import org.springframework.graphql.data.method.annotation.SchemaMapping;
@@ -17,6 +19,20 @@ import java.util.concurrent.CompletableFuture;
 @Controller
 public class DocumentItemController {
 
+    /**
+     * DataLoader-based resolver for DocumentItem.document
+     */
+    @SchemaMapping(typeName = "DocumentItem", field = "document")
+    public CompletableFuture<Document> document(DocumentItem documentItem, DataFetchingEnvironment env) {
+        Document document = documentItem.getDocument();
+        if (document == null || org.hibernate.Hibernate.isInitialized(document)) {
+            return CompletableFuture.completedFuture(document);
+        }
+
+        DataLoader<Long, Document> dataLoader = env.getDataLoader(DataLoaderConfig.DOCUMENT_BY_ID);
+        return dataLoader.load(document.getId());
+    }
+
     /**
      * DataLoader-based resolver for DocumentItem.item
      * Batches multiple item lookups into a single database query
@@ -36,4 +52,41 @@ public class DocumentItemController {
         DataLoader<Long, Item> dataLoader = env.getDataLoader(DataLoaderConfig.ITEM_BY_ID);
         return dataLoader.load(item.getId());
     }
+
+    /**
+     * DataLoader-based resolver for DocumentItem.effectiveItemName
+     * The item is loaded only when the line has no description of its own
+     */
+    @SchemaMapping(typeName = "DocumentItem", field = "effectiveItemName")
+    public CompletableFuture<String> effectiveItemName(DocumentItem documentItem, DataFetchingEnvironment env) {
+        if (documentItem.hasItemDescription()) {
+            return CompletableFuture.completedFuture(documentItem.getItemDescription());
+        }
+        return item(documentItem, env).thenApply(documentItem::effectiveItemName);
+    }
+
+    /**
+     * DataLoader-based resolver for DocumentItem.effectiveItemNameEn
+     */
+    @SchemaMapping(typeName = "DocumentItem", field = "effectiveItemNameEn")
+    public CompletableFuture<String> effectiveItemNameEn(DocumentItem documentItem, DataFetchingEnvironment env) {
+        if (documentItem.hasItemDescriptionEn()) {
+            return CompletableFuture.completedFuture(documentItem.getItemDescriptionEn());
+        }
+        return item(documentItem, env).thenApply(documentItem::effectiveItemNameEn);
+    }
+
+    /**
+     * DataLoader-based resolver for DocumentItem.vatExemptionReason
+     */
+    @SchemaMapping(typeName = "DocumentItem", field = "vatExemptionReason")
+    public CompletableFuture<VatExemptionReason> vatExemptionReason(DocumentItem documentItem, DataFetchingEnvironment env) {
+        VatExemptionReason reason = documentItem.getVatExemptionReason();
+        if (reason == null || org.hibernate.Hibernate.isInitialized(reason)) {
+            return CompletableFuture.completedFuture(reason);
+        }
+
+        DataLoader<Long, VatExemptionReason> dataLoader = env.getDataLoader(DataLoaderConfig.VAT_EXEMPTION_REASON_BY_ID);
+        return dataLoader.load(reason.getId());
+    }
 }
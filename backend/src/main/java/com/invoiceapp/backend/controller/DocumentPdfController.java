@@ -0,0 +1,43 @@
+package com.invoiceapp.backend.controller;
+
+import com.invoiceapp.backend.service.DocumentService;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel;
+import com.invoiceapp.backend.service.pdf.DocumentPdfRenderer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Изтегляне на PDF на документ, генериран на сървъра
+ */
+@RestController
+public class DocumentPdfController {
+
+    private final DocumentService documentService;
+    private final DocumentPdfRenderer pdfRenderer;
+
+    public DocumentPdfController(DocumentService documentService, DocumentPdfRenderer pdfRenderer) {
+        this.documentService = documentService;
+        this.pdfRenderer = pdfRenderer;
+    }
+
+    @GetMapping(value = "/api/documents/{documentId}/pdf", produces = MediaType.APPLICATION_PDF_VALUE)
+    @PreAuthorize("@customPermissionEvaluator.canAccessDocument(authentication, #documentId)")
+    public ResponseEntity<byte[]> download(@PathVariable Long documentId) {
+        DocumentPdfModel model = documentService.findPdfModel(documentId).orElse(null);
+        if (model == null) {
+            return ResponseEntity.notFound().build();
+        }
+        byte[] pdf = pdfRenderer.render(model);
+        String filename = String.format("%s-%s.pdf", model.documentType().name().toLowerCase(), model.documentNumber());
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_PDF)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().filename(filename).build().toString())
+                .body(pdf);
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -21,6 +22,7 @@ public class DocumentVerificationController {
     }
 
     @QueryMapping
+    @Transactional(readOnly = true)
     public PublicDocumentInfo verifyDocument(@Argument String uuid) {
         Optional<Document> documentOpt = documentRepository.findByDocumentUuid(uuid);
 
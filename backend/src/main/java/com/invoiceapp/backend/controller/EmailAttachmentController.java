@@ -0,0 +1,56 @@
+package com.invoiceapp.backend.controller;
+
+import com.invoiceapp.backend.model.User;
+import com.invoiceapp.backend.model.dto.AttachmentUploadResult;
+import com.invoiceapp.backend.repository.UserRepository;
+import com.invoiceapp.backend.service.EmailAttachmentStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Качване на PDF за изпращане по имейл като multipart заявка.
+ * Файлът се записва на диска и се прикача към имейла по token в sendDocumentByEmail
+ * от потребител на същата фирма.
+ */
+@RestController
+public class EmailAttachmentController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailAttachmentController.class);
+
+    private final EmailAttachmentStorage attachmentStorage;
+    private final UserRepository userRepository;
+
+    public EmailAttachmentController(EmailAttachmentStorage attachmentStorage, UserRepository userRepository) {
+        this.attachmentStorage = attachmentStorage;
+        this.userRepository = userRepository;
+    }
+
+    @PostMapping(value = "/api/email-attachments", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> upload(@RequestParam("file") MultipartFile file, Authentication authentication) {
+        User user = userRepository.findByUsername(authentication.getName()).orElse(null);
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("message", "Потребителят не е намерен"));
+        }
+        try {
+            String token = attachmentStorage.storeUpload(file, user.getUsername(),
+                    user.getCompany() != null ? user.getCompany().getId() : null);
+            return ResponseEntity.ok(new AttachmentUploadResult(token, file.getSize()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Failed to store email attachment", e);
+            return ResponseEntity.internalServerError().body(Map.of("message", "Грешка при записване на файла"));
+        }
+    }
+}
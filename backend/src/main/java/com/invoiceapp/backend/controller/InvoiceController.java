@@ -1,18 +1,24 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.*;
 import com.invoiceapp.backend.model.dto.CreateInvoiceInput;
 import com.invoiceapp.backend.repository.ClientRepository;
 import com.invoiceapp.backend.repository.CompanyRepository;
 import com.invoiceapp.backend.repository.InvoiceRepository;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class InvoiceController {
@@ -59,4 +65,18 @@ public class InvoiceController {
 
         return invoiceRepository.save(invoice);
     }
+
+    /**
+     * Клиентът на фактурата през DataLoader - извън транзакция асоциацията не може да се зареди
+     */
+    @SchemaMapping(typeName = "Invoice", field = "client")
+    public CompletableFuture<Client> client(Invoice invoice, DataFetchingEnvironment env) {
+        Client client = invoice.getClient();
+        if (client == null || Hibernate.isInitialized(client)) {
+            return CompletableFuture.completedFuture(client);
+        }
+
+        DataLoader<Long, Client> dataLoader = env.getDataLoader(DataLoaderConfig.CLIENT_BY_ID);
+        return dataLoader.load(client.getId());
+    }
 }
@@ -1,31 +1,46 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.Company;
 import com.invoiceapp.backend.model.Item;
+import com.invoiceapp.backend.model.dto.AutocompleteEntry;
 import com.invoiceapp.backend.model.dto.CreateItemInput;
 import com.invoiceapp.backend.model.dto.UpdateItemInput;
 import com.invoiceapp.backend.repository.CompanyRepository;
 import com.invoiceapp.backend.repository.ItemRepository;
+import com.invoiceapp.backend.service.AutocompleteIndex;
+import com.invoiceapp.backend.service.OwnershipIndex;
+import com.invoiceapp.backend.util.SearchTerms;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class ItemController {
 
     private final ItemRepository itemRepository;
     private final CompanyRepository companyRepository;
+    private final OwnershipIndex ownershipIndex;
+    private final AutocompleteIndex autocompleteIndex;
 
     @Autowired
-    public ItemController(ItemRepository itemRepository, CompanyRepository companyRepository) {
+    public ItemController(ItemRepository itemRepository, CompanyRepository companyRepository, OwnershipIndex ownershipIndex,
+                          AutocompleteIndex autocompleteIndex) {
         this.itemRepository = itemRepository;
         this.companyRepository = companyRepository;
+        this.ownershipIndex = ownershipIndex;
+        this.autocompleteIndex = autocompleteIndex;
     }
 
     // Query methods
@@ -42,7 +57,7 @@ public class ItemController {
     }
 
     @QueryMapping
-    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, @itemRepository.findById(#id).orElse(null)?.getCompany()?.getId())")
+    @PreAuthorize("@customPermissionEvaluator.canAccessItem(authentication, #id)")
     public Optional<Item> itemById(@Argument Long id) {
         return itemRepository.findById(id);
     }
@@ -55,8 +70,22 @@ public class ItemController {
 
     @QueryMapping
     @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
-    public List<Item> searchItems(@Argument Long companyId, @Argument String searchTerm) {
-        return itemRepository.findItemsByCompanyAndSearchTerm(companyId, searchTerm);
+    public List<Item> searchItems(@Argument Long companyId, @Argument String searchTerm, @Argument Integer limit) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return itemRepository.findByCompanyIdOrderByItemNumber(companyId);
+        }
+
+        String term = searchTerm.trim();
+        return itemRepository.searchRanked(companyId, SearchTerms.likeEscape(term), term, SearchTerms.limit(limit));
+    }
+
+    /**
+     * Autocomplete for item pickers - served from memory, one request per keystroke
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public List<AutocompleteEntry> autocompleteItems(@Argument Long companyId, @Argument String prefix, @Argument Integer limit) {
+        return autocompleteIndex.items(companyId, prefix, limit);
     }
 
     // Mutation methods
@@ -85,11 +114,13 @@ public class ItemController {
         item.setUnitPrice(input.getUnitPrice());
         item.setIsActive(true);
 
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        autocompleteIndex.itemSaved(saved);
+        return saved;
     }
 
     @MutationMapping
-    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, @itemRepository.findById(#input.getId()).orElse(null)?.getCompany()?.getId())")
+    @PreAuthorize("@customPermissionEvaluator.canAccessItem(authentication, #input.getId())")
     public Item updateItem(@Argument UpdateItemInput input) {
         Optional<Item> itemOpt = itemRepository.findById(input.getId());
         if (itemOpt.isEmpty()) {
@@ -128,11 +159,13 @@ public class ItemController {
             item.setUnitPrice(input.getUnitPrice());
         }
 
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        autocompleteIndex.itemSaved(saved);
+        return saved;
     }
 
     @MutationMapping
-    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, @itemRepository.findById(#id).orElse(null)?.getCompany()?.getId())")
+    @PreAuthorize("@customPermissionEvaluator.canAccessItem(authentication, #id)")
     public Item activateItem(@Argument Long id) {
         Optional<Item> itemOpt = itemRepository.findById(id);
         if (itemOpt.isEmpty()) {
@@ -141,11 +174,13 @@ public class ItemController {
 
         Item item = itemOpt.get();
         item.setIsActive(true);
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        autocompleteIndex.itemSaved(saved);
+        return saved;
     }
 
     @MutationMapping
-    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, @itemRepository.findById(#id).orElse(null)?.getCompany()?.getId())")
+    @PreAuthorize("@customPermissionEvaluator.canAccessItem(authentication, #id)")
     public Item deactivateItem(@Argument Long id) {
         Optional<Item> itemOpt = itemRepository.findById(id);
         if (itemOpt.isEmpty()) {
@@ -154,11 +189,13 @@ public class ItemController {
 
         Item item = itemOpt.get();
         item.setIsActive(false);
-        return itemRepository.save(item);
+        Item saved = itemRepository.save(item);
+        autocompleteIndex.itemSaved(saved);
+        return saved;
     }
 
     @MutationMapping
-    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, @itemRepository.findById(#id).orElse(null)?.getCompany()?.getId())")
+    @PreAuthorize("@customPermissionEvaluator.canAccessItem(authentication, #id)")
     public Boolean deleteItem(@Argument Long id) {
         Optional<Item> itemOpt = itemRepository.findById(id);
         if (itemOpt.isEmpty()) {
@@ -171,6 +208,22 @@ public class ItemController {
         }
 
         itemRepository.deleteById(id);
+        ownershipIndex.evictItem(id);
+        autocompleteIndex.itemDeleted(itemOpt.get().getCompany().getId(), id);
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Фирмата на артикула през DataLoader - извън транзакция асоциацията не може да се зареди
+     */
+    @SchemaMapping(typeName = "Item", field = "company")
+    public CompletableFuture<Company> company(Item item, DataFetchingEnvironment env) {
+        Company company = item.getCompany();
+        if (company == null || Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
+}
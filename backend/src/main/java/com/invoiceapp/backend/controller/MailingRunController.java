@@ -0,0 +1,91 @@
+package com.invoiceapp.backend.controller;
+
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.model.MailingRun;
+import com.invoiceapp.backend.model.MailingRunItem;
+import com.invoiceapp.backend.model.dto.MailingRunProgress;
+import com.invoiceapp.backend.model.dto.StartMailingRunInput;
+import com.invoiceapp.backend.service.MailingRunService;
+import org.springframework.graphql.data.method.annotation.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Controller
+public class MailingRunController {
+
+    private final MailingRunService mailingRunService;
+
+    public MailingRunController(MailingRunService mailingRunService) {
+        this.mailingRunService = mailingRunService;
+    }
+
+    /**
+     * Стартира масово изпращане на документи по имейл
+     */
+    @MutationMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #input.getCompanyId())")
+    public MailingRun startMailingRun(@Argument StartMailingRunInput input) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return mailingRunService.start(input, username);
+    }
+
+    /**
+     * Отменя масово изпращане
+     */
+    @MutationMapping
+    @PreAuthorize("@customPermissionEvaluator.canAccessMailingRun(authentication, #id)")
+    public MailingRun cancelMailingRun(@Argument Long id) {
+        return mailingRunService.cancel(id);
+    }
+
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.canAccessMailingRun(authentication, #id)")
+    public MailingRun mailingRun(@Argument Long id) {
+        return mailingRunService.findById(id).orElse(null);
+    }
+
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public List<MailingRun> mailingRunsByCompany(@Argument Long companyId) {
+        return mailingRunService.findByCompany(companyId);
+    }
+
+    /**
+     * Резултат за всеки документ от изпращането
+     */
+    @QueryMapping
+    @PreAuthorize("@customPermissionEvaluator.canAccessMailingRun(authentication, #mailingRunId)")
+    public List<MailingRunItem> mailingRunItems(@Argument Long mailingRunId) {
+        return mailingRunService.findItems(mailingRunId);
+    }
+
+    @SchemaMapping(typeName = "MailingRun", field = "progress")
+    public MailingRunProgress progress(MailingRun run) {
+        return mailingRunService.getProgress(run);
+    }
+
+    /**
+     * Статус на имейлите - с една заявка за целия списък
+     */
+    @BatchMapping(typeName = "MailingRunItem", field = "delivery")
+    public Map<MailingRunItem, EmailOutbox> delivery(List<MailingRunItem> items) {
+        Map<Long, EmailOutbox> deliveries = mailingRunService.findDeliveries(items.stream()
+                .map(MailingRunItem::getOutboxId)
+                .filter(Objects::nonNull)
+                .toList());
+        Map<MailingRunItem, EmailOutbox> result = new LinkedHashMap<>();
+        for (MailingRunItem item : items) {
+            EmailOutbox delivery = item.getOutboxId() != null ? deliveries.get(item.getOutboxId()) : null;
+            if (delivery != null) {
+                result.put(item, delivery);
+            }
+        }
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.PaymentMethod;
 import com.invoiceapp.backend.model.BankAccount;
 import com.invoiceapp.backend.model.Company;
@@ -8,14 +9,19 @@ import com.invoiceapp.backend.model.dto.CreateBankAccountInput;
 import com.invoiceapp.backend.repository.PaymentMethodRepository;
 import com.invoiceapp.backend.repository.BankAccountRepository;
 import com.invoiceapp.backend.repository.CompanyRepository;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.stereotype.Controller;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class PaymentController {
@@ -211,4 +217,32 @@ public class PaymentController {
         bankAccount.setIsDefault(false); // Remove default flag if deactivating
         return bankAccountRepository.save(bankAccount);
     }
-}
\ No newline at end of file
+
+    /**
+     * Фирмата на начина на плащане през DataLoader - извън транзакция асоциацията не може да се зареди
+     */
+    @SchemaMapping(typeName = "PaymentMethod", field = "company")
+    public CompletableFuture<Company> paymentMethodCompany(PaymentMethod paymentMethod, DataFetchingEnvironment env) {
+        Company company = paymentMethod.getCompany();
+        if (company == null || Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
+
+    /**
+     * Фирмата на банковата сметка през DataLoader - извън транзакция асоциацията не може да се зареди
+     */
+    @SchemaMapping(typeName = "BankAccount", field = "company")
+    public CompletableFuture<Company> bankAccountCompany(BankAccount bankAccount, DataFetchingEnvironment env) {
+        Company company = bankAccount.getCompany();
+        if (company == null || Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
+}
@@ -119,6 +119,7 @@ public class SmtpController {
             request.setUseSsl(input.getUseSsl());
             request.setSmtpAuth(input.getSmtpAuth());
             request.setProviderName(input.getProviderName());
+            request.setMaxMessagesPerMinute(input.getMaxMessagesPerMinute());
 
             return smtpSettingsService.createSmtpSettings(request);
         } catch (Exception e) {
@@ -144,6 +145,7 @@ public class SmtpController {
             request.setUseSsl(input.getUseSsl());
             request.setSmtpAuth(input.getSmtpAuth());
             request.setProviderName(input.getProviderName());
+            request.setMaxMessagesPerMinute(input.getMaxMessagesPerMinute());
             request.setIsActive(input.getIsActive());
 
             return smtpSettingsService.updateSmtpSettings(id, request);
@@ -218,6 +220,7 @@ public class SmtpController {
         private Boolean useSsl;
         private Boolean smtpAuth;
         private String providerName;
+        private Integer maxMessagesPerMinute;
 
         // Getters and setters
         public String getSmtpHost() { return smtpHost; }
@@ -249,6 +252,9 @@ public class SmtpController {
 
         public String getProviderName() { return providerName; }
         public void setProviderName(String providerName) { this.providerName = providerName; }
+
+        public Integer getMaxMessagesPerMinute() { return maxMessagesPerMinute; }
+        public void setMaxMessagesPerMinute(Integer maxMessagesPerMinute) { this.maxMessagesPerMinute = maxMessagesPerMinute; }
     }
 
     public static class UpdateSmtpSettingsInput {
@@ -262,6 +268,7 @@ public class SmtpController {
         private Boolean useSsl;
         private Boolean smtpAuth;
         private String providerName;
+        private Integer maxMessagesPerMinute;
         private Boolean isActive;
 
         // Getters and setters
@@ -295,6 +302,9 @@ public class SmtpController {
         public String getProviderName() { return providerName; }
         public void setProviderName(String providerName) { this.providerName = providerName; }
 
+        public Integer getMaxMessagesPerMinute() { return maxMessagesPerMinute; }
+        public void setMaxMessagesPerMinute(Integer maxMessagesPerMinute) { this.maxMessagesPerMinute = maxMessagesPerMinute; }
+
         public Boolean getIsActive() { return isActive; }
         public void setIsActive(Boolean isActive) { this.isActive = isActive; }
     }
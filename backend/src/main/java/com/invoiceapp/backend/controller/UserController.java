@@ -1,5 +1,6 @@
 package com.invoiceapp.backend.controller;
 
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
 import com.invoiceapp.backend.model.Company;
 import com.invoiceapp.backend.model.User;
 import com.invoiceapp.backend.model.Role;
@@ -8,18 +9,24 @@ import com.invoiceapp.backend.model.dto.UpdateUserInput;
 import com.invoiceapp.backend.model.dto.ChangeUserPasswordInput;
 import com.invoiceapp.backend.repository.CompanyRepository;
 import com.invoiceapp.backend.repository.UserRepository;
+import graphql.schema.DataFetchingEnvironment;
+import org.dataloader.DataLoader;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.graphql.data.method.annotation.Argument;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.graphql.data.method.annotation.MutationMapping;
 import org.springframework.graphql.data.method.annotation.QueryMapping;
+import org.springframework.graphql.data.method.annotation.SchemaMapping;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Controller
 public class UserController {
@@ -44,6 +51,7 @@ public class UserController {
     }
 
     @MutationMapping
+    @Transactional
     @PreAuthorize("hasRole('SUPER_ADMIN') or (hasRole('ADMIN') and @customPermissionEvaluator.isUserInCompany(authentication, #input.companyId))")
     public User createUser(@Argument CreateUserInput input) {
         User user = new User();
@@ -178,4 +186,18 @@ public class UserController {
         
         return false;
     }
+
+    /**
+     * Фирмата на потребителя през DataLoader - извън транзакция асоциацията не може да се зареди
+     */
+    @SchemaMapping(typeName = "User", field = "company")
+    public CompletableFuture<Company> company(User user, DataFetchingEnvironment env) {
+        Company company = user.getCompany();
+        if (company == null || Hibernate.isInitialized(company)) {
+            return CompletableFuture.completedFuture(company);
+        }
+
+        DataLoader<Long, Company> dataLoader = env.getDataLoader(DataLoaderConfig.COMPANY_BY_ID);
+        return dataLoader.load(company.getId());
+    }
 }
@@ -0,0 +1,87 @@
+package com.invoiceapp.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceapp.backend.service.vat.NraViesWriter;
+import com.invoiceapp.backend.service.vat.VatLedgerService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Изтегляне на дневниците по ДДС и VIES декларацията за период. Файлът се записва направо в отговора,
+ * докато документите се четат от базата.
+ */
+@RestController
+public class VatLedgerController {
+
+    private final VatLedgerService vatLedgerService;
+    private final ObjectMapper objectMapper;
+
+    public VatLedgerController(VatLedgerService vatLedgerService, ObjectMapper objectMapper) {
+        this.vatLedgerService = vatLedgerService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Дневник за продажбите: ?period=2026-05&format=txt|csv&currency=EUR|BGN
+     */
+    @GetMapping("/api/companies/{companyId}/vat/sales-ledger")
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public void salesLedger(@PathVariable Long companyId,
+                            @RequestParam String period,
+                            @RequestParam(required = false) String format,
+                            @RequestParam(required = false) String currency,
+                            HttpServletResponse response) throws IOException {
+        VatLedgerService.LedgerRequest request;
+        try {
+            request = vatLedgerService.request(companyId, period, format, currency);
+        } catch (IllegalArgumentException e) {
+            badRequest(response, e.getMessage());
+            return;
+        }
+        attachment(response, request, vatLedgerService.salesLedgerFileName(request));
+        vatLedgerService.writeSalesLedger(request, response.getOutputStream());
+    }
+
+    /**
+     * VIES декларация: ?period=2026-05&currency=EUR|BGN
+     */
+    @GetMapping("/api/companies/{companyId}/vat/vies")
+    @PreAuthorize("@customPermissionEvaluator.isUserInCompany(authentication, #companyId)")
+    public void viesStatement(@PathVariable Long companyId,
+                              @RequestParam String period,
+                              @RequestParam(required = false) String currency,
+                              HttpServletResponse response) throws IOException {
+        VatLedgerService.LedgerRequest request;
+        try {
+            request = vatLedgerService.request(companyId, period, "txt", currency);
+        } catch (IllegalArgumentException e) {
+            badRequest(response, e.getMessage());
+            return;
+        }
+        attachment(response, request, NraViesWriter.FILE_NAME);
+        vatLedgerService.writeViesStatement(request, response.getOutputStream());
+    }
+
+    private static void attachment(HttpServletResponse response, VatLedgerService.LedgerRequest request, String fileName) {
+        response.setContentType(request.format() == VatLedgerService.Format.TXT
+                ? "text/plain;charset=windows-1251" : "text/csv;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString());
+    }
+
+    private void badRequest(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+}
@@ -0,0 +1,183 @@
+package com.invoiceapp.backend.dataloader;
+
+import com.invoiceapp.backend.metrics.StatementCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor for DataLoader batch functions.
+ * Each batch runs inside a read-only transaction on a dedicated pool (not the common ForkJoin pool),
+ * so the number of concurrent batch queries never exceeds the configured pool size.
+ * When the queue is full the batch runs on the calling thread instead of being rejected.
+ * Every batch is observed per loader (timer and span, a child of the observation that was current
+ * when the batch was dispatched) and its size recorded; the pool itself is reported as the
+ * "dataloader" executor.
+ * The batch runs as the user of the request, so replica routing keeps their reads on the primary
+ * right after their own writes.
+ */
+@Component
+public class BatchLoaderExecutor implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchLoaderExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    private final AtomicLong completedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong loadedKeys = new AtomicLong();
+
+    public BatchLoaderExecutor(PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               ObservationRegistry observationRegistry,
+                               @Value("${graphql.dataloader.pool-size:4}") int poolSize,
+                               @Value("${graphql.dataloader.queue-capacity:256}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                namedThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        new ExecutorServiceMetrics(executor, "dataloader", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs a batch load asynchronously inside a read-only transaction
+     * @param loaderName name of the DataLoader (for logging)
+     * @param keys the keys in this batch
+     * @param batch the function that loads all keys at once
+     */
+    public <K, V> CompletableFuture<V> submit(String loaderName, Collection<K> keys, Supplier<V> batch) {
+        // Queries, spans and the user of the batch belong to the request that submitted it
+        StatementCounter.Scope requestScope = StatementCounter.current();
+        Observation parent = observationRegistry.getCurrentObservation();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        CompletableFuture<V> future = new CompletableFuture<>();
+        executor.execute(new DelegatingSecurityContextRunnable(() -> {
+            StatementCounter.Scope previous = StatementCounter.attach(requestScope);
+            try {
+                load(loaderName, keys, batch, parent, future);
+            } finally {
+                StatementCounter.attach(previous);
+            }
+        }, securityContext));
+        return future;
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    public int getPoolSize() {
+        return executor.getPoolSize();
+    }
+
+    public long getCompletedBatches() {
+        return completedBatches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    public long getLoadedKeys() {
+        return loadedKeys.get();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private <K, V> void load(String loaderName, Collection<K> keys, Supplier<V> batch,
+                             Observation parent, CompletableFuture<V> future) {
+        Observation observation = Observation.createNotStarted("graphql.dataloader.batch", observationRegistry)
+                .parentObservation(parent)
+                .contextualName("dataloader " + loaderName)
+                .lowCardinalityKeyValue("loader", loaderName)
+                .highCardinalityKeyValue("keys", String.valueOf(keys.size()))
+                .start();
+        recordBatchSize(loaderName, keys.size());
+        long start = System.nanoTime();
+        V result;
+        try (Observation.Scope scope = observation.openScope()) {
+            result = readOnlyTransaction.execute(status -> batch.get());
+        } catch (RuntimeException | Error e) {
+            observation.error(e);
+            observation.stop();
+            failedBatches.incrementAndGet();
+            logger.error("DataLoader {} failed for {} keys", loaderName, keys.size(), e);
+            future.completeExceptionally(e);
+            return;
+        }
+        observation.stop();
+
+        completedBatches.incrementAndGet();
+        loadedKeys.addAndGet(keys.size());
+        if (logger.isDebugEnabled()) {
+            logger.debug("DataLoader {} loaded {} keys in {} ms",
+                    loaderName, keys.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        // Completed while the statement scope is attached, so the fetchers continuing on this thread are counted too
+        future.complete(result);
+    }
+
+    private void recordBatchSize(String loaderName, int keys) {
+        DistributionSummary.builder("graphql.dataloader.batch.size")
+                .description("Keys per DataLoader batch")
+                .tag("loader", loaderName)
+                .serviceLevelObjectives(1, 2, 5, 10, 25, 50, 100, 250, 500)
+                .register(meterRegistry)
+                .record(keys);
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "dataloader-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,14 +1,11 @@
 package com.invoiceapp.backend.dataloader;
 
 import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.model.Currency;
 import com.invoiceapp.backend.repository.*;
 import org.dataloader.DataLoader;
 import org.dataloader.DataLoaderRegistry;
-import org.springframework.graphql.execution.GraphQlSource;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.dataloader.BatchLoaderEnvironment;
-import org.dataloader.MappedBatchLoader;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -18,37 +15,59 @@ import java.util.stream.Collectors;
 /**
  * Configuration for GraphQL DataLoaders to solve N+1 query problems.
  * DataLoaders batch and cache database lookups within a single GraphQL request.
+ * Batch functions run on the bounded {@link BatchLoaderExecutor} inside a read-only transaction.
  */
 @Configuration
 public class DataLoaderConfig {
 
     public static final String CLIENT_BY_ID = "clientById";
     public static final String COMPANY_BY_ID = "companyById";
+    public static final String DOCUMENT_BY_ID = "documentById";
     public static final String DOCUMENT_ITEMS_BY_DOCUMENT_ID = "documentItemsByDocumentId";
     public static final String PAYMENT_METHOD_BY_ID = "paymentMethodById";
     public static final String BANK_ACCOUNT_BY_ID = "bankAccountById";
     public static final String ITEM_BY_ID = "itemById";
+    public static final String VAT_EXEMPTION_REASON_BY_ID = "vatExemptionReasonById";
+    public static final String CURRENCY_BY_CODE = "currencyByCode";
+    public static final String USERS_BY_COMPANY_ID = "usersByCompanyId";
+    public static final String PAYMENT_METHODS_BY_COMPANY_ID = "paymentMethodsByCompanyId";
+    public static final String BANK_ACCOUNTS_BY_COMPANY_ID = "bankAccountsByCompanyId";
 
     private final ClientRepository clientRepository;
     private final CompanyRepository companyRepository;
+    private final DocumentRepository documentRepository;
     private final DocumentItemRepository documentItemRepository;
     private final PaymentMethodRepository paymentMethodRepository;
     private final BankAccountRepository bankAccountRepository;
     private final ItemRepository itemRepository;
+    private final VatExemptionReasonRepository vatExemptionReasonRepository;
+    private final CurrencyRepository currencyRepository;
+    private final UserRepository userRepository;
+    private final BatchLoaderExecutor batchLoaderExecutor;
 
     public DataLoaderConfig(
             ClientRepository clientRepository,
             CompanyRepository companyRepository,
+            DocumentRepository documentRepository,
             DocumentItemRepository documentItemRepository,
             PaymentMethodRepository paymentMethodRepository,
             BankAccountRepository bankAccountRepository,
-            ItemRepository itemRepository) {
+            ItemRepository itemRepository,
+            VatExemptionReasonRepository vatExemptionReasonRepository,
+            CurrencyRepository currencyRepository,
+            UserRepository userRepository,
+            BatchLoaderExecutor batchLoaderExecutor) {
         this.clientRepository = clientRepository;
         this.companyRepository = companyRepository;
+        this.documentRepository = documentRepository;
         this.documentItemRepository = documentItemRepository;
         this.paymentMethodRepository = paymentMethodRepository;
         this.bankAccountRepository = bankAccountRepository;
         this.itemRepository = itemRepository;
+        this.vatExemptionReasonRepository = vatExemptionReasonRepository;
+        this.currencyRepository = currencyRepository;
+        this.userRepository = userRepository;
+        this.batchLoaderExecutor = batchLoaderExecutor;
     }
 
     /**
@@ -60,54 +79,98 @@ public class DataLoaderConfig {
 
         // Client DataLoader - loads clients by their IDs
         registry.register(CLIENT_BY_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> clientIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<Client> clients = clientRepository.findAllById(clientIds);
-                    return clients.stream().collect(Collectors.toMap(Client::getId, Function.identity()));
-                })
+                (Set<Long> clientIds) -> batchLoaderExecutor.submit(CLIENT_BY_ID, clientIds, () ->
+                        byId(clientRepository.findAllById(clientIds), Client::getId))
         ));
 
         // Company DataLoader - loads companies by their IDs
         registry.register(COMPANY_BY_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> companyIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<Company> companies = companyRepository.findAllById(companyIds);
-                    return companies.stream().collect(Collectors.toMap(Company::getId, Function.identity()));
-                })
+                (Set<Long> companyIds) -> batchLoaderExecutor.submit(COMPANY_BY_ID, companyIds, () ->
+                        byId(companyRepository.findAllById(companyIds), Company::getId))
+        ));
+
+        // Document DataLoader - loads documents by their IDs
+        registry.register(DOCUMENT_BY_ID, DataLoader.newMappedDataLoader(
+                (Set<Long> documentIds) -> batchLoaderExecutor.submit(DOCUMENT_BY_ID, documentIds, () ->
+                        byId(documentRepository.findAllById(documentIds), Document::getId))
         ));
 
         // DocumentItems DataLoader - loads document items grouped by document ID
         registry.register(DOCUMENT_ITEMS_BY_DOCUMENT_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> documentIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<DocumentItem> items = documentItemRepository.findByDocumentIdIn(documentIds);
-                    return items.stream().collect(Collectors.groupingBy(
-                            item -> item.getDocument().getId()
-                    ));
-                })
+                (Set<Long> documentIds) -> batchLoaderExecutor.submit(DOCUMENT_ITEMS_BY_DOCUMENT_ID, documentIds, () ->
+                        groupByOwner(documentIds, documentItemRepository.findWithDocumentIdByDocumentIdIn(documentIds),
+                                DocumentItem.class))
         ));
 
         // PaymentMethod DataLoader - loads payment methods by their IDs
         registry.register(PAYMENT_METHOD_BY_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> paymentMethodIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<PaymentMethod> methods = paymentMethodRepository.findAllById(paymentMethodIds);
-                    return methods.stream().collect(Collectors.toMap(PaymentMethod::getId, Function.identity()));
-                })
+                (Set<Long> paymentMethodIds) -> batchLoaderExecutor.submit(PAYMENT_METHOD_BY_ID, paymentMethodIds, () ->
+                        byId(paymentMethodRepository.findAllById(paymentMethodIds), PaymentMethod::getId))
         ));
 
         // BankAccount DataLoader - loads bank accounts by their IDs
         registry.register(BANK_ACCOUNT_BY_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> bankAccountIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<BankAccount> accounts = bankAccountRepository.findAllById(bankAccountIds);
-                    return accounts.stream().collect(Collectors.toMap(BankAccount::getId, Function.identity()));
-                })
+                (Set<Long> bankAccountIds) -> batchLoaderExecutor.submit(BANK_ACCOUNT_BY_ID, bankAccountIds, () ->
+                        byId(bankAccountRepository.findAllById(bankAccountIds), BankAccount::getId))
         ));
 
         // Item DataLoader - loads items by their IDs
         registry.register(ITEM_BY_ID, DataLoader.newMappedDataLoader(
-                (Set<Long> itemIds) -> CompletableFuture.supplyAsync(() -> {
-                    List<Item> items = itemRepository.findAllById(itemIds);
-                    return items.stream().collect(Collectors.toMap(Item::getId, Function.identity()));
-                })
+                (Set<Long> itemIds) -> batchLoaderExecutor.submit(ITEM_BY_ID, itemIds, () ->
+                        byId(itemRepository.findAllById(itemIds), Item::getId))
+        ));
+
+        // VatExemptionReason DataLoader - loads exemption reasons by their IDs
+        registry.register(VAT_EXEMPTION_REASON_BY_ID, DataLoader.newMappedDataLoader(
+                (Set<Long> reasonIds) -> batchLoaderExecutor.submit(VAT_EXEMPTION_REASON_BY_ID, reasonIds, () ->
+                        byId(vatExemptionReasonRepository.findAllById(reasonIds), VatExemptionReason::getId))
+        ));
+
+        // Currency DataLoader - loads currencies by their codes
+        registry.register(CURRENCY_BY_CODE, DataLoader.newMappedDataLoader(
+                (Set<String> codes) -> batchLoaderExecutor.submit(CURRENCY_BY_CODE, codes, () ->
+                        byId(currencyRepository.findAllById(codes), Currency::getCode))
+        ));
+
+        // Users DataLoader - loads users grouped by company ID
+        registry.register(USERS_BY_COMPANY_ID, DataLoader.newMappedDataLoader(
+                (Set<Long> companyIds) -> batchLoaderExecutor.submit(USERS_BY_COMPANY_ID, companyIds, () ->
+                        groupByOwner(companyIds, userRepository.findWithCompanyIdByCompanyIdIn(companyIds), User.class))
+        ));
+
+        // PaymentMethods DataLoader - loads payment methods grouped by company ID
+        registry.register(PAYMENT_METHODS_BY_COMPANY_ID, DataLoader.newMappedDataLoader(
+                (Set<Long> companyIds) -> batchLoaderExecutor.submit(PAYMENT_METHODS_BY_COMPANY_ID, companyIds, () ->
+                        groupByOwner(companyIds, paymentMethodRepository.findWithCompanyIdByCompanyIdIn(companyIds),
+                                PaymentMethod.class))
+        ));
+
+        // BankAccounts DataLoader - loads bank accounts grouped by company ID
+        registry.register(BANK_ACCOUNTS_BY_COMPANY_ID, DataLoader.newMappedDataLoader(
+                (Set<Long> companyIds) -> batchLoaderExecutor.submit(BANK_ACCOUNTS_BY_COMPANY_ID, companyIds, () ->
+                        groupByOwner(companyIds, bankAccountRepository.findWithCompanyIdByCompanyIdIn(companyIds),
+                                BankAccount.class))
         ));
 
         return registry;
     }
+
+    private static <K, V> Map<K, V> byId(List<V> entities, Function<V, K> idGetter) {
+        return entities.stream().collect(Collectors.toMap(idGetter, Function.identity()));
+    }
+
+    /**
+     * Groups [ownerId, entity] rows by owner ID. Every requested owner gets a list,
+     * so owners without children resolve to an empty list instead of null.
+     */
+    static <V> Map<Long, List<V>> groupByOwner(Set<Long> ownerIds, List<Object[]> rows, Class<V> type) {
+        Map<Long, List<V>> result = new HashMap<>();
+        for (Long ownerId : ownerIds) {
+            result.put(ownerId, new ArrayList<>());
+        }
+        for (Object[] row : rows) {
+            result.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add(type.cast(row[1]));
+        }
+        return result;
+    }
 }
@@ -0,0 +1,55 @@
+package com.invoiceapp.backend.metrics;
+
+import graphql.ExecutionInput;
+import io.micrometer.common.KeyValues;
+import org.springframework.graphql.observation.DefaultExecutionRequestObservationConvention;
+import org.springframework.graphql.observation.ExecutionRequestObservationContext;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Adds the operation name to the graphql.request timer, so latency is reported per
+ * operation and not only for all GraphQL traffic together, and names the request span
+ * after the operation ("graphql createDocument").
+ * The number of distinct names is capped in {@link MetricsConfig}.
+ */
+public class GraphQlOperationConvention extends DefaultExecutionRequestObservationConvention {
+
+    public static final String OPERATION_NAME = "graphql.operation.name";
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final Pattern NAMED_OPERATION =
+            Pattern.compile("\\b(?:query|mutation|subscription)\\s+([_A-Za-z][_0-9A-Za-z]*)");
+
+    @Override
+    public String getContextualName(ExecutionRequestObservationContext context) {
+        return "graphql " + operationName(context);
+    }
+
+    @Override
+    public KeyValues getLowCardinalityKeyValues(ExecutionRequestObservationContext context) {
+        return super.getLowCardinalityKeyValues(context).and(OPERATION_NAME, operationName(context));
+    }
+
+    private static String operationName(ExecutionRequestObservationContext context) {
+        ExecutionInput input = context.getExecutionInput();
+        return operationName(input.getOperationName(), input.getQuery());
+    }
+
+    /**
+     * The requested operation name, or the name of the first operation in the document
+     */
+    public static String operationName(String operationName, String document) {
+        if (operationName != null && !operationName.isBlank()) {
+            return operationName;
+        }
+        if (document != null) {
+            Matcher matcher = NAMED_OPERATION.matcher(document);
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+        return ANONYMOUS;
+    }
+}
@@ -0,0 +1,41 @@
+package com.invoiceapp.backend.metrics;
+
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Mono;
+
+/**
+ * Stores the GraphQL operation name as a request attribute before the operation executes,
+ * for the statement count per request and the per-operation trace sampling.
+ * Spring MVC runs the interceptors on the request thread, where the request attributes are bound.
+ */
+@Component
+public class GraphQlOperationInterceptor implements WebGraphQlInterceptor {
+
+    public static final String OPERATION_ATTRIBUTE = GraphQlOperationInterceptor.class.getName() + ".operation";
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(OPERATION_ATTRIBUTE,
+                    GraphQlOperationConvention.operationName(request.getOperationName(), request.getDocument()),
+                    RequestAttributes.SCOPE_REQUEST);
+        }
+        return chain.next(request);
+    }
+
+    /**
+     * @return the operation of the GraphQL request on this thread, or null
+     */
+    public static String currentOperation() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                ? (String) attributes.getAttribute(OPERATION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST)
+                : null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.invoiceapp.backend.metrics;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Observations of calls to external systems (VIES, ECB, SMTP, S3): a timer and a trace span
+ * per call. All calls go to one metric, tagged by integration, operation and outcome (plus the
+ * exception class as "error"), so latency and error rate can be compared across integrations:
+ * <pre>
+ * rate(integration_calls_seconds_count{outcome="error"}[5m]) / rate(integration_calls_seconds_count[5m])
+ * </pre>
+ */
+@Component
+public class IntegrationMetrics {
+
+    public static final String METRIC = "integration.calls";
+
+    private final ObservationRegistry registry;
+
+    public IntegrationMetrics(ObservationRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Observes a call; the span is current while the call runs, so HTTP client spans nest under it
+     */
+    public <T, E extends Throwable> T call(String integration, String operation,
+                                           Observation.CheckedCallable<T, E> call) throws E {
+        Observation observation = start(integration, operation);
+        Throwable error = null;
+        try (Observation.Scope scope = observation.openScope()) {
+            return call.call();
+        } catch (Throwable e) {
+            error = e;
+            throw e;
+        } finally {
+            stop(observation, error);
+        }
+    }
+
+    public <E extends Throwable> void run(String integration, String operation,
+                                          Observation.CheckedRunnable<E> run) throws E {
+        call(integration, operation, () -> {
+            run.run();
+            return null;
+        });
+    }
+
+    /**
+     * Starts observing a call that begins and ends in separate callbacks; pass the observation
+     * to {@link #stop} when the call returns or fails
+     */
+    public Observation start(String integration, String operation) {
+        return Observation.createNotStarted(METRIC, registry)
+                .contextualName(integration + " " + operation)
+                .lowCardinalityKeyValue("integration", integration)
+                .lowCardinalityKeyValue("operation", operation)
+                .start();
+    }
+
+    /**
+     * @param error the failure, or null if the call succeeded
+     */
+    public void stop(Observation observation, Throwable error) {
+        observation.lowCardinalityKeyValue("outcome", error == null ? "success" : "error");
+        if (error != null) {
+            observation.error(error);
+        }
+        observation.stop();
+    }
+}
@@ -0,0 +1,40 @@
+package com.invoiceapp.backend.metrics;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics beyond the ones Spring Boot registers on its own (HTTP, HikariCP, JVM, GraphQL
+ * requests and data fetchers).
+ * Tags taken from requests (operation names) or data (company ids) are capped, so a client
+ * sending random operation names cannot blow up the number of time series.
+ */
+@Configuration
+public class MetricsConfig {
+
+    public static final String DOCUMENTS_CREATED = "documents.created";
+
+    @Bean
+    public GraphQlOperationConvention graphQlOperationConvention() {
+        return new GraphQlOperationConvention();
+    }
+
+    @Bean
+    public MeterFilter graphQlOperationLimit(@Value("${metrics.max-operation-names:200}") int maxOperationNames) {
+        return MeterFilter.maximumAllowableTags("graphql.request", GraphQlOperationConvention.OPERATION_NAME,
+                maxOperationNames, MeterFilter.deny());
+    }
+
+    @Bean
+    public MeterFilter statementCountOperationLimit(@Value("${metrics.max-operation-names:200}") int maxOperationNames) {
+        return MeterFilter.maximumAllowableTags(StatementCountFilter.METRIC, "operation",
+                maxOperationNames, MeterFilter.deny());
+    }
+
+    @Bean
+    public MeterFilter documentCompanyLimit(@Value("${metrics.max-companies:1000}") int maxCompanies) {
+        return MeterFilter.maximumAllowableTags(DOCUMENTS_CREATED, "company", maxCompanies, MeterFilter.deny());
+    }
+}
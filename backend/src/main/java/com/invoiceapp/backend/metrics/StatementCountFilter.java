@@ -0,0 +1,87 @@
+package com.invoiceapp.backend.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request ran, per URI pattern and GraphQL operation.
+ *
+ * The filter opens a {@link StatementCounter.Scope} for the request; the GraphQL operation
+ * comes from {@link GraphQlOperationInterceptor}. GraphQL responses complete asynchronously once
+ * the DataLoader batches are done, so the count is recorded when the async request completes.
+ * A rising count for an operation usually means a new N+1 query.
+ */
+@Component
+public class StatementCountFilter extends OncePerRequestFilter {
+
+    public static final String METRIC = "hibernate.request.statements";
+
+    private final MeterRegistry registry;
+
+    public StatementCountFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        StatementCounter.Scope scope = new StatementCounter.Scope();
+        StatementCounter.Scope previous = StatementCounter.attach(scope);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            StatementCounter.attach(previous);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, scope);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, scope);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, StatementCounter.Scope scope) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Object operation = request.getAttribute(GraphQlOperationInterceptor.OPERATION_ATTRIBUTE);
+        DistributionSummary.builder(METRIC)
+                .description("SQL statements prepared by Hibernate per request")
+                .baseUnit("statements")
+                .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                .tag("operation", operation != null ? operation.toString() : "none")
+                .serviceLevelObjectives(1, 5, 10, 25, 50, 100, 250, 1000)
+                .register(registry)
+                .record(scope.getStatements());
+    }
+}
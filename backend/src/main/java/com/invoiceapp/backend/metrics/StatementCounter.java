@@ -0,0 +1,62 @@
+package com.invoiceapp.backend.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the SQL statements Hibernate prepares for the current request.
+ *
+ * Registered through {@code spring.jpa.properties.hibernate.session_factory.statement_inspector},
+ * so Hibernate creates the instance and the state lives in a thread-local scope that
+ * {@link StatementCountFilter} opens per request. DataLoader batches attach the scope of the
+ * request that submitted them (see BatchLoaderExecutor), so their queries are counted too.
+ * Statements are counted when prepared, so a JDBC batch counts once; plain JDBC (e.g. backups)
+ * is not seen at all.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Scope scope = CURRENT.get();
+        if (scope != null) {
+            scope.statements.incrementAndGet();
+        }
+        return sql;
+    }
+
+    /**
+     * @return the scope of the current thread, or null outside of a counted request
+     */
+    public static Scope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Makes the scope current on this thread
+     * @return the previous scope, to be restored with another attach
+     */
+    public static Scope attach(Scope scope) {
+        Scope previous = CURRENT.get();
+        if (scope == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(scope);
+        }
+        return previous;
+    }
+
+    /**
+     * Statements of one request
+     */
+    public static final class Scope {
+
+        private final AtomicInteger statements = new AtomicInteger();
+
+        public int getStatements() {
+            return statements.get();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.invoiceapp.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * SAF-T експорт на фирма за период.
+ * Файлът се записва от фонов процес и се изтегля, след като експортът приключи.
+ */
+@Entity
+@Table(name = "audit_exports")
+public class AuditExport {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // PENDING, RUNNING, COMPLETED, FAILED, EXPIRED
+
+    @Column(name = "period_from", nullable = false)
+    private LocalDate periodFrom;
+
+    @Column(name = "period_to", nullable = false)
+    private LocalDate periodTo;
+
+    @Column(name = "total_records", nullable = false)
+    private Long totalRecords = 0L; // Клиенти, артикули и документи за експорта
+
+    @Column(name = "written_records", nullable = false)
+    private Long writtenRecords = 0L;
+
+    @Column(name = "file_path", length = 1024)
+    private String filePath; // Готовият .xml.gz файл
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error;
+
+    @Column(name = "created_by")
+    private String createdBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "progress_at")
+    private LocalDateTime progressAt; // Последната записана страница
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Constructors
+    public AuditExport() {
+        this.status = STATUS_PENDING;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Helper methods
+    public boolean isCompleted() {
+        return STATUS_COMPLETED.equals(status);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public LocalDate getPeriodFrom() {
+        return periodFrom;
+    }
+
+    public void setPeriodFrom(LocalDate periodFrom) {
+        this.periodFrom = periodFrom;
+    }
+
+    public LocalDate getPeriodTo() {
+        return periodTo;
+    }
+
+    public void setPeriodTo(LocalDate periodTo) {
+        this.periodTo = periodTo;
+    }
+
+    public Long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public void setTotalRecords(Long totalRecords) {
+        this.totalRecords = totalRecords;
+    }
+
+    public Long getWrittenRecords() {
+        return writtenRecords;
+    }
+
+    public void setWrittenRecords(Long writtenRecords) {
+        this.writtenRecords = writtenRecords;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getProgressAt() {
+        return progressAt;
+    }
+
+    public void setProgressAt(LocalDateTime progressAt) {
+        this.progressAt = progressAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+}
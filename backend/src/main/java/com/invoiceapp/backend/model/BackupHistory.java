@@ -50,6 +50,38 @@ public class BackupHistory {
     @Column(name = "deleted_at")
     private LocalDateTime deletedAt; // When backup was deleted from S3
 
+    @Column(name = "backup_format", nullable = false)
+    private String backupFormat = BackupSettings.FORMAT_PLAIN; // PLAIN, DIRECTORY (s3Key is then the folder), INCREMENTAL
+
+    @Column(name = "manifest", columnDefinition = "TEXT")
+    private String manifest; // JSON list of uploaded files with checksums (DIRECTORY), exported rows per table (INCREMENTAL)
+
+    @Column(name = "row_counts", columnDefinition = "TEXT")
+    private String rowCounts; // JSON table -> rows, counted in the snapshot of the dump
+
+    // Incremental chain: full backup <- increment <- increment ...
+    @Column(name = "watermark")
+    private LocalDateTime watermark; // Rows updated up to this time are contained in the chain
+
+    @Column(name = "base_backup_id")
+    private Long baseBackupId; // Full backup an INCREMENTAL backup is replayed onto
+
+    @Column(name = "previous_backup_id")
+    private Long previousBackupId; // Backup whose watermark an INCREMENTAL backup continues from
+
+    // Verification (restore into a scratch database and compare row counts)
+    @Column(name = "verification_status")
+    private String verificationStatus; // PASSED, FAILED
+
+    @Column(name = "verification_result", columnDefinition = "TEXT")
+    private String verificationResult;
+
+    @Column(name = "verified_at")
+    private LocalDateTime verifiedAt;
+
+    @Column(name = "verification_duration_seconds")
+    private Long verificationDurationSeconds;
+
     // Constructors
     public BackupHistory() {
         this.startedAt = LocalDateTime.now();
@@ -169,6 +201,86 @@ public class BackupHistory {
         this.deletedAt = deletedAt;
     }
 
+    public String getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(String backupFormat) {
+        this.backupFormat = backupFormat;
+    }
+
+    public String getManifest() {
+        return manifest;
+    }
+
+    public void setManifest(String manifest) {
+        this.manifest = manifest;
+    }
+
+    public String getRowCounts() {
+        return rowCounts;
+    }
+
+    public void setRowCounts(String rowCounts) {
+        this.rowCounts = rowCounts;
+    }
+
+    public LocalDateTime getWatermark() {
+        return watermark;
+    }
+
+    public void setWatermark(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    public Long getBaseBackupId() {
+        return baseBackupId;
+    }
+
+    public void setBaseBackupId(Long baseBackupId) {
+        this.baseBackupId = baseBackupId;
+    }
+
+    public Long getPreviousBackupId() {
+        return previousBackupId;
+    }
+
+    public void setPreviousBackupId(Long previousBackupId) {
+        this.previousBackupId = previousBackupId;
+    }
+
+    public String getVerificationStatus() {
+        return verificationStatus;
+    }
+
+    public void setVerificationStatus(String verificationStatus) {
+        this.verificationStatus = verificationStatus;
+    }
+
+    public String getVerificationResult() {
+        return verificationResult;
+    }
+
+    public void setVerificationResult(String verificationResult) {
+        this.verificationResult = verificationResult;
+    }
+
+    public LocalDateTime getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public void setVerifiedAt(LocalDateTime verifiedAt) {
+        this.verifiedAt = verifiedAt;
+    }
+
+    public Long getVerificationDurationSeconds() {
+        return verificationDurationSeconds;
+    }
+
+    public void setVerificationDurationSeconds(Long verificationDurationSeconds) {
+        this.verificationDurationSeconds = verificationDurationSeconds;
+    }
+
     // Helper methods
     public String getFormattedSize() {
         if (sizeBytes == null) return "0 B";
@@ -186,6 +298,21 @@ public class BackupHistory {
         return "FAILED".equals(status);
     }
 
+    public boolean isDirectoryFormat() {
+        return BackupSettings.FORMAT_DIRECTORY.equals(backupFormat);
+    }
+
+    public boolean isIncremental() {
+        return BackupSettings.FORMAT_INCREMENTAL.equals(backupFormat);
+    }
+
+    /**
+     * ID of the full backup this backup's chain starts with
+     */
+    public Long getChainBaseId() {
+        return isIncremental() ? baseBackupId : id;
+    }
+
     public boolean isDeleted() {
         return deletedAt != null;
     }
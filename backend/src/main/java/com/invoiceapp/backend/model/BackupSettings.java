@@ -7,6 +7,10 @@ import java.time.LocalDateTime;
 @Table(name = "backup_settings")
 public class BackupSettings {
 
+    public static final String FORMAT_PLAIN = "PLAIN";
+    public static final String FORMAT_DIRECTORY = "DIRECTORY";
+    public static final String FORMAT_INCREMENTAL = "INCREMENTAL";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -43,6 +47,20 @@ public class BackupSettings {
     @Column(name = "max_backups")
     private Integer maxBackups = 10; // Maximum number of backups to keep
 
+    // Dump Format
+    @Column(name = "backup_format", nullable = false)
+    private String backupFormat = FORMAT_PLAIN; // PLAIN (single .sql.gz), DIRECTORY (pg_dump -Fd, parallel)
+
+    @Column(name = "parallel_jobs", nullable = false)
+    private Integer parallelJobs = 4; // pg_dump/pg_restore -j for DIRECTORY backups
+
+    // Incremental Backups
+    @Column(name = "incremental_enabled", nullable = false)
+    private Boolean incrementalEnabled = false; // Scheduled backups are INCREMENTAL between full backups
+
+    @Column(name = "full_backup_interval_days", nullable = false)
+    private Integer fullBackupIntervalDays = 7; // A full backup is taken again after this many days
+
     // Status and Metadata
     @Column(name = "is_active", nullable = false)
     private Boolean isActive = true;
@@ -173,6 +191,42 @@ public class BackupSettings {
         this.maxBackups = maxBackups;
     }
 
+    public String getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(String backupFormat) {
+        this.backupFormat = backupFormat;
+    }
+
+    public Integer getParallelJobs() {
+        return parallelJobs;
+    }
+
+    public void setParallelJobs(Integer parallelJobs) {
+        this.parallelJobs = parallelJobs;
+    }
+
+    public boolean isDirectoryFormat() {
+        return FORMAT_DIRECTORY.equals(backupFormat);
+    }
+
+    public Boolean getIncrementalEnabled() {
+        return incrementalEnabled;
+    }
+
+    public void setIncrementalEnabled(Boolean incrementalEnabled) {
+        this.incrementalEnabled = incrementalEnabled;
+    }
+
+    public Integer getFullBackupIntervalDays() {
+        return fullBackupIntervalDays;
+    }
+
+    public void setFullBackupIntervalDays(Integer fullBackupIntervalDays) {
+        this.fullBackupIntervalDays = fullBackupIntervalDays;
+    }
+
     public Boolean getIsActive() {
         return isActive;
     }
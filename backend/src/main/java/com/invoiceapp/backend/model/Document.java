@@ -61,7 +61,8 @@ public class Document {
     private BankAccount bankAccount;
 
     // --- Currency and Amount Fields ---
-    @ManyToOne(fetch = FetchType.EAGER)
+    // LAZY: only the code is ever read, and a proxy has its ID without a query
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "currency_code", nullable = false)
     private Currency currency;
 
@@ -370,6 +371,13 @@ public class Document {
      * Other documents are paid if paidAt is set.
      */
     public boolean isPaid() {
+        return isPaidWith(paymentMethod);
+    }
+
+    /**
+     * Same as isPaid(), with a payment method loaded outside the persistence context (GraphQL DataLoader)
+     */
+    public boolean isPaidWith(PaymentMethod paymentMethod) {
         if (paymentMethod != null) {
             String code = paymentMethod.getMethodCode();
             if ("CASH".equals(code) || "CARD".equals(code)) {
@@ -185,22 +185,50 @@ public class DocumentItem {
      * Get the effective item name (custom description or item name)
      */
     public String getEffectiveItemName() {
-        if (itemDescription != null && !itemDescription.trim().isEmpty()) {
+        return effectiveItemName(item);
+    }
+
+    /**
+     * Get the effective item name in English (custom description or item name)
+     */
+    public String getEffectiveItemNameEn() {
+        return effectiveItemNameEn(item);
+    }
+
+    /**
+     * Effective item name with an item loaded outside the persistence context (GraphQL DataLoader)
+     */
+    public String effectiveItemName(Item item) {
+        if (hasItemDescription()) {
             return itemDescription;
         }
         return item != null ? item.getName() : "";
     }
 
     /**
-     * Get the effective item name in English (custom description or item name)
+     * Effective English item name with an item loaded outside the persistence context (GraphQL DataLoader)
      */
-    public String getEffectiveItemNameEn() {
-        if (itemDescriptionEn != null && !itemDescriptionEn.trim().isEmpty()) {
+    public String effectiveItemNameEn(Item item) {
+        if (hasItemDescriptionEn()) {
             return itemDescriptionEn;
         }
         return item != null ? item.getNameEn() : "";
     }
 
+    /**
+     * Check if the line has its own description instead of the item name
+     */
+    public boolean hasItemDescription() {
+        return itemDescription != null && !itemDescription.trim().isEmpty();
+    }
+
+    /**
+     * Check if the line has its own English description instead of the item name
+     */
+    public boolean hasItemDescriptionEn() {
+        return itemDescriptionEn != null && !itemDescriptionEn.trim().isEmpty();
+    }
+
     /**
      * Check if this line item has zero VAT rate
      */
@@ -0,0 +1,236 @@
+package com.invoiceapp.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Имейл, чакащ изпращане от фоновия диспечер (email outbox)
+ */
+@Entity
+@Table(name = "email_outbox")
+public class EmailOutbox {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_SENDING = "SENDING";
+    public static final String STATUS_SENT = "SENT";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "mailing_run_id")
+    private Long mailingRunId; // null за единично изпращане
+
+    @Column(name = "recipient_email", nullable = false)
+    private String recipientEmail;
+
+    @Column(name = "subject", nullable = false, length = 500)
+    private String subject;
+
+    @Column(name = "html_body", nullable = false, columnDefinition = "TEXT")
+    private String htmlBody;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // PENDING, SENDING, SENT, FAILED
+
+    @Column(name = "attempts", nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_by")
+    private String createdBy; // Username or SYSTEM
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @OneToMany(mappedBy = "outbox", cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<EmailOutboxAttachment> attachments = new ArrayList<>();
+
+    // Constructors
+    public EmailOutbox() {
+        this.status = STATUS_PENDING;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        LocalDateTime now = LocalDateTime.now();
+        this.createdAt = now;
+        this.updatedAt = now;
+        if (this.nextAttemptAt == null) {
+            this.nextAttemptAt = now;
+        }
+    }
+
+    @PreUpdate
+    public void onPreUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Helper methods
+    public void addAttachment(String filename, String contentType, byte[] content) {
+        EmailOutboxAttachment attachment = new EmailOutboxAttachment();
+        attachment.setOutbox(this);
+        attachment.setFilename(filename);
+        attachment.setContentType(contentType);
+        attachment.setContent(content);
+        attachments.add(attachment);
+    }
+
+    public void addFileAttachment(String filename, String contentType, String storagePath) {
+        EmailOutboxAttachment attachment = new EmailOutboxAttachment();
+        attachment.setOutbox(this);
+        attachment.setFilename(filename);
+        attachment.setContentType(contentType);
+        attachment.setStoragePath(storagePath);
+        attachments.add(attachment);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public Long getMailingRunId() {
+        return mailingRunId;
+    }
+
+    public void setMailingRunId(Long mailingRunId) {
+        this.mailingRunId = mailingRunId;
+    }
+
+    public String getRecipientEmail() {
+        return recipientEmail;
+    }
+
+    public void setRecipientEmail(String recipientEmail) {
+        this.recipientEmail = recipientEmail;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getHtmlBody() {
+        return htmlBody;
+    }
+
+    public void setHtmlBody(String htmlBody) {
+        this.htmlBody = htmlBody;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public void setSentAt(LocalDateTime sentAt) {
+        this.sentAt = sentAt;
+    }
+
+    public List<EmailOutboxAttachment> getAttachments() {
+        return attachments;
+    }
+
+    public void setAttachments(List<EmailOutboxAttachment> attachments) {
+        this.attachments = attachments;
+    }
+}
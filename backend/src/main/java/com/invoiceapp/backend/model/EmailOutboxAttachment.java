@@ -0,0 +1,80 @@
+package com.invoiceapp.backend.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Прикачен файл към имейл в outbox-а
+ */
+@Entity
+@Table(name = "email_outbox_attachments")
+public class EmailOutboxAttachment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "outbox_id", nullable = false)
+    private EmailOutbox outbox;
+
+    @Column(name = "filename", nullable = false)
+    private String filename;
+
+    @Column(name = "content_type", nullable = false, length = 100)
+    private String contentType;
+
+    @Column(name = "content")
+    private byte[] content; // null, ако файлът е в хранилището (storagePath)
+
+    @Column(name = "storage_path", length = 1000)
+    private String storagePath;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public EmailOutbox getOutbox() {
+        return outbox;
+    }
+
+    public void setOutbox(EmailOutbox outbox) {
+        this.outbox = outbox;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public String getStoragePath() {
+        return storagePath;
+    }
+
+    public void setStoragePath(String storagePath) {
+        this.storagePath = storagePath;
+    }
+}
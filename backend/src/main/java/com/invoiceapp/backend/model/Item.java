@@ -2,6 +2,7 @@ package com.invoiceapp.backend.model;
 
 import jakarta.persistence.*;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "items", uniqueConstraints = {
@@ -44,6 +45,9 @@ public class Item {
     @Column(name = "unit_price", precision = 10, scale = 2)
     private BigDecimal unitPrice; // Единична цена
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // Използва се от инкременталните backup-и
+
     // Constructors
     public Item() {}
 
@@ -146,4 +150,18 @@ public class Item {
     public void setUnitPrice(BigDecimal unitPrice) {
         this.unitPrice = unitPrice;
     }
-}
\ No newline at end of file
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touchUpdatedAt() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,134 @@
+package com.invoiceapp.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Масово изпращане на документи по имейл.
+ * Документите се подготвят на части от фонов процес и се добавят в email outbox-а.
+ */
+@Entity
+@Table(name = "mailing_runs")
+public class MailingRun {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PREPARING = "PREPARING";
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_CANCELLED = "CANCELLED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "company_id", nullable = false)
+    private Long companyId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // PENDING, PREPARING, QUEUED, CANCELLED
+
+    @Column(name = "include_ubl", nullable = false)
+    private Boolean includeUbl = false;
+
+    @Column(name = "total_documents", nullable = false)
+    private Integer totalDocuments = 0;
+
+    @Column(name = "created_by")
+    private String createdBy;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "prepared_at")
+    private LocalDateTime preparedAt; // Всички документи са добавени в outbox-а
+
+    // Constructors
+    public MailingRun() {
+        this.status = STATUS_PENDING;
+    }
+
+    @PrePersist
+    public void onPrePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Helper methods
+    public boolean isOpen() {
+        return STATUS_PENDING.equals(status) || STATUS_PREPARING.equals(status);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Boolean getIncludeUbl() {
+        return includeUbl;
+    }
+
+    public void setIncludeUbl(Boolean includeUbl) {
+        this.includeUbl = includeUbl;
+    }
+
+    public Integer getTotalDocuments() {
+        return totalDocuments;
+    }
+
+    public void setTotalDocuments(Integer totalDocuments) {
+        this.totalDocuments = totalDocuments;
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getPreparedAt() {
+        return preparedAt;
+    }
+
+    public void setPreparedAt(LocalDateTime preparedAt) {
+        this.preparedAt = preparedAt;
+    }
+}
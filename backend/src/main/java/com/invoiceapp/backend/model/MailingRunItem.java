@@ -0,0 +1,130 @@
+package com.invoiceapp.backend.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Документ в масово изпращане и резултатът от подготовката му
+ */
+@Entity
+@Table(name = "mailing_run_items")
+public class MailingRunItem {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_PREPARING = "PREPARING";
+    public static final String STATUS_QUEUED = "QUEUED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "mailing_run_id", nullable = false)
+    private Long mailingRunId;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(name = "recipient_email")
+    private String recipientEmail;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status; // PENDING, PREPARING, QUEUED, SKIPPED
+
+    @Column(name = "error", columnDefinition = "TEXT")
+    private String error; // Причина за пропускане
+
+    @Column(name = "outbox_id")
+    private Long outboxId; // Запис в email_outbox след подготовка
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt; // Кога е започната подготовката (PREPARING)
+
+    // Constructors
+    public MailingRunItem() {
+        this.status = STATUS_PENDING;
+    }
+
+    public MailingRunItem(Long mailingRunId, Long documentId, String recipientEmail) {
+        this();
+        this.mailingRunId = mailingRunId;
+        this.documentId = documentId;
+        this.recipientEmail = recipientEmail;
+    }
+
+    // Helper methods
+    public void claim(LocalDateTime claimedAt) {
+        this.status = STATUS_PREPARING;
+        this.claimedAt = claimedAt;
+    }
+
+    public void skip(String reason) {
+        this.status = STATUS_SKIPPED;
+        this.error = reason;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getMailingRunId() {
+        return mailingRunId;
+    }
+
+    public void setMailingRunId(Long mailingRunId) {
+        this.mailingRunId = mailingRunId;
+    }
+
+    public Long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(Long documentId) {
+        this.documentId = documentId;
+    }
+
+    public String getRecipientEmail() {
+        return recipientEmail;
+    }
+
+    public void setRecipientEmail(String recipientEmail) {
+        this.recipientEmail = recipientEmail;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+}
@@ -56,6 +56,9 @@ public class SmtpSettings {
     @Column(name = "provider_name")
     private String providerName; // Alibaba Cloud DirectMail, Gmail, etc.
 
+    @Column(name = "max_messages_per_minute")
+    private Integer maxMessagesPerMinute; // Лимит на доставчика (null - без лимит)
+
     // Constructors
     public SmtpSettings() {
         this.createdAt = LocalDateTime.now();
@@ -206,6 +209,14 @@ public class SmtpSettings {
         this.providerName = providerName;
     }
 
+    public Integer getMaxMessagesPerMinute() {
+        return maxMessagesPerMinute;
+    }
+
+    public void setMaxMessagesPerMinute(Integer maxMessagesPerMinute) {
+        this.maxMessagesPerMinute = maxMessagesPerMinute;
+    }
+
     // Helper methods
     public boolean isActive() {
         return isActive != null && isActive;
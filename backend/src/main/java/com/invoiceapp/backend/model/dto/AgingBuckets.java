@@ -0,0 +1,25 @@
+package com.invoiceapp.backend.model.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Неплатени суми в базова валута по дни просрочие към датата на справката
+ * @param notDue с ненастъпил падеж
+ */
+public record AgingBuckets(
+    BigDecimal notDue,
+    BigDecimal days0To30,
+    BigDecimal days31To60,
+    BigDecimal days61To90,
+    BigDecimal over90,
+    BigDecimal total
+) {
+    public static final AgingBuckets ZERO = new AgingBuckets(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO,
+            BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public AgingBuckets plus(AgingBuckets other) {
+        return new AgingBuckets(notDue.add(other.notDue), days0To30.add(other.days0To30),
+                days31To60.add(other.days31To60), days61To90.add(other.days61To90),
+                over90.add(other.over90), total.add(other.total));
+    }
+}
@@ -0,0 +1,10 @@
+package com.invoiceapp.backend.model.dto;
+
+/**
+ * Резултат от качване на прикачен файл - token-ът се подава в SendDocumentEmailInput.attachmentToken
+ */
+public record AttachmentUploadResult(
+    String token,
+    long size
+) {
+}
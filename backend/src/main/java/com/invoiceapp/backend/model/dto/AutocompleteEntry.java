@@ -0,0 +1,16 @@
+package com.invoiceapp.backend.model.dto;
+
+/**
+ * Резултат от autocomplete - данните за показване в падащия списък, без зареждане от базата
+ * @param code номер на артикула или ЕИК на клиента
+ * @param vatNumber ДДС номер (само за клиенти)
+ */
+public record AutocompleteEntry(
+    Long id,
+    String code,
+    String name,
+    String nameEn,
+    String vatNumber,
+    boolean active
+) {
+}
@@ -11,6 +11,10 @@ public class BackupSettingsInput {
     private String backupCronExpression;
     private Integer retentionDays;
     private Integer maxBackups;
+    private String backupFormat;
+    private Integer parallelJobs;
+    private Boolean incrementalEnabled;
+    private Integer fullBackupIntervalDays;
 
     // Getters and Setters
     public String getS3Endpoint() {
@@ -92,4 +96,36 @@ public class BackupSettingsInput {
     public void setMaxBackups(Integer maxBackups) {
         this.maxBackups = maxBackups;
     }
+
+    public String getBackupFormat() {
+        return backupFormat;
+    }
+
+    public void setBackupFormat(String backupFormat) {
+        this.backupFormat = backupFormat;
+    }
+
+    public Integer getParallelJobs() {
+        return parallelJobs;
+    }
+
+    public void setParallelJobs(Integer parallelJobs) {
+        this.parallelJobs = parallelJobs;
+    }
+
+    public Boolean getIncrementalEnabled() {
+        return incrementalEnabled;
+    }
+
+    public void setIncrementalEnabled(Boolean incrementalEnabled) {
+        this.incrementalEnabled = incrementalEnabled;
+    }
+
+    public Integer getFullBackupIntervalDays() {
+        return fullBackupIntervalDays;
+    }
+
+    public void setFullBackupIntervalDays(Integer fullBackupIntervalDays) {
+        this.fullBackupIntervalDays = fullBackupIntervalDays;
+    }
 }
@@ -0,0 +1,12 @@
+package com.invoiceapp.backend.model.dto;
+
+/**
+ * Неплатените документи на един клиент в справката за възрастов анализ на вземанията
+ */
+public record ClientAging(
+    Long clientId,
+    String clientName,
+    int openDocuments,
+    AgingBuckets buckets
+) {
+}
@@ -0,0 +1,17 @@
+package com.invoiceapp.backend.model.dto;
+
+import com.invoiceapp.backend.model.Document;
+
+/**
+ * Намерен документ при пълнотекстово търсене
+ * @param snippet откъси от описанията на редовете и бележките като HTML - текстът е escape-нат,
+ *                съвпаденията са в &lt;b&gt;...&lt;/b&gt;
+ * @param cursor позицията на документа - after за следващата страница
+ */
+public record DocumentSearchHit(
+    Document document,
+    double rank,
+    String snippet,
+    String cursor
+) {
+}
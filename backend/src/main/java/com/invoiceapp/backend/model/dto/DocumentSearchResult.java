@@ -0,0 +1,13 @@
+package com.invoiceapp.backend.model.dto;
+
+import java.util.List;
+
+/**
+ * Страница от резултатите на пълнотекстовото търсене, подредени по релевантност
+ */
+public record DocumentSearchResult(
+    List<DocumentSearchHit> hits,
+    String endCursor,
+    boolean hasNextPage
+) {
+}
@@ -3,12 +3,19 @@ package com.invoiceapp.backend.model.dto;
 public class EmailResult {
     private boolean success;
     private String message;
+    private Long outboxId; // ID в опашката за изпращане (ако имейлът е опашкуван)
 
     public EmailResult(boolean success, String message) {
         this.success = success;
         this.message = message;
     }
 
+    public EmailResult(boolean success, String message, Long outboxId) {
+        this.success = success;
+        this.message = message;
+        this.outboxId = outboxId;
+    }
+
     public boolean isSuccess() {
         return success;
     }
@@ -24,4 +31,12 @@ public class EmailResult {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public Long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(Long outboxId) {
+        this.outboxId = outboxId;
+    }
 }
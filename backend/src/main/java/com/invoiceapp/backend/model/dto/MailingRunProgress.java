@@ -0,0 +1,19 @@
+package com.invoiceapp.backend.model.dto;
+
+/**
+ * Напредък на масово изпращане.
+ * preparing - документи, които още не са добавени в outbox-а;
+ * pending - имейли в outbox-а, които чакат изпращане или нов опит.
+ */
+public record MailingRunProgress(
+    int total,
+    int preparing,
+    int skipped,
+    int pending,
+    int sent,
+    int failed
+) {
+    public boolean completed() {
+        return preparing == 0 && pending == 0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.invoiceapp.backend.model.dto;
+
+import java.util.List;
+
+/**
+ * Възрастов анализ на вземанията на фирма към дата
+ * @param currency базовата валута, в която са сумите
+ */
+public record ReceivablesAging(
+    String asOf,
+    String currency,
+    List<ClientAging> clients,
+    AgingBuckets totals
+) {
+}
@@ -3,7 +3,8 @@ package com.invoiceapp.backend.model.dto;
 public class SendDocumentEmailInput {
     private Long documentId;
     private String recipientEmail;
-    private String pdfBase64;
+    private String pdfBase64;       // Остаряло - за големи файлове се използва attachmentToken
+    private String attachmentToken; // Token от POST /api/email-attachments
     private Boolean includeUblXml;  // Ако е true, прикачва и UBL XML за ERP интеграция
 
     public Long getDocumentId() {
@@ -30,6 +31,14 @@ public class SendDocumentEmailInput {
         this.pdfBase64 = pdfBase64;
     }
 
+    public String getAttachmentToken() {
+        return attachmentToken;
+    }
+
+    public void setAttachmentToken(String attachmentToken) {
+        this.attachmentToken = attachmentToken;
+    }
+
     public Boolean getIncludeUblXml() {
         return includeUblXml;
     }
@@ -0,0 +1,73 @@
+package com.invoiceapp.backend.model.dto;
+
+import com.invoiceapp.backend.model.DocumentStatus;
+import com.invoiceapp.backend.model.DocumentType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class StartMailingRunInput {
+    private Long companyId;
+    private List<Long> documentIds;     // Конкретни документи; ако липсват - по филтъра отдолу
+    private DocumentType documentType;
+    private DocumentStatus status;
+    private LocalDate issueDateFrom;
+    private LocalDate issueDateTo;
+    private Boolean includeUblXml;      // Ако е true, прикачва UBL XML за ERP интеграция
+
+    public Long getCompanyId() {
+        return companyId;
+    }
+
+    public void setCompanyId(Long companyId) {
+        this.companyId = companyId;
+    }
+
+    public List<Long> getDocumentIds() {
+        return documentIds;
+    }
+
+    public void setDocumentIds(List<Long> documentIds) {
+        this.documentIds = documentIds;
+    }
+
+    public DocumentType getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(DocumentType documentType) {
+        this.documentType = documentType;
+    }
+
+    public DocumentStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(DocumentStatus status) {
+        this.status = status;
+    }
+
+    public LocalDate getIssueDateFrom() {
+        return issueDateFrom;
+    }
+
+    public void setIssueDateFrom(LocalDate issueDateFrom) {
+        this.issueDateFrom = issueDateFrom;
+    }
+
+    public LocalDate getIssueDateTo() {
+        return issueDateTo;
+    }
+
+    public void setIssueDateTo(LocalDate issueDateTo) {
+        this.issueDateTo = issueDateTo;
+    }
+
+    public Boolean getIncludeUblXml() {
+        return includeUblXml;
+    }
+
+    public void setIncludeUblXml(Boolean includeUblXml) {
+        this.includeUblXml = includeUblXml;
+    }
+}
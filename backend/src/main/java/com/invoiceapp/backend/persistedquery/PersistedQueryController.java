@@ -0,0 +1,141 @@
+package com.invoiceapp.backend.persistedquery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.invoiceapp.backend.querycost.QueryTenantInterceptor;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.graphql.server.WebGraphQlHandler;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.util.ObjectUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GraphQL over GET for persisted queries:
+ * {@code GET /graphql?operationName=..&variables={..}&extensions={"persistedQuery":{"version":1,"sha256Hash":".."}}}.
+ *
+ * Only queries registered before (by a POST with the text, or a GET with the query parameter)
+ * and only query operations are executed. Responses carry an ETag; a matching If-None-Match is
+ * answered with 304 - without executing the query while QueryETags still trusts the ETag,
+ * otherwise after executing it and comparing the result.
+ */
+@RestController
+public class PersistedQueryController {
+
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {};
+
+    private final WebGraphQlHandler graphQlHandler;
+    private final PersistedQueryDocumentProvider documentProvider;
+    private final QueryETags etags;
+    private final QueryTenantInterceptor tenantInterceptor;
+    private final ObjectMapper objectMapper;
+
+    public PersistedQueryController(WebGraphQlHandler graphQlHandler,
+                                    PersistedQueryDocumentProvider documentProvider,
+                                    QueryETags etags,
+                                    QueryTenantInterceptor tenantInterceptor,
+                                    ObjectMapper objectMapper) {
+        this.graphQlHandler = graphQlHandler;
+        this.documentProvider = documentProvider;
+        this.etags = etags;
+        this.tenantInterceptor = tenantInterceptor;
+        this.objectMapper = objectMapper;
+    }
+
+    @GetMapping(value = "${spring.graphql.path:/graphql}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> execute(@RequestParam(required = false) String query,
+                                     @RequestParam(required = false) String operationName,
+                                     @RequestParam(required = false) String variables,
+                                     @RequestParam(required = false) String extensions,
+                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                     Principal principal,
+                                     HttpServletRequest servletRequest) throws JsonProcessingException {
+        Map<String, Object> extensionsMap;
+        Map<String, Object> variablesMap;
+        try {
+            extensionsMap = extensions != null ? objectMapper.readValue(extensions, MAP) : Map.of();
+            variablesMap = variables != null ? objectMapper.readValue(variables, MAP) : Map.of();
+        } catch (JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Невалиден JSON в variables или extensions"));
+        }
+        String hash = PersistedQueryDocumentProvider.persistedQueryHash(extensionsMap);
+        if (hash == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "С GET се изпълняват само persisted заявки (extensions.persistedQuery.sha256Hash)"));
+        }
+
+        String document = query;
+        if (document == null) {
+            PersistedQueryDocumentProvider.CachedQuery cached = documentProvider.lookup(hash);
+            if (cached == null) {
+                return ResponseEntity.ok(Map.of("errors", List.of(PersistedQueryDocumentProvider.notFound().toSpecification())));
+            }
+            document = cached.query();
+        }
+
+        String tenant = tenantInterceptor.currentTenant();
+        String key = PersistedQueryDocumentProvider.sha256Hex(String.join("\n",
+                principal != null ? principal.getName() : "", hash.toLowerCase(),
+                operationName != null ? operationName : "", objectMapper.writeValueAsString(variablesMap)));
+        String knownEtag = etags.notModified(key, tenant, ifNoneMatch);
+        if (knownEtag != null) {
+            return notModified(knownEtag);
+        }
+
+        long version = etags.version(tenant);
+        WebGraphQlResponse response = graphQlHandler.handleRequest(toGraphQlRequest(servletRequest, document,
+                operationName, variablesMap, extensionsMap)).block();
+        byte[] body = objectMapper.writeValueAsBytes(response.toMap());
+        String etag = "\"" + PersistedQueryDocumentProvider.sha256Hex(body) + "\"";
+        if (response.isValid() && response.getErrors().isEmpty()) {
+            etags.store(key, tenant, version, etag);
+        }
+        if (QueryETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return ResponseEntity.ok()
+                .headers(response.getResponseHeaders())
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private WebGraphQlRequest toGraphQlRequest(HttpServletRequest servletRequest, String document, String operationName,
+                                               Map<String, Object> variables, Map<String, Object> extensions) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("query", document);
+        body.put("operationName", operationName);
+        body.put("variables", variables);
+        body.put("extensions", extensions);
+        WebGraphQlRequest request = new WebGraphQlRequest(URI.create(servletRequest.getRequestURL().toString()),
+                new ServletServerHttpRequest(servletRequest).getHeaders(), null, null, Map.of(), body,
+                ObjectUtils.identityToString(servletRequest), servletRequest.getLocale());
+        request.configureExecutionInput((executionInput, builder) ->
+            builder.graphQLContext(Map.of(QueryETags.READ_ONLY_KEY, true)).build()
+        );
+        return request;
+    }
+
+    private static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .build();
+    }
+}
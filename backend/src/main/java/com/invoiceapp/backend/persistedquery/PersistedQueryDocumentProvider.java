@@ -0,0 +1,134 @@
+package com.invoiceapp.backend.persistedquery;
+
+import graphql.ExecutionInput;
+import graphql.GraphQLError;
+import graphql.GraphqlErrorBuilder;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.execution.preparsed.PreparsedDocumentProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caches parsed and validated GraphQL documents and implements automatic persisted queries
+ * (the Apollo protocol: extensions.persistedQuery.sha256Hash).
+ *
+ * Documents are keyed by the SHA-256 of the query text, so a query sent again - with its text
+ * or only with its hash - is neither parsed nor validated again. A hash that is not cached gets
+ * a PersistedQueryNotFound error and the client resends it with the text, which registers it.
+ * The cache keeps the graphql.persisted-queries.cache-size most recently used documents.
+ */
+@Component
+public class PersistedQueryDocumentProvider implements PreparsedDocumentProvider {
+
+    public static final String EXTENSION = "persistedQuery";
+    public static final String HASH = "sha256Hash";
+
+    private final int cacheSize;
+    private final Map<String, CachedQuery> documents;
+
+    public PersistedQueryDocumentProvider(@Value("${graphql.persisted-queries.cache-size:1000}") int cacheSize) {
+        this.cacheSize = cacheSize;
+        this.documents = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedQuery> eldest) {
+                return size() > PersistedQueryDocumentProvider.this.cacheSize;
+            }
+        };
+    }
+
+    /**
+     * A query text with its parsed and validated document (or its syntax/validation errors)
+     */
+    public record CachedQuery(
+        String query,
+        PreparsedDocumentEntry entry
+    ) {}
+
+    // The synchronous variant of the SPI; graphql-java calls getDocumentAsync
+    public PreparsedDocumentEntry getDocument(ExecutionInput executionInput,
+                                             Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        String hash = persistedQueryHash(executionInput.getExtensions());
+        String query = executionInput.getQuery();
+
+        if (!StringUtils.hasText(query)) {
+            if (hash == null) {
+                return parseAndValidateFunction.apply(executionInput);
+            }
+            CachedQuery cached = lookup(hash);
+            return cached != null ? cached.entry() : new PreparsedDocumentEntry(notFound());
+        }
+
+        String queryHash = sha256Hex(query);
+        if (hash != null && !hash.equalsIgnoreCase(queryHash)) {
+            return new PreparsedDocumentEntry(GraphqlErrorBuilder.newError()
+                    .message("PersistedQueryIdInvalid")
+                    .extensions(Map.of("code", "PERSISTED_QUERY_ID_INVALID"))
+                    .build());
+        }
+        CachedQuery cached = lookup(queryHash);
+        if (cached == null) {
+            // Parsed outside the lock; two threads parsing the same new query just do it twice
+            cached = new CachedQuery(query, parseAndValidateFunction.apply(executionInput));
+            synchronized (documents) {
+                documents.put(queryHash, cached);
+            }
+        }
+        return cached.entry();
+    }
+
+    @Override
+    public CompletableFuture<PreparsedDocumentEntry> getDocumentAsync(ExecutionInput executionInput,
+                                                                      Function<ExecutionInput, PreparsedDocumentEntry> parseAndValidateFunction) {
+        return CompletableFuture.completedFuture(getDocument(executionInput, parseAndValidateFunction));
+    }
+
+    /**
+     * @param hash the SHA-256 of the query text (hex)
+     * @return the cached query, or null if it was never sent or has been evicted
+     */
+    public CachedQuery lookup(String hash) {
+        synchronized (documents) {
+            return documents.get(hash.toLowerCase());
+        }
+    }
+
+    public static GraphQLError notFound() {
+        return GraphqlErrorBuilder.newError()
+                .message("PersistedQueryNotFound")
+                .extensions(Map.of("code", "PERSISTED_QUERY_NOT_FOUND"))
+                .build();
+    }
+
+    /**
+     * @return extensions.persistedQuery.sha256Hash, or null
+     */
+    public static String persistedQueryHash(Map<String, Object> extensions) {
+        if (extensions != null && extensions.get(EXTENSION) instanceof Map<?, ?> persistedQuery
+                && persistedQuery.get(HASH) instanceof String hash && !hash.isBlank()) {
+            return hash;
+        }
+        return null;
+    }
+
+    public static String sha256Hex(String text) {
+        return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256Hex(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
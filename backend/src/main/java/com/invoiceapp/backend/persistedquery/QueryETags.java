@@ -0,0 +1,141 @@
+package com.invoiceapp.backend.persistedquery;
+
+import com.invoiceapp.backend.querycost.QueryTenantInterceptor;
+import graphql.ExecutionResult;
+import graphql.execution.AbortExecutionException;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimpleInstrumentationContext;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import graphql.language.OperationDefinition;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * The ETags of recent GET responses, so a matching If-None-Match is answered with 304
+ * without executing the query again.
+ *
+ * An ETag stays valid for graphql.persisted-queries.etag-ttl-seconds and only while its tenant
+ * has run no mutation since the response was computed - each mutation moves the tenant's data
+ * version. Changes made by background jobs (exchange rates, e-mail delivery) or by another
+ * tenant (reference data) show up once the ETag expires. Also rejects mutations sent with GET.
+ */
+@Component
+public class QueryETags extends SimplePerformantInstrumentation {
+
+    /** GraphQL context key set for GET requests, which may only run queries */
+    public static final String READ_ONLY_KEY = QueryETags.class.getName() + ".readOnly";
+
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private final Map<String, Validator> validators;
+
+    @Autowired
+    public QueryETags(@Value("${graphql.persisted-queries.etag-ttl-seconds:30}") long ttlSeconds,
+                      @Value("${graphql.persisted-queries.etag-cache-size:10000}") int maxEntries) {
+        this(ttlSeconds * 1000, maxEntries, System::currentTimeMillis);
+    }
+
+    QueryETags(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.validators = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Validator> eldest) {
+                return size() > QueryETags.this.maxEntries;
+            }
+        };
+    }
+
+    private record Validator(
+        String tenant,
+        String etag,
+        long version,
+        long expiresAt
+    ) {}
+
+    /**
+     * @return the current data version of the tenant; read before executing the query whose ETag is stored
+     */
+    public long version(String tenant) {
+        return versions.getOrDefault(tenant, 0L);
+    }
+
+    /**
+     * @param key the request (user, query, variables)
+     * @param ifNoneMatch the If-None-Match header, or null
+     * @return the stored ETag if it matches If-None-Match and is still valid, otherwise null
+     */
+    public String notModified(String key, String tenant, String ifNoneMatch) {
+        if (ifNoneMatch == null || ttlMillis <= 0) {
+            return null;
+        }
+        Validator validator;
+        synchronized (validators) {
+            validator = validators.get(key);
+        }
+        if (validator == null || !validator.tenant().equals(tenant)
+                || validator.expiresAt() <= clock.getAsLong() || validator.version() != version(tenant)) {
+            return null;
+        }
+        return matches(ifNoneMatch, validator.etag()) ? validator.etag() : null;
+    }
+
+    public void store(String key, String tenant, long version, String etag) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        synchronized (validators) {
+            validators.put(key, new Validator(tenant, etag, version, clock.getAsLong() + ttlMillis));
+        }
+    }
+
+    /**
+     * @return whether the If-None-Match header (a list, possibly of weak ETags) contains the ETag
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext context = parameters.getExecutionContext();
+        OperationDefinition.Operation operation = context.getOperationDefinition().getOperation();
+        if (operation == OperationDefinition.Operation.QUERY) {
+            return super.beginExecuteOperation(parameters, state);
+        }
+        if (Boolean.TRUE.equals(context.getGraphQLContext().get(READ_ONLY_KEY))) {
+            throw new AbortExecutionException("С GET могат да се изпълняват само заявки (query), не " + operation);
+        }
+        if (operation != OperationDefinition.Operation.MUTATION) {
+            return super.beginExecuteOperation(parameters, state);
+        }
+        // Moved when the mutation completes, so a GET that ran meanwhile stores an already outdated version
+        String tenant = context.getGraphQLContext().getOrDefault(QueryTenantInterceptor.TENANT_KEY, QueryTenantInterceptor.ANONYMOUS);
+        return SimpleInstrumentationContext.whenCompleted((result, error) -> versions.merge(tenant, 1L, Long::sum));
+    }
+}
@@ -0,0 +1,109 @@
+package com.invoiceapp.backend.querycost;
+
+import graphql.analysis.QueryTraverser;
+import graphql.analysis.QueryVisitorFieldEnvironment;
+import graphql.analysis.QueryVisitorStub;
+import graphql.execution.CoercedVariables;
+import graphql.language.Document;
+import graphql.schema.GraphQLAppliedDirective;
+import graphql.schema.GraphQLAppliedDirectiveArgument;
+import graphql.schema.GraphQLFieldDefinition;
+import graphql.schema.GraphQLList;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.GraphQLType;
+import graphql.schema.GraphQLTypeUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Static cost of a GraphQL operation, computed from the query and schema.graphqls before it executes.
+ *
+ * Every object field costs 1 and scalar fields are free, unless the field declares
+ * {@code @cost(weight: n)}. A list field multiplies the cost of one element (its weight plus its
+ * selection) by the expected number of elements - {@code @cost(multiplier: n)} or the default list
+ * size - so nesting lists inside tenant-wide lists grows the cost the way it grows the result.
+ * Introspection (GraphiQL, codegen) is not counted towards cost or depth.
+ */
+public class QueryCostAnalyzer {
+
+    public static final String COST_DIRECTIVE = "cost";
+
+    private final int defaultListSize;
+
+    public QueryCostAnalyzer(int defaultListSize) {
+        this.defaultListSize = defaultListSize;
+    }
+
+    /**
+     * @param depth the deepest field level (top-level fields are level 1)
+     * @param cost the estimated number of objects the operation loads
+     */
+    public record Result(
+        int depth,
+        long cost
+    ) {}
+
+    public Result analyze(GraphQLSchema schema, Document document, String operationName, CoercedVariables variables) {
+        QueryTraverser traverser = QueryTraverser.newQueryTraverser()
+                .schema(schema)
+                .document(document)
+                .operationName(operationName)
+                .coercedVariables(variables)
+                .build();
+
+        // Cost of the selections of each field, keyed by the field's environment (null - the operation)
+        Map<QueryVisitorFieldEnvironment, Long> selectionCosts = new HashMap<>();
+        int[] maxDepth = {0};
+        traverser.visitPostOrder(new QueryVisitorStub() {
+            @Override
+            public void visitField(QueryVisitorFieldEnvironment environment) {
+                int depth = 0;
+                for (QueryVisitorFieldEnvironment e = environment; e != null; e = e.getParentEnvironment()) {
+                    if (e.getFieldDefinition().getName().startsWith("__")) {
+                        return;
+                    }
+                    depth++;
+                }
+                maxDepth[0] = Math.max(maxDepth[0], depth);
+
+                long cost = fieldCost(environment.getFieldDefinition(), selectionCosts.getOrDefault(environment, 0L));
+                selectionCosts.merge(environment.getParentEnvironment(), cost, QueryCostAnalyzer::saturatedAdd);
+            }
+        });
+        return new Result(maxDepth[0], selectionCosts.getOrDefault(null, 0L));
+    }
+
+    private long fieldCost(GraphQLFieldDefinition field, long selectionCost) {
+        GraphQLType type = GraphQLTypeUtil.unwrapNonNull(field.getType());
+        boolean list = type instanceof GraphQLList;
+        boolean leaf = GraphQLTypeUtil.isLeaf(GraphQLTypeUtil.unwrapAll(field.getType()));
+
+        long weight = leaf ? 0 : 1;
+        long multiplier = defaultListSize;
+        GraphQLAppliedDirective cost = field.getAppliedDirective(COST_DIRECTIVE);
+        if (cost != null) {
+            weight = argument(cost, "weight", weight);
+            multiplier = argument(cost, "multiplier", multiplier);
+        }
+
+        long elementCost = saturatedAdd(weight, selectionCost);
+        return list ? saturatedMultiply(multiplier, elementCost) : elementCost;
+    }
+
+    private static long argument(GraphQLAppliedDirective directive, String name, long defaultValue) {
+        GraphQLAppliedDirectiveArgument argument = directive.getArgument(name);
+        Object value = argument != null ? argument.getValue() : null;
+        return value instanceof Number number ? number.longValue() : defaultValue;
+    }
+
+    // Absurd queries must not overflow into a small (or negative) cost
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
@@ -0,0 +1,83 @@
+package com.invoiceapp.backend.querycost;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Rolling GraphQL cost budget per tenant (token bucket): graphql.cost.budget-per-minute cost units
+ * are refilled every minute, up to one minute's worth. One company running expensive reports
+ * then slows down only its own requests.
+ */
+@Component
+public class QueryCostBudget {
+
+    private static final double MILLIS_PER_MINUTE = 60_000d;
+
+    private final long budgetPerMinute;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    @Autowired
+    public QueryCostBudget(@Value("${graphql.cost.budget-per-minute:500000}") long budgetPerMinute) {
+        this(budgetPerMinute, System::currentTimeMillis);
+    }
+
+    QueryCostBudget(long budgetPerMinute, LongSupplier clock) {
+        this.budgetPerMinute = budgetPerMinute;
+        this.clock = clock;
+    }
+
+    /**
+     * Spends the cost of an operation from the tenant's budget, if enough of it is left
+     * @param tenant the tenant key (see QueryTenantInterceptor)
+     * @param cost the static cost of the operation
+     * @return 0 if the cost was spent, otherwise the milliseconds until the budget covers it
+     */
+    public synchronized long tryAcquire(String tenant, long cost) {
+        if (budgetPerMinute <= 0 || cost <= 0) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        Bucket bucket = buckets.computeIfAbsent(tenant, key -> new Bucket(budgetPerMinute, now));
+        bucket.refill(now, budgetPerMinute);
+        if (bucket.tokens >= cost) {
+            bucket.tokens -= cost;
+            return 0;
+        }
+        return (long) Math.ceil((cost - bucket.tokens) * MILLIS_PER_MINUTE / budgetPerMinute);
+    }
+
+    /**
+     * @return the cost units the tenant can spend right now
+     */
+    public synchronized long remaining(String tenant) {
+        Bucket bucket = buckets.get(tenant);
+        if (bucket == null) {
+            return budgetPerMinute;
+        }
+        bucket.refill(clock.getAsLong(), budgetPerMinute);
+        return (long) bucket.tokens;
+    }
+
+    private static final class Bucket {
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private void refill(long now, long perMinute) {
+            if (now > lastRefill) {
+                tokens = Math.min(perMinute, tokens + (now - lastRefill) * perMinute / MILLIS_PER_MINUTE);
+                lastRefill = now;
+            }
+        }
+    }
+}
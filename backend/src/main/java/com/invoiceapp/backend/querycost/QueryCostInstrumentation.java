@@ -0,0 +1,103 @@
+package com.invoiceapp.backend.querycost;
+
+import graphql.ExecutionResult;
+import graphql.execution.ExecutionContext;
+import graphql.execution.instrumentation.InstrumentationContext;
+import graphql.execution.instrumentation.InstrumentationState;
+import graphql.execution.instrumentation.SimplePerformantInstrumentation;
+import graphql.execution.instrumentation.parameters.InstrumentationExecuteOperationParameters;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Enforces the query limits before a GraphQL operation executes:
+ * graphql.cost.max-depth and graphql.cost.max-cost per operation, and the tenant's rolling
+ * cost budget (QueryCostBudget). An operation that would overdraw the budget by less than
+ * graphql.cost.max-queue-ms waits for it to refill; only graphql.cost.max-queued requests
+ * wait at a time, so queued requests cannot take all the request threads. Everything else
+ * is rejected with a QueryLimitException (code, numbers and retryAfterSeconds in the extensions).
+ * Spring Boot registers the bean with GraphQL automatically.
+ */
+@Component
+public class QueryCostInstrumentation extends SimplePerformantInstrumentation {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryCostInstrumentation.class);
+
+    public static final String COST_METRIC = "graphql.request.cost";
+    public static final String REJECTED_METRIC = "graphql.request.rejected";
+
+    private final QueryCostAnalyzer analyzer;
+    private final QueryCostBudget budget;
+    private final MeterRegistry meterRegistry;
+    private final int maxDepth;
+    private final long maxCost;
+    private final long maxQueueMillis;
+    private final Semaphore queue;
+    private final DistributionSummary costSummary;
+
+    public QueryCostInstrumentation(QueryCostBudget budget,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${graphql.cost.max-depth:8}") int maxDepth,
+                                    @Value("${graphql.cost.max-cost:50000}") long maxCost,
+                                    @Value("${graphql.cost.default-list-size:10}") int defaultListSize,
+                                    @Value("${graphql.cost.max-queue-ms:2000}") long maxQueueMillis,
+                                    @Value("${graphql.cost.max-queued:16}") int maxQueued) {
+        this.analyzer = new QueryCostAnalyzer(defaultListSize);
+        this.budget = budget;
+        this.meterRegistry = meterRegistry;
+        this.maxDepth = maxDepth;
+        this.maxCost = maxCost;
+        this.maxQueueMillis = maxQueueMillis;
+        this.queue = new Semaphore(Math.max(0, maxQueued));
+        this.costSummary = DistributionSummary.builder(COST_METRIC)
+                .description("Static cost of the executed GraphQL operations")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public InstrumentationContext<ExecutionResult> beginExecuteOperation(InstrumentationExecuteOperationParameters parameters,
+                                                                         InstrumentationState state) {
+        ExecutionContext context = parameters.getExecutionContext();
+        QueryCostAnalyzer.Result result = analyzer.analyze(context.getGraphQLSchema(), context.getDocument(),
+                context.getOperationDefinition().getName(), context.getCoercedVariables());
+
+        if (maxDepth > 0 && result.depth() > maxDepth) {
+            throw reject(QueryLimitException.depthExceeded(result.depth(), maxDepth));
+        }
+        if (maxCost > 0 && result.cost() > maxCost) {
+            throw reject(QueryLimitException.costExceeded(result.cost(), maxCost));
+        }
+
+        String tenant = context.getGraphQLContext().getOrDefault(QueryTenantInterceptor.TENANT_KEY, QueryTenantInterceptor.ANONYMOUS);
+        long wait = budget.tryAcquire(tenant, result.cost());
+        if (wait > 0 && wait <= maxQueueMillis && queue.tryAcquire()) {
+            try {
+                Thread.sleep(wait);
+                wait = budget.tryAcquire(tenant, result.cost());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                queue.release();
+            }
+        }
+        if (wait > 0) {
+            log.warn("GraphQL operation {} of {} rejected: cost budget exhausted (cost {}, retry in {} ms)",
+                    context.getOperationDefinition().getName(), tenant, result.cost(), wait);
+            throw reject(QueryLimitException.budgetExhausted(result.cost(), wait));
+        }
+
+        costSummary.record(result.cost());
+        return super.beginExecuteOperation(parameters, state);
+    }
+
+    private QueryLimitException reject(QueryLimitException e) {
+        meterRegistry.counter(REJECTED_METRIC, "reason", e.getCode()).increment();
+        return e;
+    }
+}
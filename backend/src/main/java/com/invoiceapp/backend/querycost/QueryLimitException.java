@@ -0,0 +1,65 @@
+package com.invoiceapp.backend.querycost;
+
+import graphql.execution.AbortExecutionException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rejects a GraphQL operation before it executes. The reason and the numbers behind it are
+ * returned in the error's extensions, e.g. {"code": "QUERY_COST_EXCEEDED", "cost": 230500, "limit": 50000}.
+ */
+public class QueryLimitException extends AbortExecutionException {
+
+    public static final String DEPTH_EXCEEDED = "QUERY_DEPTH_EXCEEDED";
+    public static final String COST_EXCEEDED = "QUERY_COST_EXCEEDED";
+    public static final String BUDGET_EXHAUSTED = "QUERY_BUDGET_EXHAUSTED";
+
+    private final Map<String, Object> extensions;
+
+    private QueryLimitException(String message, Map<String, Object> extensions) {
+        super(message);
+        this.extensions = extensions;
+    }
+
+    public static QueryLimitException depthExceeded(int depth, int limit) {
+        return new QueryLimitException(
+                "Заявката е твърде дълбоко вложена (" + depth + " нива, позволени са " + limit + ")",
+                extensions(DEPTH_EXCEEDED, "depth", depth, limit));
+    }
+
+    public static QueryLimitException costExceeded(long cost, long limit) {
+        return new QueryLimitException(
+                "Заявката е твърде тежка (цена " + cost + ", позволено " + limit
+                        + "). Изберете по-малко вложени списъци или разделете заявката",
+                extensions(COST_EXCEEDED, "cost", cost, limit));
+    }
+
+    public static QueryLimitException budgetExhausted(long cost, long retryAfterMillis) {
+        long retryAfterSeconds = Math.max(1, (retryAfterMillis + 999) / 1000);
+        Map<String, Object> extensions = extensions(BUDGET_EXHAUSTED, "cost", cost, null);
+        extensions.put("retryAfterSeconds", retryAfterSeconds);
+        return new QueryLimitException(
+                "Лимитът на заявки за фирмата е изчерпан. Опитайте отново след " + retryAfterSeconds + " сек.",
+                extensions);
+    }
+
+    private static Map<String, Object> extensions(String code, String measure, Number value, Number limit) {
+        Map<String, Object> extensions = new LinkedHashMap<>();
+        extensions.put("code", code);
+        extensions.put(measure, value);
+        if (limit != null) {
+            extensions.put("limit", limit);
+        }
+        return extensions;
+    }
+
+    public String getCode() {
+        return (String) extensions.get("code");
+    }
+
+    @Override
+    public Map<String, Object> getExtensions() {
+        return extensions;
+    }
+}
@@ -0,0 +1,83 @@
+package com.invoiceapp.backend.querycost;
+
+import com.invoiceapp.backend.repository.UserRepository;
+import org.springframework.graphql.server.WebGraphQlInterceptor;
+import org.springframework.graphql.server.WebGraphQlRequest;
+import org.springframework.graphql.server.WebGraphQlResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Puts the tenant whose cost budget a GraphQL operation spends into the GraphQL context:
+ * "company:{id}" for company users, "user:{username}" for users without a company (SUPER_ADMIN)
+ * and "anonymous" for unauthenticated requests (login, password reset).
+ * The company of a user is cached for a few minutes, so this costs no query per request.
+ */
+@Component
+public class QueryTenantInterceptor implements WebGraphQlInterceptor {
+
+    public static final String TENANT_KEY = QueryTenantInterceptor.class.getName() + ".tenant";
+    public static final String ANONYMOUS = "anonymous";
+
+    private static final int MAX_CACHED_USERS = 10_000;
+    private static final long CACHE_MILLIS = 5 * 60_000L;
+
+    private final UserRepository userRepository;
+    private final Map<String, CachedTenant> tenants = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedTenant> eldest) {
+            return size() > MAX_CACHED_USERS;
+        }
+    };
+
+    public QueryTenantInterceptor(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    private record CachedTenant(
+        String tenant,
+        long expiresAt
+    ) {}
+
+    @Override
+    public Mono<WebGraphQlResponse> intercept(WebGraphQlRequest request, Chain chain) {
+        String tenant = currentTenant();
+        request.configureExecutionInput((executionInput, builder) ->
+            builder.graphQLContext(Map.of(TENANT_KEY, tenant)).build()
+        );
+        return chain.next(request);
+    }
+
+    /**
+     * @return the tenant of the current request; call on the request thread, where the SecurityContext is bound
+     */
+    public String currentTenant() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return ANONYMOUS;
+        }
+        String username = authentication.getName();
+        long now = System.currentTimeMillis();
+        synchronized (tenants) {
+            CachedTenant cached = tenants.get(username);
+            if (cached != null && cached.expiresAt() > now) {
+                return cached.tenant();
+            }
+        }
+
+        Optional<Long> companyId = userRepository.findCompanyIdByUsername(username);
+        String tenant = companyId.map(id -> "company:" + id).orElse("user:" + username);
+        synchronized (tenants) {
+            tenants.put(username, new CachedTenant(tenant, now + CACHE_MILLIS));
+        }
+        return tenant;
+    }
+}
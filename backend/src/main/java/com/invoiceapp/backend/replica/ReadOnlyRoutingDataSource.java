@@ -0,0 +1,37 @@
+package com.invoiceapp.backend.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * The data source for read-only connections: the replica, unless it lags behind or the current
+ * user has just written something the replica may not have replayed yet.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWritesTracker writesTracker;
+
+    public ReadOnlyRoutingDataSource(DataSource primary, DataSource replica,
+                                     ReplicaLagMonitor lagMonitor, ReadYourWritesTracker writesTracker) {
+        this.lagMonitor = lagMonitor;
+        this.writesTracker = writesTracker;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!lagMonitor.isReplicaUsable() || writesTracker.isSticky(ReadYourWritesTracker.currentUser())) {
+            return Target.PRIMARY;
+        }
+        return Target.REPLICA;
+    }
+}
@@ -0,0 +1,31 @@
+package com.invoiceapp.backend.replica;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * The target of the lazy connection proxy: read-only connections for physical connections fetched
+ * inside a read-only transaction, read-write ones otherwise.
+ *
+ * Hibernate returns its connection after every transaction
+ * (DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION), and in that mode Spring's HibernateJpaDialect
+ * does not call setReadOnly on it, so the proxy alone would send {@code @Transactional(readOnly = true)}
+ * to the primary. The physical connection is fetched on the first statement, after the transaction
+ * has been registered, so its read-only flag is known by then.
+ */
+public class ReadOnlyTransactionDataSource extends AbstractRoutingDataSource {
+
+    public ReadOnlyTransactionDataSource(DataSource readWrite, DataSource readOnly) {
+        setTargetDataSources(Map.of(Boolean.FALSE, readWrite, Boolean.TRUE, readOnly));
+        setDefaultTargetDataSource(readWrite);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
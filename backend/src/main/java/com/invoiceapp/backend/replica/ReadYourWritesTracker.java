@@ -0,0 +1,53 @@
+package com.invoiceapp.backend.replica;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when each user last committed a write, so that the user's reads stay on the primary
+ * for a short window afterwards and never see the replica before it has replayed that write.
+ *
+ * The window is per instance: with several instances behind a load balancer without session
+ * affinity, a read served by another instance may still go to the replica.
+ */
+public class ReadYourWritesTracker {
+
+    private static final int CLEANUP_THRESHOLD = 10_000;
+
+    private final long stickyMillis;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    public void recordWrite(String user) {
+        if (user == null || stickyMillis <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lastWrites.put(user, now);
+        if (lastWrites.size() > CLEANUP_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt > stickyMillis);
+        }
+    }
+
+    public boolean isSticky(String user) {
+        if (user == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(user);
+        return writtenAt != null && System.currentTimeMillis() - writtenAt <= stickyMillis;
+    }
+
+    /**
+     * @return the authenticated user of the current thread, null for background jobs
+     */
+    public static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
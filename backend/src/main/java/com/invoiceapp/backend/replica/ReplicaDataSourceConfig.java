@@ -0,0 +1,82 @@
+package com.invoiceapp.backend.replica;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a read replica when datasource.replica.url is set; without it
+ * Spring Boot's single spring.datasource pool is used as before.
+ *
+ * The application data source is a LazyConnectionDataSourceProxy: the physical connection is
+ * taken on the first statement, so {@code @Transactional(readOnly = true)} (see
+ * ReadOnlyTransactionDataSource) and plain JDBC connections set to read-only before use are served
+ * by ReadOnlyRoutingDataSource, everything else - including Flyway - by the primary.
+ *
+ * Routing happens once per physical connection, so a connection must not outlive its transaction:
+ * with a replica ReplicaJpaSettings turns spring.jpa.open-in-view off and has Hibernate release the
+ * connection after each transaction.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.url")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                              @Value("${datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource replicaDataSource,
+                                               @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMillis) {
+        return new ReplicaLagMonitor(replicaDataSource, maxLagMillis);
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(@Value("${datasource.replica.sticky-ms:5000}") long stickyMillis) {
+        return new ReadYourWritesTracker(stickyMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor, ReadYourWritesTracker readYourWritesTracker) {
+        return routingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, readYourWritesTracker);
+    }
+
+    static LazyConnectionDataSourceProxy routingDataSource(DataSource primary, DataSource replica,
+                                                           ReplicaLagMonitor lagMonitor, ReadYourWritesTracker writesTracker) {
+        DataSource readOnly = new ReadOnlyRoutingDataSource(primary, replica, lagMonitor, writesTracker);
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(
+                new ReadOnlyTransactionDataSource(new WriteTrackingDataSource(primary, writesTracker), readOnly));
+        dataSource.setReadOnlyDataSource(readOnly);
+        return dataSource;
+    }
+}
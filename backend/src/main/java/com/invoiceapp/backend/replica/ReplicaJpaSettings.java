@@ -0,0 +1,37 @@
+package com.invoiceapp.backend.replica;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+/**
+ * The JPA settings ReplicaDataSourceConfig needs, applied only when datasource.replica.url is set.
+ *
+ * Routing happens once per physical connection, so a connection must not outlive its transaction:
+ * Hibernate releases it after each transaction and open-in-view is off. Otherwise a write could reuse
+ * the replica connection of an earlier read-only lookup in the same request, such as a @PreAuthorize
+ * check. Without a replica Spring Boot's defaults stay. The settings are added with the lowest
+ * precedence, so an explicit value in application.properties still wins.
+ */
+public class ReplicaJpaSettings implements EnvironmentPostProcessor {
+
+    static final String REPLICA_URL = "datasource.replica.url";
+    static final String OPEN_IN_VIEW = "spring.jpa.open-in-view";
+    static final String HANDLING_MODE = "spring.jpa.properties.hibernate.connection.handling_mode";
+    static final String RELEASE_AFTER_TRANSACTION = "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION";
+
+    private static final String PROPERTY_SOURCE = "replicaJpaSettings";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.containsProperty(REPLICA_URL)) {
+            return;
+        }
+        environment.getPropertySources().addLast(new MapPropertySource(PROPERTY_SOURCE, Map.of(
+                OPEN_IN_VIEW, "false",
+                HANDLING_MODE, RELEASE_AFTER_TRANSACTION)));
+    }
+}
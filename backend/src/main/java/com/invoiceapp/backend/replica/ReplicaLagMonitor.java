@@ -0,0 +1,83 @@
+package com.invoiceapp.backend.replica;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Polls the replication lag of the read replica. Reads fall back to the primary while the lag is
+ * above the threshold, while the replica cannot be reached, and until the first successful check.
+ *
+ * A replica that has replayed everything it received reports no lag even when the primary has
+ * been idle for a while; otherwise the lag is the age of the last replayed transaction.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final String LAG_SQL = """
+            SELECT CASE WHEN NOT pg_is_in_recovery() THEN 0
+                        WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE (extract(epoch FROM now() - pg_last_xact_replay_timestamp()) * 1000)::bigint
+                   END
+            """;
+
+    private final DataSource replica;
+    private final long maxLagMillis;
+
+    private volatile long lagMillis = -1;
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagMillis) {
+        this.replica = replica;
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_SQL)) {
+            rs.next();
+            long lag = rs.getLong(1);
+            // NULL - the replica has not replayed any transaction since it started
+            record(rs.wasNull() ? null : lag);
+        } catch (SQLException e) {
+            if (usable) {
+                logger.warn("Read replica unavailable, reads go to the primary: {}", e.getMessage());
+            }
+            lagMillis = -1;
+            usable = false;
+        }
+    }
+
+    void record(Long lag) {
+        boolean nowUsable = lag != null && lag <= maxLagMillis;
+        if (nowUsable != usable) {
+            if (nowUsable) {
+                logger.info("Read replica in use (lag {} ms)", lag);
+            } else {
+                logger.warn("Read replica lag {} ms is above {} ms, reads go to the primary", lag, maxLagMillis);
+            }
+        }
+        lagMillis = lag != null ? lag : -1;
+        usable = nowUsable;
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    /**
+     * @return the last measured lag, -1 when unknown
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+}
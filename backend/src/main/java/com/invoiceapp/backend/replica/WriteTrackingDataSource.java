@@ -0,0 +1,52 @@
+package com.invoiceapp.backend.replica;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * The primary as seen by read-write connections. A user whose transaction commits here is kept on
+ * the primary by ReadYourWritesTracker; a connection outside a transaction counts as a write at once.
+ */
+public class WriteTrackingDataSource extends DelegatingDataSource {
+
+    private final ReadYourWritesTracker writesTracker;
+
+    public WriteTrackingDataSource(DataSource primary, ReadYourWritesTracker writesTracker) {
+        super(primary);
+        this.writesTracker = writesTracker;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        recordWrite();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        recordWrite();
+        return super.getConnection(username, password);
+    }
+
+    private void recordWrite() {
+        String user = ReadYourWritesTracker.currentUser();
+        if (user == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            writesTracker.recordWrite(user);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                writesTracker.recordWrite(user);
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.invoiceapp.backend.repository;
+
+import com.invoiceapp.backend.model.AuditExport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AuditExportRepository extends JpaRepository<AuditExport, Long> {
+
+    List<AuditExport> findByCompanyIdOrderByCreatedAtDesc(Long companyId);
+
+    @Query("SELECT e.companyId FROM AuditExport e WHERE e.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
+
+    /**
+     * Следващият чакащ експорт, заключен за тази инстанция.
+     * SKIP LOCKED позволява няколко инстанции да взимат експорти без дублиране.
+     */
+    @Query(value = "SELECT id FROM audit_exports WHERE status = 'PENDING' ORDER BY id LIMIT 1 FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    Optional<Long> lockNextPendingId();
+
+    @Modifying
+    @Query("UPDATE AuditExport e SET e.writtenRecords = :written, e.progressAt = :now WHERE e.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("written") long written, @Param("now") LocalDateTime now);
+
+    /**
+     * Експорти, чиято инстанция е спряла по време на записа
+     */
+    @Modifying
+    @Query("UPDATE AuditExport e SET e.status = 'FAILED', e.error = :reason, e.completedAt = :now " +
+            "WHERE e.status = 'RUNNING' AND e.progressAt < :cutoff")
+    int failStale(@Param("cutoff") LocalDateTime cutoff, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    @Query("SELECT e FROM AuditExport e WHERE e.status = 'COMPLETED' AND e.completedAt < :cutoff")
+    List<AuditExport> findCompletedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
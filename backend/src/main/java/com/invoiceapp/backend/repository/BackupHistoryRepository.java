@@ -10,6 +10,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BackupHistoryRepository extends JpaRepository<BackupHistory, Long> {
@@ -35,4 +36,8 @@ public interface BackupHistoryRepository extends JpaRepository<BackupHistory, Lo
     Long getTotalBackupSize();
 
     List<BackupHistory> findTop10ByOrderByStartedAtDesc();
+
+    Optional<BackupHistory> findFirstByStatusAndDeletedAtIsNullAndWatermarkIsNotNullOrderByStartedAtDesc(String status);
+
+    List<BackupHistory> findByBaseBackupIdAndDeletedAtIsNull(Long baseBackupId);
 }
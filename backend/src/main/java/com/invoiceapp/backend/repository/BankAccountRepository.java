@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface BankAccountRepository extends JpaRepository<BankAccount, Long> {
@@ -40,4 +41,7 @@ public interface BankAccountRepository extends JpaRepository<BankAccount, Long>
 
     @Query("SELECT DISTINCT ba.currencyCode FROM BankAccount ba WHERE ba.company.id = :companyId AND ba.isActive = true ORDER BY ba.currencyCode ASC")
     List<String> findDistinctCurrenciesByCompanyId(@Param("companyId") Long companyId);
+
+    @Query("SELECT ba.company.id, ba FROM BankAccount ba WHERE ba.company.id IN :companyIds ORDER BY ba.sortOrder ASC, ba.bankName ASC")
+    List<Object[]> findWithCompanyIdByCompanyIdIn(@Param("companyIds") Set<Long> companyIds);
 }
\ No newline at end of file
@@ -53,12 +53,36 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
     boolean existsByEikAndCompany(String eik, Company company);
     
     /**
-     * Търси клиенти по име, ЕИК или ДДС номер
+     * Нормализираните имена на клиента, индексирани с pg_trgm (V12__Trigram_Search.sql)
      */
-    @Query("SELECT c FROM Client c WHERE c.company.id = :companyId AND " +
-           "(LOWER(c.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.nameEn) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.eik) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(c.vatNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%')))")
-    List<Client> searchByNameEikOrVatNumber(@Param("companyId") Long companyId, @Param("searchTerm") String searchTerm);
+    String SEARCH_NAME = "search_normalize(c.name || ' ' || coalesce(c.name_en, ''))";
+    String SEARCH_IDS = "lower(coalesce(c.eik, '') || ' ' || coalesce(c.vat_number, ''))";
+
+    /**
+     * Търси клиенти по име (вкл. на кирилица/латиница и с печатни грешки), ЕИК или ДДС номер.
+     * Първо е точното съвпадение по ЕИК/ДДС номер, после по близост на името.
+     * @param pattern термът, екраниран за LIKE (SearchTerms.likeEscape)
+     * @param term термът без екраниране
+     */
+    @Query(value = "SELECT c.* FROM clients c WHERE c.company_id = :companyId AND (" +
+           SEARCH_NAME + " LIKE '%' || search_normalize(:pattern) || '%' OR " +
+           "search_normalize(:term) <% " + SEARCH_NAME + " OR " +
+           SEARCH_IDS + " LIKE '%' || lower(:pattern) || '%') " +
+           "ORDER BY CASE WHEN lower(c.eik) = lower(:term) OR lower(c.vat_number) = lower(:term) THEN 0 ELSE 1 END, " +
+           "word_similarity(search_normalize(:term), " + SEARCH_NAME + ") DESC, c.name " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Client> searchRanked(@Param("companyId") Long companyId, @Param("pattern") String pattern,
+                              @Param("term") String term, @Param("limit") int limit);
+
+    /**
+     * Редове за autocomplete индекса на фирма: [Long id, String eik, String name, String nameEn, String vatNumber, Boolean isActive]
+     */
+    @Query("SELECT c.id, c.eik, c.name, c.nameEn, c.vatNumber, c.isActive FROM Client c WHERE c.company.id = :companyId")
+    List<Object[]> findAutocompleteRowsByCompanyId(@Param("companyId") Long companyId);
+
+    /**
+     * Връща само ID на фирмата, към която принадлежи клиентът (за проверка на достъп)
+     */
+    @Query("SELECT c.company.id FROM Client c WHERE c.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
 }
@@ -86,4 +86,12 @@ public interface DocumentItemRepository extends JpaRepository<DocumentItem, Long
      */
     @Query("SELECT di FROM DocumentItem di LEFT JOIN FETCH di.item WHERE di.document.id IN :documentIds ORDER BY di.document.id, di.lineNumber")
     List<DocumentItem> findByDocumentIdIn(@Param("documentIds") Set<Long> documentIds);
+
+    /**
+     * Same as findByDocumentIdIn, but also returns the document ID of each row
+     * so grouping does not have to touch the lazy document proxy.
+     * Each row is [Long documentId, DocumentItem item].
+     */
+    @Query("SELECT di.document.id, di FROM DocumentItem di LEFT JOIN FETCH di.item LEFT JOIN FETCH di.vatExemptionReason WHERE di.document.id IN :documentIds ORDER BY di.document.id, di.lineNumber")
+    List<Object[]> findWithDocumentIdByDocumentIdIn(@Param("documentIds") Set<Long> documentIds);
 }
\ No newline at end of file
@@ -88,9 +88,20 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
                                                     @Param("endDate") java.time.LocalDate endDate);
 
     /**
-     * Намира документи с просрочен срок на плащане
+     * Неплатен документ: приключен данъчен документ без дата на плащане, който не е анулиран
+     * и не е платен в брой или с карта (виж Document.isPaid). Първата част е условието
+     * на частичния индекс idx_documents_open (V14__Receivables_Aging.sql).
      */
-    @Query("SELECT d FROM Document d WHERE d.company.id = :companyId AND d.dueDate < CURRENT_DATE AND d.status != 'PAID' AND d.status != 'VOID' ORDER BY d.dueDate ASC")
+    String OPEN_DOCUMENT = "d.status = 'FINAL' AND d.documentType <> 'PROFORMA' AND d.paidAt IS NULL AND d.cancelledAt IS NULL " +
+            "AND (pm IS NULL OR pm.methodCode NOT IN ('CASH', 'CARD'))";
+    String OPEN_DOCUMENT_SQL = "d.status = 'FINAL' AND d.document_type <> 'PROFORMA' AND d.paid_at IS NULL AND d.cancelled_at IS NULL " +
+            "AND (pm.method_code IS NULL OR pm.method_code NOT IN ('CASH', 'CARD'))";
+
+    /**
+     * Намира неплатените документи с изтекъл срок на плащане
+     */
+    @Query("SELECT d FROM Document d LEFT JOIN d.paymentMethod pm WHERE d.company.id = :companyId AND " + OPEN_DOCUMENT +
+           " AND d.dueDate < CURRENT_DATE ORDER BY d.dueDate ASC")
     List<Document> findOverdueDocumentsByCompanyId(@Param("companyId") Long companyId);
 
     /**
@@ -112,9 +123,10 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
     long countNonTaxDocumentsByCompanyId(@Param("companyId") Long companyId);
 
     /**
-     * Брои просрочени документи на дадена фирма
+     * Брои неплатените документи с изтекъл срок на плащане на дадена фирма
      */
-    @Query("SELECT COUNT(d) FROM Document d WHERE d.company.id = :companyId AND d.dueDate < CURRENT_DATE AND d.status != 'PAID' AND d.status != 'VOID'")
+    @Query("SELECT COUNT(d) FROM Document d LEFT JOIN d.paymentMethod pm WHERE d.company.id = :companyId AND " + OPEN_DOCUMENT +
+           " AND d.dueDate < CURRENT_DATE")
     long countOverdueDocumentsByCompanyId(@Param("companyId") Long companyId);
 
     /**
@@ -127,4 +139,48 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
      * Намира документ по UUID (за публична верификация)
      */
     Optional<Document> findByDocumentUuid(String documentUuid);
-}
\ No newline at end of file
+
+    /**
+     * Връща само ID на фирмата, към която принадлежи документът (за проверка на достъп)
+     */
+    @Query("SELECT d.company.id FROM Document d WHERE d.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
+
+    /**
+     * Пълнотекстово търсене в номера, описанията на редовете и бележките (V13__Document_Full_Text_Search.sql).
+     * Редове [Long id, Float rank, String snippet] по релевантност; snippet-ът (с &lt;b&gt; около съвпаденията)
+     * се изрязва само за върнатата страница. Текстът в него е HTML-escape-нат (V17__Escape_Search_Snippets.sql).
+     * @param terms думите на заявката, разделени с интервал (SearchTerms.words)
+     */
+    @Query(value = "SELECT page.id, page.rank, ts_headline('simple', document_search_text(page.id, page.notes), page.q, " +
+           "'StartSel=<b>, StopSel=</b>, MaxWords=20, MinWords=8, MaxFragments=2, FragmentDelimiter=\" ... \"') AS snippet " +
+           "FROM (SELECT d.id, d.notes, d.issue_date, q, ts_rank_cd(d.search_vector, q) AS rank " +
+           "      FROM documents d, document_search_query(string_to_array(:terms, ' ')) q " +
+           "      WHERE d.company_id = :companyId AND d.search_vector @@ q " +
+           "      ORDER BY rank DESC, d.issue_date DESC, d.id DESC " +
+           "      OFFSET :offset LIMIT :limit) page " +
+           "ORDER BY page.rank DESC, page.issue_date DESC, page.id DESC", nativeQuery = true)
+    List<Object[]> searchFullText(@Param("companyId") Long companyId, @Param("terms") String terms,
+                                  @Param("offset") int offset, @Param("limit") int limit);
+
+    /**
+     * Неплатените суми по клиенти към дата, в базова валута, разпределени по дни просрочие - с едно минаване
+     * през частичния индекс. Документи, издадени след датата, не се включват.
+     * Редове [Long clientId, String clientName, Long documents, BigDecimal notDue, BigDecimal days0To30,
+     * BigDecimal days31To60, BigDecimal days61To90, BigDecimal over90, BigDecimal total], по-големите суми първо.
+     */
+    @Query(value = "SELECT d.client_id, c.name, COUNT(*), " +
+           "COALESCE(SUM(d.total_amount_with_vat_base_currency) FILTER (WHERE d.due_date > :asOf), 0), " +
+           "COALESCE(SUM(d.total_amount_with_vat_base_currency) FILTER (WHERE d.due_date <= :asOf AND d.due_date >= CAST(:asOf AS date) - 30), 0), " +
+           "COALESCE(SUM(d.total_amount_with_vat_base_currency) FILTER (WHERE d.due_date < CAST(:asOf AS date) - 30 AND d.due_date >= CAST(:asOf AS date) - 60), 0), " +
+           "COALESCE(SUM(d.total_amount_with_vat_base_currency) FILTER (WHERE d.due_date < CAST(:asOf AS date) - 60 AND d.due_date >= CAST(:asOf AS date) - 90), 0), " +
+           "COALESCE(SUM(d.total_amount_with_vat_base_currency) FILTER (WHERE d.due_date < CAST(:asOf AS date) - 90), 0), " +
+           "SUM(d.total_amount_with_vat_base_currency) AS total " +
+           "FROM documents d " +
+           "JOIN clients c ON c.id = d.client_id " +
+           "LEFT JOIN payment_methods pm ON pm.id = d.payment_method_id " +
+           "WHERE d.company_id = :companyId AND " + OPEN_DOCUMENT_SQL + " AND d.issue_date <= :asOf " +
+           "GROUP BY d.client_id, c.name " +
+           "ORDER BY total DESC, c.name", nativeQuery = true)
+    List<Object[]> receivablesAgingByClient(@Param("companyId") Long companyId, @Param("asOf") java.time.LocalDate asOf);
+}
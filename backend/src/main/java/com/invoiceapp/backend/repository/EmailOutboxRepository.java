@@ -0,0 +1,65 @@
+package com.invoiceapp.backend.repository;
+
+import com.invoiceapp.backend.model.EmailOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Заключва следващите чакащи имейли за изпращане.
+     * SKIP LOCKED позволява няколко инстанции на диспечера да работят паралелно без дублиране.
+     */
+    @Query(value = "SELECT id FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY next_attempt_at, id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDueIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    /**
+     * Маркира заключените имейли като "изпращат се" и увеличава броя опити
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'SENDING', e.attempts = e.attempts + 1, e.updatedAt = :now WHERE e.id IN :ids")
+    int markSending(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    /**
+     * Връща в опашката имейли, останали в SENDING след прекъсване на приложението.
+     * Имейл, изчерпал опитите си (напр. такъв, който всеки път срива процеса), се маркира като FAILED.
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET " +
+            "e.status = CASE WHEN e.attempts >= :maxAttempts THEN 'FAILED' ELSE 'PENDING' END, " +
+            "e.lastError = CASE WHEN e.attempts >= :maxAttempts THEN 'Sending was interrupted' ELSE e.lastError END, " +
+            "e.updatedAt = :now " +
+            "WHERE e.status = 'SENDING' AND e.updatedAt < :staleBefore")
+    int releaseStale(@Param("staleBefore") LocalDateTime staleBefore, @Param("maxAttempts") int maxAttempts,
+                     @Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT e FROM EmailOutbox e LEFT JOIN FETCH e.attachments WHERE e.id IN :ids ORDER BY e.id")
+    List<EmailOutbox> findWithAttachmentsByIdIn(@Param("ids") Collection<Long> ids);
+
+    List<EmailOutbox> findByDocumentIdOrderByCreatedAtDesc(Long documentId);
+
+    long countByStatus(String status);
+
+    /**
+     * Брой имейли от масово изпращане по статус: [status, count]
+     */
+    @Query("SELECT e.status, COUNT(e) FROM EmailOutbox e WHERE e.mailingRunId = :runId GROUP BY e.status")
+    List<Object[]> countByMailingRunGroupedByStatus(@Param("runId") Long runId);
+
+    /**
+     * Спира чакащите имейли от отменено масово изпращане
+     */
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = 'FAILED', e.lastError = :reason, e.updatedAt = :now " +
+            "WHERE e.mailingRunId = :runId AND e.status = 'PENDING'")
+    int cancelPendingByMailingRun(@Param("runId") Long runId, @Param("reason") String reason, @Param("now") LocalDateTime now);
+}
@@ -28,17 +28,32 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     Optional<Item> findByCompanyIdAndItemNumber(Long companyId, String itemNumber);
     
     /**
-     * Find items by company ID and name containing (case insensitive)
+     * Normalized item text indexed with pg_trgm (V12__Trigram_Search.sql)
      */
-    @Query("SELECT i FROM Item i WHERE i.company.id = :companyId AND " +
-           "(LOWER(i.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(i.nameEn) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(i.itemNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(i.description) LIKE LOWER(CONCAT('%', :searchTerm, '%'))) " +
-           "ORDER BY i.itemNumber")
-    List<Item> findItemsByCompanyAndSearchTerm(@Param("companyId") Long companyId,
-                                              @Param("searchTerm") String searchTerm);
-    
+    String SEARCH_TEXT = "search_normalize(i.name || ' ' || coalesce(i.name_en, '') || ' ' || coalesce(i.description, ''))";
+
+    /**
+     * Search items by name, description (Cyrillic/Latin, tolerating typos) or item number.
+     * An exact item number comes first, then the closest names.
+     * @param pattern the term escaped for LIKE (SearchTerms.likeEscape)
+     * @param term the unescaped term
+     */
+    @Query(value = "SELECT i.* FROM items i WHERE i.company_id = :companyId AND (" +
+           SEARCH_TEXT + " LIKE '%' || search_normalize(:pattern) || '%' OR " +
+           "search_normalize(:term) <% " + SEARCH_TEXT + " OR " +
+           "lower(i.item_number) LIKE '%' || lower(:pattern) || '%') " +
+           "ORDER BY CASE WHEN lower(i.item_number) = lower(:term) THEN 0 ELSE 1 END, " +
+           "word_similarity(search_normalize(:term), " + SEARCH_TEXT + ") DESC, i.item_number " +
+           "LIMIT :limit", nativeQuery = true)
+    List<Item> searchRanked(@Param("companyId") Long companyId, @Param("pattern") String pattern,
+                            @Param("term") String term, @Param("limit") int limit);
+
+    /**
+     * Autocomplete rows of a company: [Long id, String itemNumber, String name, String nameEn, Boolean isActive]
+     */
+    @Query("SELECT i.id, i.itemNumber, i.name, i.nameEn, i.isActive FROM Item i WHERE i.company.id = :companyId")
+    List<Object[]> findAutocompleteRowsByCompanyId(@Param("companyId") Long companyId);
+
     /**
      * Check if item number exists for company
      */
@@ -61,4 +76,10 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
      */
     @Query("SELECT CASE WHEN COUNT(di) > 0 THEN true ELSE false END FROM DocumentItem di WHERE di.item.id = :itemId")
     boolean isItemUsedInDocuments(@Param("itemId") Long itemId);
+
+    /**
+     * Return only the owning company ID of an item (for access checks)
+     */
+    @Query("SELECT i.company.id FROM Item i WHERE i.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.invoiceapp.backend.repository;
+
+import com.invoiceapp.backend.model.MailingRunItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MailingRunItemRepository extends JpaRepository<MailingRunItem, Long> {
+
+    /**
+     * Заключва следващата част от неподготвените документи.
+     * SKIP LOCKED позволява няколко инстанции да подготвят едно изпращане без дублиране.
+     */
+    @Query(value = "SELECT id FROM mailing_run_items WHERE mailing_run_id = :runId AND status = 'PENDING' " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockPendingIds(@Param("runId") Long runId, @Param("limit") int limit);
+
+    /**
+     * Заключва документите от частта, които още са заявени от тази подготовка.
+     * Отменените и върнатите в опашката (изтекла заявка) отпадат.
+     */
+    @Query(value = "SELECT id FROM mailing_run_items WHERE id IN (:ids) AND status = 'PREPARING' " +
+            "AND claimed_at = :claimedAt FOR UPDATE", nativeQuery = true)
+    List<Long> lockClaimedIds(@Param("ids") Collection<Long> ids, @Param("claimedAt") LocalDateTime claimedAt);
+
+    /**
+     * Връща в опашката документи, останали в PREPARING след прекъсване на приложението
+     */
+    @Modifying
+    @Query("UPDATE MailingRunItem i SET i.status = 'PENDING', i.claimedAt = NULL " +
+            "WHERE i.mailingRunId = :runId AND i.status = 'PREPARING' AND i.claimedAt < :staleBefore")
+    int releaseStale(@Param("runId") Long runId, @Param("staleBefore") LocalDateTime staleBefore);
+
+    List<MailingRunItem> findByMailingRunIdOrderById(Long mailingRunId);
+
+    /**
+     * Брой документи по статус: [status, count]
+     */
+    @Query("SELECT i.status, COUNT(i) FROM MailingRunItem i WHERE i.mailingRunId = :runId GROUP BY i.status")
+    List<Object[]> countByStatus(@Param("runId") Long runId);
+
+    @Modifying
+    @Query("UPDATE MailingRunItem i SET i.status = 'SKIPPED', i.error = :reason " +
+            "WHERE i.mailingRunId = :runId AND i.status IN ('PENDING', 'PREPARING')")
+    int skipPending(@Param("runId") Long runId, @Param("reason") String reason);
+}
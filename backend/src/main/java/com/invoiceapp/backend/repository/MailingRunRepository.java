@@ -0,0 +1,25 @@
+package com.invoiceapp.backend.repository;
+
+import com.invoiceapp.backend.model.MailingRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface MailingRunRepository extends JpaRepository<MailingRun, Long> {
+
+    List<MailingRun> findByCompanyIdOrderByCreatedAtDesc(Long companyId);
+
+    /**
+     * Изпращания, които още не са добавили всички документи в outbox-а
+     */
+    @Query("SELECT r.id FROM MailingRun r WHERE r.status IN ('PENDING', 'PREPARING') ORDER BY r.id")
+    List<Long> findOpenIds();
+
+    @Query("SELECT r.companyId FROM MailingRun r WHERE r.id = :id")
+    Optional<Long> findCompanyIdById(@Param("id") Long id);
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface PaymentMethodRepository extends JpaRepository<PaymentMethod, Long> {
@@ -32,4 +33,7 @@ public interface PaymentMethodRepository extends JpaRepository<PaymentMethod, Lo
 
     @Query("SELECT pm FROM PaymentMethod pm WHERE pm.company.id = :companyId AND pm.isActive = true AND pm.name LIKE %:searchTerm% ORDER BY pm.sortOrder ASC, pm.name ASC")
     List<PaymentMethod> searchActiveByCompanyAndName(@Param("companyId") Long companyId, @Param("searchTerm") String searchTerm);
+
+    @Query("SELECT pm.company.id, pm FROM PaymentMethod pm WHERE pm.company.id IN :companyIds ORDER BY pm.sortOrder ASC, pm.name ASC")
+    List<Object[]> findWithCompanyIdByCompanyIdIn(@Param("companyIds") Set<Long> companyIds);
 }
\ No newline at end of file
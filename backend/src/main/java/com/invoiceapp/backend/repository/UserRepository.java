@@ -3,10 +3,13 @@ package com.invoiceapp.backend.repository;
 import com.invoiceapp.backend.model.User;
 import com.invoiceapp.backend.model.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -14,4 +17,16 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     List<User> findByCompanyId(Long companyId);
     List<User> findByRole(Role role);
+
+    /**
+     * Потребители на няколко фирми наведнъж (за DataLoader). Всеки ред е [Long companyId, User user].
+     */
+    @Query("SELECT u.company.id, u FROM User u WHERE u.company.id IN :companyIds ORDER BY u.id")
+    List<Object[]> findWithCompanyIdByCompanyIdIn(@Param("companyIds") Set<Long> companyIds);
+
+    /**
+     * Фирмата на потребителя без зареждане на потребителя (празно за SUPER_ADMIN без фирма)
+     */
+    @Query("SELECT u.company.id FROM User u WHERE u.username = :username")
+    Optional<Long> findCompanyIdByUsername(@Param("username") String username);
 }
@@ -0,0 +1,193 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.Client;
+import com.invoiceapp.backend.model.Item;
+import com.invoiceapp.backend.model.dto.AutocompleteEntry;
+import com.invoiceapp.backend.repository.ClientRepository;
+import com.invoiceapp.backend.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Autocomplete индекс в паметта за артикулите и клиентите на всяка фирма.
+ *
+ * Индексът на фирма се зарежда от базата при първото търсене (по една заявка за артикули
+ * и клиенти, само полетата за показване), след което търсенето при всеки натиснат клавиш
+ * не стига до PostgreSQL. ItemController и ClientController го обновяват след commit
+ * при създаване, промяна и изтриване. Общият брой записи е ограничен до
+ * autocomplete.max-entries - при превишаване се изхвърлят най-отдавна търсените фирми.
+ */
+@Component
+public class AutocompleteIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompleteIndex.class);
+
+    private static final int DEFAULT_LIMIT = 10;
+    private static final int MAX_LIMIT = 50;
+
+    private final ItemRepository itemRepository;
+    private final ClientRepository clientRepository;
+    private final int maxEntries;
+
+    // Най-отдавна използваните фирми са първи
+    private final LinkedHashMap<Long, CompanyIndex> companies = new LinkedHashMap<>(16, 0.75f, true);
+
+    public AutocompleteIndex(ItemRepository itemRepository,
+                             ClientRepository clientRepository,
+                             @Value("${autocomplete.max-entries:500000}") int maxEntries) {
+        this.itemRepository = itemRepository;
+        this.clientRepository = clientRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    private static final class CompanyIndex {
+        private final PrefixIndex items = new PrefixIndex();
+        private final PrefixIndex clients = new PrefixIndex();
+        private boolean loaded;
+        private volatile int size;
+
+        private void updateSize() {
+            size = items.size() + clients.size();
+        }
+    }
+
+    /**
+     * Артикули на фирмата по начало на номер или име (на български или английски)
+     */
+    public List<AutocompleteEntry> items(Long companyId, String query, Integer limit) {
+        CompanyIndex index = loadedIndex(companyId);
+        synchronized (index) {
+            return index.items.search(query, limit(limit));
+        }
+    }
+
+    /**
+     * Клиенти на фирмата по начало на име, ЕИК или ДДС номер
+     */
+    public List<AutocompleteEntry> clients(Long companyId, String query, Integer limit) {
+        CompanyIndex index = loadedIndex(companyId);
+        synchronized (index) {
+            return index.clients.search(query, limit(limit));
+        }
+    }
+
+    private static int limit(Integer requested) {
+        return requested == null || requested <= 0 ? DEFAULT_LIMIT : Math.min(requested, MAX_LIMIT);
+    }
+
+    /**
+     * Артикулът е създаден или променен (прилага се след commit на текущата транзакция)
+     */
+    public void itemSaved(Item item) {
+        AutocompleteEntry entry = new AutocompleteEntry(item.getId(), item.getItemNumber(), item.getName(),
+                item.getNameEn(), null, !Boolean.FALSE.equals(item.getIsActive()));
+        afterCommit(item.getCompany().getId(), index -> index.items.put(entry));
+    }
+
+    public void itemDeleted(Long companyId, Long itemId) {
+        afterCommit(companyId, index -> index.items.remove(itemId));
+    }
+
+    /**
+     * Клиентът е създаден или променен (прилага се след commit на текущата транзакция)
+     */
+    public void clientSaved(Client client) {
+        AutocompleteEntry entry = new AutocompleteEntry(client.getId(), client.getEik(), client.getName(),
+                client.getNameEn(), client.getVatNumber(), !Boolean.FALSE.equals(client.getIsActive()));
+        afterCommit(client.getCompany().getId(), index -> index.clients.put(entry));
+    }
+
+    public void clientDeleted(Long companyId, Long clientId) {
+        afterCommit(companyId, index -> index.clients.remove(clientId));
+    }
+
+    private void afterCommit(Long companyId, Consumer<CompanyIndex> change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(companyId, change);
+                }
+            });
+        } else {
+            apply(companyId, change);
+        }
+    }
+
+    // Фирми, които още не са заредени, ще прочетат промяната от базата при зареждане
+    private void apply(Long companyId, Consumer<CompanyIndex> change) {
+        CompanyIndex index;
+        synchronized (companies) {
+            index = companies.get(companyId);
+        }
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            if (index.loaded) {
+                change.accept(index);
+                index.updateSize();
+            }
+        }
+    }
+
+    private CompanyIndex loadedIndex(Long companyId) {
+        CompanyIndex index;
+        synchronized (companies) {
+            index = companies.computeIfAbsent(companyId, id -> new CompanyIndex());
+        }
+        synchronized (index) {
+            if (!index.loaded) {
+                load(companyId, index);
+                index.loaded = true;
+                index.updateSize();
+                evictOverLimit(companyId);
+            }
+        }
+        return index;
+    }
+
+    private void load(Long companyId, CompanyIndex index) {
+        long start = System.currentTimeMillis();
+        List<AutocompleteEntry> items = new ArrayList<>();
+        for (Object[] row : itemRepository.findAutocompleteRowsByCompanyId(companyId)) {
+            items.add(new AutocompleteEntry((Long) row[0], (String) row[1], (String) row[2], (String) row[3], null,
+                    !Boolean.FALSE.equals(row[4])));
+        }
+        List<AutocompleteEntry> clients = new ArrayList<>();
+        for (Object[] row : clientRepository.findAutocompleteRowsByCompanyId(companyId)) {
+            clients.add(new AutocompleteEntry((Long) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4], !Boolean.FALSE.equals(row[5])));
+        }
+        index.items.load(items);
+        index.clients.load(clients);
+        logger.info("Autocomplete index for company {} loaded: {} items, {} clients in {} ms",
+                companyId, items.size(), clients.size(), System.currentTimeMillis() - start);
+    }
+
+    private void evictOverLimit(Long keepCompanyId) {
+        synchronized (companies) {
+            long total = companies.values().stream().mapToLong(index -> index.size).sum();
+            Iterator<Map.Entry<Long, CompanyIndex>> eldest = companies.entrySet().iterator();
+            while (total > maxEntries && eldest.hasNext()) {
+                Map.Entry<Long, CompanyIndex> entry = eldest.next();
+                if (!entry.getKey().equals(keepCompanyId)) {
+                    total -= entry.getValue().size;
+                    eldest.remove();
+                    logger.debug("Autocomplete index for company {} evicted", entry.getKey());
+                }
+            }
+        }
+    }
+}
@@ -113,7 +113,7 @@ public class BackupSchedulerService {
                         .getContext().get("databaseBackupService");
 
                 if (backupService != null) {
-                    backupService.createBackup("SYSTEM", "AUTOMATIC");
+                    backupService.createScheduledBackup("SYSTEM", "AUTOMATIC");
                     jobLogger.info("Scheduled automatic backup completed successfully");
                 } else {
                     jobLogger.error("DatabaseBackupService not found in scheduler context");
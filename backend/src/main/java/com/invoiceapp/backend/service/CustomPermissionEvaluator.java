@@ -1,11 +1,9 @@
 package com.invoiceapp.backend.service;
 
-import com.invoiceapp.backend.model.Client;
-import com.invoiceapp.backend.model.Document;
 import com.invoiceapp.backend.model.Role;
 import com.invoiceapp.backend.model.User;
-import com.invoiceapp.backend.repository.ClientRepository;
-import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.repository.AuditExportRepository;
+import com.invoiceapp.backend.repository.MailingRunRepository;
 import com.invoiceapp.backend.repository.UserRepository;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
@@ -16,13 +14,17 @@ import java.util.Optional;
 public class CustomPermissionEvaluator {
 
     private final UserRepository userRepository;
-    private final DocumentRepository documentRepository;
-    private final ClientRepository clientRepository;
+    private final OwnershipIndex ownershipIndex;
+    private final MailingRunRepository mailingRunRepository;
+    private final AuditExportRepository auditExportRepository;
 
-    public CustomPermissionEvaluator(UserRepository userRepository, DocumentRepository documentRepository, ClientRepository clientRepository) {
+    public CustomPermissionEvaluator(UserRepository userRepository, OwnershipIndex ownershipIndex,
+                                     MailingRunRepository mailingRunRepository,
+                                     AuditExportRepository auditExportRepository) {
         this.userRepository = userRepository;
-        this.documentRepository = documentRepository;
-        this.clientRepository = clientRepository;
+        this.ownershipIndex = ownershipIndex;
+        this.mailingRunRepository = mailingRunRepository;
+        this.auditExportRepository = auditExportRepository;
     }
 
     /**
@@ -36,15 +38,11 @@ public class CustomPermissionEvaluator {
         if (documentId == null) {
             return false;
         }
-        Optional<Document> docOpt = documentRepository.findById(documentId);
-        if (docOpt.isEmpty()) {
+        Optional<Long> companyId = ownershipIndex.documentCompanyId(documentId);
+        if (companyId.isEmpty()) {
             return false;
         }
-        Document doc = docOpt.get();
-        if (doc.getCompany() == null) {
-            return false;
-        }
-        return isUserInCompany(authentication, doc.getCompany().getId());
+        return isUserInCompany(authentication, companyId.get());
     }
 
     /**
@@ -58,15 +56,65 @@ public class CustomPermissionEvaluator {
         if (clientId == null) {
             return false;
         }
-        Optional<Client> clientOpt = clientRepository.findById(clientId);
-        if (clientOpt.isEmpty()) {
+        Optional<Long> companyId = ownershipIndex.clientCompanyId(clientId);
+        if (companyId.isEmpty()) {
+            return false;
+        }
+        return isUserInCompany(authentication, companyId.get());
+    }
+
+    /**
+     * Проверява дали потребителят има достъп до артикул по ID
+     * Връща false ако артикулът не съществува или потребителят няма достъп
+     */
+    public boolean canAccessItem(Authentication authentication, Long itemId) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        if (itemId == null) {
+            return false;
+        }
+        Optional<Long> companyId = ownershipIndex.itemCompanyId(itemId);
+        if (companyId.isEmpty()) {
+            return false;
+        }
+        return isUserInCompany(authentication, companyId.get());
+    }
+
+    /**
+     * Проверява дали потребителят има достъп до масово изпращане по ID
+     * Връща false ако изпращането не съществува или потребителят няма достъп
+     */
+    public boolean canAccessMailingRun(Authentication authentication, Long mailingRunId) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        if (mailingRunId == null) {
+            return false;
+        }
+        Optional<Long> companyId = mailingRunRepository.findCompanyIdById(mailingRunId);
+        if (companyId.isEmpty()) {
+            return false;
+        }
+        return isUserInCompany(authentication, companyId.get());
+    }
+
+    /**
+     * Проверява дали потребителят има достъп до SAF-T експорт по ID
+     * Връща false ако експортът не съществува или потребителят няма достъп
+     */
+    public boolean canAccessAuditExport(Authentication authentication, Long auditExportId) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return false;
+        }
+        if (auditExportId == null) {
             return false;
         }
-        Client client = clientOpt.get();
-        if (client.getCompany() == null) {
+        Optional<Long> companyId = auditExportRepository.findCompanyIdById(auditExportId);
+        if (companyId.isEmpty()) {
             return false;
         }
-        return isUserInCompany(authentication, client.getCompany().getId());
+        return isUserInCompany(authentication, companyId.get());
     }
 
     public boolean isUserInCompany(Authentication authentication, Long companyId) {
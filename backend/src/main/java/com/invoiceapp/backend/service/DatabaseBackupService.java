@@ -4,38 +4,75 @@ import com.invoiceapp.backend.model.BackupHistory;
 import com.invoiceapp.backend.model.BackupSettings;
 import com.invoiceapp.backend.repository.BackupHistoryRepository;
 import com.invoiceapp.backend.repository.BackupSettingsRepository;
+import com.invoiceapp.backend.service.backup.BackupManifest;
+import com.invoiceapp.backend.service.backup.DirectoryBackupTransfer;
+import com.invoiceapp.backend.service.backup.IncrementalChanges;
+import com.invoiceapp.backend.service.backup.S3ClientCache;
+import com.invoiceapp.backend.service.backup.S3MultipartOutputStream;
+import com.invoiceapp.backend.service.backup.TableRowCounts;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 
+import javax.sql.DataSource;
 import java.io.*;
-import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class DatabaseBackupService {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseBackupService.class);
     private static final DateTimeFormatter BACKUP_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ERROR_OUTPUT = 16 * 1024;
+    private static final Pattern DATABASE_NAME_PATTERN = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_-]{0,62}");
+    // DeleteObjects accepts at most 1000 keys per request
+    private static final int MAX_DELETE_BATCH = 1000;
 
     private final BackupSettingsRepository backupSettingsRepository;
     private final BackupHistoryRepository backupHistoryRepository;
+    private final DataSource dataSource;
+    private final S3ClientCache s3Clients;
+    private final MeterRegistry meterRegistry;
 
     @Value("${spring.datasource.url}")
     private String datasourceUrl;
@@ -46,24 +83,25 @@ public class DatabaseBackupService {
     @Value("${spring.datasource.password}")
     private String datasourcePassword;
 
+    @Value("${backup.upload.part-size-mb:16}")
+    private int uploadPartSizeMb;
+
+    @Value("${backup.upload.parallelism:4}")
+    private int uploadParallelism;
+
+    @Value("${backup.incremental.overlap-minutes:10}")
+    private int incrementalOverlapMinutes;
+
     public DatabaseBackupService(BackupSettingsRepository backupSettingsRepository,
-                                  BackupHistoryRepository backupHistoryRepository) {
+                                  BackupHistoryRepository backupHistoryRepository,
+                                  DataSource dataSource,
+                                  S3ClientCache s3Clients,
+                                  MeterRegistry meterRegistry) {
         this.backupSettingsRepository = backupSettingsRepository;
         this.backupHistoryRepository = backupHistoryRepository;
-    }
-
-    /**
-     * Creates an S3 client for the given settings
-     */
-    private S3Client createS3Client(BackupSettings settings) {
-        return S3Client.builder()
-                .endpointOverride(URI.create(settings.getS3Endpoint()))
-                .region(Region.of(settings.getS3Region()))
-                .credentialsProvider(StaticCredentialsProvider.create(
-                        AwsBasicCredentials.create(settings.getS3AccessKey(), settings.getS3SecretKey())
-                ))
-                .forcePathStyle(true) // Required for Hetzner Object Storage
-                .build();
+        this.dataSource = dataSource;
+        this.s3Clients = s3Clients;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -71,14 +109,14 @@ public class DatabaseBackupService {
      */
     @Transactional
     public String testConnection(BackupSettings settings) {
-        try (S3Client s3Client = createS3Client(settings)) {
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
             // Try to list objects in the bucket (limited to 1)
             ListObjectsV2Request request = ListObjectsV2Request.builder()
                     .bucket(settings.getS3BucketName())
                     .maxKeys(1)
                     .build();
 
-            s3Client.listObjectsV2(request);
+            s3.client().listObjectsV2(request);
 
             settings.setLastTestedAt(LocalDateTime.now());
             settings.setTestResult("SUCCESS");
@@ -99,20 +137,16 @@ public class DatabaseBackupService {
      */
     @Transactional
     public BackupHistory createBackup(String initiatedBy, String backupType) {
-        Optional<BackupSettings> settingsOpt = backupSettingsRepository.findActiveSettings();
-        if (settingsOpt.isEmpty()) {
-            throw new RuntimeException("No active backup settings configured");
-        }
-
-        BackupSettings settings = settingsOpt.get();
-        if (!settings.hasValidConfiguration()) {
-            throw new RuntimeException("Backup settings are not properly configured");
-        }
+        BackupSettings settings = requireConfiguredSettings();
 
         // Generate filename first (needed for initial save due to not-null constraints)
         String timestamp = LocalDateTime.now().format(BACKUP_DATE_FORMAT);
-        String filename = String.format("backup_%s_%s.sql.gz", extractDatabaseName(), timestamp);
-        String s3Key = settings.getBackupPrefix() + "/" + filename;
+        boolean directoryFormat = settings.isDirectoryFormat();
+        // DIRECTORY backups are a folder of files (pg_dump -Fd) plus manifest.json
+        String filename = directoryFormat
+                ? String.format("backup_%s_%s", extractDatabaseName(), timestamp)
+                : String.format("backup_%s_%s.sql.gz", extractDatabaseName(), timestamp);
+        String s3Key = settings.getBackupPrefix() + "/" + filename + (directoryFormat ? "/" : "");
 
         // Create backup history record with all required fields
         BackupHistory history = new BackupHistory();
@@ -121,142 +155,666 @@ public class DatabaseBackupService {
         history.setDatabaseName(extractDatabaseName());
         history.setFilename(filename);
         history.setS3Key(s3Key);
+        history.setBackupFormat(directoryFormat ? BackupSettings.FORMAT_DIRECTORY : BackupSettings.FORMAT_PLAIN);
         history.setSizeBytes(0L); // Will be updated after backup completes
         history = backupHistoryRepository.save(history);
 
-        Path tempFile = null;
-        try {
-
-            // Create temporary file for backup
-            tempFile = Files.createTempFile("db_backup_", ".sql.gz");
-
-            // Execute pg_dump
-            logger.info("Starting database backup: {}", filename);
-            executeBackup(tempFile);
-
-            // Calculate file size and checksum
-            long fileSize = Files.size(tempFile);
-            String checksum = calculateChecksum(tempFile);
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings);
+             Connection snapshotConnection = openSnapshotTransaction()) {
+            // Rows updated up to now are in the snapshot; later commits are picked up by the next increment
+            history.setWatermark(LocalDateTime.now());
+            // pg_dump imports this snapshot, so the row counts describe exactly what is dumped
+            String snapshot = exportSnapshot(snapshotConnection);
+            history.setRowCounts(TableRowCounts.toJson(TableRowCounts.count(snapshotConnection)));
+
+            logger.info("Starting {} database backup: {} -> s3://{}/{}",
+                    history.getBackupFormat(), filename, settings.getS3BucketName(), s3Key);
+            StreamedBackup backup = directoryFormat
+                    ? dumpDirectoryToS3(s3.client(), settings, s3Key, snapshot)
+                    : streamBackupToS3(s3.client(), settings.getS3BucketName(), s3Key, snapshot);
+            long fileSize = backup.sizeBytes();
 
             history.setSizeBytes(fileSize);
-            history.setChecksum(checksum);
-            backupHistoryRepository.save(history);
-
-            // Upload to S3
-            logger.info("Uploading backup to S3: {}", s3Key);
-            uploadToS3(settings, s3Key, tempFile);
-
-            // Mark as completed
-            history.setStatus("COMPLETED");
-            history.setCompletedAt(LocalDateTime.now());
-            history.setDurationSeconds(ChronoUnit.SECONDS.between(history.getStartedAt(), history.getCompletedAt()));
-            backupHistoryRepository.save(history);
-
-            // Update settings
-            settings.setLastBackupAt(LocalDateTime.now());
-            settings.setLastBackupStatus("SUCCESS");
-            settings.setLastBackupSizeBytes(fileSize);
-            settings.setLastBackupFilename(filename);
-            settings.setLastErrorMessage(null);
-            backupSettingsRepository.save(settings);
+            history.setChecksum(backup.checksum());
+            history.setManifest(backup.manifest());
+            recordSuccess(history, settings);
 
             // Clean up old backups
-            cleanupOldBackups(settings);
+            cleanupOldBackups(s3.client(), settings);
 
             logger.info("Backup completed successfully: {} ({} bytes)", filename, fileSize);
             return history;
 
         } catch (Exception e) {
-            logger.error("Backup failed", e);
-            history.setStatus("FAILED");
-            history.setErrorMessage(e.getMessage());
-            history.setCompletedAt(LocalDateTime.now());
-            history.setDurationSeconds(ChronoUnit.SECONDS.between(history.getStartedAt(), history.getCompletedAt()));
-            backupHistoryRepository.save(history);
-
-            settings.setLastBackupAt(LocalDateTime.now());
-            settings.setLastBackupStatus("FAILED");
-            settings.setLastErrorMessage(e.getMessage());
-            backupSettingsRepository.save(settings);
-
+            recordFailure(history, settings, e);
             throw new RuntimeException("Backup failed: " + e.getMessage(), e);
-        } finally {
-            // Clean up temp file
-            if (tempFile != null) {
+        }
+    }
+
+    /**
+     * Create an incremental backup: only the rows of clients, items, documents (with their lines)
+     * and the number sequences changed since the previous backup's watermark, as gzipped NDJSON.
+     * Falls back to a full backup when there is nothing usable to build on - no backup yet, a base
+     * older than the full backup interval, or reference data (companies, bank accounts, ...)
+     * that gained or lost rows since the base and which the increment would not restore.
+     */
+    @Transactional
+    public BackupHistory createIncrementalBackup(String initiatedBy, String backupType) {
+        BackupSettings settings = requireConfiguredSettings();
+
+        BackupHistory previous = backupHistoryRepository
+                .findFirstByStatusAndDeletedAtIsNullAndWatermarkIsNotNullOrderByStartedAtDesc("COMPLETED")
+                .orElse(null);
+        BackupHistory base = previous == null || !previous.isIncremental() ? previous
+                : backupHistoryRepository.findById(previous.getBaseBackupId()).orElse(null);
+
+        String fullBackupReason = fullBackupReason(settings, base);
+        if (fullBackupReason == null) {
+            try (Connection snapshotConnection = openSnapshotTransaction()) {
+                // Taken before the snapshot's first query: rows updated up to now are in it
+                LocalDateTime watermark = LocalDateTime.now();
+                Map<String, Long> rowCounts = TableRowCounts.count(snapshotConnection, IncrementalChanges.COUNTED_TABLES);
+                fullBackupReason = referenceDataChange(base, rowCounts);
+                if (fullBackupReason == null) {
+                    return exportIncrement(settings, previous, base, snapshotConnection, watermark, rowCounts,
+                            initiatedBy, backupType);
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException("Backup failed: " + e.getMessage(), e);
+            }
+        }
+        logger.info("Taking a full backup instead of an incremental one: {}", fullBackupReason);
+        return createBackup(initiatedBy, backupType);
+    }
+
+    /**
+     * Scheduled backup: incremental between full backups when enabled in the settings
+     */
+    @Transactional
+    public BackupHistory createScheduledBackup(String initiatedBy, String backupType) {
+        boolean incremental = backupSettingsRepository.findActiveSettings()
+                .map(settings -> Boolean.TRUE.equals(settings.getIncrementalEnabled()))
+                .orElse(false);
+        return incremental ? createIncrementalBackup(initiatedBy, backupType) : createBackup(initiatedBy, backupType);
+    }
+
+    private BackupHistory exportIncrement(BackupSettings settings, BackupHistory previous, BackupHistory base,
+                                          Connection snapshotConnection, LocalDateTime watermark,
+                                          Map<String, Long> rowCounts, String initiatedBy, String backupType) {
+        String timestamp = LocalDateTime.now().format(BACKUP_DATE_FORMAT);
+        String filename = String.format("backup_%s_%s_incremental.ndjson.gz", extractDatabaseName(), timestamp);
+        String s3Key = settings.getBackupPrefix() + "/" + filename;
+
+        BackupHistory history = new BackupHistory();
+        history.setBackupType(backupType);
+        history.setInitiatedBy(initiatedBy);
+        history.setDatabaseName(extractDatabaseName());
+        history.setFilename(filename);
+        history.setS3Key(s3Key);
+        history.setBackupFormat(BackupSettings.FORMAT_INCREMENTAL);
+        history.setBaseBackupId(base.getId());
+        history.setPreviousBackupId(previous.getId());
+        history.setWatermark(watermark);
+        history.setRowCounts(TableRowCounts.toJson(rowCounts));
+        history.setSizeBytes(0L);
+        history = backupHistoryRepository.save(history);
+
+        // A transaction can set updated_at before the previous watermark and commit after it;
+        // re-exporting a few minutes is harmless because replaying is idempotent
+        LocalDateTime since = previous.getWatermark().minusMinutes(incrementalOverlapMinutes);
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
+            logger.info("Starting incremental backup of changes since {}: {} -> s3://{}/{}",
+                    since, filename, settings.getS3BucketName(), s3Key);
+            MessageDigest md5 = newMd5();
+            S3MultipartOutputStream upload = new S3MultipartOutputStream(s3.client(), settings.getS3BucketName(), s3Key,
+                    "application/gzip", uploadPartSizeMb * 1024 * 1024, uploadParallelism);
+            GZIPOutputStream gzip = new GZIPOutputStream(new DigestOutputStream(upload, md5), STREAM_BUFFER_SIZE);
+            Map<String, Long> exported;
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+                exported = IncrementalChanges.export(snapshotConnection, since, writer);
+                writer.flush();
+                gzip.finish();
+            } catch (IOException | SQLException | RuntimeException e) {
+                upload.abort();
                 try {
-                    Files.deleteIfExists(tempFile);
-                } catch (IOException e) {
-                    logger.warn("Failed to delete temp file", e);
+                    gzip.close();
+                } catch (IOException ignored) {
+                    // The upload is already aborted, only the deflater has to be released
                 }
+                throw e;
+            }
+            // Uploads the last part and completes the multipart upload
+            gzip.close();
+
+            history.setSizeBytes(upload.getBytesWritten());
+            history.setChecksum(toHex(md5.digest()));
+            history.setManifest(TableRowCounts.toJson(exported));
+            recordSuccess(history, settings);
+
+            cleanupOldBackups(s3.client(), settings);
+
+            logger.info("Incremental backup completed: {} ({} bytes, rows {})", filename, history.getSizeBytes(), exported);
+            return history;
+        } catch (Exception e) {
+            recordFailure(history, settings, e);
+            throw new RuntimeException("Backup failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Why the next backup has to be full, or null if an increment on {@code base} is possible
+     */
+    private static String fullBackupReason(BackupSettings settings, BackupHistory base) {
+        if (base == null) {
+            return "there is no previous backup to continue from";
+        }
+        if (base.isDeleted() || !base.isCompleted()) {
+            return "the base backup " + base.getFilename() + " is no longer available";
+        }
+        int intervalDays = Math.max(1, settings.getFullBackupIntervalDays());
+        if (base.getStartedAt().isBefore(LocalDateTime.now().minusDays(intervalDays))) {
+            return "the base backup is older than " + intervalDays + " days";
+        }
+        if (base.getRowCounts() == null) {
+            return "the base backup has no row counts";
+        }
+        return null;
+    }
+
+    /**
+     * Increments do not contain the reference tables, so their rows must be the ones of the base
+     */
+    private static String referenceDataChange(BackupHistory base, Map<String, Long> rowCounts) {
+        Map<String, Long> baseCounts = TableRowCounts.fromJson(base.getRowCounts());
+        List<String> changed = new ArrayList<>();
+        for (String table : TableRowCounts.REFERENCE_TABLES) {
+            if (!Objects.equals(baseCounts.get(table), rowCounts.get(table))) {
+                changed.add(table);
             }
         }
+        return changed.isEmpty() ? null : "reference data changed since the base backup: " + String.join(", ", changed);
+    }
+
+    private BackupSettings requireConfiguredSettings() {
+        BackupSettings settings = backupSettingsRepository.findActiveSettings()
+                .orElseThrow(() -> new RuntimeException("No active backup settings configured"));
+        if (!settings.hasValidConfiguration()) {
+            throw new RuntimeException("Backup settings are not properly configured");
+        }
+        return settings;
+    }
+
+    private void recordSuccess(BackupHistory history, BackupSettings settings) {
+        history.setStatus("COMPLETED");
+        history.setCompletedAt(LocalDateTime.now());
+        history.setDurationSeconds(ChronoUnit.SECONDS.between(history.getStartedAt(), history.getCompletedAt()));
+        backupHistoryRepository.save(history);
+        recordMetrics(history, "success");
+
+        settings.setLastBackupAt(LocalDateTime.now());
+        settings.setLastBackupStatus("SUCCESS");
+        settings.setLastBackupSizeBytes(history.getSizeBytes());
+        settings.setLastBackupFilename(history.getFilename());
+        settings.setLastErrorMessage(null);
+        backupSettingsRepository.save(settings);
+    }
+
+    private void recordFailure(BackupHistory history, BackupSettings settings, Exception e) {
+        logger.error("Backup failed", e);
+        history.setStatus("FAILED");
+        history.setErrorMessage(e.getMessage());
+        history.setCompletedAt(LocalDateTime.now());
+        history.setDurationSeconds(ChronoUnit.SECONDS.between(history.getStartedAt(), history.getCompletedAt()));
+        backupHistoryRepository.save(history);
+        recordMetrics(history, "error");
+
+        settings.setLastBackupAt(LocalDateTime.now());
+        settings.setLastBackupStatus("FAILED");
+        settings.setLastErrorMessage(e.getMessage());
+        backupSettingsRepository.save(settings);
     }
 
     /**
-     * Execute pg_dump command
+     * Duration of every backup, and the size of the successful ones, per format
      */
-    private void executeBackup(Path outputPath) throws IOException, InterruptedException {
+    private void recordMetrics(BackupHistory history, String outcome) {
+        Timer.builder("backup.duration")
+                .description("Time to create a backup, including the upload")
+                .tag("format", history.getBackupFormat())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.between(history.getStartedAt(), history.getCompletedAt()));
+        if ("success".equals(outcome) && history.getSizeBytes() != null) {
+            DistributionSummary.builder("backup.size")
+                    .description("Compressed size of successful backups")
+                    .baseUnit("bytes")
+                    .tag("format", history.getBackupFormat())
+                    .register(meterRegistry)
+                    .record(history.getSizeBytes());
+        }
+    }
+
+    /**
+     * Runs pg_dump and streams its output through gzip and an MD5 digest straight into
+     * an S3 multipart upload. The dump is read once and never touches the local disk;
+     * if pg_dump fails, the multipart upload is aborted.
+     */
+    private StreamedBackup streamBackupToS3(S3Client s3Client, String bucket, String s3Key, String snapshot)
+            throws IOException, InterruptedException {
         String host = extractHost();
         String port = extractPort();
         String database = extractDatabaseName();
 
         logger.info("Starting pg_dump: host={}, port={}, database={}, user={}", host, port, database, datasourceUsername);
 
-        // Use plain format with gzip compression
-        // Using set -o pipefail ensures we catch pg_dump errors even in a pipeline
-        ProcessBuilder pb = new ProcessBuilder(
-                "bash", "-c",
-                String.format("set -o pipefail; PGPASSWORD='%s' pg_dump -h %s -p %s -U %s -F p %s 2>&1 | gzip > %s",
-                        datasourcePassword, host, port, datasourceUsername, database, outputPath.toString())
-        );
+        Process process = postgresCommand("pg_dump", "-F", "p", "--snapshot=" + snapshot, database).start();
+        StringBuilder errorOutput = new StringBuilder();
+        Thread stderrReader = drainErrorStream(process, "pg_dump", errorOutput);
 
-        pb.redirectErrorStream(true);
-        Process process = pb.start();
+        MessageDigest md5 = newMd5();
+        S3MultipartOutputStream upload = new S3MultipartOutputStream(s3Client, bucket, s3Key,
+                "application/gzip", uploadPartSizeMb * 1024 * 1024, uploadParallelism);
+        GZIPOutputStream gzip = new GZIPOutputStream(new DigestOutputStream(upload, md5), STREAM_BUFFER_SIZE);
+        try {
+            try (InputStream dump = process.getInputStream()) {
+                dump.transferTo(gzip);
+            }
+            gzip.finish();
+
+            int exitCode = process.waitFor();
+            stderrReader.join();
+            if (exitCode != 0) {
+                logger.error("pg_dump failed with exit code {}: {}", exitCode, errorOutput);
+                throw new RuntimeException("pg_dump failed with exit code: " + exitCode + ". Output: " + errorOutput);
+            }
 
-        // Read output (captures any errors)
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append("\n");
-                logger.debug("pg_dump: {}", line);
+            long size = upload.getBytesWritten();
+            if (size < 100) {
+                logger.error("Backup stream is suspiciously small: {} bytes", size);
+                throw new RuntimeException("Backup file is too small (" + size + " bytes). pg_dump may have failed silently.");
             }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            process.destroy();
+            upload.abort();
+            try {
+                gzip.close();
+            } catch (IOException ignored) {
+                // The upload is already aborted, only the deflater has to be released
+            }
+            throw e;
         }
+        // Uploads the last part and completes the multipart upload
+        gzip.close();
 
-        int exitCode = process.waitFor();
+        logger.info("pg_dump streamed to S3 successfully, size: {} bytes", upload.getBytesWritten());
+        return new StreamedBackup(upload.getBytesWritten(), toHex(md5.digest()), null);
+    }
+
+    /**
+     * Runs pg_dump -Fd -j N into a local work directory and uploads each table file to S3
+     * as soon as it is complete. The history checksum is the MD5 of the manifest, which in
+     * turn holds the MD5 of every file.
+     */
+    private StreamedBackup dumpDirectoryToS3(S3Client s3Client, BackupSettings settings, String keyPrefix, String snapshot)
+            throws IOException, InterruptedException {
+        String database = extractDatabaseName();
+        int jobs = Math.max(1, settings.getParallelJobs());
+        Path workDir = Files.createTempDirectory("db_backup_");
+        // pg_dump creates the directory itself and refuses to write into an existing one
+        Path dumpDir = workDir.resolve("dump");
+
+        ProcessBuilder pgDump = postgresCommand("pg_dump", "-F", "d", "-j", String.valueOf(jobs),
+                "-Z", "6", "-v", "--snapshot=" + snapshot, "-f", dumpDir.toString(), database);
+        DirectoryBackupTransfer transfer = new DirectoryBackupTransfer(s3Client, settings.getS3BucketName(),
+                uploadParallelism, uploadPartSizeMb * 1024 * 1024);
+        try {
+            logger.info("Starting parallel pg_dump: database={}, jobs={}", database, jobs);
+            BackupManifest manifest = transfer.dumpAndUpload(pgDump, dumpDir, keyPrefix, database, jobs);
+            String manifestJson = manifest.toJson();
+            MessageDigest md5 = newMd5();
+            return new StreamedBackup(manifest.totalSizeBytes(),
+                    toHex(md5.digest(manifestJson.getBytes(StandardCharsets.UTF_8))), manifestJson);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            deleteObjectsWithPrefix(s3Client, settings.getS3BucketName(), keyPrefix);
+            throw e;
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Restore a backup into an existing, empty database. The backup is streamed from S3
+     * and its checksum is verified before anything is committed.
+     */
+    public String restoreBackup(Long historyId, String targetDatabase) {
+        if (targetDatabase == null || !DATABASE_NAME_PATTERN.matcher(targetDatabase).matches()) {
+            throw new RuntimeException("Invalid target database name");
+        }
+        if (targetDatabase.equals(extractDatabaseName())) {
+            throw new RuntimeException("Cannot restore into the database the application is running on");
+        }
+
+        BackupHistory history = findRestorableBackup(historyId);
+        BackupSettings settings = backupSettingsRepository.findActiveSettings()
+                .orElseThrow(() -> new RuntimeException("No active backup settings configured"));
+
+        long start = System.nanoTime();
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
+            restoreInto(s3.client(), settings, history, targetDatabase);
+            long seconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+            logger.info("Restored backup {} into {} in {} s", history.getFilename(), targetDatabase, seconds);
+            return "SUCCESS";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Restore was interrupted", e);
+        } catch (Exception e) {
+            logger.error("Restore of backup {} failed", history.getFilename(), e);
+            throw new RuntimeException("Restore failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Verify a backup: restore it into a scratch database, count the key tables in parallel
+     * and compare with the counts taken when the backup was made. The result and timing are
+     * stored on the history row; the scratch database is always dropped.
+     */
+    public BackupHistory verifyBackup(Long historyId) {
+        BackupHistory history = findRestorableBackup(historyId);
+        BackupSettings settings = backupSettingsRepository.findActiveSettings()
+                .orElseThrow(() -> new RuntimeException("No active backup settings configured"));
+
+        String scratchDatabase = "backup_verify_" + history.getId() + "_" + (System.currentTimeMillis() / 1000);
+        long start = System.nanoTime();
+        String status;
+        String result;
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
+            executeOnServer("CREATE DATABASE \"" + scratchDatabase + "\"");
+            try {
+                restoreInto(s3.client(), settings, history, scratchDatabase);
+                Map<String, Long> restored = TableRowCounts.countInParallel(
+                        () -> DriverManager.getConnection(jdbcUrlFor(scratchDatabase), datasourceUsername, datasourcePassword),
+                        Math.max(1, settings.getParallelJobs()));
+
+                if (history.getRowCounts() == null) {
+                    status = "PASSED";
+                    result = "Restored; no row counts were recorded for this backup. Restored rows: " + restored;
+                } else {
+                    List<String> differences = TableRowCounts.differences(
+                            TableRowCounts.fromJson(history.getRowCounts()), restored);
+                    status = differences.isEmpty() ? "PASSED" : "FAILED";
+                    result = differences.isEmpty()
+                            ? "Row counts match: " + restored
+                            : "Row count mismatch (restored/expected): " + String.join(", ", differences);
+                }
+            } finally {
+                executeOnServer("DROP DATABASE IF EXISTS \"" + scratchDatabase + "\"");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = "FAILED";
+            result = "Verification was interrupted";
+        } catch (Exception e) {
+            logger.error("Verification of backup {} failed", history.getFilename(), e);
+            status = "FAILED";
+            result = e.getMessage();
+        }
+
+        history.setVerificationStatus(status);
+        history.setVerificationResult(result);
+        history.setVerifiedAt(LocalDateTime.now());
+        history.setVerificationDurationSeconds(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        logger.info("Verification of backup {}: {} - {}", history.getFilename(), status, result);
+        return backupHistoryRepository.save(history);
+    }
+
+    private BackupHistory findRestorableBackup(Long historyId) {
+        BackupHistory history = backupHistoryRepository.findById(historyId)
+                .orElseThrow(() -> new RuntimeException("Backup not found"));
+        if (history.isDeleted() || !history.isCompleted()) {
+            throw new RuntimeException("Only completed, not deleted backups can be restored");
+        }
+        if (history.isDirectoryFormat() && history.getManifest() == null) {
+            throw new RuntimeException("Backup has no manifest");
+        }
+        if (history.isIncremental()) {
+            restoreChain(history);
+        }
+        return history;
+    }
+
+    /**
+     * The full backup and the increments up to the given one, oldest first
+     */
+    private List<BackupHistory> restoreChain(BackupHistory history) {
+        List<BackupHistory> chain = new ArrayList<>();
+        BackupHistory current = history;
+        while (current.isIncremental()) {
+            chain.add(current);
+            current = backupHistoryRepository.findById(current.getPreviousBackupId())
+                    .filter(previous -> previous.isCompleted() && !previous.isDeleted())
+                    .orElseThrow(() -> new RuntimeException(
+                            "The backup chain of " + history.getFilename() + " is incomplete"));
+        }
+        if (!current.getId().equals(history.getBaseBackupId())) {
+            throw new RuntimeException("The backup chain of " + history.getFilename() + " does not lead to its base backup");
+        }
+        if (current.isDirectoryFormat() && current.getManifest() == null) {
+            throw new RuntimeException("Base backup has no manifest");
+        }
+        chain.add(current);
+        Collections.reverse(chain);
+        return chain;
+    }
+
+    private void restoreInto(S3Client s3Client, BackupSettings settings, BackupHistory history, String targetDatabase)
+            throws IOException, InterruptedException, SQLException {
+        if (history.isIncremental()) {
+            List<BackupHistory> chain = restoreChain(history);
+            restoreInto(s3Client, settings, chain.get(0), targetDatabase);
+            replayIncrements(s3Client, settings.getS3BucketName(), chain.subList(1, chain.size()), targetDatabase);
+        } else if (history.isDirectoryFormat()) {
+            restoreDirectory(s3Client, settings, history, targetDatabase);
+        } else {
+            restorePlain(s3Client, settings.getS3BucketName(), history, targetDatabase);
+        }
+    }
+
+    /**
+     * Streams a PLAIN backup from S3 through an MD5 digest and gunzip into psql. psql runs in
+     * a single transaction and its input is closed (committing) only after the checksum of the
+     * whole object matched; on a mismatch psql is killed and nothing is committed.
+     */
+    private void restorePlain(S3Client s3Client, String bucket, BackupHistory history, String targetDatabase)
+            throws IOException, InterruptedException {
+        logger.info("Streaming backup {} into {}", history.getFilename(), targetDatabase);
+        ProcessBuilder pb = postgresCommand("psql", "-X", "-q", "-v", "ON_ERROR_STOP=1", "--single-transaction",
+                "-d", targetDatabase);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        Process psql = pb.start();
+        StringBuilder errorOutput = new StringBuilder();
+        Thread stderrReader = drainErrorStream(psql, "psql", errorOutput);
+
+        MessageDigest md5 = newMd5();
+        try (InputStream object = s3Client.getObject(GetObjectRequest.builder()
+                     .bucket(bucket)
+                     .key(history.getS3Key())
+                     .build());
+             DigestInputStream digested = new DigestInputStream(object, md5);
+             InputStream sql = new GZIPInputStream(digested, STREAM_BUFFER_SIZE)) {
+            OutputStream stdin = psql.getOutputStream();
+            try {
+                sql.transferTo(stdin);
+            } catch (IOException e) {
+                // Either the download failed or psql stopped reading - its stderr tells which
+                psql.destroy();
+                psql.waitFor();
+                stderrReader.join();
+                throw new IOException("Restore stream failed: " + e.getMessage()
+                        + (errorOutput.length() > 0 ? ". psql: " + errorOutput : ""), e);
+            }
+            // The digest must cover the whole object, including anything after the gzip trailer
+            digested.transferTo(OutputStream.nullOutputStream());
+
+            String actual = toHex(md5.digest());
+            if (history.getChecksum() != null && !actual.equalsIgnoreCase(history.getChecksum())) {
+                psql.destroy();
+                throw new IllegalStateException("Checksum mismatch for backup " + history.getFilename()
+                        + ": expected " + history.getChecksum() + ", got " + actual + ". Nothing was restored.");
+            }
+            stdin.close();
+        } catch (IOException | RuntimeException e) {
+            psql.destroy();
+            throw e;
+        }
+
+        int exitCode = psql.waitFor();
+        stderrReader.join();
         if (exitCode != 0) {
-            String errorOutput = output.toString();
-            logger.error("pg_dump failed with exit code {}: {}", exitCode, errorOutput);
-            throw new RuntimeException("pg_dump failed with exit code: " + exitCode + ". Output: " + errorOutput);
+            throw new RuntimeException("psql failed with exit code: " + exitCode + ". Output: " + errorOutput);
+        }
+    }
+
+    /**
+     * Replays the increments of a chain onto the restored full backup in one transaction. Every
+     * object is checked against its checksum before the transaction commits; on failure the
+     * target database is left at the state of the full backup.
+     */
+    private void replayIncrements(S3Client s3Client, String bucket, List<BackupHistory> increments, String targetDatabase)
+            throws IOException, SQLException {
+        try (Connection connection = DriverManager.getConnection(jdbcUrlFor(targetDatabase), datasourceUsername, datasourcePassword)) {
+            connection.setAutoCommit(false);
+            try {
+                for (BackupHistory increment : increments) {
+                    MessageDigest md5 = newMd5();
+                    Map<String, Long> applied;
+                    try (InputStream object = s3Client.getObject(GetObjectRequest.builder()
+                                 .bucket(bucket)
+                                 .key(increment.getS3Key())
+                                 .build());
+                         DigestInputStream digested = new DigestInputStream(object, md5);
+                         BufferedReader reader = new BufferedReader(new InputStreamReader(
+                                 new GZIPInputStream(digested, STREAM_BUFFER_SIZE), StandardCharsets.UTF_8))) {
+                        applied = IncrementalChanges.replay(reader, connection);
+                        digested.transferTo(OutputStream.nullOutputStream());
+                    }
+                    String actual = toHex(md5.digest());
+                    if (increment.getChecksum() != null && !actual.equalsIgnoreCase(increment.getChecksum())) {
+                        throw new IllegalStateException("Checksum mismatch for backup " + increment.getFilename()
+                                + ": expected " + increment.getChecksum() + ", got " + actual);
+                    }
+                    logger.info("Replayed incremental backup {} into {}: {}", increment.getFilename(), targetDatabase, applied);
+                }
+                connection.commit();
+            } catch (IOException | SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Downloads the files of a DIRECTORY backup in parallel (each checked against the manifest)
+     * and restores them with pg_restore -j N
+     */
+    private void restoreDirectory(S3Client s3Client, BackupSettings settings, BackupHistory history, String targetDatabase)
+            throws IOException, InterruptedException {
+        BackupManifest manifest = BackupManifest.fromJson(history.getManifest());
+        int jobs = Math.max(1, settings.getParallelJobs());
+        Path workDir = Files.createTempDirectory("db_restore_");
+        try {
+            logger.info("Downloading backup {} ({} files) for restore into {}",
+                    history.getFilename(), manifest.files().size(), targetDatabase);
+            new DirectoryBackupTransfer(s3Client, settings.getS3BucketName(), uploadParallelism,
+                    uploadPartSizeMb * 1024 * 1024).download(manifest, workDir);
+
+            logger.info("Starting parallel pg_restore: database={}, jobs={}", targetDatabase, jobs);
+            runToCompletion(postgresCommand("pg_restore", "-F", "d", "-j", String.valueOf(jobs),
+                    "--no-owner", "--exit-on-error", "-d", targetDatabase, workDir.toString()), "pg_restore");
+        } finally {
+            deleteRecursively(workDir);
         }
+    }
 
-        // Verify the file was created and has content
-        long fileSize = Files.size(outputPath);
-        if (fileSize < 100) {
-            logger.error("Backup file is suspiciously small: {} bytes", fileSize);
-            throw new RuntimeException("Backup file is too small (" + fileSize + " bytes). pg_dump may have failed silently.");
+    /**
+     * A read-only REPEATABLE READ transaction whose snapshot pg_dump imports. It has to stay
+     * open until pg_dump has finished.
+     *
+     * The transaction is made read-only with SET TRANSACTION rather than Connection.setReadOnly:
+     * a read-only connection is routed to the read replica when one is configured, but pg_dump
+     * connects to the primary and can only import a snapshot exported there, and the row counts
+     * and increments must not come from a lagging replica.
+     */
+    private Connection openSnapshotTransaction() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION READ ONLY");
+            }
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
         }
+    }
 
-        logger.info("pg_dump completed successfully, file size: {} bytes", fileSize);
+    private static String exportSnapshot(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            return rs.getString(1);
+        }
     }
 
     /**
-     * Upload file to S3
+     * Runs a statement that cannot be part of a transaction (CREATE/DROP DATABASE)
      */
-    private void uploadToS3(BackupSettings settings, String s3Key, Path filePath) {
-        try (S3Client s3Client = createS3Client(settings)) {
-            PutObjectRequest request = PutObjectRequest.builder()
-                    .bucket(settings.getS3BucketName())
-                    .key(s3Key)
-                    .contentType("application/gzip")
-                    .build();
+    private void executeOnServer(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            statement.execute(sql);
+        }
+    }
+
+    /**
+     * The application's JDBC URL pointing at another database on the same server
+     */
+    private String jdbcUrlFor(String database) {
+        int lastSlash = datasourceUrl.lastIndexOf('/');
+        int queryStart = datasourceUrl.indexOf('?', lastSlash);
+        return datasourceUrl.substring(0, lastSlash + 1) + database
+                + (queryStart >= 0 ? datasourceUrl.substring(queryStart) : "");
+    }
 
-            s3Client.putObject(request, RequestBody.fromFile(filePath));
+    /**
+     * pg_dump/pg_restore/psql against the configured server. The password is passed through
+     * the environment so it never appears in the process list.
+     */
+    private ProcessBuilder postgresCommand(String tool, String... arguments) {
+        List<String> command = new ArrayList<>(List.of(tool, "-h", extractHost(), "-p", extractPort(), "-U", datasourceUsername));
+        command.addAll(Arrays.asList(arguments));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.environment().put("PGPASSWORD", datasourcePassword);
+        return pb;
+    }
+
+    private static void runToCompletion(ProcessBuilder pb, String tool) throws IOException, InterruptedException {
+        Process process = pb.start();
+        StringBuilder errorOutput = new StringBuilder();
+        Thread stderrReader = drainErrorStream(process, tool, errorOutput);
+        process.getInputStream().close();
+        int exitCode = process.waitFor();
+        stderrReader.join();
+        if (exitCode != 0) {
+            throw new RuntimeException(tool + " failed with exit code: " + exitCode + ". Output: " + errorOutput);
         }
     }
 
     /**
-     * Delete backup from S3
+     * Delete backup from S3, together with the later increments that build on it
      */
     @Transactional
     public void deleteBackup(Long historyId) {
@@ -270,18 +828,21 @@ public class DatabaseBackupService {
 
         BackupSettings settings = settingsOpt.get();
 
-        try (S3Client s3Client = createS3Client(settings)) {
-            DeleteObjectRequest request = DeleteObjectRequest.builder()
-                    .bucket(settings.getS3BucketName())
-                    .key(history.getS3Key())
-                    .build();
-
-            s3Client.deleteObject(request);
+        List<BackupHistory> backups = new ArrayList<>();
+        backups.add(history);
+        for (BackupHistory increment : backupHistoryRepository.findByBaseBackupIdAndDeletedAtIsNull(history.getChainBaseId())) {
+            if (increment.getStartedAt().isAfter(history.getStartedAt())) {
+                backups.add(increment);
+            }
+        }
 
-            history.setDeletedAt(LocalDateTime.now());
-            backupHistoryRepository.save(history);
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
+            List<BackupHistory> deleted = deleteBackups(s3.client(), settings.getS3BucketName(), backups);
+            if (deleted.size() < backups.size()) {
+                throw new RuntimeException((backups.size() - deleted.size()) + " backup(s) could not be deleted completely");
+            }
 
-            logger.info("Deleted backup: {}", history.getFilename());
+            logger.info("Deleted backup: {} ({} dependent increments)", history.getFilename(), backups.size() - 1);
         } catch (Exception e) {
             logger.error("Failed to delete backup from S3", e);
             throw new RuntimeException("Failed to delete backup: " + e.getMessage());
@@ -298,6 +859,9 @@ public class DatabaseBackupService {
         if (history.isDeleted()) {
             throw new RuntimeException("Backup has been deleted");
         }
+        if (history.isDirectoryFormat()) {
+            throw new RuntimeException("Directory backups consist of many files and cannot be downloaded as one; use restore instead");
+        }
 
         Optional<BackupSettings> settingsOpt = backupSettingsRepository.findActiveSettings();
         if (settingsOpt.isEmpty()) {
@@ -307,30 +871,16 @@ public class DatabaseBackupService {
         BackupSettings settings = settingsOpt.get();
 
         // Generate presigned URL for download (valid for 1 hour)
-        try {
-            software.amazon.awssdk.services.s3.presigner.S3Presigner presigner = software.amazon.awssdk.services.s3.presigner.S3Presigner.builder()
-                    .endpointOverride(URI.create(settings.getS3Endpoint()))
-                    .region(Region.of(settings.getS3Region()))
-                    .credentialsProvider(StaticCredentialsProvider.create(
-                            AwsBasicCredentials.create(settings.getS3AccessKey(), settings.getS3SecretKey())
-                    ))
-                    .build();
-
-            software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest presignRequest =
-                    software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest.builder()
-                    .signatureDuration(java.time.Duration.ofHours(1))
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
+            GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                    .signatureDuration(Duration.ofHours(1))
                     .getObjectRequest(GetObjectRequest.builder()
                             .bucket(settings.getS3BucketName())
                             .key(history.getS3Key())
                             .build())
                     .build();
 
-            software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest presignedRequest =
-                    presigner.presignGetObject(presignRequest);
-
-            presigner.close();
-
-            return presignedRequest.url().toString();
+            return s3.presigner().presignGetObject(presignRequest).url().toString();
         } catch (Exception e) {
             logger.error("Failed to generate presigned URL", e);
             throw new RuntimeException("Failed to generate download URL: " + e.getMessage());
@@ -341,78 +891,198 @@ public class DatabaseBackupService {
      * List all backups from S3
      */
     public List<S3Object> listS3Backups(BackupSettings settings) {
-        try (S3Client s3Client = createS3Client(settings)) {
+        try (S3ClientCache.Lease s3 = s3Clients.acquire(settings)) {
             ListObjectsV2Request request = ListObjectsV2Request.builder()
                     .bucket(settings.getS3BucketName())
                     .prefix(settings.getBackupPrefix() + "/")
                     .build();
 
-            return s3Client.listObjectsV2(request).contents();
+            return s3.client().listObjectsV2(request).contents();
         }
     }
 
     /**
-     * Clean up old backups based on retention policy
+     * Clean up old backups based on retention policy. A full backup and its increments are
+     * only restorable together, so they expire together: by the age of the newest one, and
+     * maxBackups counts such chains.
      */
-    private void cleanupOldBackups(BackupSettings settings) {
+    private void cleanupOldBackups(S3Client s3Client, BackupSettings settings) {
         try {
-            // Delete backups older than retention days
-            LocalDateTime cutoffDate = LocalDateTime.now().minusDays(settings.getRetentionDays());
-            List<BackupHistory> oldBackups = backupHistoryRepository.findBackupsOlderThan(cutoffDate);
+            // Completed backups come newest first, so every chain starts with its newest backup
+            Map<Long, List<BackupHistory>> chains = new LinkedHashMap<>();
+            for (BackupHistory backup : backupHistoryRepository.findCompletedBackups()) {
+                chains.computeIfAbsent(backup.getChainBaseId(), id -> new ArrayList<>()).add(backup);
+            }
 
-            for (BackupHistory backup : oldBackups) {
-                try {
-                    deleteBackup(backup.getId());
-                    logger.info("Deleted old backup: {} (older than {} days)",
-                            backup.getFilename(), settings.getRetentionDays());
-                } catch (Exception e) {
-                    logger.error("Failed to delete old backup: {}", backup.getFilename(), e);
+            LocalDateTime cutoffDate = LocalDateTime.now().minusDays(settings.getRetentionDays());
+            Integer maxBackups = settings.getMaxBackups();
+            List<BackupHistory> expired = new ArrayList<>();
+            int index = 0;
+            for (List<BackupHistory> chain : chains.values()) {
+                boolean tooOld = chain.get(0).getStartedAt().isBefore(cutoffDate);
+                boolean excess = maxBackups != null && maxBackups > 0 && index >= maxBackups;
+                if (tooOld || excess) {
+                    expired.addAll(chain);
                 }
+                index++;
             }
+            if (expired.isEmpty()) {
+                return;
+            }
+
+            List<BackupHistory> deleted = deleteBackups(s3Client, settings.getS3BucketName(), expired);
+            logger.info("Deleted {} of {} old backup(s), retention {} days, keeping max {}",
+                    deleted.size(), expired.size(), settings.getRetentionDays(), maxBackups);
+        } catch (Exception e) {
+            logger.error("Error during backup cleanup", e);
+        }
+    }
+
+    /**
+     * Removes the objects of the backups with batched DeleteObjects calls and marks their
+     * history rows deleted together; a backup whose objects could not all be deleted stays active
+     * @return the backups that were deleted
+     */
+    private List<BackupHistory> deleteBackups(S3Client s3Client, String bucket, List<BackupHistory> backups) {
+        Map<BackupHistory, List<String>> keysByBackup = new LinkedHashMap<>();
+        List<String> allKeys = new ArrayList<>();
+        for (BackupHistory backup : backups) {
+            try {
+                List<String> keys = objectKeys(s3Client, bucket, backup);
+                keysByBackup.put(backup, keys);
+                allKeys.addAll(keys);
+            } catch (Exception e) {
+                logger.error("Failed to list objects of backup: {}", backup.getFilename(), e);
+            }
+        }
+
+        Set<String> failed = deleteObjects(s3Client, bucket, allKeys);
+
+        LocalDateTime deletedAt = LocalDateTime.now();
+        List<BackupHistory> deleted = new ArrayList<>();
+        for (Map.Entry<BackupHistory, List<String>> entry : keysByBackup.entrySet()) {
+            BackupHistory backup = entry.getKey();
+            if (Collections.disjoint(entry.getValue(), failed)) {
+                backup.setDeletedAt(deletedAt);
+                deleted.add(backup);
+            } else {
+                logger.error("Failed to delete backup: {}", backup.getFilename());
+            }
+        }
+        backupHistoryRepository.saveAll(deleted);
+        return deleted;
+    }
 
-            // Keep only maxBackups if specified
-            if (settings.getMaxBackups() != null && settings.getMaxBackups() > 0) {
-                long activeCount = backupHistoryRepository.countActiveBackups();
-                if (activeCount > settings.getMaxBackups()) {
-                    List<BackupHistory> completedBackups = backupHistoryRepository.findCompletedBackups();
-                    int toDelete = (int) (activeCount - settings.getMaxBackups());
-
-                    // Delete oldest backups
-                    List<BackupHistory> backupsToDelete = completedBackups.stream()
-                            .skip(settings.getMaxBackups())
-                            .limit(toDelete)
-                            .collect(Collectors.toList());
-
-                    for (BackupHistory backup : backupsToDelete) {
-                        try {
-                            deleteBackup(backup.getId());
-                            logger.info("Deleted excess backup: {} (keeping max {})",
-                                    backup.getFilename(), settings.getMaxBackups());
-                        } catch (Exception e) {
-                            logger.error("Failed to delete excess backup: {}", backup.getFilename(), e);
+    /**
+     * Keeps the start of the tool's stderr for the error message; the pipe must be drained
+     * or the process blocks once the OS buffer is full
+     */
+    private static Thread drainErrorStream(Process process, String tool, StringBuilder output) {
+        Thread thread = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    logger.debug("{}: {}", tool, line);
+                    synchronized (output) {
+                        if (output.length() < MAX_ERROR_OUTPUT) {
+                            output.append(line).append("\n");
                         }
                     }
                 }
+            } catch (IOException e) {
+                logger.debug("{} stderr closed: {}", tool, e.getMessage());
             }
-        } catch (Exception e) {
-            logger.error("Error during backup cleanup", e);
+        }, tool + "-stderr");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Deletes every object of a DIRECTORY backup
+     */
+    private void deleteObjectsWithPrefix(S3Client s3Client, String bucket, String prefix) {
+        Set<String> failed = deleteObjects(s3Client, bucket, listKeys(s3Client, bucket, prefix));
+        if (!failed.isEmpty()) {
+            logger.warn("{} object(s) under s3://{}/{} could not be deleted", failed.size(), bucket, prefix);
+        }
+    }
+
+    /**
+     * The S3 objects of a backup: one file, or everything under the prefix of a DIRECTORY backup
+     */
+    private static List<String> objectKeys(S3Client s3Client, String bucket, BackupHistory history) {
+        return history.isDirectoryFormat()
+                ? listKeys(s3Client, bucket, history.getS3Key())
+                : List.of(history.getS3Key());
+    }
+
+    private static List<String> listKeys(S3Client s3Client, String bucket, String prefix) {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+                .bucket(bucket)
+                .prefix(prefix)
+                .build();
+        List<String> keys = new ArrayList<>();
+        for (S3Object object : s3Client.listObjectsV2Paginator(request).contents()) {
+            keys.add(object.key());
         }
+        return keys;
     }
 
     /**
-     * Calculate MD5 checksum of file
+     * Deletes the keys with DeleteObjects in batches of up to 1000
+     * @return the keys that could not be deleted
      */
-    private String calculateChecksum(Path filePath) throws Exception {
-        MessageDigest md = MessageDigest.getInstance("MD5");
-        try (InputStream is = Files.newInputStream(filePath)) {
-            byte[] buffer = new byte[8192];
-            int read;
-            while ((read = is.read(buffer)) > 0) {
-                md.update(buffer, 0, read);
+    private static Set<String> deleteObjects(S3Client s3Client, String bucket, List<String> keys) {
+        Set<String> failed = new HashSet<>();
+        for (int from = 0; from < keys.size(); from += MAX_DELETE_BATCH) {
+            List<String> batch = keys.subList(from, Math.min(keys.size(), from + MAX_DELETE_BATCH));
+            try {
+                DeleteObjectsResponse response = s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                        .bucket(bucket)
+                        .delete(Delete.builder()
+                                .objects(batch.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList())
+                                .quiet(true)
+                                .build())
+                        .build());
+                for (S3Error error : response.errors()) {
+                    logger.warn("Failed to delete s3://{}/{}: {} {}", bucket, error.key(), error.code(), error.message());
+                    failed.add(error.key());
+                }
+            } catch (Exception e) {
+                logger.error("DeleteObjects request for {} key(s) failed", batch.size(), e);
+                failed.addAll(batch);
             }
         }
+        return failed;
+    }
 
-        byte[] digest = md.digest();
+    private static void deleteRecursively(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Failed to delete {}", path, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("Failed to clean up work directory {}", directory, e);
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
         StringBuilder sb = new StringBuilder();
         for (byte b : digest) {
             sb.append(String.format("%02x", b));
@@ -462,4 +1132,7 @@ public class DatabaseBackupService {
         }
         return "5432";
     }
+
+    private record StreamedBackup(long sizeBytes, String checksum, String manifest) {
+    }
 }
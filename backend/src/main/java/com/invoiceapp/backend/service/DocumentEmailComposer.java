@@ -0,0 +1,174 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.Document;
+import com.invoiceapp.backend.model.DocumentType;
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.service.export.UblExportService;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Съставя имейл за документ (тема, HTML съдържание и прикачени файлове) като запис за outbox-а.
+ * Използва се както за единично изпращане, така и за масово изпращане.
+ */
+@Component
+public class DocumentEmailComposer {
+
+    private final UblExportService ublExportService;
+
+    public DocumentEmailComposer(UblExportService ublExportService) {
+        this.ublExportService = ublExportService;
+    }
+
+    /**
+     * Съставя запис за outbox-а
+     * @param pdfData PDF съдържание (null - без PDF)
+     * @param includeUbl дали да се прикачи UBL XML
+     */
+    public EmailOutbox compose(Document document, String recipientEmail, byte[] pdfData, boolean includeUbl) {
+        boolean includePdf = pdfData != null;
+        EmailOutbox entry = newEntry(document, recipientEmail, includePdf, includeUbl);
+        if (includePdf) {
+            entry.addAttachment(pdfFilename(document), "application/pdf", pdfData);
+        }
+        addUbl(entry, document, includeUbl);
+        return entry;
+    }
+
+    /**
+     * Съставя запис за outbox-а с PDF от хранилището за прикачени файлове
+     * @param pdfStoragePath път, върнат от {@link EmailAttachmentStorage#claim}
+     * @param includeUbl дали да се прикачи UBL XML
+     */
+    public EmailOutbox compose(Document document, String recipientEmail, String pdfStoragePath, boolean includeUbl) {
+        EmailOutbox entry = newEntry(document, recipientEmail, true, includeUbl);
+        entry.addFileAttachment(pdfFilename(document), "application/pdf", pdfStoragePath);
+        addUbl(entry, document, includeUbl);
+        return entry;
+    }
+
+    private EmailOutbox newEntry(Document document, String recipientEmail, boolean includePdf, boolean includeUbl) {
+        EmailOutbox entry = new EmailOutbox();
+        entry.setCompanyId(document.getCompany().getId());
+        entry.setDocumentId(document.getId());
+        entry.setRecipientEmail(recipientEmail);
+        entry.setSubject(buildSubject(document));
+        entry.setHtmlBody(buildDocumentEmailContent(document, includePdf, includeUbl));
+        return entry;
+    }
+
+    private static String pdfFilename(Document document) {
+        return String.format("%s-%s.pdf",
+                document.getDocumentType().name().toLowerCase(),
+                document.getDocumentNumber());
+    }
+
+    private void addUbl(EmailOutbox entry, Document document, boolean includeUbl) {
+        // UBL XML за ERP интеграция
+        if (includeUbl) {
+            String ublXml = ublExportService.exportToUbl(document);
+            String ublFilename = String.format("ubl-%s-%s.xml",
+                    document.getDocumentType().name().toLowerCase(),
+                    document.getDocumentNumber());
+            entry.addAttachment(ublFilename, "application/xml", ublXml.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Тема на имейла за документ
+     */
+    public String buildSubject(Document document) {
+        return String.format("Документ %s-%s от %s",
+                getDocumentTypeLabel(document.getDocumentType()),
+                document.getDocumentNumber(),
+                document.getCompany().getName());
+    }
+
+    /**
+     * Етикет на типа документ на български
+     */
+    public String getDocumentTypeLabel(DocumentType type) {
+        switch (type) {
+            case INVOICE: return "Фактура";
+            case CREDIT_NOTE: return "Кредитно известие";
+            case DEBIT_NOTE: return "Дебитно известие";
+            case PROFORMA: return "Проформа";
+            default: return type.name();
+        }
+    }
+
+    /**
+     * HTML съдържание на имейла за документ
+     * @param includePdf дали е прикачен PDF
+     * @param includeUbl дали е прикачен UBL XML
+     */
+    public String buildDocumentEmailContent(Document document, boolean includePdf, boolean includeUbl) {
+        String typeLabel = getDocumentTypeLabel(document.getDocumentType());
+        String attachmentInfo;
+        if (includePdf && includeUbl) {
+            attachmentInfo = "Прикачени са PDF и UBL XML файлове. UBL XML файлът може да бъде импортиран директно във вашата ERP система.";
+        } else if (includeUbl) {
+            attachmentInfo = "Прикачен е UBL XML файл, който може да бъде импортиран директно във вашата ERP система.";
+        } else if (includePdf) {
+            attachmentInfo = "Моля, вижте прикачения PDF файл за пълна информация.";
+        } else {
+            attachmentInfo = "Ако имате въпроси относно документа, моля, свържете се с нас.";
+        }
+
+        return String.format("""
+            <!DOCTYPE html>
+            <html>
+            <head>
+                <meta charset="UTF-8">
+                <title>%s</title>
+                <style>
+                    body { font-family: Arial, sans-serif; line-height: 1.6; color: #333; }
+                    .container { max-width: 600px; margin: 0 auto; padding: 20px; }
+                    .header { background-color: #2196F3; color: white; padding: 20px; text-align: center; }
+                    .content { padding: 20px; background-color: #f9f9f9; }
+                    .footer { padding: 20px; font-size: 12px; color: #666; text-align: center; }
+                    .details { background-color: white; padding: 15px; border-radius: 4px; margin: 15px 0; }
+                    .amount { font-size: 24px; color: #2196F3; font-weight: bold; }
+                    .ubl-info { background-color: #e3f2fd; padding: 10px; border-left: 4px solid #2196F3; margin: 15px 0; font-size: 14px; }
+                </style>
+            </head>
+            <body>
+                <div class="container">
+                    <div class="header">
+                        <h1>%s %s</h1>
+                    </div>
+                    <div class="content">
+                        <p>Уважаеми клиенти,</p>
+                        <p>Прикачено ще намерите %s с номер <strong>%s</strong>.</p>
+                        <div class="details">
+                            <p><strong>Издател:</strong> %s</p>
+                            <p><strong>Дата на издаване:</strong> %s</p>
+                            <p><strong>Срок за плащане:</strong> %s</p>
+                            <p class="amount">Сума: %s %s</p>
+                        </div>
+                        <p>%s</p>
+                    </div>
+                    <div class="footer">
+                        <p>С уважение,<br>%s</p>
+                        <p>Този имейл е изпратен автоматично.</p>
+                    </div>
+                </div>
+            </body>
+            </html>
+            """,
+            typeLabel + " " + document.getDocumentNumber(),
+            typeLabel,
+            document.getDocumentNumber(),
+            typeLabel.toLowerCase(),
+            document.getDocumentNumber(),
+            document.getCompany().getName(),
+            document.getIssueDate().toString(),
+            document.getDueDate().toString(),
+            document.getTotalAmountWithVat().toString(),
+            document.getCurrencyCode(),
+            attachmentInfo,
+            document.getCompany().getName()
+        );
+    }
+}
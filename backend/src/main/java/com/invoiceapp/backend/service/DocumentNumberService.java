@@ -5,6 +5,8 @@ import com.invoiceapp.backend.model.DocumentType;
 import com.invoiceapp.backend.model.SequenceType;
 import com.invoiceapp.backend.repository.CompanyRepository;
 import com.invoiceapp.backend.repository.DocumentNumberSequenceRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -28,6 +30,9 @@ public class DocumentNumberService {
     @Autowired
     private CompanyRepository companyRepository;
 
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
     /**
      * Генерира следващия номер за документ от даден тип
      * @param companyId ID на фирмата
@@ -37,9 +42,11 @@ public class DocumentNumberService {
     public String generateNextNumber(Long companyId, DocumentType documentType) {
         SequenceType sequenceType = documentType.getSequenceType();
         
-        // Получаваме последователността с pessimistic lock за thread-safety
-        DocumentNumberSequence sequence = sequenceRepository
-            .findByCompanyIdAndSequenceTypeForUpdate(companyId, sequenceType)
+        // Получаваме последователността с pessimistic lock за thread-safety;
+        // чакането за lock-а се измерва отделно (document.number.lock)
+        DocumentNumberSequence sequence = Observation.createNotStarted("document.number.lock", observationRegistry)
+            .lowCardinalityKeyValue("sequence", sequenceType.name())
+            .observe(() -> sequenceRepository.findByCompanyIdAndSequenceTypeForUpdate(companyId, sequenceType))
             .orElseGet(() -> createNewSequence(companyId, sequenceType));
         
         // Увеличаваме номера и запазваме
@@ -0,0 +1,94 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.Document;
+import com.invoiceapp.backend.model.dto.DocumentSearchHit;
+import com.invoiceapp.backend.model.dto.DocumentSearchResult;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.util.SearchTerms;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Пълнотекстово търсене в документите - по номер, описания на редовете (на български и английски)
+ * и бележки, с tsvector колоната documents.search_vector (V13__Document_Full_Text_Search.sql).
+ * Всяка дума от заявката трябва да е начало на дума в документа.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DocumentSearchService {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TERMS = 10;
+    private static final String CURSOR_PREFIX = "offset:";
+
+    private final DocumentRepository documentRepository;
+
+    public DocumentSearchService(DocumentRepository documentRepository) {
+        this.documentRepository = documentRepository;
+    }
+
+    /**
+     * @param first брой резултати (по подразбиране 20, най-много 100)
+     * @param after cursor на последния резултат от предишната страница
+     */
+    public DocumentSearchResult search(Long companyId, String query, Integer first, String after) {
+        String[] words = SearchTerms.words(query == null ? "" : query);
+        if (words.length == 0) {
+            return new DocumentSearchResult(List.of(), null, false);
+        }
+        String terms = String.join(" ", Arrays.copyOf(words, Math.min(words.length, MAX_TERMS)));
+        int pageSize = first == null || first <= 0 ? DEFAULT_PAGE_SIZE : Math.min(first, MAX_PAGE_SIZE);
+        int offset = after == null || after.isBlank() ? 0 : decodeCursor(after) + 1;
+
+        // Един ред в повече показва дали има следваща страница
+        List<Object[]> rows = documentRepository.searchFullText(companyId, terms, offset, pageSize + 1);
+        boolean hasNextPage = rows.size() > pageSize;
+        if (hasNextPage) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        List<Long> ids = rows.stream().map(row -> ((Number) row[0]).longValue()).toList();
+        Map<Long, Document> documents = documentRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+        List<DocumentSearchHit> hits = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Document document = documents.get(ids.get(i));
+            if (document != null) {
+                hits.add(new DocumentSearchHit(document, ((Number) rows.get(i)[1]).doubleValue(),
+                        (String) rows.get(i)[2], encodeCursor(offset + i)));
+            }
+        }
+        String endCursor = rows.isEmpty() ? null : encodeCursor(offset + rows.size() - 1);
+        return new DocumentSearchResult(hits, endCursor, hasNextPage);
+    }
+
+    private static String encodeCursor(int position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int decodeCursor(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                int position = Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+                if (position >= 0) {
+                    return position;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // невалиден Base64 или число
+        }
+        throw new RuntimeException("Невалиден cursor: " + cursor);
+    }
+}
@@ -1,6 +1,7 @@
 package com.invoiceapp.backend.service;
 
 import com.invoiceapp.backend.config.CurrencyConfiguration;
+import com.invoiceapp.backend.metrics.MetricsConfig;
 import com.invoiceapp.backend.model.*;
 import com.invoiceapp.backend.model.dto.CreateDocumentInput;
 import com.invoiceapp.backend.model.dto.CopyDocumentInput;
@@ -16,9 +17,14 @@ import com.invoiceapp.backend.repository.ItemRepository;
 import com.invoiceapp.backend.repository.PaymentMethodRepository;
 import com.invoiceapp.backend.repository.BankAccountRepository;
 import com.invoiceapp.backend.repository.VatExemptionReasonRepository;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -70,6 +76,9 @@ public class DocumentService {
     @Autowired
     private CurrencyConfiguration currencyConfig;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     /**
      * Създава нов документ заедно с неговите артикули.
      * @param input DTO съдържащо данните за документа и артикулите
@@ -169,7 +178,9 @@ public class DocumentService {
 
         document.setDocumentItems(documentItems);
 
-        return documentRepository.save(document);
+        Document saved = documentRepository.save(document);
+        countCreated(saved, "create");
+        return saved;
     }
 
     /**
@@ -230,6 +241,16 @@ public class DocumentService {
         return documentRepository.findById(documentId);
     }
 
+    /**
+     * Събира данните за PDF на документа в транзакция (lazy връзките се четат тук)
+     * @param documentId ID на документа
+     * @return данните за PDF или Optional.empty()
+     */
+    @Transactional(readOnly = true)
+    public Optional<DocumentPdfModel> findPdfModel(Long documentId) {
+        return documentRepository.findById(documentId).map(DocumentPdfModel::from);
+    }
+
     /**
      * Намира документ по номер в рамките на фирма
      * @param companyId ID на фирмата
@@ -596,6 +617,31 @@ public class DocumentService {
 
         newDocument.setDocumentItems(newItems);
 
-        return documentRepository.save(newDocument);
+        Document saved = documentRepository.save(newDocument);
+        countCreated(saved, "copy");
+        return saved;
+    }
+
+    /**
+     * Отчита създаден документ по фирма и тип след успешен commit
+     * @param source "create" или "copy"
+     */
+    private void countCreated(Document document, String source) {
+        Counter counter = Counter.builder(MetricsConfig.DOCUMENTS_CREATED)
+                .description("Created documents")
+                .tag("company", String.valueOf(document.getCompany().getId()))
+                .tag("type", document.getDocumentType().name())
+                .tag("source", source)
+                .register(meterRegistry);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counter.increment();
+                }
+            });
+        } else {
+            counter.increment();
+        }
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.invoiceapp.backend.service;
 
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
 import com.invoiceapp.backend.service.ecb.EcbDtos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,11 +26,14 @@ public class EcbService {
     private final WebClient webClient;
     private final ExchangeRateRepository exchangeRateRepository;
     private final CurrencyRepository currencyRepository;
+    private final IntegrationMetrics integrationMetrics;
 
-    public EcbService(WebClient.Builder webClientBuilder, ExchangeRateRepository exchangeRateRepository, CurrencyRepository currencyRepository) {
+    public EcbService(WebClient.Builder webClientBuilder, ExchangeRateRepository exchangeRateRepository, CurrencyRepository currencyRepository,
+                      IntegrationMetrics integrationMetrics) {
         this.webClient = webClientBuilder.baseUrl(ECB_URL).build();
         this.exchangeRateRepository = exchangeRateRepository;
         this.currencyRepository = currencyRepository;
+        this.integrationMetrics = integrationMetrics;
     }
 
     @Scheduled(cron = "0 0 16 * * ?") // Run daily at 4 PM CET approx
@@ -37,10 +41,7 @@ public class EcbService {
     public void fetchAndSaveRates() {
         logger.info("Fetching exchange rates from ECB...");
         try {
-            String xmlResponse = webClient.get()
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block(); // Block for simplicity in this example
+            String xmlResponse = fetchDailyXml();
 
             XmlMapper xmlMapper = new XmlMapper();
             EcbDtos.Envelope envelope = xmlMapper.readValue(xmlResponse, EcbDtos.Envelope.class);
@@ -60,6 +61,13 @@ public class EcbService {
         }
     }
 
+    private String fetchDailyXml() {
+        return integrationMetrics.call("ecb", "dailyRates", () -> webClient.get()
+                .retrieve()
+                .bodyToMono(String.class)
+                .block()); // Block for simplicity in this example
+    }
+
     private void saveRateIfNotExists(String currencyCode, String rateValue, LocalDate date) {
         exchangeRateRepository.findByCurrencyCodeAndRateDate(currencyCode, date).ifPresentOrElse(
             existingRate -> logger.debug("Exchange rate for {} on {} already exists.", currencyCode, date),
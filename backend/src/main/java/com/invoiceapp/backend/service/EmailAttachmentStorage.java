@@ -0,0 +1,208 @@
+package com.invoiceapp.backend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище за прикачени файлове към имейли.
+ *
+ * Качените PDF файлове се записват директно на диска (без base64 и без копие в паметта)
+ * и клиентът получава token. При изпращане файлът се премества в директорията на outbox-а
+ * и се прикача към имейла като файлов DataSource. Файлът се изтрива, след като имейлът
+ * бъде изпратен или окончателно отказан. До файла се пази кой го е качил (token.owner) -
+ * само потребител от същата фирма може да го изпрати.
+ *
+ * При няколко инстанции директорията трябва да е споделена.
+ */
+@Component
+public class EmailAttachmentStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailAttachmentStorage.class);
+
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+    private static final byte[] PDF_MAGIC = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+    private static final String PDF_SUFFIX = ".pdf";
+    private static final String OWNER_SUFFIX = ".owner";
+    private static final String NOT_FOUND = "Прикаченият файл не е намерен или е изтекъл";
+
+    private final Path uploadDir;
+    private final Path outboxDir;
+    private final long maxSizeBytes;
+    private final long uploadTtlMinutes;
+
+    public EmailAttachmentStorage(@Value("${email.attachments.dir:${java.io.tmpdir}/invoice-app/email-attachments}") String baseDir,
+                                  @Value("${email.attachments.max-size-bytes:20971520}") long maxSizeBytes,
+                                  @Value("${email.attachments.upload-ttl-minutes:60}") long uploadTtlMinutes) {
+        Path base = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.uploadDir = base.resolve("uploads");
+        this.outboxDir = base.resolve("outbox");
+        this.maxSizeBytes = maxSizeBytes;
+        this.uploadTtlMinutes = uploadTtlMinutes;
+        try {
+            Files.createDirectories(uploadDir);
+            Files.createDirectories(outboxDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create email attachment directory " + base, e);
+        }
+    }
+
+    /**
+     * Записва качен PDF файл
+     * @param username потребителят, качил файла
+     * @param companyId фирмата на потребителя (null за SUPER_ADMIN)
+     * @return token, с който файлът се прикача при изпращане
+     * @throws IllegalArgumentException ако файлът е празен, твърде голям или не е PDF
+     */
+    public String storeUpload(MultipartFile file, String username, Long companyId) throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Файлът е празен");
+        }
+        if (file.getSize() > maxSizeBytes) {
+            throw new IllegalArgumentException("Файлът е по-голям от " + (maxSizeBytes / (1024 * 1024)) + " MB");
+        }
+
+        String token = UUID.randomUUID().toString();
+        Path target = uploadDir.resolve(token + PDF_SUFFIX);
+        // При multipart заявка файлът вече е на диска - transferTo го премества без да го чете в паметта
+        file.transferTo(target.toFile());
+
+        if (!isPdf(target)) {
+            Files.deleteIfExists(target);
+            throw new IllegalArgumentException("Файлът не е PDF");
+        }
+        writeOwner(token, username, companyId);
+        logger.info("Email attachment uploaded: {} by {} ({} bytes)", token, username, file.getSize());
+        return token;
+    }
+
+    /**
+     * Премества качения файл в outbox-а. Всеки token може да се използва само веднъж.
+     * @param companyId фирмата на изпращащия - трябва да е тази на потребителя, качил файла
+     * @return пътят до файла за EmailOutboxAttachment.storagePath
+     */
+    public String claim(String token, Long companyId) {
+        if (token == null || !TOKEN_PATTERN.matcher(token).matches()) {
+            throw new IllegalArgumentException("Невалиден token за прикачен файл");
+        }
+        Properties owner = readOwner(token);
+        if (!Objects.equals(owner.getProperty("companyId", ""), companyId != null ? companyId.toString() : "")) {
+            // Същото съобщение като за липсващ файл - не разкриваме, че token-ът съществува
+            logger.warn("Email attachment {} uploaded by {} refused for company {}",
+                    token, owner.getProperty("username"), companyId);
+            throw new IllegalArgumentException(NOT_FOUND);
+        }
+
+        Path source = uploadDir.resolve(token + PDF_SUFFIX);
+        Path target = outboxDir.resolve(token + PDF_SUFFIX);
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(uploadDir.resolve(token + OWNER_SUFFIX));
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException(NOT_FOUND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot claim email attachment " + token, e);
+        }
+        return target.toString();
+    }
+
+    /**
+     * Записва генериран на сървъра PDF директно в outbox-а
+     * @return пътят до файла за EmailOutboxAttachment.storagePath
+     */
+    public String storeGenerated(byte[] pdf) {
+        Path target = outboxDir.resolve(UUID.randomUUID() + PDF_SUFFIX);
+        try {
+            Files.write(target, pdf, StandardOpenOption.CREATE_NEW);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot store generated email attachment", e);
+        }
+        return target.toString();
+    }
+
+    /**
+     * Изтрива файловете на изпратени или отказани имейли
+     */
+    public void delete(Collection<String> storagePaths) {
+        for (String storagePath : storagePaths) {
+            Path path = Paths.get(storagePath).toAbsolutePath().normalize();
+            if (!path.startsWith(outboxDir)) {
+                logger.warn("Refusing to delete attachment outside the store: {}", storagePath);
+                continue;
+            }
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete email attachment {}: {}", storagePath, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Изтрива качени файлове, които не са използвани за изпращане
+     */
+    @Scheduled(fixedDelayString = "${email.attachments.cleanup-interval-ms:600000}")
+    public void cleanupExpiredUploads() {
+        Instant cutoff = Instant.now().minus(uploadTtlMinutes, ChronoUnit.MINUTES);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(uploadDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clean up email attachment uploads: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} expired email attachment uploads", deleted);
+        }
+    }
+
+    private void writeOwner(String token, String username, Long companyId) throws IOException {
+        Properties owner = new Properties();
+        owner.setProperty("username", username);
+        owner.setProperty("companyId", companyId != null ? companyId.toString() : "");
+        try (Writer out = Files.newBufferedWriter(uploadDir.resolve(token + OWNER_SUFFIX), StandardCharsets.UTF_8)) {
+            owner.store(out, null);
+        }
+    }
+
+    private Properties readOwner(String token) {
+        Properties owner = new Properties();
+        try (Reader in = Files.newBufferedReader(uploadDir.resolve(token + OWNER_SUFFIX), StandardCharsets.UTF_8)) {
+            owner.load(in);
+        } catch (NoSuchFileException e) {
+            throw new IllegalArgumentException(NOT_FOUND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the owner of email attachment " + token, e);
+        }
+        return owner;
+    }
+
+    private static boolean isPdf(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return Arrays.equals(in.readNBytes(PDF_MAGIC.length), PDF_MAGIC);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.model.EmailOutboxAttachment;
+import com.invoiceapp.backend.model.SmtpSettings;
+import com.invoiceapp.backend.repository.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Опашка за изпращане на имейли (email outbox).
+ *
+ * Мутациите само записват имейла в таблицата email_outbox и връщат веднага.
+ * Фоновият диспечер взима чакащите имейли на партиди, изпраща всяка партида
+ * през една връзка от SmtpTransportPool и при грешка планира нов опит с експоненциално забавяне.
+ * Имейлите над лимита на SendRateLimiter се връщат в опашката без да се брои опит.
+ */
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final SendRateLimiter rateLimiter;
+    private final EmailAttachmentStorage attachmentStorage;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryBaseSeconds;
+    private final long staleAfterMinutes;
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepository,
+                              EmailService emailService,
+                              SendRateLimiter rateLimiter,
+                              EmailAttachmentStorage attachmentStorage,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${email.outbox.batch-size:20}") int batchSize,
+                              @Value("${email.outbox.max-attempts:5}") int maxAttempts,
+                              @Value("${email.outbox.retry-base-seconds:30}") long retryBaseSeconds,
+                              @Value("${email.outbox.stale-after-minutes:10}") long staleAfterMinutes) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.rateLimiter = rateLimiter;
+        this.attachmentStorage = attachmentStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseSeconds = retryBaseSeconds;
+        this.staleAfterMinutes = staleAfterMinutes;
+    }
+
+    /**
+     * Добавя имейл в опашката. Прикачените файлове се добавят с {@link EmailOutbox#addAttachment}.
+     * @return записаният елемент от опашката
+     */
+    public EmailOutbox enqueue(EmailOutbox entry) {
+        entry.setStatus(EmailOutbox.STATUS_PENDING);
+        entry.setAttempts(0);
+        EmailOutbox saved = outboxRepository.save(entry);
+        logger.info("Email queued for {} (outbox id {})", saved.getRecipientEmail(), saved.getId());
+        return saved;
+    }
+
+    /**
+     * Статус на изпращанията за документ (най-новите първо)
+     */
+    public List<EmailOutbox> findByDocument(Long documentId) {
+        return outboxRepository.findByDocumentIdOrderByCreatedAtDesc(documentId);
+    }
+
+    /**
+     * Фонов диспечер - изпраща чакащите имейли, докато опашката се изпразни
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatchPending() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status ->
+                outboxRepository.releaseStale(now.minusMinutes(staleAfterMinutes), maxAttempts, now));
+        if (released != null && released > 0) {
+            logger.warn("Released {} stale outbox entries left in SENDING", released);
+        }
+
+        int processed;
+        do {
+            processed = dispatchBatch();
+        } while (processed == batchSize);
+    }
+
+    /**
+     * Изпраща една партида
+     * @return броя на обработените записи (без отложените заради лимит)
+     */
+    int dispatchBatch() {
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> locked = outboxRepository.lockDueIds(LocalDateTime.now(), batchSize);
+            if (!locked.isEmpty()) {
+                outboxRepository.markSending(locked, LocalDateTime.now());
+            }
+            return locked;
+        });
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+
+        List<EmailOutbox> entries = transactionTemplate.execute(status -> {
+            List<EmailOutbox> loaded = outboxRepository.findWithAttachmentsByIdIn(ids);
+            loaded.forEach(entry -> entry.getAttachments().size());
+            return loaded;
+        });
+
+        Map<Long, String> errors = new HashMap<>();
+        Map<Long, Long> deferred = new HashMap<>();
+        SmtpSettings settings = emailService.getActiveSmtpSettings();
+        if (settings == null) {
+            entries.forEach(entry -> errors.put(entry.getId(), "No active SMTP settings found"));
+        } else {
+            List<EmailOutbox> allowed = new ArrayList<>();
+            for (EmailOutbox entry : entries) {
+                long wait = rateLimiter.tryAcquire(entry.getCompanyId(), settings.getMaxMessagesPerMinute());
+                if (wait > 0) {
+                    deferred.put(entry.getId(), wait);
+                } else {
+                    allowed.add(entry);
+                }
+            }
+            send(settings, allowed, errors);
+        }
+
+        Set<Long> finished = transactionTemplate.execute(status -> recordResults(entries, errors, deferred));
+        deleteAttachmentFiles(entries, finished);
+        logger.info("Email outbox batch: {} sent, {} failed, {} deferred by rate limit",
+                entries.size() - errors.size() - deferred.size(), errors.size(), deferred.size());
+        return ids.size() - deferred.size();
+    }
+
+    private void send(SmtpSettings settings, List<EmailOutbox> entries, Map<Long, String> errors) {
+        List<MimeMessage> messages = new ArrayList<>();
+        List<EmailOutbox> built = new ArrayList<>();
+        for (EmailOutbox entry : entries) {
+            try {
+                messages.add(emailService.buildOutboxMessage(settings, entry));
+                built.add(entry);
+            } catch (MessagingException e) {
+                errors.put(entry.getId(), e.getMessage());
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<Integer, Exception> failures = emailService.sendBatch(settings, messages);
+            failures.forEach((index, error) -> errors.put(built.get(index).getId(), error.getMessage()));
+        } catch (MessagingException e) {
+            logger.error("SMTP connection failed for outbox batch", e);
+            built.forEach(entry -> errors.put(entry.getId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * @return ID-тата на изпратените и окончателно отказаните имейли
+     */
+    private Set<Long> recordResults(List<EmailOutbox> entries, Map<Long, String> errors, Map<Long, Long> deferred) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> finished = new HashSet<>();
+        for (EmailOutbox entry : outboxRepository.findAllById(entries.stream().map(EmailOutbox::getId).toList())) {
+            Long wait = deferred.get(entry.getId());
+            if (wait != null) {
+                // Над лимита - не е истински опит за изпращане
+                entry.setStatus(EmailOutbox.STATUS_PENDING);
+                entry.setAttempts(Math.max(0, entry.getAttempts() - 1));
+                entry.setNextAttemptAt(now.plusNanos(wait * 1_000_000L));
+                continue;
+            }
+            String error = errors.get(entry.getId());
+            if (error == null) {
+                entry.setStatus(EmailOutbox.STATUS_SENT);
+                entry.setSentAt(now);
+                entry.setLastError(null);
+                finished.add(entry.getId());
+            } else {
+                entry.setLastError(truncate(error));
+                if (entry.getAttempts() >= maxAttempts) {
+                    entry.setStatus(EmailOutbox.STATUS_FAILED);
+                    finished.add(entry.getId());
+                    logger.error("Email to {} failed permanently after {} attempts: {}",
+                            entry.getRecipientEmail(), entry.getAttempts(), error);
+                } else {
+                    entry.setStatus(EmailOutbox.STATUS_PENDING);
+                    entry.setNextAttemptAt(now.plusSeconds(backoffSeconds(entry.getAttempts())));
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Файловете от хранилището не са нужни повече след изпращане или окончателен отказ
+     */
+    private void deleteAttachmentFiles(List<EmailOutbox> entries, Set<Long> finished) {
+        if (finished == null || finished.isEmpty()) {
+            return;
+        }
+        List<String> paths = entries.stream()
+                .filter(entry -> finished.contains(entry.getId()))
+                .flatMap(entry -> entry.getAttachments().stream())
+                .map(EmailOutboxAttachment::getStoragePath)
+                .filter(Objects::nonNull)
+                .toList();
+        if (!paths.isEmpty()) {
+            attachmentStorage.delete(paths);
+        }
+    }
+
+    /**
+     * Забавяне преди следващия опит: base * 2^(attempts-1), най-много един час
+     */
+    long backoffSeconds(int attempts) {
+        int exponent = Math.max(0, Math.min(attempts - 1, 20));
+        return Math.min(retryBaseSeconds << exponent, MAX_BACKOFF_SECONDS);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) {
+            return "Unknown error";
+        }
+        return error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+    }
+}
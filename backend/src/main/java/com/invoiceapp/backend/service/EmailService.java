@@ -1,7 +1,11 @@
 package com.invoiceapp.backend.service;
 
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.model.EmailOutboxAttachment;
 import com.invoiceapp.backend.model.SmtpSettings;
 import com.invoiceapp.backend.repository.SmtpSettingsRepository;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +17,13 @@ import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import jakarta.activation.FileDataSource;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import java.io.File;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 @Service
@@ -25,14 +33,19 @@ public class EmailService {
 
     private final SmtpSettingsRepository smtpSettingsRepository;
     private final EncryptionService encryptionService;
+    private final SmtpTransportPool transportPool;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${app.frontend-url:https://your-domain.com}")
     private String frontendUrl;
 
     @Autowired
-    public EmailService(SmtpSettingsRepository smtpSettingsRepository, EncryptionService encryptionService) {
+    public EmailService(SmtpSettingsRepository smtpSettingsRepository, EncryptionService encryptionService,
+                        SmtpTransportPool transportPool, ObservationRegistry observationRegistry) {
         this.smtpSettingsRepository = smtpSettingsRepository;
         this.encryptionService = encryptionService;
+        this.transportPool = transportPool;
+        this.observationRegistry = observationRegistry;
     }
 
     /**
@@ -46,15 +59,15 @@ public class EmailService {
                 return false;
             }
 
-            JavaMailSender mailSender = createMailSender(settings);
-            SimpleMailMessage message = new SimpleMailMessage();
-            
-            message.setFrom(settings.getFromEmail());
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(content);
+            MimeMessage message = transportPool.createMimeMessage(settings);
+            MimeMessageHelper helper = new MimeMessageHelper(message, false, "UTF-8");
+
+            helper.setFrom(settings.getFromEmail());
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(content);
 
-            mailSender.send(message);
+            deliver(settings, message);
             logger.info("Simple email sent successfully to: {}", to);
             return true;
 
@@ -75,8 +88,7 @@ public class EmailService {
                 return false;
             }
 
-            JavaMailSender mailSender = createMailSender(settings);
-            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessage message = transportPool.createMimeMessage(settings);
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
             helper.setFrom(settings.getFromEmail(), settings.getFromName());
@@ -84,7 +96,7 @@ public class EmailService {
             helper.setSubject(subject);
             helper.setText(htmlContent, true); // true = HTML content
 
-            mailSender.send(message);
+            deliver(settings, message);
             logger.info("HTML email sent successfully to: {}", to);
             return true;
 
@@ -123,8 +135,7 @@ public class EmailService {
                 return false;
             }
 
-            JavaMailSender mailSender = createMailSender(settings);
-            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessage message = transportPool.createMimeMessage(settings);
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
             helper.setFrom(settings.getFromEmail(), settings.getFromName());
@@ -135,7 +146,7 @@ public class EmailService {
             // Прикачване на PDF
             helper.addAttachment(pdfFilename, new jakarta.mail.util.ByteArrayDataSource(pdfData, "application/pdf"));
 
-            mailSender.send(message);
+            deliver(settings, message);
             logger.info("Document email sent successfully to: {} with attachment: {}", to, pdfFilename);
             return true;
 
@@ -159,8 +170,7 @@ public class EmailService {
                 return false;
             }
 
-            JavaMailSender mailSender = createMailSender(settings);
-            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessage message = transportPool.createMimeMessage(settings);
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
 
             helper.setFrom(settings.getFromEmail(), settings.getFromName());
@@ -177,7 +187,7 @@ public class EmailService {
                 helper.addAttachment(ublFilename, new jakarta.mail.util.ByteArrayDataSource(ublData, "application/xml"));
             }
 
-            mailSender.send(message);
+            deliver(settings, message);
             logger.info("Document email sent successfully to: {} with attachments: {}, {}", to, pdfFilename, ublFilename);
             return true;
 
@@ -224,15 +234,88 @@ public class EmailService {
         }
     }
 
+    /**
+     * Изгражда съобщение от запис в outbox-а (с прикачените файлове)
+     */
+    public MimeMessage buildOutboxMessage(SmtpSettings settings, EmailOutbox entry) throws MessagingException {
+        MimeMessage message = transportPool.createMimeMessage(settings);
+        MimeMessageHelper helper = new MimeMessageHelper(message, !entry.getAttachments().isEmpty(), "UTF-8");
+
+        try {
+            helper.setFrom(settings.getFromEmail(), settings.getFromName());
+        } catch (java.io.UnsupportedEncodingException e) {
+            helper.setFrom(settings.getFromEmail());
+        }
+        helper.setTo(entry.getRecipientEmail());
+        helper.setSubject(entry.getSubject());
+        helper.setText(entry.getHtmlBody(), true);
+
+        for (EmailOutboxAttachment attachment : entry.getAttachments()) {
+            if (attachment.getStoragePath() != null) {
+                // Файлът се чете от диска при изпращане, без да се зарежда в паметта
+                helper.addAttachment(attachment.getFilename(),
+                        fileDataSource(attachment.getStoragePath(), attachment.getContentType()));
+            } else {
+                helper.addAttachment(attachment.getFilename(),
+                        new jakarta.mail.util.ByteArrayDataSource(attachment.getContent(), attachment.getContentType()));
+            }
+        }
+        return message;
+    }
+
+    private static FileDataSource fileDataSource(String storagePath, String contentType) throws MessagingException {
+        File file = new File(storagePath);
+        if (!file.isFile()) {
+            throw new MessagingException("Attachment file is missing: " + storagePath);
+        }
+        return new FileDataSource(file) {
+            @Override
+            public String getContentType() {
+                return contentType;
+            }
+        };
+    }
+
+    /**
+     * Изпраща няколко съобщения през една SMTP връзка от пула
+     * @return грешките по индекс на съобщението
+     */
+    public Map<Integer, Exception> sendBatch(SmtpSettings settings, List<MimeMessage> messages) throws MessagingException {
+        return send(settings, messages);
+    }
+
     /**
      * Получава активните SMTP настройки
      */
-    private SmtpSettings getActiveSmtpSettings() {
+    public SmtpSettings getActiveSmtpSettings() {
         return smtpSettingsRepository.findActiveSettings().orElse(null);
     }
 
     /**
-     * Създава JavaMailSender от SMTP настройки
+     * Изпраща едно съобщение през пула и хвърля грешката, ако изпращането е неуспешно
+     */
+    private void deliver(SmtpSettings settings, MimeMessage message) throws MessagingException {
+        Map<Integer, Exception> failures = send(settings, List.of(message));
+        Exception failure = failures.get(0);
+        if (failure instanceof MessagingException messagingException) {
+            throw messagingException;
+        }
+        if (failure != null) {
+            throw new MessagingException(failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Изпраща през пула; спанът "email.send" обхваща връзката и всички съобщения
+     */
+    private Map<Integer, Exception> send(SmtpSettings settings, List<MimeMessage> messages) throws MessagingException {
+        return Observation.createNotStarted("email.send", observationRegistry)
+                .highCardinalityKeyValue("messages", String.valueOf(messages.size()))
+                .observeChecked(() -> transportPool.send(settings, messages));
+    }
+
+    /**
+     * Създава JavaMailSender от SMTP настройки (само за тест на нови настройки - без пула)
      */
     private JavaMailSender createMailSender(SmtpSettings settings) {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
@@ -0,0 +1,372 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.model.dto.MailingRunProgress;
+import com.invoiceapp.backend.model.dto.StartMailingRunInput;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.repository.EmailOutboxRepository;
+import com.invoiceapp.backend.repository.MailingRunItemRepository;
+import com.invoiceapp.backend.repository.MailingRunRepository;
+import com.invoiceapp.backend.service.projection.DocumentProjectionService;
+import com.invoiceapp.backend.service.projection.MailingRecipient;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel;
+import com.invoiceapp.backend.service.pdf.DocumentPdfRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Масово изпращане на документи по имейл.
+ *
+ * Стартирането само подбира документите и записва по един ред за всеки получател.
+ * Фоновият процес съставя имейлите на части (прикачените файлове се генерират на сървъра)
+ * и ги добавя в email outbox-а, откъдето се изпращат през SmtpTransportPool
+ * с лимитите на SendRateLimiter.
+ */
+@Service
+public class MailingRunService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailingRunService.class);
+
+    private static final String CANCELLED_REASON = "Изпращането е отменено";
+
+    private final MailingRunRepository runRepository;
+    private final MailingRunItemRepository itemRepository;
+    private final DocumentRepository documentRepository;
+    private final EmailOutboxRepository outboxRepository;
+    private final DocumentProjectionService projectionService;
+    private final DocumentEmailComposer emailComposer;
+    private final EmailOutboxService emailOutboxService;
+    private final DocumentPdfRenderer pdfRenderer;
+    private final EmailAttachmentStorage attachmentStorage;
+    private final TransactionTemplate transactionTemplate;
+
+    private final int chunkSize;
+    private final int maxDocuments;
+    private final long staleAfterMinutes;
+
+    public MailingRunService(MailingRunRepository runRepository,
+                             MailingRunItemRepository itemRepository,
+                             DocumentRepository documentRepository,
+                             EmailOutboxRepository outboxRepository,
+                             DocumentProjectionService projectionService,
+                             DocumentEmailComposer emailComposer,
+                             EmailOutboxService emailOutboxService,
+                             DocumentPdfRenderer pdfRenderer,
+                             EmailAttachmentStorage attachmentStorage,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${email.mailing.chunk-size:50}") int chunkSize,
+                             @Value("${email.mailing.max-documents:10000}") int maxDocuments,
+                             @Value("${email.mailing.stale-after-minutes:30}") long staleAfterMinutes) {
+        this.runRepository = runRepository;
+        this.itemRepository = itemRepository;
+        this.documentRepository = documentRepository;
+        this.outboxRepository = outboxRepository;
+        this.projectionService = projectionService;
+        this.emailComposer = emailComposer;
+        this.emailOutboxService = emailOutboxService;
+        this.pdfRenderer = pdfRenderer;
+        this.attachmentStorage = attachmentStorage;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.maxDocuments = maxDocuments;
+        this.staleAfterMinutes = staleAfterMinutes;
+    }
+
+    /**
+     * Стартира масово изпращане по списък документи или по филтър
+     * @param username потребителят, стартирал изпращането
+     */
+    public MailingRun start(StartMailingRunInput input, String username) {
+        if (input.getCompanyId() == null) {
+            throw new RuntimeException("Фирмата е задължителна");
+        }
+        if (input.getDocumentIds() != null && input.getDocumentIds().isEmpty()) {
+            throw new RuntimeException("Не са избрани документи");
+        }
+
+        List<MailingRecipient> recipients = projectionService.findMailingRecipients(
+                input.getCompanyId(),
+                input.getDocumentIds(),
+                input.getDocumentType(),
+                input.getStatus(),
+                input.getIssueDateFrom(),
+                input.getIssueDateTo());
+        if (recipients.isEmpty()) {
+            throw new RuntimeException("Няма документи, отговарящи на критериите");
+        }
+        if (recipients.size() > maxDocuments) {
+            throw new RuntimeException("Максималният брой документи за едно изпращане е " + maxDocuments);
+        }
+
+        MailingRun run = transactionTemplate.execute(status -> {
+            MailingRun created = new MailingRun();
+            created.setCompanyId(input.getCompanyId());
+            created.setIncludeUbl(Boolean.TRUE.equals(input.getIncludeUblXml()));
+            created.setTotalDocuments(recipients.size());
+            created.setCreatedBy(username);
+            MailingRun saved = runRepository.save(created);
+
+            List<MailingRunItem> items = new ArrayList<>(recipients.size());
+            for (MailingRecipient recipient : recipients) {
+                MailingRunItem item = new MailingRunItem(saved.getId(), recipient.documentId(), recipient.clientEmail());
+                if (recipient.status() == DocumentStatus.DRAFT) {
+                    item.skip("Не може да се изпрати документ в чернова");
+                } else if (recipient.clientEmail() == null || recipient.clientEmail().isBlank()) {
+                    item.skip("Клиентът няма имейл адрес");
+                }
+                items.add(item);
+            }
+            itemRepository.saveAll(items);
+            return saved;
+        });
+
+        logger.info("Mailing run {} started by {} for company {} with {} documents",
+                run.getId(), username, run.getCompanyId(), run.getTotalDocuments());
+        return run;
+    }
+
+    /**
+     * Отменя изпращането - неподготвените документи се пропускат, а чакащите имейли не се изпращат.
+     * Вече изпратените имейли не се засягат.
+     */
+    public MailingRun cancel(Long runId) {
+        return transactionTemplate.execute(status -> {
+            MailingRun run = runRepository.findById(runId)
+                    .orElseThrow(() -> new RuntimeException("Изпращането не е намерено"));
+            if (MailingRun.STATUS_CANCELLED.equals(run.getStatus())) {
+                return run;
+            }
+            run.setStatus(MailingRun.STATUS_CANCELLED);
+            itemRepository.skipPending(runId, CANCELLED_REASON);
+            int cancelled = outboxRepository.cancelPendingByMailingRun(runId, CANCELLED_REASON, LocalDateTime.now());
+            logger.info("Mailing run {} cancelled, {} queued emails dropped", runId, cancelled);
+            return runRepository.save(run);
+        });
+    }
+
+    public Optional<MailingRun> findById(Long runId) {
+        return runRepository.findById(runId);
+    }
+
+    public List<MailingRun> findByCompany(Long companyId) {
+        return runRepository.findByCompanyIdOrderByCreatedAtDesc(companyId);
+    }
+
+    /**
+     * Резултат за всеки получател
+     */
+    public List<MailingRunItem> findItems(Long runId) {
+        return itemRepository.findByMailingRunIdOrderById(runId);
+    }
+
+    /**
+     * Имейлите в outbox-а по ID
+     */
+    public Map<Long, EmailOutbox> findDeliveries(Collection<Long> outboxIds) {
+        return outboxRepository.findAllById(outboxIds).stream()
+                .collect(Collectors.toMap(EmailOutbox::getId, Function.identity()));
+    }
+
+    /**
+     * Напредък - от статусите на документите и на имейлите в outbox-а
+     */
+    public MailingRunProgress getProgress(MailingRun run) {
+        Map<String, Integer> items = toCounts(itemRepository.countByStatus(run.getId()));
+        Map<String, Integer> emails = toCounts(outboxRepository.countByMailingRunGroupedByStatus(run.getId()));
+        return new MailingRunProgress(
+                run.getTotalDocuments(),
+                items.getOrDefault(MailingRunItem.STATUS_PENDING, 0) + items.getOrDefault(MailingRunItem.STATUS_PREPARING, 0),
+                items.getOrDefault(MailingRunItem.STATUS_SKIPPED, 0),
+                emails.getOrDefault(EmailOutbox.STATUS_PENDING, 0) + emails.getOrDefault(EmailOutbox.STATUS_SENDING, 0),
+                emails.getOrDefault(EmailOutbox.STATUS_SENT, 0),
+                emails.getOrDefault(EmailOutbox.STATUS_FAILED, 0));
+    }
+
+    /**
+     * Фонов процес - подготвя документите на отворените изпращания
+     */
+    @Scheduled(fixedDelayString = "${email.mailing.poll-interval-ms:2000}")
+    public void prepareOpenRuns() {
+        for (Long runId : runRepository.findOpenIds()) {
+            try {
+                int prepared;
+                do {
+                    prepared = prepareChunk(runId);
+                } while (prepared > 0);
+            } catch (Exception e) {
+                logger.error("Failed to prepare mailing run {}", runId, e);
+            }
+        }
+    }
+
+    /**
+     * Добавя в outbox-а следващата част от документите.
+     * Документите се заявяват (PREPARING) в кратка транзакция, PDF-ите се генерират след нея,
+     * а имейлите и резултатът се записват във втора кратка транзакция - заключванията на редовете
+     * не чакат генерирането.
+     * @return броя на обработените документи (0 - няма повече или изпращането е отменено)
+     */
+    int prepareChunk(Long runId) {
+        Chunk chunk = transactionTemplate.execute(status -> claimChunk(runId));
+        if (chunk == null) {
+            return 0;
+        }
+        if (chunk.models().isEmpty()) {
+            return chunk.size();
+        }
+
+        Map<Long, String> pdfPaths = new HashMap<>();
+        Map<Long, String> errors = new HashMap<>();
+        chunk.models().forEach((itemId, model) -> {
+            try {
+                pdfPaths.put(itemId, attachmentStorage.storeGenerated(pdfRenderer.render(model)));
+            } catch (RuntimeException e) {
+                errors.put(itemId, e.getMessage());
+            }
+        });
+
+        List<String> unused;
+        try {
+            unused = transactionTemplate.execute(status -> recordChunk(runId, chunk, pdfPaths, errors));
+        } catch (RuntimeException e) {
+            attachmentStorage.delete(pdfPaths.values());
+            throw e;
+        }
+        if (unused != null && !unused.isEmpty()) {
+            attachmentStorage.delete(unused);
+        }
+        return chunk.size();
+    }
+
+    /**
+     * Заявява следващата част от документите и подготвя данните за PDF-ите, докато връзките се четат
+     * @return null, ако няма повече документи или изпращането е отменено
+     */
+    private Chunk claimChunk(Long runId) {
+        MailingRun run = runRepository.findById(runId).orElse(null);
+        if (run == null || !run.isOpen()) {
+            return null;
+        }
+        if (MailingRun.STATUS_PENDING.equals(run.getStatus())) {
+            run.setStatus(MailingRun.STATUS_PREPARING);
+            run.setStartedAt(LocalDateTime.now());
+        }
+
+        // PostgreSQL пази микросекунди - заявката се сравнява по точното време при записа на резултата
+        LocalDateTime claimedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        int released = itemRepository.releaseStale(runId, claimedAt.minusMinutes(staleAfterMinutes));
+        if (released > 0) {
+            logger.warn("Mailing run {}: {} stale documents left in PREPARING returned to the queue", runId, released);
+        }
+
+        List<Long> ids = itemRepository.lockPendingIds(runId, chunkSize);
+        if (ids.isEmpty()) {
+            // Друга инстанция може още да подготвя документи - приключваме, когато няма чакащи и заявени
+            Map<String, Integer> counts = toCounts(itemRepository.countByStatus(runId));
+            if (counts.getOrDefault(MailingRunItem.STATUS_PENDING, 0) == 0
+                    && counts.getOrDefault(MailingRunItem.STATUS_PREPARING, 0) == 0) {
+                run.setStatus(MailingRun.STATUS_QUEUED);
+                run.setPreparedAt(LocalDateTime.now());
+                logger.info("Mailing run {} fully queued", runId);
+            }
+            runRepository.save(run);
+            return null;
+        }
+
+        List<MailingRunItem> items = itemRepository.findAllById(ids);
+        Map<Long, Document> documents = findDocuments(items);
+        Map<Long, DocumentPdfModel> models = new LinkedHashMap<>();
+        for (MailingRunItem item : items) {
+            Document document = documents.get(item.getDocumentId());
+            if (document == null) {
+                item.skip("Документът не е намерен");
+                continue;
+            }
+            models.put(item.getId(), DocumentPdfModel.from(document));
+            item.claim(claimedAt);
+        }
+        itemRepository.saveAll(items);
+        runRepository.save(run);
+        return new Chunk(items.size(), claimedAt, Boolean.TRUE.equals(run.getIncludeUbl()), run.getCreatedBy(), models);
+    }
+
+    /**
+     * Добавя имейлите в outbox-а за документите, които още са заявени от тази част
+     * @return генерираните PDF-и, които не влязоха в имейл (за изтриване)
+     */
+    private List<String> recordChunk(Long runId, Chunk chunk, Map<Long, String> pdfPaths, Map<Long, String> errors) {
+        Set<Long> claimed = new HashSet<>(itemRepository.lockClaimedIds(chunk.models().keySet(), chunk.claimedAt()));
+        List<String> unused = new ArrayList<>();
+        pdfPaths.forEach((itemId, pdfPath) -> {
+            if (!claimed.contains(itemId)) {
+                unused.add(pdfPath);
+            }
+        });
+        if (claimed.isEmpty()) {
+            return unused;
+        }
+
+        List<MailingRunItem> items = itemRepository.findAllById(claimed);
+        Map<Long, Document> documents = findDocuments(items);
+        for (MailingRunItem item : items) {
+            Document document = documents.get(item.getDocumentId());
+            String pdfPath = pdfPaths.get(item.getId());
+            String error = errors.get(item.getId());
+            EmailOutbox entry = null;
+            if (document == null) {
+                error = "Документът не е намерен";
+            } else if (pdfPath != null) {
+                try {
+                    entry = emailComposer.compose(document, item.getRecipientEmail(), pdfPath, chunk.includeUbl());
+                } catch (RuntimeException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (entry == null) {
+                if (pdfPath != null) {
+                    unused.add(pdfPath);
+                }
+                logger.warn("Mailing run {}: document {} skipped: {}", runId, item.getDocumentId(), error);
+                item.skip(error);
+                continue;
+            }
+            entry.setMailingRunId(runId);
+            entry.setCreatedBy(chunk.createdBy());
+            item.setOutboxId(emailOutboxService.enqueue(entry).getId());
+            item.setStatus(MailingRunItem.STATUS_QUEUED);
+        }
+        itemRepository.saveAll(items);
+        return unused;
+    }
+
+    private Map<Long, Document> findDocuments(List<MailingRunItem> items) {
+        return documentRepository.findAllById(items.stream().map(MailingRunItem::getDocumentId).toList()).stream()
+                .collect(Collectors.toMap(Document::getId, Function.identity()));
+    }
+
+    private static Map<String, Integer> toCounts(List<Object[]> rows) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((String) row[0], ((Number) row[1]).intValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Заявените документи от една част: ID на реда -> данни за PDF-а
+     */
+    private record Chunk(int size, LocalDateTime claimedAt, boolean includeUbl, String createdBy,
+                         Map<Long, DocumentPdfModel> models) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.repository.ClientRepository;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.repository.ItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Индекс "обект -> фирма" за проверки на достъп.
+ *
+ * Фирмата на документ, клиент или артикул не се променя след създаването му,
+ * затова съответствието може да се кешира безопасно. При пропуск в кеша се прави
+ * една скаларна заявка (само company_id), без да се зарежда целият обект.
+ * Липсващи обекти не се кешират. Клиенти и артикули се изтриват от кеша при изтриване;
+ * документи не се изтриват и не сменят фирмата си, затова за тях няма такъв метод.
+ */
+@Component
+public class OwnershipIndex {
+
+    private final DocumentRepository documentRepository;
+    private final ClientRepository clientRepository;
+    private final ItemRepository itemRepository;
+
+    private final Map<Long, Long> documentCompanies;
+    private final Map<Long, Long> clientCompanies;
+    private final Map<Long, Long> itemCompanies;
+
+    public OwnershipIndex(DocumentRepository documentRepository,
+                          ClientRepository clientRepository,
+                          ItemRepository itemRepository,
+                          @Value("${security.ownership-cache.max-entries:10000}") int maxEntries) {
+        this.documentRepository = documentRepository;
+        this.clientRepository = clientRepository;
+        this.itemRepository = itemRepository;
+        this.documentCompanies = boundedMap(maxEntries);
+        this.clientCompanies = boundedMap(maxEntries);
+        this.itemCompanies = boundedMap(maxEntries);
+    }
+
+    /**
+     * Връща ID на фирмата, към която принадлежи документът
+     */
+    public Optional<Long> documentCompanyId(Long documentId) {
+        return lookup(documentCompanies, documentId, documentRepository::findCompanyIdById);
+    }
+
+    /**
+     * Връща ID на фирмата, към която принадлежи клиентът
+     */
+    public Optional<Long> clientCompanyId(Long clientId) {
+        return lookup(clientCompanies, clientId, clientRepository::findCompanyIdById);
+    }
+
+    /**
+     * Връща ID на фирмата, към която принадлежи артикулът
+     */
+    public Optional<Long> itemCompanyId(Long itemId) {
+        return lookup(itemCompanies, itemId, itemRepository::findCompanyIdById);
+    }
+
+    public void evictClient(Long clientId) {
+        clientCompanies.remove(clientId);
+    }
+
+    public void evictItem(Long itemId) {
+        itemCompanies.remove(itemId);
+    }
+
+    private Optional<Long> lookup(Map<Long, Long> cache, Long id, Function<Long, Optional<Long>> loader) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Long companyId = cache.get(id);
+        if (companyId != null) {
+            return Optional.of(companyId);
+        }
+        Optional<Long> loaded = loader.apply(id);
+        loaded.ifPresent(value -> cache.put(id, value));
+        return loaded;
+    }
+
+    private static Map<Long, Long> boundedMap(int maxEntries) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+}
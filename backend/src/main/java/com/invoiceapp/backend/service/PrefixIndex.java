@@ -0,0 +1,240 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.dto.AutocompleteEntry;
+import com.invoiceapp.backend.util.SearchTerms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Префиксен индекс по думи за autocomplete на артикулите или клиентите на една фирма.
+ *
+ * Думите (нормализирани с SearchTerms.normalize, плюс номерата/ЕИК/ДДС номерата цели) са в сортиран
+ * масив с паралелен int масив от слотове на записите - префиксът е двоично търсене и последователно
+ * четене. Новите думи отиват в малък несортиран буфер, а изтритите записи оставят празен слот;
+ * когато буферът или празните слотове се натрупат, масивите се построяват наново.
+ * Не е thread-safe - AutocompleteIndex синхронизира достъпа.
+ */
+class PrefixIndex {
+
+    private static final int MAX_PENDING = 512;
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingInt(Candidate::rank)
+            .thenComparing(candidate -> !candidate.entry().active())
+            .thenComparing(candidate -> candidate.entry().name(), Comparator.nullsLast(String::compareTo));
+
+    private AutocompleteEntry[] entries = new AutocompleteEntry[16];
+    private int slotCount;
+    private int liveCount;
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+
+    private String[] tokens = new String[0];
+    private int[] tokenSlots = new int[0];
+
+    private final List<String> pendingTokens = new ArrayList<>();
+    private int[] pendingSlots = new int[MAX_PENDING];
+
+    private record Candidate(
+        AutocompleteEntry entry,
+        int rank
+    ) {}
+
+    /**
+     * Заменя съдържанието на индекса
+     */
+    void load(Collection<AutocompleteEntry> loaded) {
+        entries = new AutocompleteEntry[Math.max(16, loaded.size())];
+        slotCount = 0;
+        liveCount = 0;
+        slotsById.clear();
+        for (AutocompleteEntry entry : loaded) {
+            slotsById.put(entry.id(), slotCount);
+            entries[slotCount++] = entry;
+            liveCount++;
+        }
+        compact();
+    }
+
+    /**
+     * Добавя или обновява запис
+     */
+    void put(AutocompleteEntry entry) {
+        remove(entry.id());
+        if (slotCount == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        int slot = slotCount++;
+        entries[slot] = entry;
+        slotsById.put(entry.id(), slot);
+        liveCount++;
+
+        Set<String> entryTokens = tokensOf(entry);
+        if (pendingTokens.size() + entryTokens.size() > MAX_PENDING) {
+            compact();
+            return;
+        }
+        for (String token : entryTokens) {
+            pendingSlots[pendingTokens.size()] = slot;
+            pendingTokens.add(token);
+        }
+    }
+
+    void remove(Long id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        entries[slot] = null;
+        liveCount--;
+        if (slotCount - liveCount > 64 && slotCount - liveCount > liveCount / 4) {
+            compact();
+        }
+    }
+
+    int size() {
+        return liveCount;
+    }
+
+    /**
+     * Записите, в които всяка дума от заявката е начало на някоя тяхна дума.
+     * Подредба: точен номер/ЕИК/ДДС номер, номер/ЕИК/ДДС номер с това начало, име с това начало, останалите;
+     * активните преди неактивните, после по име.
+     */
+    List<AutocompleteEntry> search(String query, int limit) {
+        String[] queryTokens = SearchTerms.tokens(query);
+        if (queryTokens.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        BitSet matches = slotsWithPrefix(queryTokens[0]);
+        for (int i = 1; i < queryTokens.length; i++) {
+            matches.and(slotsWithPrefix(queryTokens[i]));
+        }
+        String whole = SearchTerms.normalize(query.trim());
+        if (queryTokens.length > 1 && whole.indexOf(' ') < 0) {
+            // "a-1" намира и номера "A-100" като цяла дума
+            matches.or(slotsWithPrefix(whole));
+        }
+
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            AutocompleteEntry entry = entries[slot];
+            if (entry != null) {
+                best.add(new Candidate(entry, rank(entry, whole)));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.stream().map(Candidate::entry).toList();
+    }
+
+    private BitSet slotsWithPrefix(String prefix) {
+        BitSet slots = new BitSet(slotCount);
+        for (int i = lowerBound(prefix); i < tokens.length && tokens[i].startsWith(prefix); i++) {
+            slots.set(tokenSlots[i]);
+        }
+        for (int j = 0; j < pendingTokens.size(); j++) {
+            if (pendingTokens.get(j).startsWith(prefix)) {
+                slots.set(pendingSlots[j]);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Първият индекс с дума >= prefix. Думите се повтарят (по една на запис), а binarySearch
+     * връща произволен индекс от поредица равни думи.
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tokens[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int rank(AutocompleteEntry entry, String query) {
+        String code = entry.code() != null ? SearchTerms.normalize(entry.code().trim()) : "";
+        String vatNumber = entry.vatNumber() != null ? SearchTerms.normalize(entry.vatNumber().trim()) : "";
+        if (code.equals(query) || vatNumber.equals(query)) {
+            return 0;
+        }
+        if ((!code.isEmpty() && code.startsWith(query)) || (!vatNumber.isEmpty() && vatNumber.startsWith(query))) {
+            return 1;
+        }
+        return entry.name() != null && SearchTerms.normalize(entry.name()).startsWith(query) ? 2 : 3;
+    }
+
+    private static Set<String> tokensOf(AutocompleteEntry entry) {
+        Set<String> entryTokens = new LinkedHashSet<>();
+        for (String text : new String[] {entry.code(), entry.name(), entry.nameEn(), entry.vatNumber()}) {
+            if (text != null) {
+                entryTokens.addAll(Arrays.asList(SearchTerms.tokens(text)));
+            }
+        }
+        for (String code : new String[] {entry.code(), entry.vatNumber()}) {
+            if (code != null && !code.isBlank()) {
+                entryTokens.add(SearchTerms.normalize(code.trim()));
+            }
+        }
+        return entryTokens;
+    }
+
+    // Преномерира живите записи и построява наново сортирания масив от думи
+    private void compact() {
+        AutocompleteEntry[] live = new AutocompleteEntry[Math.max(16, liveCount)];
+        List<String> postingTokens = new ArrayList<>();
+        int[] postingSlots = new int[Math.max(16, liveCount * 4)];
+        int count = 0;
+        slotsById.clear();
+        for (int slot = 0; slot < slotCount; slot++) {
+            AutocompleteEntry entry = entries[slot];
+            if (entry == null) {
+                continue;
+            }
+            live[count] = entry;
+            slotsById.put(entry.id(), count);
+            for (String token : tokensOf(entry)) {
+                if (postingTokens.size() == postingSlots.length) {
+                    postingSlots = Arrays.copyOf(postingSlots, postingSlots.length * 2);
+                }
+                postingSlots[postingTokens.size()] = count;
+                postingTokens.add(token);
+            }
+            count++;
+        }
+
+        Integer[] order = new Integer[postingTokens.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparing(postingTokens::get));
+        tokens = new String[order.length];
+        tokenSlots = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            tokens[i] = postingTokens.get(order[i]);
+            tokenSlots[i] = postingSlots[order[i]];
+        }
+
+        entries = live;
+        slotCount = count;
+        liveCount = count;
+        pendingTokens.clear();
+    }
+}
@@ -0,0 +1,63 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.config.CurrencyConfiguration;
+import com.invoiceapp.backend.model.dto.AgingBuckets;
+import com.invoiceapp.backend.model.dto.ClientAging;
+import com.invoiceapp.backend.model.dto.ReceivablesAging;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вземания: неплатените документи на фирма, групирани по клиент и дни просрочие.
+ *
+ * Неплатен е приключен данъчен документ без дата на плащане, който не е анулиран и не е
+ * платен в брой или с карта (DocumentRepository.OPEN_DOCUMENT). Кредитните известия са
+ * с отрицателни суми и намаляват вземането от клиента. Сумите са в базова валута,
+ * така както са записани при издаването на документите.
+ */
+@Service
+@Transactional(readOnly = true)
+public class ReceivablesService {
+
+    private final DocumentRepository documentRepository;
+    private final CurrencyConfiguration currencyConfig;
+
+    public ReceivablesService(DocumentRepository documentRepository, CurrencyConfiguration currencyConfig) {
+        this.documentRepository = documentRepository;
+        this.currencyConfig = currencyConfig;
+    }
+
+    /**
+     * @param asOf дата на справката във формат yyyy-MM-dd; по подразбиране днес
+     */
+    public ReceivablesAging aging(Long companyId, String asOf) {
+        LocalDate date;
+        try {
+            date = asOf == null || asOf.isBlank() ? LocalDate.now() : LocalDate.parse(asOf.trim());
+        } catch (DateTimeParseException e) {
+            throw new RuntimeException("Невалидна дата: " + asOf + " (очаква се yyyy-MM-dd)");
+        }
+
+        List<ClientAging> clients = new ArrayList<>();
+        AgingBuckets totals = AgingBuckets.ZERO;
+        for (Object[] row : documentRepository.receivablesAgingByClient(companyId, date)) {
+            AgingBuckets buckets = new AgingBuckets(amount(row[3]), amount(row[4]), amount(row[5]),
+                    amount(row[6]), amount(row[7]), amount(row[8]));
+            clients.add(new ClientAging(((Number) row[0]).longValue(), (String) row[1],
+                    ((Number) row[2]).intValue(), buckets));
+            totals = totals.plus(buckets);
+        }
+        return new ReceivablesAging(date.toString(), currencyConfig.getBaseCurrency(), clients, totals);
+    }
+
+    private static BigDecimal amount(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
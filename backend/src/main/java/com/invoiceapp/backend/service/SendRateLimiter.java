@@ -0,0 +1,103 @@
+package com.invoiceapp.backend.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Ограничава скоростта на изпращане на имейли (token bucket).
+ *
+ * Прилагат се два лимита: на SMTP доставчика (SmtpSettings.maxMessagesPerMinute)
+ * и на фирма (email.outbox.company-messages-per-minute), така че масовото изпращане
+ * на една фирма не блокира имейлите на останалите.
+ */
+@Component
+public class SendRateLimiter {
+
+    private static final String PROVIDER_KEY = "provider";
+    private static final double MILLIS_PER_MINUTE = 60_000d;
+
+    private final int companyMessagesPerMinute;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    @Autowired
+    public SendRateLimiter(@Value("${email.outbox.company-messages-per-minute:0}") int companyMessagesPerMinute) {
+        this(companyMessagesPerMinute, System::currentTimeMillis);
+    }
+
+    SendRateLimiter(int companyMessagesPerMinute, LongSupplier clock) {
+        this.companyMessagesPerMinute = companyMessagesPerMinute;
+        this.clock = clock;
+    }
+
+    /**
+     * Заема място за едно съобщение, ако и двата лимита позволяват
+     * @param companyId фирмата на имейла (null - само лимит на доставчика)
+     * @param providerMessagesPerMinute лимит на доставчика (null или 0 - без лимит)
+     * @return 0 ако съобщението може да се изпрати, иначе милисекунди до следващото свободно място
+     */
+    public synchronized long tryAcquire(Long companyId, Integer providerMessagesPerMinute) {
+        long now = clock.getAsLong();
+        Bucket provider = bucket(PROVIDER_KEY, providerMessagesPerMinute, now);
+        Bucket company = companyId != null ? bucket("company:" + companyId, companyMessagesPerMinute, now) : null;
+
+        long wait = Math.max(waitMillis(provider), waitMillis(company));
+        if (wait > 0) {
+            return wait;
+        }
+        if (provider != null) {
+            provider.tokens -= 1;
+        }
+        if (company != null) {
+            company.tokens -= 1;
+        }
+        return 0;
+    }
+
+    private Bucket bucket(String key, Integer perMinute, long now) {
+        if (perMinute == null || perMinute <= 0) {
+            buckets.remove(key);
+            return null;
+        }
+        Bucket bucket = buckets.get(key);
+        if (bucket == null || bucket.perMinute != perMinute) {
+            // Нов лимит - запазваме вече изразходваното, но не повече от новия капацитет
+            double tokens = bucket == null ? perMinute : Math.min(bucket.tokens, perMinute);
+            bucket = new Bucket(perMinute, tokens, now);
+            buckets.put(key, bucket);
+        }
+        bucket.refill(now);
+        return bucket;
+    }
+
+    private static long waitMillis(Bucket bucket) {
+        if (bucket == null || bucket.tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - bucket.tokens) * MILLIS_PER_MINUTE / bucket.perMinute);
+    }
+
+    private static final class Bucket {
+        private final int perMinute;
+        private double tokens;
+        private long lastRefill;
+
+        private Bucket(int perMinute, double tokens, long now) {
+            this.perMinute = perMinute;
+            this.tokens = tokens;
+            this.lastRefill = now;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(perMinute, tokens + (now - lastRefill) * perMinute / MILLIS_PER_MINUTE);
+                lastRefill = now;
+            }
+        }
+    }
+}
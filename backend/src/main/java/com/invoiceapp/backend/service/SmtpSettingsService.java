@@ -57,6 +57,7 @@ public class SmtpSettingsService {
             settings.setUseSsl(request.getUseSsl() != null ? request.getUseSsl() : false);
             settings.setSmtpAuth(request.getSmtpAuth() != null ? request.getSmtpAuth() : true);
             settings.setProviderName(request.getProviderName());
+            settings.setMaxMessagesPerMinute(normalizeRateLimit(request.getMaxMessagesPerMinute()));
             settings.setIsActive(true);
 
             SmtpSettings savedSettings = smtpSettingsRepository.save(settings);
@@ -111,6 +112,9 @@ public class SmtpSettingsService {
             if (request.getProviderName() != null) {
                 settings.setProviderName(request.getProviderName());
             }
+            if (request.getMaxMessagesPerMinute() != null) {
+                settings.setMaxMessagesPerMinute(normalizeRateLimit(request.getMaxMessagesPerMinute()));
+            }
             if (request.getIsActive() != null) {
                 settings.setIsActive(request.getIsActive());
             }
@@ -286,6 +290,13 @@ public class SmtpSettingsService {
         }
     }
 
+    /**
+     * Лимит за изпращане: 0 или отрицателна стойност означава без лимит
+     */
+    private Integer normalizeRateLimit(Integer maxMessagesPerMinute) {
+        return maxMessagesPerMinute != null && maxMessagesPerMinute > 0 ? maxMessagesPerMinute : null;
+    }
+
     // DTOs
     public static class CreateSmtpSettingsRequest {
         private String smtpHost;
@@ -298,6 +309,7 @@ public class SmtpSettingsService {
         private Boolean useSsl;
         private Boolean smtpAuth;
         private String providerName;
+        private Integer maxMessagesPerMinute;
 
         // Getters and setters
         public String getSmtpHost() { return smtpHost; }
@@ -329,6 +341,9 @@ public class SmtpSettingsService {
 
         public String getProviderName() { return providerName; }
         public void setProviderName(String providerName) { this.providerName = providerName; }
+
+        public Integer getMaxMessagesPerMinute() { return maxMessagesPerMinute; }
+        public void setMaxMessagesPerMinute(Integer maxMessagesPerMinute) { this.maxMessagesPerMinute = maxMessagesPerMinute; }
     }
 
     public static class UpdateSmtpSettingsRequest {
@@ -342,6 +357,7 @@ public class SmtpSettingsService {
         private Boolean useSsl;
         private Boolean smtpAuth;
         private String providerName;
+        private Integer maxMessagesPerMinute;
         private Boolean isActive;
 
         // Getters and setters
@@ -375,6 +391,9 @@ public class SmtpSettingsService {
         public String getProviderName() { return providerName; }
         public void setProviderName(String providerName) { this.providerName = providerName; }
 
+        public Integer getMaxMessagesPerMinute() { return maxMessagesPerMinute; }
+        public void setMaxMessagesPerMinute(Integer maxMessagesPerMinute) { this.maxMessagesPerMinute = maxMessagesPerMinute; }
+
         public Boolean getIsActive() { return isActive; }
         public void setIsActive(Boolean isActive) { this.isActive = isActive; }
     }
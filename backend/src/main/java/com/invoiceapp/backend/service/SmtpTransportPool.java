@@ -0,0 +1,236 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
+import com.invoiceapp.backend.model.SmtpSettings;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Пул от автентикирани SMTP връзки.
+ *
+ * Сесията и дешифрираната парола се кешират за текущата версия на SMTP настройките
+ * (ID + updatedAt), така че EncryptionService се вика само при промяна на настройките.
+ * Връзките се преизползват между изпращанията и се затварят след период на неактивност.
+ */
+@Component
+public class SmtpTransportPool implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final EncryptionService encryptionService;
+    private final IntegrationMetrics integrationMetrics;
+    private final long maxIdleMillis;
+    private final Semaphore permits;
+
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+    private String settingsKey;
+    private Session session;
+    private String password;
+
+    public SmtpTransportPool(EncryptionService encryptionService,
+                             IntegrationMetrics integrationMetrics,
+                             @Value("${email.smtp.pool-size:2}") int poolSize,
+                             @Value("${email.smtp.max-idle-ms:30000}") long maxIdleMillis) {
+        this.encryptionService = encryptionService;
+        this.integrationMetrics = integrationMetrics;
+        this.maxIdleMillis = maxIdleMillis;
+        this.permits = new Semaphore(poolSize, true);
+    }
+
+    /**
+     * Създава празно съобщение в сесията за дадените настройки
+     */
+    public MimeMessage createMimeMessage(SmtpSettings settings) {
+        return new MimeMessage(session(settings));
+    }
+
+    /**
+     * Изпраща съобщенията през една връзка от пула
+     * @return грешките по индекс на съобщението (празно при пълен успех)
+     * @throws MessagingException ако не може да се установи връзка със сървъра
+     */
+    public Map<Integer, Exception> send(SmtpSettings settings, List<MimeMessage> messages) throws MessagingException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for an SMTP connection", e);
+        }
+
+        PooledTransport pooled = null;
+        try {
+            pooled = borrow(settings);
+            Map<Integer, Exception> failures = new HashMap<>();
+            for (int i = 0; i < messages.size(); i++) {
+                MimeMessage message = messages.get(i);
+                try {
+                    if (!pooled.transport.isConnected()) {
+                        connect(pooled);
+                    }
+                    message.saveChanges();
+                    sendMessage(pooled, message);
+                } catch (SendFailedException e) {
+                    // Отказан получател - връзката остава използваема
+                    failures.put(i, e);
+                } catch (MessagingException e) {
+                    failures.put(i, e);
+                    pooled.close();
+                }
+            }
+            return failures;
+        } finally {
+            if (pooled != null) {
+                release(pooled);
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * Затваря връзките, неизползвани по-дълго от max-idle
+     */
+    @Scheduled(fixedDelayString = "${email.smtp.max-idle-ms:30000}")
+    public void evictIdle() {
+        List<PooledTransport> expired = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            idle.removeIf(pooled -> {
+                if (now - pooled.lastUsed > maxIdleMillis) {
+                    expired.add(pooled);
+                    return true;
+                }
+                return false;
+            });
+        }
+        expired.forEach(PooledTransport::close);
+    }
+
+    @Override
+    public void destroy() {
+        closeIdle();
+    }
+
+    private synchronized Session session(SmtpSettings settings) {
+        String key = settings.getId() + ":" + settings.getUpdatedAt();
+        if (!key.equals(settingsKey)) {
+            closeIdleLocked();
+            this.session = Session.getInstance(buildProperties(settings));
+            this.password = encryptionService.decrypt(settings.getSmtpPassword());
+            this.settingsKey = key;
+            logger.info("SMTP session initialized for {}:{}", settings.getSmtpHost(), settings.getSmtpPort());
+        }
+        return session;
+    }
+
+    private PooledTransport borrow(SmtpSettings settings) throws MessagingException {
+        PooledTransport pooled;
+        synchronized (this) {
+            Session current = session(settings);
+            pooled = idle.pollFirst();
+            if (pooled == null) {
+                // Без автентикация не подаваме данни за вход - иначе Angus Mail праща AUTH
+                boolean auth = Boolean.TRUE.equals(settings.getSmtpAuth());
+                pooled = new PooledTransport(current.getTransport("smtp"), settingsKey,
+                        settings.getSmtpHost(), settings.getSmtpPort(),
+                        auth ? settings.getSmtpUsername() : null, auth ? password : null);
+            }
+        }
+        if (!pooled.transport.isConnected()) {
+            connect(pooled);
+        }
+        return pooled;
+    }
+
+    private void connect(PooledTransport pooled) throws MessagingException {
+        integrationMetrics.run("smtp", "connect", pooled::connect);
+    }
+
+    private void sendMessage(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        integrationMetrics.run("smtp", "sendMessage",
+                () -> pooled.transport.sendMessage(message, message.getAllRecipients()));
+    }
+
+    private void release(PooledTransport pooled) {
+        synchronized (this) {
+            if (pooled.settingsKey.equals(settingsKey) && pooled.transport.isConnected()) {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.addFirst(pooled);
+                return;
+            }
+        }
+        pooled.close();
+    }
+
+    private void closeIdle() {
+        synchronized (this) {
+            closeIdleLocked();
+        }
+    }
+
+    private void closeIdleLocked() {
+        PooledTransport pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.close();
+        }
+    }
+
+    private Properties buildProperties(SmtpSettings settings) {
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", "smtp");
+        props.put("mail.smtp.host", settings.getSmtpHost());
+        props.put("mail.smtp.port", String.valueOf(settings.getSmtpPort()));
+        props.put("mail.smtp.auth", settings.getSmtpAuth().toString());
+        props.put("mail.smtp.starttls.enable", settings.getUseTls().toString());
+        props.put("mail.smtp.ssl.enable", settings.getUseSsl().toString());
+
+        // Timeout настройки
+        props.put("mail.smtp.connectiontimeout", "10000"); // 10 seconds
+        props.put("mail.smtp.timeout", "10000");
+        props.put("mail.smtp.writetimeout", "10000");
+        return props;
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private final String settingsKey;
+        private final String host;
+        private final int port;
+        private final String username;
+        private final String password;
+        private long lastUsed = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport, String settingsKey,
+                                String host, int port, String username, String password) {
+            this.transport = transport;
+            this.settingsKey = settingsKey;
+            this.host = host;
+            this.port = port;
+            this.username = username;
+            this.password = password;
+        }
+
+        private void connect() throws MessagingException {
+            transport.connect(host, port, username, password);
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.debug("Failed to close SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.invoiceapp.backend.service;
 
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.RestClientException;
@@ -24,6 +25,7 @@ public class ViesService {
 
     private static final Logger logger = LoggerFactory.getLogger(ViesService.class);
     private final RestTemplate restTemplate;
+    private final IntegrationMetrics integrationMetrics;
     
     // VIES API endpoints
     private static final String VIES_API_URL = "https://ec.europa.eu/taxation_customs/vies/rest-api/ms/{countryCode}/vat/{vatNumber}";
@@ -38,8 +40,9 @@ public class ViesService {
     @Value("${vies.enabled:true}")
     private boolean viesEnabled;
 
-    public ViesService(RestTemplate restTemplate) {
+    public ViesService(RestTemplate restTemplate, IntegrationMetrics integrationMetrics) {
         this.restTemplate = restTemplate;
+        this.integrationMetrics = integrationMetrics;
     }
 
     /**
@@ -140,7 +143,8 @@ public class ViesService {
             .replace("{vatNumber}", number);
 
         try {
-            ViesApiResponse response = restTemplate.getForObject(url, ViesApiResponse.class);
+            ViesApiResponse response = integrationMetrics.call("vies", "checkVatNumber",
+                    () -> restTemplate.getForObject(url, ViesApiResponse.class));
             
             if (response != null) {
                 return ViesValidationResult.success(
@@ -0,0 +1,49 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+/**
+ * Contents of a DIRECTORY backup: every file written by pg_dump -Fd with its S3 key,
+ * size and MD5. Stored as JSON in BackupHistory.manifest and next to the files in S3.
+ */
+public record BackupManifest(
+    String databaseName,
+    int jobs,
+    List<FileEntry> files
+) {
+
+    public static final String FILE_NAME = "manifest.json";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public record FileEntry(
+        String name,
+        String s3Key,
+        long sizeBytes,
+        String md5
+    ) {
+    }
+
+    public long totalSizeBytes() {
+        return files.stream().mapToLong(FileEntry::sizeBytes).sum();
+    }
+
+    public String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize backup manifest", e);
+        }
+    }
+
+    public static BackupManifest fromJson(String json) {
+        try {
+            return MAPPER.readValue(json, BackupManifest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid backup manifest: " + e.getOriginalMessage(), e);
+        }
+    }
+}
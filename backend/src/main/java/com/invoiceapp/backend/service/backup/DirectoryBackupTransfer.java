@@ -0,0 +1,248 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Moves pg_dump directory-format backups (-Fd) between the local disk and S3.
+ *
+ * While pg_dump -j N is still running, every table data file is uploaded as soon as pg_dump
+ * reports it finished ("finished item N TABLE DATA" in verbose mode) and is then deleted
+ * locally, so uploads overlap with the dump and the local disk only holds files in flight.
+ * Whatever is left when pg_dump exits (toc.dat, large objects) is uploaded last. Restore
+ * downloads the files in parallel and checks every MD5 against the manifest.
+ *
+ * On failure nothing is cleaned up in S3 - the caller deletes everything under the key prefix.
+ */
+public class DirectoryBackupTransfer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryBackupTransfer.class);
+
+    private static final Pattern FINISHED_TABLE_DATA = Pattern.compile("finished item (\\d+) TABLE DATA");
+    private static final int MAX_ERROR_OUTPUT = 16 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final int parallelism;
+    private final int partSize;
+
+    public DirectoryBackupTransfer(S3Client s3Client, String bucket, int parallelism, int partSize) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.parallelism = Math.max(1, parallelism);
+        this.partSize = partSize;
+    }
+
+    /**
+     * Starts pg_dump (which must write a verbose -Fd dump into {@code directory}) and uploads its
+     * files under {@code keyPrefix} while it runs
+     * @return the manifest, already uploaded as manifest.json
+     */
+    public BackupManifest dumpAndUpload(ProcessBuilder pgDump, Path directory, String keyPrefix,
+                                       String databaseName, int jobs) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, namedThreadFactory("backup-file-upload-"));
+        Map<String, Future<BackupManifest.FileEntry>> uploads = new ConcurrentHashMap<>();
+        StringBuilder errorOutput = new StringBuilder();
+        Process process = pgDump.start();
+        try {
+            Thread stderrReader = new Thread(() -> readDumpOutput(process, directory, keyPrefix, executor, uploads, errorOutput),
+                    "pg-dump-stderr");
+            stderrReader.setDaemon(true);
+            stderrReader.start();
+
+            int exitCode = process.waitFor();
+            stderrReader.join();
+            if (exitCode != 0) {
+                throw new RuntimeException("pg_dump failed with exit code: " + exitCode + ". Output: " + errorOutput);
+            }
+
+            // toc.dat, large objects and anything the log did not announce
+            try (Stream<Path> remaining = Files.list(directory)) {
+                remaining.filter(Files::isRegularFile)
+                        .forEach(file -> submitUpload(file, keyPrefix, executor, uploads));
+            }
+
+            List<BackupManifest.FileEntry> files = new ArrayList<>(uploads.size());
+            for (Future<BackupManifest.FileEntry> upload : uploads.values()) {
+                files.add(upload.get());
+            }
+            files.sort(Comparator.comparing(BackupManifest.FileEntry::name));
+
+            BackupManifest manifest = new BackupManifest(databaseName, jobs, List.copyOf(files));
+            s3Client.putObject(PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(keyPrefix + BackupManifest.FILE_NAME)
+                            .contentType("application/json")
+                            .build(),
+                    RequestBody.fromString(manifest.toJson(), StandardCharsets.UTF_8));
+            logger.info("Uploaded {} backup files ({} bytes) to s3://{}/{}",
+                    files.size(), manifest.totalSizeBytes(), bucket, keyPrefix);
+            return manifest;
+        } catch (ExecutionException e) {
+            process.destroy();
+            Throwable cause = e.getCause();
+            throw new IOException("Backup file upload failed: " + cause.getMessage(), cause);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            process.destroy();
+            throw e;
+        } finally {
+            // Let running uploads stop before the caller removes what was already uploaded
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Downloads all files of the manifest into {@code directory} in parallel, verifying each MD5
+     * @throws IllegalStateException if a file does not match its checksum
+     */
+    public void download(BackupManifest manifest, Path directory) throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, namedThreadFactory("backup-file-download-"));
+        try {
+            List<Future<?>> downloads = new ArrayList<>();
+            for (BackupManifest.FileEntry file : manifest.files()) {
+                downloads.add(executor.submit(() -> {
+                    downloadFile(file, directory);
+                    return null;
+                }));
+            }
+            for (Future<?> download : downloads) {
+                download.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException("Backup file download failed: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void readDumpOutput(Process process, Path directory, String keyPrefix, ExecutorService executor,
+                                Map<String, Future<BackupManifest.FileEntry>> uploads, StringBuilder errorOutput) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                logger.debug("pg_dump: {}", line);
+                Matcher matcher = FINISHED_TABLE_DATA.matcher(line);
+                if (matcher.find()) {
+                    try {
+                        uploadDataFiles(directory, matcher.group(1), keyPrefix, executor, uploads);
+                    } catch (IOException | RejectedExecutionException e) {
+                        // The file is picked up again after pg_dump exits
+                        logger.warn("Could not start upload of dump item {}: {}", matcher.group(1), e.getMessage());
+                    }
+                } else {
+                    appendTail(errorOutput, line);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("pg_dump stderr closed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Verbose output is long - keep only the tail, where pg_dump reports the error
+     */
+    private static void appendTail(StringBuilder output, String line) {
+        output.append(line).append("\n");
+        if (output.length() > MAX_ERROR_OUTPUT) {
+            output.delete(0, output.length() - MAX_ERROR_OUTPUT);
+        }
+    }
+
+    /**
+     * Table data is written as <dumpId>.dat with the compression suffix (.gz, .lz4, .zst)
+     */
+    private void uploadDataFiles(Path directory, String dumpId, String keyPrefix, ExecutorService executor,
+                                 Map<String, Future<BackupManifest.FileEntry>> uploads) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(dumpId + ".dat"))
+                    .forEach(file -> submitUpload(file, keyPrefix, executor, uploads));
+        }
+    }
+
+    private void submitUpload(Path file, String keyPrefix, ExecutorService executor,
+                              Map<String, Future<BackupManifest.FileEntry>> uploads) {
+        uploads.computeIfAbsent(file.getFileName().toString(),
+                name -> executor.submit(() -> uploadFile(file, keyPrefix + name)));
+    }
+
+    private BackupManifest.FileEntry uploadFile(Path file, String key) throws IOException {
+        MessageDigest md5 = newMd5();
+        long size = Files.size(file);
+        try (InputStream in = new DigestInputStream(new BufferedInputStream(Files.newInputStream(file)), md5)) {
+            if (size <= partSize) {
+                s3Client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(),
+                        RequestBody.fromBytes(in.readAllBytes()));
+            } else {
+                S3MultipartOutputStream out = new S3MultipartOutputStream(s3Client, bucket, key,
+                        "application/octet-stream", partSize, 2);
+                try {
+                    in.transferTo(out);
+                } catch (IOException | RuntimeException e) {
+                    out.abort();
+                    throw e;
+                }
+                out.close();
+            }
+        }
+        // pg_dump is done with the file - free the local disk while the dump continues
+        Files.delete(file);
+        return new BackupManifest.FileEntry(file.getFileName().toString(), key, size, HexFormat.of().formatHex(md5.digest()));
+    }
+
+    private void downloadFile(BackupManifest.FileEntry file, Path directory) throws IOException {
+        Path target = directory.resolve(file.name()).normalize();
+        if (!target.getParent().equals(directory.normalize())) {
+            throw new IllegalArgumentException("Invalid file name in backup manifest: " + file.name());
+        }
+        MessageDigest md5 = newMd5();
+        try (InputStream in = new DigestInputStream(
+                s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(file.s3Key()).build()), md5)) {
+            Files.copy(in, target);
+        }
+        String actual = HexFormat.of().formatHex(md5.digest());
+        if (!actual.equalsIgnoreCase(file.md5())) {
+            throw new IllegalStateException("Checksum mismatch for backup file " + file.name()
+                    + ": expected " + file.md5() + ", got " + actual);
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,266 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * The rows of an INCREMENTAL backup as NDJSON - one JSON object per line, written in
+ * foreign key order:
+ * <pre>
+ * {"table":"clients","ids":[1,2,5]}            every id that still exists; others are deleted on replay
+ * {"table":"clients","row":{...}}              a row updated after the watermark (row_to_json), upserted
+ * {"table":"document_items","documentIds":[7]} lines of these documents are replaced by the rows that follow
+ * </pre>
+ * Only rows with updated_at after the watermark are exported, so the size follows the daily
+ * activity. The id lists cover clients, items and number sequences, which can be deleted;
+ * documents are never deleted and their lines are replaced per changed document.
+ * Replaying is idempotent, so overlapping watermarks are harmless.
+ */
+public final class IncrementalChanges {
+
+    public static final List<String> TABLES = List.of(
+            "clients", "items", "documents", "document_items", "document_number_sequences");
+
+    /**
+     * Tables whose counts must match after the chain is replayed: the exported ones plus the
+     * reference tables they point to
+     */
+    public static final List<String> COUNTED_TABLES = List.of(
+            "clients", "items", "documents", "document_items", "document_number_sequences",
+            "companies", "currencies", "payment_methods", "bank_accounts", "vat_exemption_reasons");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int FETCH_SIZE = 1000;
+    private static final int BATCH_SIZE = 500;
+
+    private IncrementalChanges() {
+    }
+
+    /**
+     * Writes the changes since {@code since}. Run it in one REPEATABLE READ transaction so all
+     * tables come from the same snapshot.
+     * @return rows exported per table
+     */
+    public static Map<String, Long> export(Connection connection, LocalDateTime since, Writer out)
+            throws SQLException, IOException {
+        Map<String, Long> exported = new LinkedHashMap<>();
+        Timestamp watermark = Timestamp.valueOf(since);
+
+        writeIds(connection, "clients", out);
+        exported.put("clients", writeRows(connection, "clients",
+                "SELECT row_to_json(t)::text FROM clients t WHERE t.updated_at > ? ORDER BY t.id", watermark, out));
+
+        writeIds(connection, "items", out);
+        exported.put("items", writeRows(connection, "items",
+                "SELECT row_to_json(t)::text FROM items t WHERE t.updated_at > ? ORDER BY t.id", watermark, out));
+
+        List<Long> documentIds = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT t.id, row_to_json(t)::text FROM documents t WHERE t.updated_at > ? ORDER BY t.id")) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setTimestamp(1, watermark);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    documentIds.add(rs.getLong(1));
+                    writeRow(out, "documents", rs.getString(2));
+                }
+            }
+        }
+        exported.put("documents", (long) documentIds.size());
+
+        out.write("{\"table\":\"document_items\",\"documentIds\":" + MAPPER.writeValueAsString(documentIds) + "}\n");
+        exported.put("document_items", writeRows(connection, "document_items",
+                "SELECT row_to_json(t)::text FROM document_items t JOIN documents d ON d.id = t.document_id"
+                        + " WHERE d.updated_at > ? ORDER BY t.id", watermark, out));
+
+        // A handful of rows per company - always exported whole
+        writeIds(connection, "document_number_sequences", out);
+        exported.put("document_number_sequences", writeRows(connection, "document_number_sequences",
+                "SELECT row_to_json(t)::text FROM document_number_sequences t ORDER BY t.id", null, out));
+        return exported;
+    }
+
+    /**
+     * Applies an increment to a restored database. The caller owns the transaction.
+     * @return rows upserted per table
+     */
+    public static Map<String, Long> replay(BufferedReader in, Connection connection) throws SQLException, IOException {
+        Replay replay = new Replay(connection);
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!line.isBlank()) {
+                replay.apply(MAPPER.readTree(line));
+            }
+        }
+        replay.finish();
+        return replay.applied;
+    }
+
+    private static void writeIds(Connection connection, String table, Writer out) throws SQLException, IOException {
+        out.write("{\"table\":\"" + table + "\",\"ids\":[");
+        try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM " + table + " ORDER BY id")) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (!first) {
+                        out.write(',');
+                    }
+                    out.write(Long.toString(rs.getLong(1)));
+                    first = false;
+                }
+            }
+        }
+        out.write("]}\n");
+    }
+
+    private static long writeRows(Connection connection, String table, String sql, Timestamp watermark, Writer out)
+            throws SQLException, IOException {
+        long rows = 0;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(FETCH_SIZE);
+            if (watermark != null) {
+                statement.setTimestamp(1, watermark);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    writeRow(out, table, rs.getString(1));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static void writeRow(Writer out, String table, String json) throws IOException {
+        out.write("{\"table\":\"" + table + "\",\"row\":");
+        out.write(json);
+        out.write("}\n");
+    }
+
+    /**
+     * Upserts rows in batches through json_populate_recordset, so PostgreSQL converts the
+     * JSON values back to the column types
+     */
+    private static final class Replay {
+
+        private final Connection connection;
+        private final Map<String, String> upsertSql = new HashMap<>();
+        private final Map<String, Long> applied = new LinkedHashMap<>();
+        private String batchTable;
+        private ArrayNode batch = MAPPER.createArrayNode();
+
+        private Replay(Connection connection) {
+            this.connection = connection;
+        }
+
+        private void apply(JsonNode line) throws SQLException {
+            String table = line.path("table").asText();
+            if (!TABLES.contains(table)) {
+                throw new IllegalArgumentException("Unexpected table in incremental backup: " + table);
+            }
+            if (line.has("row")) {
+                if (!table.equals(batchTable)) {
+                    flush();
+                    batchTable = table;
+                }
+                batch.add(line.get("row"));
+                if (batch.size() >= BATCH_SIZE) {
+                    flush();
+                }
+            } else if (line.has("ids")) {
+                flush();
+                execute("DELETE FROM public." + table + " WHERE NOT (id = ANY(?))", ids(line.get("ids")));
+            } else if (line.has("documentIds")) {
+                flush();
+                execute("DELETE FROM public.document_items WHERE document_id = ANY(?)", ids(line.get("documentIds")));
+            }
+        }
+
+        private void finish() throws SQLException {
+            flush();
+            // New rows came with their ids - move the sequences past them
+            for (String table : applied.keySet()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT setval(pg_get_serial_sequence('public." + table + "', 'id'),"
+                            + " COALESCE(MAX(id), 0) + 1, false) FROM public." + table);
+                }
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try (PreparedStatement statement = connection.prepareStatement(upsertSql(batchTable))) {
+                statement.setString(1, batch.toString());
+                statement.executeUpdate();
+            }
+            applied.merge(batchTable, (long) batch.size(), Long::sum);
+            batch = MAPPER.createArrayNode();
+        }
+
+        private void execute(String sql, Long[] ids) throws SQLException {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setArray(1, connection.createArrayOf("bigint", ids));
+                statement.executeUpdate();
+            }
+        }
+
+        private String upsertSql(String table) throws SQLException {
+            String sql = upsertSql.get(table);
+            if (sql == null) {
+                List<String> columns = columns(table);
+                String columnList = String.join(", ", columns);
+                StringJoiner updates = new StringJoiner(", ");
+                for (String column : columns) {
+                    if (!column.equals("\"id\"")) {
+                        updates.add(column + " = EXCLUDED." + column);
+                    }
+                }
+                sql = "INSERT INTO public." + table + " (" + columnList + ") SELECT " + columnList
+                        + " FROM json_populate_recordset(NULL::public." + table + ", ?::json)"
+                        + " ON CONFLICT (id) DO UPDATE SET " + updates;
+                upsertSql.put(table, sql);
+            }
+            return sql;
+        }
+
+        /**
+         * Columns of the restored table, quoted; JSON keys the table does not have are ignored
+         */
+        private List<String> columns(String table) throws SQLException {
+            List<String> columns = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT column_name FROM information_schema.columns"
+                            + " WHERE table_schema = 'public' AND table_name = ? ORDER BY ordinal_position")) {
+                statement.setString(1, table);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        columns.add("\"" + rs.getString(1).replace("\"", "\"\"") + "\"");
+                    }
+                }
+            }
+            if (columns.isEmpty()) {
+                throw new SQLException("Table " + table + " does not exist in the restored database");
+            }
+            return columns;
+        }
+
+        private static Long[] ids(JsonNode array) {
+            Long[] ids = new Long[array.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = array.get(i).asLong();
+            }
+            return ids;
+        }
+    }
+}
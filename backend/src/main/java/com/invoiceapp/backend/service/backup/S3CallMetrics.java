@@ -0,0 +1,49 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
+import io.micrometer.observation.Observation;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * Observes every S3 API call (PutObject, UploadPart, DeleteObjects, ...) made by the shared
+ * client, including the SDK's retries, as integration "s3" tagged by operation name.
+ * The SDK reports the start and the end in separate callbacks, so the span is not made current;
+ * nothing nests under it anyway.
+ */
+class S3CallMetrics implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Observation> OBSERVATION = new ExecutionAttribute<>("InvoiceAppS3CallObservation");
+
+    private final IntegrationMetrics metrics;
+
+    S3CallMetrics(IntegrationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        attributes.putAttribute(OBSERVATION,
+                metrics.start("s3", attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME)));
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        stop(attributes, null);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        stop(attributes, context.exception());
+    }
+
+    private void stop(ExecutionAttributes attributes, Throwable error) {
+        Observation observation = attributes.getAttribute(OBSERVATION);
+        if (observation != null) {
+            metrics.stop(observation, error);
+        }
+    }
+}
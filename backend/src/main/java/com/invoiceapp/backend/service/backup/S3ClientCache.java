@@ -0,0 +1,171 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
+import com.invoiceapp.backend.model.BackupSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+
+import java.net.URI;
+
+/**
+ * One S3 client (and presigner) shared by all backup operations.
+ *
+ * The client is built once per version of the connection settings (endpoint, region and
+ * credentials) and reused, so its HTTP connection pool survives between uploads, deletes,
+ * lists and tests. Other settings changes - e.g. the status written after every backup -
+ * do not rebuild it. When the connection settings change, the old client is closed as soon
+ * as the last operation still using it releases its lease. Every call made by the client is
+ * timed as integration "s3".
+ */
+@Component
+public class S3ClientCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3ClientCache.class);
+
+    private final IntegrationMetrics integrationMetrics;
+    private Entry current;
+
+    public S3ClientCache(IntegrationMetrics integrationMetrics) {
+        this.integrationMetrics = integrationMetrics;
+    }
+
+    /**
+     * Leases the client for the given settings; close the lease (not the client) when done
+     */
+    public synchronized Lease acquire(BackupSettings settings) {
+        ConnectionKey key = ConnectionKey.of(settings);
+        if (current == null || !current.key.equals(key)) {
+            if (current != null) {
+                retire(current);
+            }
+            current = new Entry(key, buildClient(key));
+            logger.info("S3 client initialized for {} ({})", settings.getS3Endpoint(), settings.getS3Region());
+        }
+        current.leases++;
+        return new Lease(current);
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (current != null) {
+            retire(current);
+            current = null;
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.leases--;
+        if (entry.retired && entry.leases == 0) {
+            entry.close();
+        }
+    }
+
+    private static void retire(Entry entry) {
+        entry.retired = true;
+        if (entry.leases == 0) {
+            entry.close();
+        }
+    }
+
+    private S3Client buildClient(ConnectionKey key) {
+        return S3Client.builder()
+                .endpointOverride(URI.create(key.endpoint()))
+                .region(Region.of(key.region()))
+                .credentialsProvider(key.credentials())
+                .forcePathStyle(true) // Required for Hetzner Object Storage
+                .overrideConfiguration(config -> config.addExecutionInterceptor(new S3CallMetrics(integrationMetrics)))
+                .build();
+    }
+
+    private static S3Presigner buildPresigner(ConnectionKey key) {
+        return S3Presigner.builder()
+                .endpointOverride(URI.create(key.endpoint()))
+                .region(Region.of(key.region()))
+                .credentialsProvider(key.credentials())
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .build();
+    }
+
+    /**
+     * The settings the client is built from
+     */
+    private record ConnectionKey(
+        String endpoint,
+        String region,
+        String accessKey,
+        String secretKey
+    ) {
+        static ConnectionKey of(BackupSettings settings) {
+            return new ConnectionKey(settings.getS3Endpoint(), settings.getS3Region(),
+                    settings.getS3AccessKey(), settings.getS3SecretKey());
+        }
+
+        StaticCredentialsProvider credentials() {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey));
+        }
+    }
+
+    private static final class Entry {
+        private final ConnectionKey key;
+        private final S3Client client;
+        private S3Presigner presigner;
+        private int leases;
+        private boolean retired;
+
+        private Entry(ConnectionKey key, S3Client client) {
+            this.key = key;
+            this.client = client;
+        }
+
+        private synchronized S3Presigner presigner() {
+            if (presigner == null) {
+                presigner = buildPresigner(key);
+            }
+            return presigner;
+        }
+
+        private synchronized void close() {
+            client.close();
+            if (presigner != null) {
+                presigner.close();
+            }
+        }
+    }
+
+    /**
+     * Use of the shared client by one operation
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final Entry entry;
+        private boolean released;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        public S3Client client() {
+            return entry.client;
+        }
+
+        public S3Presigner presigner() {
+            return entry.presigner();
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                release(entry);
+            }
+        }
+    }
+}
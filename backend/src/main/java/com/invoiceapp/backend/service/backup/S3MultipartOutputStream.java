@@ -0,0 +1,231 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OutputStream that writes straight into an S3 multipart upload.
+ *
+ * Data is cut into parts of {@code partSize} bytes and each part is uploaded on a small
+ * worker pool while the producer keeps writing. At most {@code parallelism} parts are in
+ * flight, so memory stays bounded at roughly (parallelism + 1) * partSize regardless of the
+ * total size of the stream.
+ *
+ * {@link #close()} uploads the last part and completes the upload. If the producer fails,
+ * call {@link #abort()} instead so no partial object becomes visible in the bucket.
+ */
+public class S3MultipartOutputStream extends OutputStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartOutputStream.class);
+
+    /**
+     * S3 rejects parts smaller than 5 MB except for the last one
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String key;
+    private final String uploadId;
+    private final int partSize;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final List<Future<CompletedPart>> parts = new ArrayList<>();
+
+    private byte[] buffer;
+    private int position;
+    private int nextPartNumber = 1;
+    private long bytesWritten;
+    private volatile Throwable failure;
+    private boolean closed;
+
+    public S3MultipartOutputStream(S3Client s3Client, String bucket, String key, String contentType,
+                                   int partSize, int parallelism) {
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException("Part size must be at least " + MIN_PART_SIZE + " bytes");
+        }
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.partSize = partSize;
+        this.buffer = new byte[partSize];
+        this.inFlight = new Semaphore(Math.max(1, parallelism));
+        this.executor = Executors.newFixedThreadPool(Math.max(1, parallelism), namedThreadFactory());
+        try {
+            this.uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .contentType(contentType)
+                    .build()).uploadId();
+        } catch (RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        buffer[position++] = (byte) b;
+        bytesWritten++;
+        if (position == partSize) {
+            flushPart();
+        }
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int chunk = Math.min(length, partSize - position);
+            System.arraycopy(data, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            bytesWritten += chunk;
+            if (position == partSize) {
+                flushPart();
+            }
+        }
+    }
+
+    /**
+     * Number of bytes written so far (the size of the object once the upload completes)
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Uploads the remaining data and completes the multipart upload
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            // A multipart upload needs at least one part, even for an empty stream
+            if (position > 0 || nextPartNumber == 1) {
+                flushPart();
+            }
+            List<CompletedPart> completedParts = new ArrayList<>(parts.size());
+            for (Future<CompletedPart> part : parts) {
+                completedParts.add(part.get());
+            }
+            s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build());
+            closed = true;
+            logger.debug("Completed multipart upload of s3://{}/{} ({} parts, {} bytes)",
+                    bucket, key, completedParts.size(), bytesWritten);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new InterruptedIOException("Interrupted while completing upload of " + key);
+        } catch (ExecutionException | RuntimeException e) {
+            abort();
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException("Multipart upload of " + key + " failed: " + cause.getMessage(), cause);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Cancels the upload and discards the parts already sent. Closing afterwards is a no-op.
+     */
+    public void abort() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer = null;
+        executor.shutdownNow();
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            logger.info("Aborted multipart upload of s3://{}/{}", bucket, key);
+        } catch (RuntimeException e) {
+            // The bucket lifecycle rule for incomplete uploads cleans up what is left
+            logger.warn("Failed to abort multipart upload of {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void flushPart() throws IOException {
+        if (failure != null) {
+            throw new IOException("Multipart upload of " + key + " failed: " + failure.getMessage(), failure);
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a part upload slot");
+        }
+
+        byte[] data = buffer;
+        int length = position;
+        int partNumber = nextPartNumber++;
+        try {
+            parts.add(executor.submit(() -> uploadPart(partNumber, data, length)));
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            throw new IOException("Multipart upload of " + key + " is no longer accepting parts", e);
+        }
+        buffer = new byte[partSize];
+        position = 0;
+    }
+
+    private CompletedPart uploadPart(int partNumber, byte[] data, int length) {
+        try {
+            UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                            .bucket(bucket)
+                            .key(key)
+                            .uploadId(uploadId)
+                            .partNumber(partNumber)
+                            .contentLength((long) length)
+                            .build(),
+                    RequestBody.fromContentProvider(() -> new ByteArrayInputStream(data, 0, length),
+                            length, "application/octet-stream"));
+            return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Upload of " + key + " is already closed");
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "backup-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
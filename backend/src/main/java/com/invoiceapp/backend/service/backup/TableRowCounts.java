@@ -0,0 +1,137 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Row counts of the key tables. They are taken in the snapshot of the dump and compared
+ * with the counts of a restored copy to verify that the backup is complete.
+ */
+public final class TableRowCounts {
+
+    public static final List<String> KEY_TABLES = List.of(
+            "companies", "users", "clients", "items", "documents", "document_items", "document_number_sequences",
+            "currencies", "payment_methods", "bank_accounts", "vat_exemption_reasons");
+
+    /**
+     * Tables referenced by the rows of an incremental backup but not contained in it. The
+     * chain stays restorable only while none of them gained or lost rows since the full backup.
+     */
+    public static final List<String> REFERENCE_TABLES = List.of(
+            "companies", "currencies", "payment_methods", "bank_accounts", "vat_exemption_reasons");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private TableRowCounts() {
+    }
+
+    /**
+     * Counts the key tables one after another on a single connection (and thus in its snapshot)
+     */
+    public static Map<String, Long> count(Connection connection) throws SQLException {
+        return count(connection, KEY_TABLES);
+    }
+
+    /**
+     * Counts the given tables (names from KEY_TABLES) on a single connection
+     */
+    public static Map<String, Long> count(Connection connection, Collection<String> tables) throws SQLException {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String table : tables) {
+            if (!KEY_TABLES.contains(table)) {
+                throw new IllegalArgumentException("Not a key table: " + table);
+            }
+            counts.put(table, count(connection, table));
+        }
+        return counts;
+    }
+
+    /**
+     * Counts the key tables in parallel, one connection per table
+     * @param connections opens a new connection to the database to count
+     */
+    public static Map<String, Long> countInParallel(Callable<Connection> connections, int parallelism)
+            throws InterruptedException, SQLException {
+        return countInParallel(connections, KEY_TABLES, parallelism);
+    }
+
+    /**
+     * Counts the given tables (names from KEY_TABLES) in parallel, one connection per table
+     */
+    public static Map<String, Long> countInParallel(Callable<Connection> connections, Collection<String> tables,
+                                                    int parallelism) throws InterruptedException, SQLException {
+        if (!KEY_TABLES.containsAll(tables)) {
+            throw new IllegalArgumentException("Not key tables: " + tables);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tables.size())));
+        try {
+            Map<String, Future<Long>> futures = new LinkedHashMap<>();
+            for (String table : tables) {
+                futures.put(table, executor.submit(() -> {
+                    try (Connection connection = connections.call()) {
+                        return count(connection, table);
+                    }
+                }));
+            }
+            Map<String, Long> counts = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<Long>> entry : futures.entrySet()) {
+                try {
+                    counts.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    throw new SQLException("Counting rows of " + entry.getKey() + " failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            return counts;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Lists the tables whose restored count differs from the expected one
+     * @return "table: restored/expected" lines, empty when everything matches
+     */
+    public static List<String> differences(Map<String, Long> expected, Map<String, Long> restored) {
+        List<String> differences = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            Long actual = restored.get(entry.getKey());
+            if (!Objects.equals(actual, entry.getValue())) {
+                differences.add(entry.getKey() + ": " + actual + "/" + entry.getValue());
+            }
+        }
+        return differences;
+    }
+
+    public static String toJson(Map<String, Long> counts) {
+        try {
+            return MAPPER.writeValueAsString(counts);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize row counts", e);
+        }
+    }
+
+    public static Map<String, Long> fromJson(String json) {
+        try {
+            return MAPPER.readValue(json, new TypeReference<LinkedHashMap<String, Long>>() { });
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid row counts: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static long count(Connection connection, String table) throws SQLException {
+        // Table names come from KEY_TABLES only
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT count(*) FROM public." + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
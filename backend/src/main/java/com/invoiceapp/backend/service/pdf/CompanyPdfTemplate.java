@@ -0,0 +1,126 @@
+package com.invoiceapp.backend.service.pdf;
+
+import com.invoiceapp.backend.model.DocumentType;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel.CompanyBranding;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel.Party;
+import com.lowagie.text.Font;
+import com.lowagie.text.Image;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компилиран шаблон на бланката за една фирма.
+ *
+ * Съдържа всичко, което не зависи от конкретния документ: шрифтове, двуезичните етикети,
+ * реквизитите на фирмата, долния текст и декодираните изображения. Шаблонът е неизменяем
+ * и се споделя между нишките на пула.
+ */
+final class CompanyPdfTemplate {
+
+    static final Color ACCENT = new Color(33, 150, 243);
+    static final Color MUTED = new Color(110, 110, 110);
+    static final Color HEADER_BACKGROUND = new Color(232, 242, 252);
+
+    static final float[] LINE_COLUMNS = {0.5f, 4.6f, 1.0f, 1.0f, 1.4f, 0.9f, 1.6f};
+    static final String[] LINE_HEADERS = {
+            "№\nNo",
+            "Описание\nDescription",
+            "Мярка\nUnit",
+            "К-во\nQty",
+            "Ед. цена\nUnit price",
+            "ДДС %\nVAT %",
+            "Стойност\nAmount"
+    };
+
+    private static final Map<DocumentType, String> TITLES = new EnumMap<>(DocumentType.class);
+
+    static {
+        TITLES.put(DocumentType.INVOICE, "ФАКТУРА / INVOICE");
+        TITLES.put(DocumentType.CREDIT_NOTE, "КРЕДИТНО ИЗВЕСТИЕ / CREDIT NOTE");
+        TITLES.put(DocumentType.DEBIT_NOTE, "ДЕБИТНО ИЗВЕСТИЕ / DEBIT NOTE");
+        TITLES.put(DocumentType.PROFORMA, "ПРОФОРМА ФАКТУРА / PROFORMA INVOICE");
+    }
+
+    final CompanyBranding branding;
+    final long compiledAt;
+
+    final Font titleFont;
+    final Font headingFont;
+    final Font labelFont;
+    final Font textFont;
+    final Font boldFont;
+    final Font smallFont;
+    final Font mutedFont;
+    final Font tableHeaderFont;
+    final Font totalFont;
+
+    final List<String> supplierLines;
+    final String footer;
+    final String compiledBy;
+
+    /**
+     * Декодирани изображения - при рендериране се използват копия
+     */
+    final Image logo;
+    final Image signature;
+    final Image stamp;
+
+    CompanyPdfTemplate(CompanyBranding branding, PdfResources resources) {
+        this.branding = branding;
+        this.compiledAt = System.currentTimeMillis();
+
+        this.titleFont = new Font(resources.getBoldFont(), 15, Font.NORMAL, ACCENT);
+        this.headingFont = new Font(resources.getBoldFont(), 9, Font.NORMAL, ACCENT);
+        this.labelFont = new Font(resources.getRegularFont(), 8, Font.NORMAL, MUTED);
+        this.textFont = new Font(resources.getRegularFont(), 9);
+        this.boldFont = new Font(resources.getBoldFont(), 9);
+        this.smallFont = new Font(resources.getRegularFont(), 7.5f);
+        this.mutedFont = new Font(resources.getRegularFont(), 7.5f, Font.NORMAL, MUTED);
+        this.tableHeaderFont = new Font(resources.getBoldFont(), 7.5f);
+        this.totalFont = new Font(resources.getBoldFont(), 11, Font.NORMAL, ACCENT);
+
+        this.supplierLines = partyLines(branding.party(), branding.phone(), branding.email(), branding.website());
+        this.footer = joinBilingual(branding.invoiceFooter(), branding.invoiceFooterEn());
+        this.compiledBy = branding.compiledBy();
+
+        this.logo = resources.getImage(branding.logoUrl()).orElse(null);
+        this.signature = resources.getImage(branding.signatureUrl()).orElse(null);
+        this.stamp = resources.getImage(branding.stampUrl()).orElse(null);
+    }
+
+    String title(DocumentType type) {
+        return TITLES.getOrDefault(type, type.name());
+    }
+
+    static List<String> partyLines(Party party, String phone, String email, String website) {
+        List<String> lines = new ArrayList<>();
+        addIfPresent(lines, party.nameEn() != null && !party.nameEn().equals(party.name()) ? party.nameEn() : null);
+        addIfPresent(lines, party.address());
+        addIfPresent(lines, party.eik() != null ? "ЕИК / UIC: " + party.eik() : null);
+        addIfPresent(lines, party.vatNumber() != null ? "ДДС № / VAT No: " + party.vatNumber() : null);
+        addIfPresent(lines, phone != null ? "Тел. / Phone: " + phone : null);
+        addIfPresent(lines, email);
+        addIfPresent(lines, website);
+        return Collections.unmodifiableList(lines);
+    }
+
+    static String joinBilingual(String bg, String en) {
+        boolean hasBg = bg != null && !bg.isBlank();
+        boolean hasEn = en != null && !en.isBlank();
+        if (hasBg && hasEn) {
+            return bg + "\n" + en;
+        }
+        return hasBg ? bg : hasEn ? en : null;
+    }
+
+    private static void addIfPresent(List<String> lines, String value) {
+        if (value != null && !value.isBlank()) {
+            lines.add(value);
+        }
+    }
+}
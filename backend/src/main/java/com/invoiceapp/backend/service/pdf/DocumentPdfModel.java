@@ -0,0 +1,170 @@
+package com.invoiceapp.backend.service.pdf;
+
+import com.invoiceapp.backend.model.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Данните на документа, нужни за PDF, събрани в нишката на заявката.
+ * Рендерирането става в отделен пул от нишки, където няма отворена Hibernate сесия,
+ * затова всички lazy връзки се прочитат тук.
+ */
+public record DocumentPdfModel(
+    CompanyBranding company,
+    DocumentType documentType,
+    String documentNumber,
+    LocalDate issueDate,
+    LocalDate vatDate,
+    LocalDate dueDate,
+    Party client,
+    List<Line> lines,
+    String currencyCode,
+    BigDecimal subtotalAmount,
+    BigDecimal vatAmount,
+    BigDecimal totalAmountWithVat,
+    BigDecimal exchangeRate,
+    BigDecimal totalAmountWithVatBaseCurrency,
+    List<String> vatExemptionReasons,
+    String paymentMethod,
+    String bankDetails,
+    String notes,
+    String documentUuid
+) {
+
+    /**
+     * Реквизити на фирмата и елементите на бланката - ключ за кеша на шаблоните
+     */
+    public record CompanyBranding(
+        Long companyId,
+        Party party,
+        String phone,
+        String email,
+        String website,
+        String logoUrl,
+        String signatureUrl,
+        String stampUrl,
+        String invoiceFooter,
+        String invoiceFooterEn,
+        String compiledBy
+    ) {
+    }
+
+    public record Party(
+        String name,
+        String nameEn,
+        String address,
+        String eik,
+        String vatNumber
+    ) {
+    }
+
+    public record Line(
+        int number,
+        String description,
+        String descriptionEn,
+        String unit,
+        BigDecimal quantity,
+        BigDecimal unitPrice,
+        BigDecimal vatRate,
+        BigDecimal lineTotal
+    ) {
+    }
+
+    public static DocumentPdfModel from(Document document) {
+        Company company = document.getCompany();
+        CompanyBranding branding = new CompanyBranding(
+                company.getId(),
+                new Party(company.getName(), company.getNameEn(), company.getAddress(), company.getEik(), company.getVatNumber()),
+                company.getPhone(),
+                company.getEmail(),
+                company.getWebsite(),
+                company.getLogoUrl(),
+                company.getSignatureUrl(),
+                company.getCompanyStampUrl(),
+                company.getInvoiceFooter(),
+                company.getInvoiceFooterEn(),
+                company.getCompiledBy());
+
+        Client client = document.getClient();
+        Party clientParty = new Party(client.getName(), client.getNameEn(), client.getAddress(), client.getEik(), client.getVatNumber());
+
+        List<DocumentItem> items = new ArrayList<>(document.getDocumentItems() != null ? document.getDocumentItems() : List.of());
+        items.sort(Comparator.comparing(DocumentItem::getLineNumber, Comparator.nullsLast(Comparator.naturalOrder())));
+
+        List<Line> lines = new ArrayList<>(items.size());
+        Set<String> exemptionReasons = new LinkedHashSet<>();
+        int number = 1;
+        for (DocumentItem item : items) {
+            Item catalogItem = item.getItem();
+            String description = firstNonBlank(item.getItemDescription(), catalogItem != null ? catalogItem.getName() : null);
+            String descriptionEn = firstNonBlank(item.getItemDescriptionEn(), catalogItem != null ? catalogItem.getNameEn() : null);
+            lines.add(new Line(
+                    number++,
+                    description,
+                    descriptionEn,
+                    catalogItem != null ? catalogItem.getUnitOfMeasure() : null,
+                    item.getQuantity(),
+                    item.getUnitPrice(),
+                    item.getVatRate(),
+                    item.getLineTotal()));
+
+            VatExemptionReason reason = item.getVatExemptionReason();
+            if (reason != null) {
+                exemptionReasons.add(reason.getLegalBasisEn() != null
+                        ? reason.getLegalBasis() + " / " + reason.getLegalBasisEn()
+                        : reason.getLegalBasis());
+            }
+        }
+
+        PaymentMethod paymentMethod = document.getPaymentMethod();
+        String paymentMethodLabel = paymentMethod == null ? null
+                : paymentMethod.getNameEn() != null ? paymentMethod.getName() + " / " + paymentMethod.getNameEn()
+                : paymentMethod.getName();
+
+        BankAccount bankAccount = document.getBankAccount();
+        String bankDetails = bankAccount == null ? null
+                : String.join(", ", nonBlank(bankAccount.getBankName(), "IBAN: " + bankAccount.getIban(),
+                        bankAccount.getBic() != null ? "BIC: " + bankAccount.getBic() : null));
+
+        return new DocumentPdfModel(
+                branding,
+                document.getDocumentType(),
+                document.getDocumentNumber(),
+                document.getIssueDate(),
+                document.getVatDate(),
+                document.getDueDate(),
+                clientParty,
+                lines,
+                document.getCurrencyCode(),
+                document.getSubtotalAmount(),
+                document.getVatAmount(),
+                document.getTotalAmountWithVat(),
+                document.getExchangeRate(),
+                document.getTotalAmountWithVatBaseCurrency(),
+                List.copyOf(exemptionReasons),
+                paymentMethodLabel,
+                bankDetails,
+                document.getNotes(),
+                document.getDocumentUuid());
+    }
+
+    private static String firstNonBlank(String first, String second) {
+        return first != null && !first.isBlank() ? first : second;
+    }
+
+    private static List<String> nonBlank(String... values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+}
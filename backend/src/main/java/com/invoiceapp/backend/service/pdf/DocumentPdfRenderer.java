@@ -0,0 +1,485 @@
+package com.invoiceapp.backend.service.pdf;
+
+import com.invoiceapp.backend.model.Document;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel.CompanyBranding;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel.Line;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel.Party;
+import com.lowagie.text.*;
+import com.lowagie.text.pdf.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Генерира PDF на документ на сървъра (двуезична бланка БГ/EN).
+ *
+ * Шаблонът на всяка фирма се компилира веднъж и се кешира (виж {@link CompanyPdfTemplate}),
+ * шрифтовете и изображенията се зареждат веднъж в {@link PdfResources}.
+ * Рендерирането става в ограничен пул от нишки; когато пулът и опашката са пълни,
+ * извикващият изчаква свободно място.
+ */
+@Service
+public class DocumentPdfRenderer implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentPdfRenderer.class);
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final PdfResources resources;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots;
+    private final long timeoutMillis;
+    private final long templateTtlMillis;
+    private final int maxTemplates;
+
+    private final Map<Long, CompanyPdfTemplate> templates;
+
+    public DocumentPdfRenderer(PdfResources resources,
+                               @Value("${pdf.render.pool-size:2}") int poolSize,
+                               @Value("${pdf.render.queue-capacity:32}") int queueCapacity,
+                               @Value("${pdf.render.timeout-ms:30000}") long timeoutMillis,
+                               @Value("${pdf.template.ttl-minutes:30}") long templateTtlMinutes,
+                               @Value("${pdf.template.cache-size:500}") int maxTemplates) {
+        this.resources = resources;
+        this.timeoutMillis = timeoutMillis;
+        this.templateTtlMillis = TimeUnit.MINUTES.toMillis(templateTtlMinutes);
+        this.maxTemplates = maxTemplates;
+        this.slots = new Semaphore(poolSize + queueCapacity, true);
+        this.executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CompanyPdfTemplate> eldest) {
+                return size() > DocumentPdfRenderer.this.maxTemplates;
+            }
+        };
+    }
+
+    /**
+     * Генерира PDF на документа. Трябва да се извиква в транзакция, защото чете lazy връзките.
+     */
+    public byte[] render(Document document) {
+        return render(DocumentPdfModel.from(document));
+    }
+
+    /**
+     * Генерира PDF в пула и изчаква резултата
+     */
+    public byte[] render(DocumentPdfModel model) {
+        try {
+            return renderAsync(model).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("PDF rendering was interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException("PDF rendering failed", cause);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("PDF rendering timed out", e);
+        }
+    }
+
+    /**
+     * Поставя документа в опашката на пула. Ако няма свободно място, изчаква.
+     */
+    public CompletableFuture<byte[]> renderAsync(DocumentPdfModel model) {
+        try {
+            if (!slots.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("PDF rendering queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the PDF rendering queue", e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return renderNow(model);
+                } finally {
+                    slots.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * Рендерира в текущата нишка
+     */
+    byte[] renderNow(DocumentPdfModel model) {
+        long start = System.nanoTime();
+        CompanyPdfTemplate template = template(model.company());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * 1024);
+
+        com.lowagie.text.Document pdf = new com.lowagie.text.Document(PageSize.A4, 36, 36, 36, 60);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(pdf, out);
+            writer.setPageEvent(new FooterEvent(template));
+            pdf.addTitle(template.title(model.documentType()) + " " + model.documentNumber());
+            pdf.addCreator(model.company().party().name());
+            pdf.open();
+
+            Formats formats = new Formats();
+            pdf.add(header(model, template, formats));
+            pdf.add(parties(model, template));
+            pdf.add(lines(model, template, formats));
+            pdf.add(totals(model, template, formats));
+            addDetails(pdf, model, template);
+            pdf.add(signatures(template));
+        } catch (DocumentException e) {
+            throw new RuntimeException("PDF rendering failed for document " + model.documentNumber(), e);
+        } finally {
+            if (pdf.isOpen()) {
+                pdf.close();
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Rendered PDF for document {} ({} lines) in {} ms", model.documentNumber(),
+                    model.lines().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Компилираният шаблон на фирмата - прекомпилира се при промяна на реквизитите или след TTL
+     */
+    CompanyPdfTemplate template(CompanyBranding branding) {
+        synchronized (templates) {
+            CompanyPdfTemplate cached = templates.get(branding.companyId());
+            if (cached != null && cached.branding.equals(branding)
+                    && System.currentTimeMillis() - cached.compiledAt < templateTtlMillis) {
+                return cached;
+            }
+            if (cached != null) {
+                // Изображенията може да са сменени на същия URL
+                resources.evictImage(cached.branding.logoUrl());
+                resources.evictImage(cached.branding.signatureUrl());
+                resources.evictImage(cached.branding.stampUrl());
+            }
+        }
+        CompanyPdfTemplate compiled = new CompanyPdfTemplate(branding, resources);
+        synchronized (templates) {
+            templates.put(branding.companyId(), compiled);
+        }
+        return compiled;
+    }
+
+    private PdfPTable header(DocumentPdfModel model, CompanyPdfTemplate template, Formats formats) {
+        PdfPTable table = new PdfPTable(new float[]{1f, 1f});
+        table.setWidthPercentage(100);
+
+        PdfPCell left;
+        if (template.logo != null) {
+            Image logo = Image.getInstance(template.logo);
+            logo.scaleToFit(160, 60);
+            left = new PdfPCell(logo, false);
+        } else {
+            left = new PdfPCell(new Phrase(model.company().party().name(), template.titleFont));
+        }
+        left.setBorder(Rectangle.NO_BORDER);
+        left.setVerticalAlignment(Element.ALIGN_MIDDLE);
+        table.addCell(left);
+
+        Paragraph title = new Paragraph(template.title(model.documentType()), template.titleFont);
+        title.setAlignment(Element.ALIGN_RIGHT);
+        Paragraph number = new Paragraph("№ / No: " + model.documentNumber(), template.boldFont);
+        number.setAlignment(Element.ALIGN_RIGHT);
+        Paragraph original = new Paragraph("Оригинал / Original", template.mutedFont);
+        original.setAlignment(Element.ALIGN_RIGHT);
+
+        PdfPCell right = new PdfPCell();
+        right.setBorder(Rectangle.NO_BORDER);
+        right.addElement(title);
+        right.addElement(number);
+        right.addElement(original);
+        table.addCell(right);
+
+        PdfPTable dates = new PdfPTable(new float[]{1f, 1f, 1f});
+        dates.setWidthPercentage(100);
+        dates.addCell(labeled("Дата на издаване / Issue date", formats.date(model.issueDate()), template));
+        dates.addCell(labeled("Дата на данъчно събитие / Tax point", formats.date(model.vatDate()), template));
+        dates.addCell(labeled("Падеж / Due date", formats.date(model.dueDate()), template));
+
+        PdfPCell datesCell = new PdfPCell(dates);
+        datesCell.setColspan(2);
+        datesCell.setBorder(Rectangle.NO_BORDER);
+        datesCell.setPaddingTop(10);
+        table.addCell(datesCell);
+        table.setSpacingAfter(10);
+        return table;
+    }
+
+    private PdfPTable parties(DocumentPdfModel model, CompanyPdfTemplate template) {
+        PdfPTable table = new PdfPTable(new float[]{1f, 1f});
+        table.setWidthPercentage(100);
+        table.addCell(party("Доставчик / Supplier", model.company().party().name(), template.supplierLines, template));
+        Party client = model.client();
+        table.addCell(party("Получател / Customer", client.name(),
+                CompanyPdfTemplate.partyLines(client, null, null, null), template));
+        table.setSpacingAfter(12);
+        return table;
+    }
+
+    private PdfPTable lines(DocumentPdfModel model, CompanyPdfTemplate template, Formats formats) throws DocumentException {
+        PdfPTable table = new PdfPTable(CompanyPdfTemplate.LINE_COLUMNS);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+
+        for (String header : CompanyPdfTemplate.LINE_HEADERS) {
+            PdfPCell cell = new PdfPCell(new Phrase(header, template.tableHeaderFont));
+            cell.setBackgroundColor(CompanyPdfTemplate.HEADER_BACKGROUND);
+            cell.setBorderColor(CompanyPdfTemplate.HEADER_BACKGROUND);
+            cell.setPadding(4);
+            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+            table.addCell(cell);
+        }
+
+        for (Line line : model.lines()) {
+            table.addCell(lineCell(String.valueOf(line.number()), template.textFont, Element.ALIGN_CENTER));
+
+            Phrase description = new Phrase(line.description() != null ? line.description() : "", template.textFont);
+            if (line.descriptionEn() != null && !line.descriptionEn().equals(line.description())) {
+                description.add(new Chunk("\n" + line.descriptionEn(), template.mutedFont));
+            }
+            PdfPCell descriptionCell = new PdfPCell(description);
+            styleLineCell(descriptionCell, Element.ALIGN_LEFT);
+            table.addCell(descriptionCell);
+
+            table.addCell(lineCell(line.unit() != null ? line.unit() : "", template.textFont, Element.ALIGN_CENTER));
+            table.addCell(lineCell(formats.quantity(line.quantity()), template.textFont, Element.ALIGN_RIGHT));
+            table.addCell(lineCell(formats.money(line.unitPrice()), template.textFont, Element.ALIGN_RIGHT));
+            table.addCell(lineCell(formats.quantity(line.vatRate()), template.textFont, Element.ALIGN_RIGHT));
+            table.addCell(lineCell(formats.money(line.lineTotal()), template.textFont, Element.ALIGN_RIGHT));
+        }
+        table.setSpacingAfter(8);
+        return table;
+    }
+
+    private PdfPTable totals(DocumentPdfModel model, CompanyPdfTemplate template, Formats formats) {
+        PdfPTable table = new PdfPTable(new float[]{3f, 1.6f});
+        table.setWidthPercentage(55);
+        table.setHorizontalAlignment(Element.ALIGN_RIGHT);
+
+        String currency = model.currencyCode() != null ? " " + model.currencyCode() : "";
+        totalRow(table, "Данъчна основа / Tax base", formats.money(model.subtotalAmount()) + currency, template.textFont, template);
+        totalRow(table, "ДДС / VAT", formats.money(model.vatAmount()) + currency, template.textFont, template);
+        totalRow(table, "Сума за плащане / Total", formats.money(model.totalAmountWithVat()) + currency, template.totalFont, template);
+
+        if (model.exchangeRate() != null && model.exchangeRate().compareTo(BigDecimal.ONE) != 0
+                && model.totalAmountWithVatBaseCurrency() != null) {
+            totalRow(table, "Курс / Exchange rate", model.exchangeRate().stripTrailingZeros().toPlainString(),
+                    template.mutedFont, template);
+            totalRow(table, "Общо в основна валута / Total in base currency",
+                    formats.money(model.totalAmountWithVatBaseCurrency()), template.mutedFont, template);
+        }
+        table.setSpacingAfter(12);
+        return table;
+    }
+
+    private void addDetails(com.lowagie.text.Document pdf, DocumentPdfModel model, CompanyPdfTemplate template)
+            throws DocumentException {
+        for (String reason : model.vatExemptionReasons()) {
+            pdf.add(detail("Основание за неначисляване на ДДС / VAT exemption", reason, template));
+        }
+        if (model.paymentMethod() != null) {
+            pdf.add(detail("Начин на плащане / Payment method", model.paymentMethod(), template));
+        }
+        if (model.bankDetails() != null && !model.bankDetails().isBlank()) {
+            pdf.add(detail("Банкова сметка / Bank account", model.bankDetails(), template));
+        }
+        if (model.notes() != null && !model.notes().isBlank()) {
+            pdf.add(detail("Бележки / Notes", model.notes(), template));
+        }
+    }
+
+    private PdfPTable signatures(CompanyPdfTemplate template) {
+        PdfPTable table = new PdfPTable(new float[]{1f, 1f, 1f});
+        table.setWidthPercentage(100);
+        table.setSpacingBefore(24);
+        table.setKeepTogether(true);
+
+        PdfPCell receiver = signatureCell("Получил / Received by", null, null, template);
+        PdfPCell stamp = new PdfPCell();
+        stamp.setBorder(Rectangle.NO_BORDER);
+        stamp.setHorizontalAlignment(Element.ALIGN_CENTER);
+        if (template.stamp != null) {
+            Image copy = Image.getInstance(template.stamp);
+            copy.scaleToFit(90, 90);
+            stamp.setImage(copy);
+        }
+        PdfPCell compiled = signatureCell("Съставил / Compiled by", template.compiledBy, template.signature, template);
+
+        table.addCell(receiver);
+        table.addCell(stamp);
+        table.addCell(compiled);
+        return table;
+    }
+
+    private static PdfPCell signatureCell(String label, String name, Image signature, CompanyPdfTemplate template) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.addElement(new Paragraph(label, template.labelFont));
+        if (signature != null) {
+            Image copy = Image.getInstance(signature);
+            copy.scaleToFit(120, 45);
+            cell.addElement(copy);
+        } else {
+            cell.addElement(new Paragraph("\n\n", template.textFont));
+        }
+        cell.addElement(new Paragraph("______________________", template.mutedFont));
+        if (name != null && !name.isBlank()) {
+            cell.addElement(new Paragraph(name, template.textFont));
+        }
+        return cell;
+    }
+
+    private static PdfPCell party(String label, String name, List<String> lines, CompanyPdfTemplate template) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.TOP);
+        cell.setBorderColor(CompanyPdfTemplate.ACCENT);
+        cell.setPaddingRight(10);
+        cell.addElement(new Paragraph(label, template.headingFont));
+        cell.addElement(new Paragraph(name != null ? name : "", template.boldFont));
+        for (String line : lines) {
+            cell.addElement(new Paragraph(line, template.textFont));
+        }
+        return cell;
+    }
+
+    private static PdfPCell labeled(String label, String value, CompanyPdfTemplate template) {
+        PdfPCell cell = new PdfPCell();
+        cell.setBorder(Rectangle.NO_BORDER);
+        cell.addElement(new Paragraph(label, template.labelFont));
+        cell.addElement(new Paragraph(value, template.boldFont));
+        return cell;
+    }
+
+    private static Paragraph detail(String label, String value, CompanyPdfTemplate template) {
+        Paragraph paragraph = new Paragraph();
+        paragraph.add(new Chunk(label + ": ", template.labelFont));
+        paragraph.add(new Chunk(value, template.textFont));
+        paragraph.setSpacingAfter(3);
+        return paragraph;
+    }
+
+    private static void totalRow(PdfPTable table, String label, String value, Font valueFont, CompanyPdfTemplate template) {
+        PdfPCell labelCell = new PdfPCell(new Phrase(label, template.labelFont));
+        labelCell.setBorder(Rectangle.NO_BORDER);
+        labelCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        labelCell.setPadding(3);
+        PdfPCell valueCell = new PdfPCell(new Phrase(value, valueFont));
+        valueCell.setBorder(Rectangle.NO_BORDER);
+        valueCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        valueCell.setPadding(3);
+        table.addCell(labelCell);
+        table.addCell(valueCell);
+    }
+
+    private static PdfPCell lineCell(String text, Font font, int alignment) {
+        PdfPCell cell = new PdfPCell(new Phrase(text, font));
+        styleLineCell(cell, alignment);
+        return cell;
+    }
+
+    private static void styleLineCell(PdfPCell cell, int alignment) {
+        cell.setBorder(Rectangle.BOTTOM);
+        cell.setBorderColor(CompanyPdfTemplate.HEADER_BACKGROUND);
+        cell.setPadding(4);
+        cell.setHorizontalAlignment(alignment);
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "pdf-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Долен текст на всяка страница: текстът на фирмата и номер на страницата
+     */
+    private static final class FooterEvent extends PdfPageEventHelper {
+
+        private final CompanyPdfTemplate template;
+
+        private FooterEvent(CompanyPdfTemplate template) {
+            this.template = template;
+        }
+
+        @Override
+        public void onEndPage(PdfWriter writer, com.lowagie.text.Document document) {
+            PdfContentByte canvas = writer.getDirectContent();
+            float center = (document.left() + document.right()) / 2;
+            if (template.footer != null) {
+                String[] footerLines = template.footer.split("\n");
+                float y = document.bottom() - 14;
+                for (String line : footerLines) {
+                    ColumnText.showTextAligned(canvas, Element.ALIGN_CENTER,
+                            new Phrase(line, template.mutedFont), center, y, 0);
+                    y -= 9;
+                }
+            }
+            ColumnText.showTextAligned(canvas, Element.ALIGN_RIGHT,
+                    new Phrase("Стр. / Page " + writer.getPageNumber(), template.mutedFont),
+                    document.right(), 20, 0);
+        }
+    }
+
+    /**
+     * Формати за числа и дати - DecimalFormat не е thread-safe, затова е по един на документ
+     */
+    private static final class Formats {
+
+        private final DecimalFormat money;
+        private final DecimalFormat quantity;
+
+        private Formats() {
+            DecimalFormatSymbols symbols = new DecimalFormatSymbols(Locale.ROOT);
+            symbols.setDecimalSeparator(',');
+            symbols.setGroupingSeparator(' ');
+            this.money = new DecimalFormat("#,##0.00", symbols);
+            this.quantity = new DecimalFormat("#,##0.###", symbols);
+        }
+
+        private String money(BigDecimal value) {
+            return value != null ? money.format(value.setScale(2, RoundingMode.HALF_UP)) : "";
+        }
+
+        private String quantity(BigDecimal value) {
+            return value != null ? quantity.format(value) : "";
+        }
+
+        private String date(LocalDate value) {
+            return value != null ? DATE_FORMAT.format(value) : "-";
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.invoiceapp.backend.service.pdf;
+
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.BaseFont;
+import io.netty.channel.ChannelOption;
+import io.netty.resolver.AddressResolver;
+import io.netty.resolver.AddressResolverGroup;
+import io.netty.resolver.InetNameResolver;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Споделени ресурси за PDF рендерирането.
+ *
+ * Шрифтовете се зареждат веднъж при стартиране и се използват от всички документи.
+ * Изображенията (лого, печат, подпис) се изтеглят веднъж и се пазят декодирани в паметта;
+ * всеки документ получава копие, защото Image обектите пазят позиция и мащаб.
+ */
+@Component
+public class PdfResources {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfResources.class);
+
+    private final BaseFont regularFont;
+    private final BaseFont boldFont;
+    private final WebClient webClient;
+    private final int maxImageBytes;
+    private final int maxCachedImages;
+
+    /**
+     * URL -> декодирано изображение (празно, ако не може да се зареди)
+     */
+    private final Map<String, Optional<Image>> images;
+
+    public PdfResources(ResourceLoader resourceLoader,
+                        @Value("${pdf.font.regular:classpath:fonts/DejaVuSans.ttf}") String regularFontLocation,
+                        @Value("${pdf.font.bold:classpath:fonts/DejaVuSans-Bold.ttf}") String boldFontLocation,
+                        @Value("${pdf.images.max-bytes:2097152}") int maxImageBytes,
+                        @Value("${pdf.images.cache-size:256}") int maxCachedImages) {
+        this.regularFont = loadFont(resourceLoader.getResource(regularFontLocation));
+        this.boldFont = loadFont(resourceLoader.getResource(boldFontLocation));
+        this.maxImageBytes = maxImageBytes;
+        this.maxCachedImages = maxCachedImages;
+        // Връзката се отваря само към адресите, проверени от PublicAddressResolverGroup
+        this.webClient = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create()
+                        .resolver(new PublicAddressResolverGroup())
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000)
+                        .responseTimeout(Duration.ofSeconds(10))
+                        .followRedirect(false)))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxImageBytes))
+                .build();
+        this.images = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Optional<Image>> eldest) {
+                return size() > PdfResources.this.maxCachedImages;
+            }
+        };
+    }
+
+    public BaseFont getRegularFont() {
+        return regularFont;
+    }
+
+    public BaseFont getBoldFont() {
+        return boldFont;
+    }
+
+    /**
+     * Декодираното изображение за URL (http, https или data:), заредено при първото използване
+     * @return празно, ако URL-ът липсва или изображението не може да се зареди
+     */
+    public Optional<Image> getImage(String url) {
+        if (url == null || url.isBlank()) {
+            return Optional.empty();
+        }
+        synchronized (images) {
+            Optional<Image> cached = images.get(url);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Изтеглянето е извън синхронизацията - при състезание изображението се зарежда два пъти
+        Optional<Image> loaded = loadImage(url);
+        synchronized (images) {
+            images.put(url, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Забравя изображение, например след смяна на логото на същия URL
+     */
+    public void evictImage(String url) {
+        synchronized (images) {
+            images.remove(url);
+        }
+    }
+
+    private Optional<Image> loadImage(String url) {
+        try {
+            byte[] data;
+            if (url.startsWith("data:")) {
+                int comma = url.indexOf(',');
+                if (comma < 0 || !url.substring(0, comma).endsWith(";base64")) {
+                    return Optional.empty();
+                }
+                data = Base64.getDecoder().decode(url.substring(comma + 1));
+            } else if (url.startsWith("http://") || url.startsWith("https://")) {
+                URI uri = URI.create(url);
+                if (isInternalHost(uri.getHost())) {
+                    logger.warn("Image {} points to an internal address and is skipped", url);
+                    return Optional.empty();
+                }
+                data = webClient.get()
+                        .uri(uri)
+                        .exchangeToMono(response -> {
+                            if (response.statusCode().value() != 200) {
+                                logger.warn("Image {} returned HTTP {}", url, response.statusCode().value());
+                                return response.releaseBody().then(Mono.<byte[]>empty());
+                            }
+                            return response.bodyToMono(byte[].class);
+                        })
+                        .block(Duration.ofSeconds(15));
+                if (data == null) {
+                    return Optional.empty();
+                }
+            } else {
+                logger.debug("Unsupported image URL for PDF: {}", url);
+                return Optional.empty();
+            }
+
+            if (data.length > maxImageBytes) {
+                logger.warn("Image {} is larger than {} bytes and is skipped", url, maxImageBytes);
+                return Optional.empty();
+            }
+            return Optional.of(Image.getInstance(data));
+        } catch (DataBufferLimitException e) {
+            logger.warn("Image {} is larger than {} bytes and is skipped", url, maxImageBytes);
+            return Optional.empty();
+        } catch (Exception e) {
+            logger.warn("Failed to load image {} for PDF: {}", url, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Не допускаме заявки от сървъра към вътрешната мрежа през URL-и, въведени от потребителите.
+     * Тази проверка покрива IP адресите в URL-а; за имената решава PublicAddressResolverGroup
+     * при самото свързване, иначе DNS може да върне друг адрес втория път (DNS rebinding)
+     */
+    private static boolean isInternalHost(String host) throws UnknownHostException {
+        if (host == null) {
+            return true;
+        }
+        for (InetAddress address : InetAddress.getAllByName(host)) {
+            if (isInternalAddress(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Адрес от локалната мрежа: loopback, частни IPv4 мрежи, link-local, IPv6 unique local (fc00::/7)
+     * и IPv4 адрес, вграден в IPv6 (::ffff:10.0.0.1, ::10.0.0.1)
+     */
+    static boolean isInternalAddress(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isSiteLocalAddress()
+                || address.isLinkLocalAddress() || address.isAnyLocalAddress()) {
+            return true;
+        }
+        if (address instanceof Inet6Address) {
+            byte[] bytes = address.getAddress();
+            if ((bytes[0] & 0xfe) == 0xfc) {
+                return true;
+            }
+            if (isEmbeddedIpv4(bytes)) {
+                try {
+                    return isInternalAddress(InetAddress.getByAddress(Arrays.copyOfRange(bytes, 12, 16)));
+                } catch (UnknownHostException e) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * ::ffff:a.b.c.d (IPv4-mapped) или ::a.b.c.d (IPv4-compatible)
+     */
+    private static boolean isEmbeddedIpv4(byte[] bytes) {
+        for (int i = 0; i < 10; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return (bytes[10] == 0 && bytes[11] == 0) || (bytes[10] == (byte) 0xff && bytes[11] == (byte) 0xff);
+    }
+
+    /**
+     * Адресите на името, ако никой от тях не е вътрешен
+     * @throws UnknownHostException ако името не съществува или сочи към вътрешен адрес
+     */
+    static List<InetAddress> publicAddresses(String host) throws UnknownHostException {
+        List<InetAddress> addresses = Arrays.asList(InetAddress.getAllByName(host));
+        for (InetAddress address : addresses) {
+            if (isInternalAddress(address)) {
+                throw new UnknownHostException(host + " resolves to an internal address");
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * DNS за HTTP клиента на изображенията: имената се разрешават веднъж, а клиентът се свързва
+     * точно с проверените адреси. TLS (SNI и проверката на сертификата) остава за името от URL-а.
+     */
+    static final class PublicAddressResolverGroup extends AddressResolverGroup<InetSocketAddress> {
+
+        @Override
+        protected AddressResolver<InetSocketAddress> newResolver(EventExecutor executor) {
+            return new InetNameResolver(executor) {
+                @Override
+                protected void doResolve(String host, Promise<InetAddress> promise) {
+                    try {
+                        promise.setSuccess(publicAddresses(host).get(0));
+                    } catch (UnknownHostException e) {
+                        promise.setFailure(e);
+                    }
+                }
+
+                @Override
+                protected void doResolveAll(String host, Promise<List<InetAddress>> promise) {
+                    try {
+                        promise.setSuccess(publicAddresses(host));
+                    } catch (UnknownHostException e) {
+                        promise.setFailure(e);
+                    }
+                }
+            }.asAddressResolver();
+        }
+    }
+
+    private static BaseFont loadFont(Resource resource) {
+        try (InputStream in = resource.getInputStream()) {
+            byte[] data = in.readAllBytes();
+            String name = resource.getFilename() != null ? resource.getFilename() : "font.ttf";
+            return BaseFont.createFont(name, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, true, data, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load PDF font " + resource, e);
+        } catch (com.lowagie.text.DocumentException e) {
+            throw new IllegalStateException("Invalid PDF font " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.model.Document;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Subgraph;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * План за зареждане на един документ с всички връзки, поискани в GraphQL заявката.
+ *
+ * Селекцията се превръща в JPA entity graph, така че клиентът, фирмата, начинът на плащане,
+ * банковата сметка и редовете (с артикулите и основанията за освобождаване от ДДС)
+ * се зареждат с една SQL заявка вместо с отделни lazy заявки или DataLoader рундове.
+ */
+public final class DocumentFetchPlan {
+
+    private final Set<String> paths;
+
+    private DocumentFetchPlan(Set<String> paths) {
+        this.paths = Collections.unmodifiableSet(paths);
+    }
+
+    /**
+     * Създава план от GraphQL селекцията на Document
+     */
+    public static DocumentFetchPlan of(DataFetchingFieldSelectionSet selectionSet) {
+        return of(selectionSet::contains);
+    }
+
+    /**
+     * Създава план по предикат "съдържа ли селекцията полето" (glob пътища като documentItems/item)
+     */
+    static DocumentFetchPlan of(Predicate<String> selected) {
+        Set<String> paths = new LinkedHashSet<>();
+        if (selected.test("client") || selected.test("clientName")) {
+            paths.add("client");
+            if (selected.test("client/company")) {
+                paths.add("client.company");
+            }
+        }
+        if (selected.test("company")) {
+            paths.add("company");
+        }
+        if (selected.test("paymentMethod") || selected.test("isPaid")) {
+            paths.add("paymentMethod");
+        }
+        if (selected.test("bankAccount")) {
+            paths.add("bankAccount");
+        }
+        if (selected.test("documentItems")) {
+            paths.add("documentItems");
+            if (selected.test("documentItems/item")
+                    || selected.test("documentItems/effectiveItemName")
+                    || selected.test("documentItems/effectiveItemNameEn")) {
+                paths.add("documentItems.item");
+            }
+            if (selected.test("documentItems/vatExemptionReason")) {
+                paths.add("documentItems.vatExemptionReason");
+            }
+        }
+        return new DocumentFetchPlan(paths);
+    }
+
+    /**
+     * Пътищата на връзките, които ще се заредят заедно с документа (напр. documentItems.item)
+     */
+    public Set<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Създава entity graph за плана
+     */
+    public EntityGraph<Document> toEntityGraph(EntityManager entityManager) {
+        EntityGraph<Document> graph = entityManager.createEntityGraph(Document.class);
+        Subgraph<Object> client = null;
+        Subgraph<Object> documentItems = null;
+        for (String path : paths) {
+            switch (path) {
+                case "client" -> client = graph.addSubgraph("client");
+                case "documentItems" -> documentItems = graph.addSubgraph("documentItems");
+                case "client.company" -> client.addAttributeNodes("company");
+                case "documentItems.item" -> documentItems.addAttributeNodes("item");
+                case "documentItems.vatExemptionReason" -> documentItems.addAttributeNodes("vatExemptionReason");
+                default -> graph.addAttributeNodes(path);
+            }
+        }
+        return graph;
+    }
+}
@@ -0,0 +1,209 @@
+package com.invoiceapp.backend.service.projection;
+
+import graphql.schema.DataFetchingFieldSelectionSet;
+import graphql.schema.SelectedField;
+
+import java.util.*;
+
+/**
+ * План за проекция на списък с документи според избраните GraphQL полета.
+ *
+ * Определя кои колони от documents да се прочетат и как да се представят връзките:
+ * <ul>
+ *   <li>STUB - колоните на връзката се четат в същата заявка (напр. client { id name })</li>
+ *   <li>REFERENCE - чете се само външният ключ, а полето се резолвира през DataLoader</li>
+ * </ul>
+ * Ако селекцията съдържа поле, което не може да се проектира, планът е празен
+ * и заявката се изпълнява с пълни entity обекти.
+ */
+public final class DocumentListPlan {
+
+    public enum RelationMode { NONE, REFERENCE, STUB }
+
+    /**
+     * GraphQL поле -> атрибути на Document, нужни за резолвирането му
+     */
+    private static final Map<String, List<String>> SCALAR_FIELDS = Map.ofEntries(
+            Map.entry("id", List.of()),
+            Map.entry("documentUuid", List.of("documentUuid")),
+            Map.entry("documentNumber", List.of("documentNumber")),
+            Map.entry("documentType", List.of("documentType")),
+            Map.entry("issueDate", List.of("issueDate")),
+            Map.entry("vatDate", List.of("vatDate")),
+            Map.entry("dueDate", List.of("dueDate")),
+            Map.entry("status", List.of("status")),
+            Map.entry("totalAmountWithVat", List.of("totalAmountWithVat")),
+            Map.entry("totalAmount", List.of("totalAmountWithVat")),
+            Map.entry("subtotalAmount", List.of("subtotalAmount")),
+            Map.entry("vatAmount", List.of("vatAmount")),
+            Map.entry("totalAmountWithVatBaseCurrency", List.of("totalAmountWithVatBaseCurrency")),
+            Map.entry("subtotalAmountBaseCurrency", List.of("subtotalAmountBaseCurrency")),
+            Map.entry("vatAmountBaseCurrency", List.of("vatAmountBaseCurrency")),
+            Map.entry("exchangeRate", List.of("exchangeRate")),
+            Map.entry("exchangeRateDate", List.of("exchangeRateDate")),
+            Map.entry("notes", List.of("notes")),
+            Map.entry("createdAt", List.of("createdAt")),
+            Map.entry("updatedAt", List.of("updatedAt")),
+            Map.entry("paidAt", List.of("paidAt")),
+            Map.entry("cancelledAt", List.of("cancelledAt")),
+            Map.entry("cancellationReason", List.of("cancellationReason")),
+            Map.entry("fullDocumentNumber", List.of("documentType", "documentNumber")),
+            Map.entry("isTaxDocument", List.of("documentType")),
+            Map.entry("isNonTaxDocument", List.of("documentType")),
+            Map.entry("hasValidVatDate", List.of("vatDate")),
+            Map.entry("effectiveVatDate", List.of("vatDate", "issueDate")),
+            Map.entry("isCancelled", List.of("status")),
+            Map.entry("isPaid", List.of("paidAt")),
+            Map.entry("currencyCode", List.of()),
+            Map.entry("clientId", List.of()),
+            Map.entry("clientName", List.of()),
+            Map.entry("company", List.of()),
+            Map.entry("bankAccount", List.of()),
+            Map.entry("documentItems", List.of()),
+            Map.entry("client", List.of()),
+            Map.entry("paymentMethod", List.of())
+    );
+
+    /** Полета на Client, които могат да се прочетат директно в заявката за списъка */
+    static final Set<String> CLIENT_STUB_FIELDS = Set.of("id", "name", "nameEn", "eik", "vatNumber");
+
+    /** Полета на PaymentMethod, които могат да се прочетат директно в заявката за списъка */
+    static final Set<String> PAYMENT_METHOD_STUB_FIELDS = Set.of("id", "name", "nameEn", "methodCode");
+
+    private final Set<String> attributes;
+    private final RelationMode client;
+    private final Set<String> clientFields;
+    private final RelationMode paymentMethod;
+    private final Set<String> paymentMethodFields;
+    private final boolean companyReference;
+    private final boolean bankAccountReference;
+    private final boolean currencyReference;
+
+    private DocumentListPlan(Set<String> attributes,
+                             RelationMode client, Set<String> clientFields,
+                             RelationMode paymentMethod, Set<String> paymentMethodFields,
+                             boolean companyReference, boolean bankAccountReference, boolean currencyReference) {
+        this.attributes = attributes;
+        this.client = client;
+        this.clientFields = clientFields;
+        this.paymentMethod = paymentMethod;
+        this.paymentMethodFields = paymentMethodFields;
+        this.companyReference = companyReference;
+        this.bankAccountReference = bankAccountReference;
+        this.currencyReference = currencyReference;
+    }
+
+    /**
+     * Създава план от GraphQL селекцията
+     * @return празно, ако селекцията изисква пълни entity обекти
+     */
+    public static Optional<DocumentListPlan> of(DataFetchingFieldSelectionSet selectionSet) {
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        for (SelectedField field : selectionSet.getImmediateFields()) {
+            if (field.getName().startsWith("__")) {
+                continue;
+            }
+            Set<String> nested = new HashSet<>();
+            if (field.getSelectionSet() != null) {
+                for (SelectedField child : field.getSelectionSet().getImmediateFields()) {
+                    if (!child.getName().startsWith("__")) {
+                        nested.add(child.getName());
+                    }
+                }
+            }
+            selected.computeIfAbsent(field.getName(), name -> new HashSet<>()).addAll(nested);
+        }
+        return of(selected);
+    }
+
+    /**
+     * Създава план от имената на избраните полета (поле -> вложени полета)
+     */
+    static Optional<DocumentListPlan> of(Map<String, Set<String>> selected) {
+        Set<String> attributes = new LinkedHashSet<>();
+        for (String field : selected.keySet()) {
+            List<String> required = SCALAR_FIELDS.get(field);
+            if (required == null) {
+                return Optional.empty();
+            }
+            attributes.addAll(required);
+        }
+
+        // client: clientName изисква името, client { ... } - вложените полета
+        Set<String> clientFields = new HashSet<>(selected.getOrDefault("client", Set.of()));
+        if (selected.containsKey("clientName")) {
+            clientFields.add("name");
+        }
+        RelationMode client;
+        if (selected.containsKey("client") && !CLIENT_STUB_FIELDS.containsAll(clientFields)) {
+            if (selected.containsKey("clientName")) {
+                // името би инициализирало proxy-то за всеки клиент поотделно
+                return Optional.empty();
+            }
+            client = RelationMode.REFERENCE;
+        } else if (!clientFields.isEmpty()) {
+            client = RelationMode.STUB;
+        } else if (selected.containsKey("clientId") || selected.containsKey("client")) {
+            client = RelationMode.REFERENCE;
+        } else {
+            client = RelationMode.NONE;
+        }
+
+        // paymentMethod: isPaid изисква кода на метода
+        Set<String> paymentMethodFields = new HashSet<>(selected.getOrDefault("paymentMethod", Set.of()));
+        if (selected.containsKey("isPaid")) {
+            paymentMethodFields.add("methodCode");
+        }
+        RelationMode paymentMethod;
+        if (selected.containsKey("paymentMethod") && !PAYMENT_METHOD_STUB_FIELDS.containsAll(paymentMethodFields)) {
+            if (selected.containsKey("isPaid")) {
+                return Optional.empty();
+            }
+            paymentMethod = RelationMode.REFERENCE;
+        } else if (!paymentMethodFields.isEmpty()) {
+            paymentMethod = RelationMode.STUB;
+        } else {
+            paymentMethod = RelationMode.NONE;
+        }
+
+        return Optional.of(new DocumentListPlan(
+                Collections.unmodifiableSet(attributes),
+                client, Set.copyOf(clientFields),
+                paymentMethod, Set.copyOf(paymentMethodFields),
+                selected.containsKey("company"),
+                selected.containsKey("bankAccount"),
+                selected.containsKey("currencyCode")));
+    }
+
+    public Set<String> getAttributes() {
+        return attributes;
+    }
+
+    public RelationMode getClient() {
+        return client;
+    }
+
+    public Set<String> getClientFields() {
+        return clientFields;
+    }
+
+    public RelationMode getPaymentMethod() {
+        return paymentMethod;
+    }
+
+    public Set<String> getPaymentMethodFields() {
+        return paymentMethodFields;
+    }
+
+    public boolean isCompanyReference() {
+        return companyReference;
+    }
+
+    public boolean isBankAccountReference() {
+        return bankAccountReference;
+    }
+
+    public boolean isCurrencyReference() {
+        return currencyReference;
+    }
+}
@@ -0,0 +1,245 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.service.projection.DocumentListPlan.RelationMode;
+import graphql.schema.DataFetchingFieldSelectionSet;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.*;
+import org.springframework.beans.PropertyAccessor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Зарежда документи според полетата, поискани в GraphQL заявката.
+ *
+ * Списъците са несвързани (transient) Document обекти, попълнени от tuple заявка.
+ * Връзките се попълват според {@link DocumentListPlan}: като непълни обекти с прочетените
+ * колони или като reference proxy-та, които се резолвират през DataLoader-ите.
+ * Тези обекти са само за четене и не бива да се записват.
+ *
+ * Единичен документ се зарежда като entity с {@link DocumentFetchPlan} (entity graph).
+ */
+@Service
+@Transactional(readOnly = true)
+public class DocumentProjectionService {
+
+    private static final String CLIENT_PREFIX = "client_";
+    private static final String PAYMENT_METHOD_PREFIX = "paymentMethod_";
+    private static final String LOAD_GRAPH_HINT = "jakarta.persistence.loadgraph";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Намира документи на фирма с проекция по селекцията
+     * @param companyId ID на фирмата
+     * @param documentTypes ограничение по тип (null - всички типове)
+     * @param status ограничение по статус (null - всички статуси)
+     * @param selectionSet GraphQL селекцията на списъка
+     * @return празно, ако селекцията изисква пълни entity обекти
+     */
+    public Optional<List<Document>> findDocuments(Long companyId,
+                                                  Collection<DocumentType> documentTypes,
+                                                  DocumentStatus status,
+                                                  DataFetchingFieldSelectionSet selectionSet) {
+        return DocumentListPlan.of(selectionSet)
+                .map(plan -> findDocuments(companyId, documentTypes, status, plan));
+    }
+
+    /**
+     * Намира документ по ID, като зарежда поисканите връзки в същата заявка
+     * @param documentId ID на документа
+     * @param selectionSet GraphQL селекцията на документа
+     */
+    public Optional<Document> findDocumentById(Long documentId, DataFetchingFieldSelectionSet selectionSet) {
+        return findDocumentById(documentId, DocumentFetchPlan.of(selectionSet));
+    }
+
+    Optional<Document> findDocumentById(Long documentId, DocumentFetchPlan plan) {
+        if (plan.getPaths().isEmpty()) {
+            return Optional.ofNullable(entityManager.find(Document.class, documentId));
+        }
+        Map<String, Object> hints = Map.of(LOAD_GRAPH_HINT, plan.toEntityGraph(entityManager));
+        return Optional.ofNullable(entityManager.find(Document.class, documentId, hints));
+    }
+
+    List<Document> findDocuments(Long companyId,
+                                 Collection<DocumentType> documentTypes,
+                                 DocumentStatus status,
+                                 DocumentListPlan plan) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Document> document = query.from(Document.class);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(document.get("id").alias("id"));
+        for (String attribute : plan.getAttributes()) {
+            selections.add(document.get(attribute).alias(attribute));
+        }
+
+        if (plan.getClient() == RelationMode.STUB) {
+            Join<Document, Client> client = document.join("client", JoinType.INNER);
+            selections.add(client.get("id").alias(CLIENT_PREFIX + "id"));
+            for (String field : plan.getClientFields()) {
+                if (!"id".equals(field)) {
+                    selections.add(client.get(field).alias(CLIENT_PREFIX + field));
+                }
+            }
+        } else if (plan.getClient() == RelationMode.REFERENCE) {
+            selections.add(document.get("client").get("id").alias(CLIENT_PREFIX + "id"));
+        }
+
+        if (plan.getPaymentMethod() == RelationMode.STUB) {
+            Join<Document, PaymentMethod> paymentMethod = document.join("paymentMethod", JoinType.LEFT);
+            selections.add(paymentMethod.get("id").alias(PAYMENT_METHOD_PREFIX + "id"));
+            for (String field : plan.getPaymentMethodFields()) {
+                if (!"id".equals(field)) {
+                    selections.add(paymentMethod.get(field).alias(PAYMENT_METHOD_PREFIX + field));
+                }
+            }
+        } else if (plan.getPaymentMethod() == RelationMode.REFERENCE) {
+            selections.add(document.join("paymentMethod", JoinType.LEFT).get("id").alias(PAYMENT_METHOD_PREFIX + "id"));
+        }
+
+        if (plan.isCompanyReference()) {
+            selections.add(document.get("company").get("id").alias("company_id"));
+        }
+        if (plan.isBankAccountReference()) {
+            selections.add(document.join("bankAccount", JoinType.LEFT).get("id").alias("bankAccount_id"));
+        }
+        if (plan.isCurrencyReference()) {
+            selections.add(document.get("currency").get("code").alias("currency_code"));
+        }
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(document.get("company").get("id"), companyId));
+        if (documentTypes != null) {
+            predicates.add(document.get("documentType").in(documentTypes));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(document.get("status"), status));
+        }
+
+        query.multiselect(selections)
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(document.get("createdAt")));
+
+        List<Tuple> rows = entityManager.createQuery(query).getResultList();
+        List<Document> documents = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            documents.add(toDocument(row, plan));
+        }
+        return documents;
+    }
+
+    /**
+     * Подбира документи за масово изпращане - само ID, статус и имейл на клиента
+     * @param documentIds конкретни документи (null - по филтъра; тогава черновите се пропускат)
+     * @param documentType ограничение по тип (null - всички типове)
+     * @param status ограничение по статус (null - всички статуси)
+     * @param issueDateFrom начална дата на издаване (включително, null - без ограничение)
+     * @param issueDateTo крайна дата на издаване (включително, null - без ограничение)
+     */
+    public List<MailingRecipient> findMailingRecipients(Long companyId,
+                                                        Collection<Long> documentIds,
+                                                        DocumentType documentType,
+                                                        DocumentStatus status,
+                                                        LocalDate issueDateFrom,
+                                                        LocalDate issueDateTo) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MailingRecipient> query = cb.createQuery(MailingRecipient.class);
+        Root<Document> document = query.from(Document.class);
+        Join<Document, Client> client = document.join("client", JoinType.INNER);
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(cb.equal(document.get("company").get("id"), companyId));
+        if (documentIds != null) {
+            predicates.add(document.get("id").in(documentIds));
+        } else if (status == null) {
+            predicates.add(cb.notEqual(document.get("status"), DocumentStatus.DRAFT));
+        }
+        if (documentType != null) {
+            predicates.add(cb.equal(document.get("documentType"), documentType));
+        }
+        if (status != null) {
+            predicates.add(cb.equal(document.get("status"), status));
+        }
+        if (issueDateFrom != null) {
+            predicates.add(cb.greaterThanOrEqualTo(document.<LocalDate>get("issueDate"), issueDateFrom));
+        }
+        if (issueDateTo != null) {
+            predicates.add(cb.lessThanOrEqualTo(document.<LocalDate>get("issueDate"), issueDateTo));
+        }
+
+        query.select(cb.construct(MailingRecipient.class,
+                        document.get("id"), document.get("status"), client.get("email")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.asc(document.get("id")));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private Document toDocument(Tuple row, DocumentListPlan plan) {
+        Document document = new Document();
+        PropertyAccessor accessor = PropertyAccessorFactory.forDirectFieldAccess(document);
+        document.setId(row.get("id", Long.class));
+        for (String attribute : plan.getAttributes()) {
+            accessor.setPropertyValue(attribute, row.get(attribute));
+        }
+
+        if (plan.getClient() == RelationMode.STUB) {
+            Client client = new Client();
+            PropertyAccessor clientAccessor = PropertyAccessorFactory.forDirectFieldAccess(client);
+            client.setId(row.get(CLIENT_PREFIX + "id", Long.class));
+            for (String field : plan.getClientFields()) {
+                if (!"id".equals(field)) {
+                    clientAccessor.setPropertyValue(field, row.get(CLIENT_PREFIX + field));
+                }
+            }
+            document.setClient(client);
+        } else if (plan.getClient() == RelationMode.REFERENCE) {
+            document.setClient(reference(Client.class, row.get(CLIENT_PREFIX + "id")));
+        }
+
+        if (plan.getPaymentMethod() == RelationMode.STUB) {
+            Long paymentMethodId = row.get(PAYMENT_METHOD_PREFIX + "id", Long.class);
+            if (paymentMethodId != null) {
+                PaymentMethod paymentMethod = new PaymentMethod();
+                PropertyAccessor methodAccessor = PropertyAccessorFactory.forDirectFieldAccess(paymentMethod);
+                paymentMethod.setId(paymentMethodId);
+                for (String field : plan.getPaymentMethodFields()) {
+                    if (!"id".equals(field)) {
+                        methodAccessor.setPropertyValue(field, row.get(PAYMENT_METHOD_PREFIX + field));
+                    }
+                }
+                document.setPaymentMethod(paymentMethod);
+            }
+        } else if (plan.getPaymentMethod() == RelationMode.REFERENCE) {
+            document.setPaymentMethod(reference(PaymentMethod.class, row.get(PAYMENT_METHOD_PREFIX + "id")));
+        }
+
+        if (plan.isCompanyReference()) {
+            document.setCompany(reference(Company.class, row.get("company_id")));
+        }
+        if (plan.isBankAccountReference()) {
+            document.setBankAccount(reference(BankAccount.class, row.get("bankAccount_id")));
+        }
+        if (plan.isCurrencyReference()) {
+            document.setCurrency(reference(Currency.class, row.get("currency_code")));
+        }
+        return document;
+    }
+
+    private <T> T reference(Class<T> type, Object id) {
+        return id != null ? entityManager.getReference(type, id) : null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.model.DocumentStatus;
+
+/**
+ * Документ и имейлът на клиента му - резултат от подбора за масово изпращане
+ */
+public record MailingRecipient(Long documentId, DocumentStatus status, String clientEmail) {
+}
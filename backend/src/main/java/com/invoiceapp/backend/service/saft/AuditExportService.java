@@ -0,0 +1,318 @@
+package com.invoiceapp.backend.service.saft;
+
+import com.invoiceapp.backend.config.CurrencyConfiguration;
+import com.invoiceapp.backend.model.AuditExport;
+import com.invoiceapp.backend.model.Company;
+import com.invoiceapp.backend.repository.AuditExportRepository;
+import com.invoiceapp.backend.repository.CompanyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SAF-T експорти за одиторите.
+ *
+ * Стартирането само записва заявката. Фоновият процес взима чакащите експорти и ги изпълнява в
+ * собствен пул (експорт от няколко GB не бива да спира останалите @Scheduled задачи): XML-ът се
+ * записва в gzip файл на диска (виж SaftExport) и след всяка страница се обновява напредъкът.
+ * Готовият файл се изтегля през AuditExportFileController и се изтрива след retention-hours.
+ *
+ * При няколко инстанции директорията трябва да е споделена.
+ */
+@Service
+public class AuditExportService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditExportService.class);
+
+    private static final String FILE_SUFFIX = ".xml.gz";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final String STALE_REASON = "Експортът е прекъснат";
+
+    private final AuditExportRepository exportRepository;
+    private final CompanyRepository companyRepository;
+    private final CurrencyConfiguration currencyConfig;
+    private final DataSource dataSource;
+    private final TransactionTemplate transactionTemplate;
+    private final XMLOutputFactory xmlOutputFactory = XMLOutputFactory.newFactory();
+    private final ThreadPoolExecutor executor;
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final Path exportDir;
+    private final int pageSize;
+    private final int parallelism;
+    private final long staleMinutes;
+    private final long retentionHours;
+
+    public AuditExportService(AuditExportRepository exportRepository,
+                              CompanyRepository companyRepository,
+                              CurrencyConfiguration currencyConfig,
+                              DataSource dataSource,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${audit.exports.dir:${java.io.tmpdir}/invoice-app/audit-exports}") String exportDir,
+                              @Value("${audit.exports.page-size:1000}") int pageSize,
+                              @Value("${audit.exports.parallelism:1}") int parallelism,
+                              @Value("${audit.exports.stale-minutes:10}") long staleMinutes,
+                              @Value("${audit.exports.retention-hours:72}") long retentionHours) {
+        this.exportRepository = exportRepository;
+        this.companyRepository = companyRepository;
+        this.currencyConfig = currencyConfig;
+        this.dataSource = dataSource;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportDir = Paths.get(exportDir).toAbsolutePath().normalize();
+        this.pageSize = pageSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.staleMinutes = staleMinutes;
+        this.retentionHours = retentionHours;
+        try {
+            Files.createDirectories(this.exportDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create audit export directory " + this.exportDir, e);
+        }
+        this.executor = new ThreadPoolExecutor(
+                this.parallelism,
+                this.parallelism,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                namedThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Поставя експорт в опашката
+     * @param periodFrom началото на периода, yyyy-MM-dd
+     * @param periodTo краят на периода, yyyy-MM-dd
+     * @param username потребителят, стартирал експорта
+     */
+    public AuditExport start(Long companyId, String periodFrom, String periodTo, String username) {
+        LocalDate from = parseDate(periodFrom);
+        LocalDate to = parseDate(periodTo);
+        if (to.isBefore(from)) {
+            throw new RuntimeException("Краят на периода е преди началото");
+        }
+        if (!companyRepository.existsById(companyId)) {
+            throw new RuntimeException("Фирмата не е намерена");
+        }
+        AuditExport export = new AuditExport();
+        export.setCompanyId(companyId);
+        export.setPeriodFrom(from);
+        export.setPeriodTo(to);
+        export.setCreatedBy(username);
+        AuditExport saved = exportRepository.save(export);
+        logger.info("Audit export {} queued by {} for company {} ({} - {})", saved.getId(), username, companyId, from, to);
+        return saved;
+    }
+
+    public Optional<AuditExport> findById(Long exportId) {
+        return exportRepository.findById(exportId);
+    }
+
+    public List<AuditExport> findByCompany(Long companyId) {
+        return exportRepository.findByCompanyIdOrderByCreatedAtDesc(companyId);
+    }
+
+    /**
+     * Файлът на приключил експорт
+     */
+    public Optional<Path> findFile(AuditExport export) {
+        if (!export.isCompleted() || export.getFilePath() == null) {
+            return Optional.empty();
+        }
+        Path file = Paths.get(export.getFilePath()).toAbsolutePath().normalize();
+        return file.startsWith(exportDir) && Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    public String fileName(AuditExport export) {
+        String eik = companyRepository.findById(export.getCompanyId()).map(Company::getEik).orElse(null);
+        return String.format("saft-%s-%s-%s%s", eik != null ? eik : export.getCompanyId(),
+                export.getPeriodFrom(), export.getPeriodTo(), FILE_SUFFIX);
+    }
+
+    /**
+     * Фонов процес - предава чакащите експорти на пула, докато има свободна нишка
+     */
+    @Scheduled(fixedDelayString = "${audit.exports.poll-interval-ms:5000}")
+    public void runPendingExports() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer stale = transactionTemplate.execute(status ->
+                exportRepository.failStale(now.minusMinutes(staleMinutes), STALE_REASON, now));
+        if (stale != null && stale > 0) {
+            logger.warn("{} audit exports stopped advancing and were marked as failed", stale);
+        }
+        while (running.get() < parallelism) {
+            AuditExport export = claimNext();
+            if (export == null) {
+                return;
+            }
+            running.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    run(export);
+                } finally {
+                    running.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private AuditExport claimNext() {
+        return transactionTemplate.execute(status -> exportRepository.lockNextPendingId()
+                .flatMap(exportRepository::findById)
+                .map(export -> {
+                    LocalDateTime now = LocalDateTime.now();
+                    export.setStatus(AuditExport.STATUS_RUNNING);
+                    export.setStartedAt(now);
+                    export.setProgressAt(now);
+                    return exportRepository.save(export);
+                })
+                .orElse(null));
+    }
+
+    void run(AuditExport export) {
+        long start = System.currentTimeMillis();
+        Path part = exportDir.resolve(export.getId() + FILE_SUFFIX + ".part");
+        Path target = exportDir.resolve(export.getId() + FILE_SUFFIX);
+        try {
+            Company company = companyRepository.findById(export.getCompanyId())
+                    .orElseThrow(() -> new IllegalStateException("Фирмата не е намерена"));
+            SaftHeader header = new SaftHeader(company.getName(), company.getEik(), company.getVatNumber(),
+                    company.getAddress(), currencyConfig.getBaseCurrency(), export.getPeriodFrom(), export.getPeriodTo(),
+                    LocalDate.now());
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(part), STREAM_BUFFER_SIZE),
+                    STREAM_BUFFER_SIZE)) {
+                writeSnapshot(export, header, out);
+            }
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            long size = Files.size(target);
+            transactionTemplate.executeWithoutResult(status -> exportRepository.findById(export.getId()).ifPresent(done -> {
+                done.setStatus(AuditExport.STATUS_COMPLETED);
+                done.setWrittenRecords(done.getTotalRecords());
+                done.setFilePath(target.toString());
+                done.setFileSize(size);
+                done.setCompletedAt(LocalDateTime.now());
+                exportRepository.save(done);
+            }));
+            logger.info("Audit export {} of company {} written in {} ms ({} bytes)", export.getId(),
+                    export.getCompanyId(), System.currentTimeMillis() - start, size);
+        } catch (Exception e) {
+            logger.error("Audit export {} failed", export.getId(), e);
+            deleteQuietly(part);
+            transactionTemplate.executeWithoutResult(status -> exportRepository.findById(export.getId()).ifPresent(failed -> {
+                failed.setStatus(AuditExport.STATUS_FAILED);
+                failed.setError(e.getMessage());
+                failed.setCompletedAt(LocalDateTime.now());
+                exportRepository.save(failed);
+            }));
+        }
+    }
+
+    // Всички страници се четат в една транзакция, за да са от едно и също състояние на базата
+    private void writeSnapshot(AuditExport export, SaftHeader header, OutputStream out)
+            throws SQLException, XMLStreamException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            try {
+                long total = SaftExport.countRecords(connection, export.getCompanyId(), header.periodFrom(), header.periodTo());
+                transactionTemplate.executeWithoutResult(status -> exportRepository.findById(export.getId()).ifPresent(running -> {
+                    running.setTotalRecords(total);
+                    exportRepository.save(running);
+                }));
+                XMLStreamWriter xml = xmlOutputFactory.createXMLStreamWriter(out, "UTF-8");
+                try {
+                    SaftExport.write(connection, export.getCompanyId(), header, xml, pageSize, written ->
+                            transactionTemplate.executeWithoutResult(status ->
+                                    exportRepository.updateProgress(export.getId(), written, LocalDateTime.now())));
+                } finally {
+                    xml.close();
+                }
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Изтрива файловете на експортите след срока за съхранение
+     */
+    @Scheduled(fixedDelayString = "${audit.exports.cleanup-interval-ms:3600000}")
+    public void cleanupExpiredExports() {
+        List<AuditExport> expired = exportRepository.findCompletedBefore(LocalDateTime.now().minusHours(retentionHours));
+        for (AuditExport export : expired) {
+            findFile(export).ifPresent(AuditExportService::deleteQuietly);
+            export.setStatus(AuditExport.STATUS_EXPIRED);
+            export.setFilePath(null);
+            exportRepository.save(export);
+        }
+        if (!expired.isEmpty()) {
+            logger.info("Deleted {} expired audit export files", expired.size());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        // Прекъснатите експорти се маркират като неуспешни от следващата инстанция (stale-minutes)
+        executor.shutdownNow();
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new RuntimeException("Невалидна дата: " + value + " (очаква се yyyy-MM-dd)");
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete audit export file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "audit-export-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,412 @@
+package com.invoiceapp.backend.service.saft;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SAF-T файл (по OECD Standard Audit File - Tax 2.0) на фирма за период: клиентите и артикулите
+ * като основни данни и приключените фактури, дебитни и кредитни известия с техните редове.
+ *
+ * Всички таблици се четат на страници по ключ (id, а документите - дата и id), а XML-ът се записва
+ * с XMLStreamWriter веднага, така че в паметта е само една страница, колкото и голям да е файлът.
+ * Страниците трябва да се четат в една транзакция REPEATABLE READ, за да са от едно и също
+ * състояние на базата.
+ */
+public final class SaftExport {
+
+    public static final String NAMESPACE = "urn:OECD:StandardAuditFile-Tax:2.00";
+
+    private static final String DOCUMENTS = """
+            FROM documents d
+            WHERE d.company_id = ? AND d.status = 'FINAL' AND d.document_type IN ('INVOICE', 'DEBIT_NOTE', 'CREDIT_NOTE')
+              AND d.issue_date BETWEEN ? AND ?
+            """;
+
+    private static final String COUNT_SQL = """
+            SELECT (SELECT count(*) FROM clients WHERE company_id = ?)
+                 + (SELECT count(*) FROM items WHERE company_id = ?)
+                 + (SELECT count(*) %s)
+            """.formatted(DOCUMENTS);
+
+    private static final String DOCUMENT_TOTALS_SQL = """
+            SELECT count(*),
+                   coalesce(sum(-d.subtotal_amount_base_currency) FILTER (WHERE d.subtotal_amount_base_currency < 0), 0),
+                   coalesce(sum(d.subtotal_amount_base_currency) FILTER (WHERE d.subtotal_amount_base_currency > 0), 0)
+            """ + DOCUMENTS;
+
+    private static final String CLIENTS_SQL = """
+            SELECT id, name, eik, vat_number, address, country_code
+            FROM clients
+            WHERE company_id = ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    private static final String ITEMS_SQL = """
+            SELECT id, item_number, name, unit_of_measure, accounting_account_number
+            FROM items
+            WHERE company_id = ? AND id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+
+    // Индексът idx_documents_company_issue_date (V16__Audit_Exports.sql) е по същия ключ
+    private static final String DOCUMENTS_SQL = """
+            SELECT d.id, d.document_uuid, d.document_number, d.document_type, d.issue_date, d.vat_date, d.client_id,
+                   d.currency_code, d.exchange_rate, d.subtotal_amount_base_currency, d.vat_amount_base_currency,
+                   d.total_amount_with_vat_base_currency
+            FROM documents d
+            WHERE d.company_id = ? AND d.status = 'FINAL' AND d.document_type IN ('INVOICE', 'DEBIT_NOTE', 'CREDIT_NOTE')
+              AND d.issue_date <= ? AND (d.issue_date, d.id) > (?, ?)
+            ORDER BY d.issue_date, d.id
+            LIMIT ?
+            """;
+
+    private static final String LINES_SQL = """
+            SELECT di.document_id, di.line_number, i.item_number, coalesce(di.item_description, i.name), di.quantity,
+                   i.unit_of_measure, di.unit_price, di.line_total, di.vat_rate, di.vat_amount, r.reason_code
+            FROM document_items di
+            JOIN items i ON i.id = di.item_id
+            LEFT JOIN vat_exemption_reasons r ON r.id = di.vat_exemption_reason_id
+            WHERE di.document_id = ANY (?)
+            ORDER BY di.document_id, di.line_number, di.id
+            """;
+
+    /**
+     * Извиква се след всяка записана страница
+     */
+    public interface Progress {
+        void written(long records);
+    }
+
+    private SaftExport() {
+    }
+
+    /**
+     * Броят на клиентите, артикулите и документите, които ще бъдат записани
+     */
+    public static long countRecords(Connection connection, long companyId, LocalDate from, LocalDate to) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(COUNT_SQL)) {
+            statement.setLong(1, companyId);
+            statement.setLong(2, companyId);
+            setPeriod(statement, 3, companyId, from, to);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    public static void write(Connection connection, long companyId, SaftHeader header, XMLStreamWriter xml,
+                             int pageSize, Progress progress) throws SQLException, XMLStreamException {
+        ExportWriter writer = new ExportWriter(connection, companyId, header, xml, pageSize, progress);
+        xml.writeStartDocument("UTF-8", "1.0");
+        xml.setDefaultNamespace(NAMESPACE);
+        xml.writeStartElement(NAMESPACE, "AuditFile");
+        xml.writeDefaultNamespace(NAMESPACE);
+        writer.header();
+        xml.writeStartElement("MasterFiles");
+        writer.customers();
+        writer.products();
+        xml.writeEndElement();
+        xml.writeStartElement("SourceDocuments");
+        writer.salesInvoices();
+        xml.writeEndElement();
+        xml.writeEndElement();
+        xml.writeEndDocument();
+        xml.flush();
+    }
+
+    private static void setPeriod(PreparedStatement statement, int index, long companyId, LocalDate from, LocalDate to)
+            throws SQLException {
+        statement.setLong(index, companyId);
+        statement.setDate(index + 1, Date.valueOf(from));
+        statement.setDate(index + 2, Date.valueOf(to));
+    }
+
+    private record Line(
+        int lineNumber,
+        String productCode,
+        String description,
+        BigDecimal quantity,
+        String unit,
+        BigDecimal unitPrice,
+        BigDecimal lineTotal,
+        BigDecimal vatRate,
+        BigDecimal vatAmount,
+        String exemptionReason
+    ) {}
+
+    private static final class ExportWriter {
+        private final Connection connection;
+        private final long companyId;
+        private final SaftHeader header;
+        private final XMLStreamWriter xml;
+        private final int pageSize;
+        private final Progress progress;
+        private long written;
+
+        ExportWriter(Connection connection, long companyId, SaftHeader header, XMLStreamWriter xml, int pageSize, Progress progress) {
+            this.connection = connection;
+            this.companyId = companyId;
+            this.header = header;
+            this.xml = xml;
+            this.pageSize = pageSize;
+            this.progress = progress;
+        }
+
+        void header() throws XMLStreamException {
+            xml.writeStartElement("Header");
+            element("AuditFileVersion", "2.00");
+            element("AuditFileCountry", "BG");
+            element("AuditFileDateCreated", header.created().toString());
+            element("SoftwareID", "invoice-app");
+            xml.writeStartElement("Company");
+            element("RegistrationNumber", header.eik());
+            element("Name", header.companyName());
+            address(header.address(), "BG");
+            taxRegistration(header.vatNumber());
+            xml.writeEndElement();
+            element("DefaultCurrencyCode", header.currency());
+            xml.writeStartElement("SelectionCriteria");
+            element("SelectionStartDate", header.periodFrom().toString());
+            element("SelectionEndDate", header.periodTo().toString());
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+
+        void customers() throws SQLException, XMLStreamException {
+            xml.writeStartElement("Customers");
+            try (PreparedStatement statement = connection.prepareStatement(CLIENTS_SQL)) {
+                long lastId = 0;
+                int rows;
+                do {
+                    statement.setLong(1, companyId);
+                    statement.setLong(2, lastId);
+                    statement.setInt(3, pageSize);
+                    rows = 0;
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            lastId = rs.getLong(1);
+                            xml.writeStartElement("Customer");
+                            element("RegistrationNumber", rs.getString(3));
+                            element("Name", rs.getString(2));
+                            address(rs.getString(5), rs.getString(6));
+                            taxRegistration(rs.getString(4));
+                            element("CustomerID", Long.toString(lastId));
+                            xml.writeEndElement();
+                        }
+                    }
+                    pageWritten(rows);
+                } while (rows == pageSize);
+            }
+            xml.writeEndElement();
+        }
+
+        void products() throws SQLException, XMLStreamException {
+            xml.writeStartElement("Products");
+            try (PreparedStatement statement = connection.prepareStatement(ITEMS_SQL)) {
+                long lastId = 0;
+                int rows;
+                do {
+                    statement.setLong(1, companyId);
+                    statement.setLong(2, lastId);
+                    statement.setInt(3, pageSize);
+                    rows = 0;
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            rows++;
+                            lastId = rs.getLong(1);
+                            xml.writeStartElement("Product");
+                            element("ProductCode", rs.getString(2));
+                            element("GoodsServicesID", rs.getString(5));
+                            element("Description", rs.getString(3));
+                            element("UOMBase", rs.getString(4));
+                            xml.writeEndElement();
+                        }
+                    }
+                    pageWritten(rows);
+                } while (rows == pageSize);
+            }
+            xml.writeEndElement();
+        }
+
+        void salesInvoices() throws SQLException, XMLStreamException {
+            xml.writeStartElement("SalesInvoices");
+            try (PreparedStatement statement = connection.prepareStatement(DOCUMENT_TOTALS_SQL)) {
+                setPeriod(statement, 1, companyId, header.periodFrom(), header.periodTo());
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    element("NumberOfEntries", Long.toString(rs.getLong(1)));
+                    element("TotalDebit", amount(rs.getBigDecimal(2)));
+                    element("TotalCredit", amount(rs.getBigDecimal(3)));
+                }
+            }
+            try (PreparedStatement documents = connection.prepareStatement(DOCUMENTS_SQL);
+                 PreparedStatement lines = connection.prepareStatement(LINES_SQL)) {
+                // (дата, id) > (начало на периода, 0) включва всички документи от първия ден
+                LocalDate lastDate = header.periodFrom();
+                long lastId = 0;
+                int rows;
+                do {
+                    documents.setLong(1, companyId);
+                    documents.setDate(2, Date.valueOf(header.periodTo()));
+                    documents.setDate(3, Date.valueOf(lastDate));
+                    documents.setLong(4, lastId);
+                    documents.setInt(5, pageSize);
+                    List<Object[]> page = new ArrayList<>(pageSize);
+                    try (ResultSet rs = documents.executeQuery()) {
+                        while (rs.next()) {
+                            Object[] row = new Object[12];
+                            for (int i = 0; i < row.length; i++) {
+                                row[i] = rs.getObject(i + 1);
+                            }
+                            page.add(row);
+                        }
+                    }
+                    rows = page.size();
+                    if (rows > 0) {
+                        Map<Long, List<Line>> pageLines = lines(lines, page);
+                        for (Object[] document : page) {
+                            invoice(document, pageLines.getOrDefault((Long) document[0], List.of()));
+                        }
+                        Object[] last = page.get(rows - 1);
+                        lastDate = ((Date) last[4]).toLocalDate();
+                        lastId = (Long) last[0];
+                    }
+                    pageWritten(rows);
+                } while (rows == pageSize);
+            }
+            xml.writeEndElement();
+        }
+
+        private Map<Long, List<Line>> lines(PreparedStatement statement, List<Object[]> page) throws SQLException {
+            Object[] ids = page.stream().map(document -> document[0]).toArray();
+            Array array = connection.createArrayOf("bigint", ids);
+            Map<Long, List<Line>> lines = new HashMap<>();
+            try {
+                statement.setArray(1, array);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        lines.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(new Line(
+                                rs.getInt(2), rs.getString(3), rs.getString(4), rs.getBigDecimal(5), rs.getString(6),
+                                rs.getBigDecimal(7), rs.getBigDecimal(8), rs.getBigDecimal(9), rs.getBigDecimal(10),
+                                rs.getString(11)));
+                    }
+                }
+            } finally {
+                array.free();
+            }
+            return lines;
+        }
+
+        private void invoice(Object[] document, List<Line> lines) throws XMLStreamException {
+            LocalDate issueDate = ((Date) document[4]).toLocalDate();
+            LocalDate taxPointDate = document[5] != null ? ((Date) document[5]).toLocalDate() : issueDate;
+            String currency = (String) document[7];
+            BigDecimal rate = (BigDecimal) document[8];
+            // Курсът е "1 базова валута = X валута на документа", както в DocumentService
+            BigDecimal exchangeRate = rate != null && rate.signum() > 0 ? rate : BigDecimal.ONE;
+
+            xml.writeStartElement("Invoice");
+            element("InvoiceNo", (String) document[2]);
+            xml.writeStartElement("CustomerInfo");
+            element("CustomerID", document[6].toString());
+            xml.writeEndElement();
+            element("Period", Integer.toString(taxPointDate.getMonthValue()));
+            element("PeriodYear", Integer.toString(taxPointDate.getYear()));
+            element("InvoiceDate", issueDate.toString());
+            element("InvoiceType", (String) document[3]);
+            element("SystemID", (String) document[1]);
+            for (Line line : lines) {
+                xml.writeStartElement("InvoiceLine");
+                element("LineNumber", Integer.toString(line.lineNumber()));
+                element("ProductCode", line.productCode());
+                element("ProductDescription", line.description());
+                element("Quantity", line.quantity().abs().toPlainString());
+                element("InvoiceUOM", line.unit());
+                element("UnitPrice", line.unitPrice().toPlainString());
+                element("TaxPointDate", taxPointDate.toString());
+                element("Description", line.description());
+                xml.writeStartElement("InvoiceLineAmount");
+                BigDecimal baseAmount = toBase(line.lineTotal(), exchangeRate);
+                element("Amount", amount(baseAmount.abs()));
+                element("CurrencyCode", currency);
+                element("CurrencyAmount", amount(line.lineTotal().abs()));
+                element("ExchangeRate", exchangeRate.toPlainString());
+                xml.writeEndElement();
+                element("DebitCreditIndicator", baseAmount.signum() < 0 ? "D" : "C");
+                xml.writeStartElement("TaxInformation");
+                element("TaxType", "VAT");
+                element("TaxCode", line.exemptionReason() != null ? line.exemptionReason() : "STANDARD");
+                element("TaxPercentage", line.vatRate().toPlainString());
+                element("TaxBase", amount(baseAmount.abs()));
+                xml.writeStartElement("TaxAmount");
+                element("Amount", amount(toBase(line.vatAmount(), exchangeRate).abs()));
+                xml.writeEndElement();
+                xml.writeEndElement();
+                xml.writeEndElement();
+            }
+            xml.writeStartElement("DocumentTotals");
+            element("NetTotal", amount((BigDecimal) document[9]));
+            element("TaxPayable", amount((BigDecimal) document[10]));
+            element("GrossTotal", amount((BigDecimal) document[11]));
+            xml.writeEndElement();
+            xml.writeEndElement();
+        }
+
+        private void address(String street, String country) throws XMLStreamException {
+            xml.writeStartElement("Address");
+            element("StreetName", street);
+            element("Country", country);
+            xml.writeEndElement();
+        }
+
+        private void taxRegistration(String vatNumber) throws XMLStreamException {
+            if (vatNumber != null && !vatNumber.isBlank()) {
+                xml.writeStartElement("TaxRegistration");
+                element("TaxRegistrationNumber", vatNumber);
+                xml.writeEndElement();
+            }
+        }
+
+        // Празните стойности се пропускат - в SAF-T те са незадължителни елементи
+        private void element(String name, String value) throws XMLStreamException {
+            if (value == null || value.isBlank()) {
+                return;
+            }
+            xml.writeStartElement(name);
+            xml.writeCharacters(value);
+            xml.writeEndElement();
+        }
+
+        private void pageWritten(int rows) {
+            if (rows > 0) {
+                written += rows;
+                progress.written(written);
+            }
+        }
+
+        private static BigDecimal toBase(BigDecimal amount, BigDecimal exchangeRate) {
+            return amount.divide(exchangeRate, 2, RoundingMode.HALF_UP);
+        }
+
+        private static String amount(BigDecimal value) {
+            return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+        }
+    }
+}
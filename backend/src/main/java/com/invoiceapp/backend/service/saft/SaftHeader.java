@@ -0,0 +1,18 @@
+package com.invoiceapp.backend.service.saft;
+
+import java.time.LocalDate;
+
+/**
+ * Данните на фирмата и периода за заглавната част на SAF-T файла
+ * @param currency базовата валута - всички суми във файла са в нея
+ */
+public record SaftHeader(
+    String companyName,
+    String eik,
+    String vatNumber,
+    String address,
+    String currency,
+    LocalDate periodFrom,
+    LocalDate periodTo,
+    LocalDate created
+) {}
@@ -0,0 +1,70 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * Дневникът за продажбите като CSV за преглед (UTF-8, разделител запетая, ред с общите суми накрая)
+ */
+public class CsvSalesLedgerWriter implements SalesLedgerWriter {
+
+    public static final String FILE_NAME = "prodagbi.csv";
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private final Writer out;
+
+    public CsvSalesLedgerWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin() throws IOException {
+        StringBuilder line = new StringBuilder("№,Вид документ,Номер,Дата,ИН на контрагента,Контрагент,Вид на стоката/услугата");
+        for (SalesLedgerColumn column : SalesLedgerColumn.values()) {
+            line.append(',');
+            quote(line, column.getTitle());
+        }
+        out.write(line.append("\r\n").toString());
+    }
+
+    @Override
+    public void write(SalesLedgerEntry entry) throws IOException {
+        StringBuilder line = new StringBuilder(256);
+        line.append(entry.sequence()).append(',').append(entry.documentTypeCode()).append(',');
+        quote(line, entry.documentNumber());
+        line.append(',').append(DATE.format(entry.documentDate())).append(',');
+        quote(line, entry.counterpartyId());
+        line.append(',');
+        quote(line, entry.counterpartyName());
+        line.append(',');
+        quote(line, entry.description());
+        appendAmounts(line, entry.amounts());
+        out.write(line.append("\r\n").toString());
+    }
+
+    @Override
+    public void finish(Map<SalesLedgerColumn, BigDecimal> totals) throws IOException {
+        StringBuilder line = new StringBuilder("Общо,,,,,,");
+        appendAmounts(line, totals);
+        out.write(line.append("\r\n").toString());
+        out.flush();
+    }
+
+    private static void appendAmounts(StringBuilder line, Map<SalesLedgerColumn, BigDecimal> amounts) {
+        for (SalesLedgerColumn column : SalesLedgerColumn.values()) {
+            line.append(',').append(amounts.getOrDefault(column, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP).toPlainString());
+        }
+    }
+
+    private static void quote(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
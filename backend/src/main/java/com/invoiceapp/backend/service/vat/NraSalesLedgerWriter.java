@@ -0,0 +1,80 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+
+/**
+ * PRODAGBI.TXT - дневникът за продажбите във формата за подаване в НАП: по един запис с фиксирана
+ * дължина на ред, CRLF, кодиране windows-1251. Текстовите полета са подравнени вляво, сумите -
+ * вдясно с два знака след десетичната точка (отрицателни за кредитните известия).
+ *
+ * Полета: ИН по ДДС (15), данъчен период ГГГГММ (6), клон (4), пореден номер (15), вид на документа (2),
+ * номер на документа (20), дата на документа дд/мм/гггг (10), ИН на контрагента (15), име на
+ * контрагента (50), вид на стоката/услугата (30), след тях колоните на SalesLedgerColumn по 15 знака.
+ */
+public class NraSalesLedgerWriter implements SalesLedgerWriter {
+
+    public static final Charset CHARSET = Charset.forName("windows-1251");
+    public static final String FILE_NAME = "PRODAGBI.TXT";
+
+    private static final DateTimeFormatter PERIOD = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final String BRANCH = "0000";
+    private static final int AMOUNT_WIDTH = 15;
+
+    private final Writer out;
+    private final String vatNumber;
+    private final String period;
+
+    public NraSalesLedgerWriter(Writer out, String vatNumber, YearMonth period) {
+        this.out = out;
+        this.vatNumber = vatNumber != null ? vatNumber : "";
+        this.period = PERIOD.format(period);
+    }
+
+    @Override
+    public void write(SalesLedgerEntry entry) throws IOException {
+        StringBuilder line = new StringBuilder(450);
+        text(line, vatNumber, 15);
+        line.append(period).append(BRANCH);
+        number(line, Long.toString(entry.sequence()), 15);
+        text(line, entry.documentTypeCode(), 2);
+        text(line, entry.documentNumber(), 20);
+        line.append(DATE.format(entry.documentDate()));
+        text(line, entry.counterpartyId(), 15);
+        text(line, entry.counterpartyName(), 50);
+        text(line, entry.description(), 30);
+        for (SalesLedgerColumn column : SalesLedgerColumn.values()) {
+            number(line, entry.amount(column).setScale(2, RoundingMode.HALF_UP).toPlainString(), AMOUNT_WIDTH);
+        }
+        line.append("\r\n");
+        out.write(line.toString());
+    }
+
+    @Override
+    public void finish(Map<SalesLedgerColumn, BigDecimal> totals) throws IOException {
+        out.flush();
+    }
+
+    // Подравнено вляво, отрязано до ширината; новите редове в текста биха разделили записа
+    static void text(StringBuilder line, String value, int width) {
+        String text = value == null ? "" : value.replace('\r', ' ').replace('\n', ' ').strip();
+        if (text.length() > width) {
+            text = text.substring(0, width);
+        }
+        line.append(text).append(" ".repeat(width - text.length()));
+    }
+
+    static void number(StringBuilder line, String value, int width) {
+        if (value.length() > width) {
+            throw new IllegalArgumentException("Стойността " + value + " не се побира в " + width + " знака");
+        }
+        line.append(" ".repeat(width - value.length())).append(value);
+    }
+}
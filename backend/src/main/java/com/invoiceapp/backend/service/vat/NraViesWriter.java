@@ -0,0 +1,90 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * VIES.TXT - VIES декларацията във формата за подаване в НАП: записи с фиксирана дължина, CRLF,
+ * кодиране windows-1251, както PRODAGBI.TXT (виж NraSalesLedgerWriter). Сумите са в цели единици.
+ *
+ * Записи:
+ * VHR - период ММ/ГГГГ (7), брой VTR записи (5);
+ * VDR - ИН по ДДС на декларатора (15), име (150), адрес (200), съставител (150);
+ * VTD - общо ВОД на стоки (15), общо услуги по чл. 21, ал. 2 (15), общо тристранни операции (15);
+ * VTR - пореден номер (5), ДДС номер на контрагента (15), ВОД на стоки (15), услуги (15),
+ * тристранни операции (15) - по един запис за контрагент.
+ */
+public class NraViesWriter {
+
+    public static final String FILE_NAME = "VIES.TXT";
+
+    private static final DateTimeFormatter PERIOD = DateTimeFormatter.ofPattern("MM/yyyy");
+    private static final int AMOUNT_WIDTH = 15;
+
+    private final Writer out;
+    private final String vatNumber;
+    private final String name;
+    private final String address;
+    private final String compiledBy;
+    private final String period;
+
+    public NraViesWriter(Writer out, String vatNumber, String name, String address, String compiledBy, YearMonth period) {
+        this.out = out;
+        this.vatNumber = vatNumber;
+        this.name = name;
+        this.address = address;
+        this.compiledBy = compiledBy;
+        this.period = PERIOD.format(period);
+    }
+
+    public void write(List<ViesLine> lines) throws IOException {
+        StringBuilder record = new StringBuilder(128);
+        record.append("VHR").append(period);
+        NraSalesLedgerWriter.number(record, Integer.toString(lines.size()), 5);
+        end(record);
+
+        record.append("VDR");
+        NraSalesLedgerWriter.text(record, vatNumber, 15);
+        NraSalesLedgerWriter.text(record, name, 150);
+        NraSalesLedgerWriter.text(record, address, 200);
+        NraSalesLedgerWriter.text(record, compiledBy, 150);
+        end(record);
+
+        BigDecimal goods = BigDecimal.ZERO;
+        BigDecimal services = BigDecimal.ZERO;
+        for (ViesLine line : lines) {
+            goods = goods.add(line.goods());
+            services = services.add(line.services());
+        }
+        record.append("VTD");
+        amounts(record, goods, services);
+        end(record);
+
+        int sequence = 0;
+        for (ViesLine line : lines) {
+            record.append("VTR");
+            NraSalesLedgerWriter.number(record, Integer.toString(++sequence), 5);
+            NraSalesLedgerWriter.text(record, line.vatNumber(), 15);
+            amounts(record, line.goods(), line.services());
+            end(record);
+        }
+        out.flush();
+    }
+
+    // Тристранните операции не се издават от приложението - винаги 0
+    private static void amounts(StringBuilder record, BigDecimal goods, BigDecimal services) {
+        NraSalesLedgerWriter.number(record, goods.toPlainString(), AMOUNT_WIDTH);
+        NraSalesLedgerWriter.number(record, services.toPlainString(), AMOUNT_WIDTH);
+        NraSalesLedgerWriter.number(record, "0", AMOUNT_WIDTH);
+    }
+
+    private void end(StringBuilder record) throws IOException {
+        record.append("\r\n");
+        out.write(record.toString());
+        record.setLength(0);
+    }
+}
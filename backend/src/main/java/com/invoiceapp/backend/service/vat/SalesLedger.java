@@ -0,0 +1,198 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Дневникът за продажбите на фирма за данъчен период.
+ *
+ * Редовете на приключените данъчни документи с дата на данъчно събитие (vat_date, иначе датата
+ * на издаване) в периода се четат с JDBC cursor, подредени по дата и документ; сумите на
+ * редовете се натрупват по колони, докато документът се смени, и тогава документът се записва.
+ * Така в паметта има само един документ, колкото и голям да е периодът. Курсорът изисква
+ * връзка без autocommit.
+ */
+public final class SalesLedger {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private static final BigDecimal RATE_20 = new BigDecimal("20");
+    private static final BigDecimal RATE_9 = new BigDecimal("9");
+
+    // Индексът idx_documents_vat_period (V15__Vat_Ledgers.sql) е върху същия израз за датата
+    private static final String SQL = """
+            SELECT d.id, d.document_type, d.document_number, d.issue_date, d.exchange_rate,
+                   c.name, c.vat_number, c.eik, c.is_eu_vat_payer,
+                   di.line_total, di.vat_amount, di.vat_rate, coalesce(di.item_description, i.name),
+                   r.reason_code, r.ubl_category_code
+            FROM documents d
+            JOIN clients c ON c.id = d.client_id
+            JOIN document_items di ON di.document_id = d.id
+            JOIN items i ON i.id = di.item_id
+            LEFT JOIN vat_exemption_reasons r ON r.id = di.vat_exemption_reason_id
+            WHERE d.company_id = ? AND d.status = 'FINAL' AND d.document_type IN ('INVOICE', 'DEBIT_NOTE', 'CREDIT_NOTE')
+              AND coalesce(d.vat_date, d.issue_date) BETWEEN ? AND ?
+            ORDER BY coalesce(d.vat_date, d.issue_date), d.document_number, d.id, di.line_number, di.id
+            """;
+
+    private SalesLedger() {
+    }
+
+    /**
+     * @param currencyFactor множител от базовата валута на документите към валутата на дневника
+     * @return сумите по колони за целия дневник
+     */
+    public static Map<SalesLedgerColumn, BigDecimal> export(Connection connection, long companyId, YearMonth period,
+                                                            BigDecimal currencyFactor, SalesLedgerWriter writer)
+            throws SQLException, IOException {
+        Map<SalesLedgerColumn, BigDecimal> totals = new EnumMap<>(SalesLedgerColumn.class);
+        writer.begin();
+        try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+            statement.setFetchSize(FETCH_SIZE);
+            statement.setLong(1, companyId);
+            statement.setDate(2, Date.valueOf(period.atDay(1)));
+            statement.setDate(3, Date.valueOf(period.atEndOfMonth()));
+            try (ResultSet rs = statement.executeQuery()) {
+                DocumentAccumulator current = null;
+                long sequence = 0;
+                while (rs.next()) {
+                    long documentId = rs.getLong(1);
+                    if (current == null || current.documentId != documentId) {
+                        if (current != null) {
+                            emit(current, currencyFactor, writer, totals);
+                        }
+                        current = new DocumentAccumulator(documentId, ++sequence, rs);
+                    }
+                    current.addLine(rs);
+                }
+                if (current != null) {
+                    emit(current, currencyFactor, writer, totals);
+                }
+            }
+        }
+        writer.finish(totals);
+        return totals;
+    }
+
+    private static void emit(DocumentAccumulator document, BigDecimal currencyFactor, SalesLedgerWriter writer,
+                             Map<SalesLedgerColumn, BigDecimal> totals) throws IOException {
+        SalesLedgerEntry entry = document.toEntry(currencyFactor);
+        SalesLedgerEntry.addTo(totals, entry);
+        writer.write(entry);
+    }
+
+    /**
+     * Колоната за данъчната основа на ред според ставката и основанието за 0% ДДС
+     */
+    static SalesLedgerColumn baseColumn(BigDecimal vatRate, String reasonCode, String categoryCode, boolean euVatPayer) {
+        if (vatRate.compareTo(RATE_20) == 0) {
+            return SalesLedgerColumn.BASE_20;
+        }
+        if (vatRate.compareTo(RATE_9) == 0) {
+            return SalesLedgerColumn.BASE_9;
+        }
+        if (vatRate.signum() != 0) {
+            // Няма друга ставка по ЗДДС - само в общите суми
+            return null;
+        }
+        if ("VATEX-EU-Z-173".equals(reasonCode)) {
+            return SalesLedgerColumn.BASE_ART140_146_173;
+        }
+        if ("VATEX-EU-S-21".equals(reasonCode) && euVatPayer) {
+            return SalesLedgerColumn.BASE_ART21_SERVICES;
+        }
+        if (categoryCode == null) {
+            return SalesLedgerColumn.BASE_ZERO_RATE;
+        }
+        return switch (categoryCode) {
+            case "K" -> SalesLedgerColumn.BASE_INTRA_COMMUNITY;
+            case "E" -> SalesLedgerColumn.BASE_EXEMPT;
+            case "O", "AE" -> SalesLedgerColumn.BASE_ART69;
+            default -> SalesLedgerColumn.BASE_ZERO_RATE;
+        };
+    }
+
+    static String documentTypeCode(String documentType) {
+        return switch (documentType) {
+            case "DEBIT_NOTE" -> "02";
+            case "CREDIT_NOTE" -> "03";
+            default -> "01";
+        };
+    }
+
+    /**
+     * Сумите на редовете на един документ във валутата на документа
+     */
+    private static final class DocumentAccumulator {
+        private final long documentId;
+        private final long sequence;
+        private final String documentType;
+        private final String documentNumber;
+        private final LocalDate documentDate;
+        private final BigDecimal exchangeRate;
+        private final String counterpartyId;
+        private final String counterpartyName;
+        private final boolean euVatPayer;
+        private String description;
+        private final EnumMap<SalesLedgerColumn, BigDecimal> amounts = new EnumMap<>(SalesLedgerColumn.class);
+
+        DocumentAccumulator(long documentId, long sequence, ResultSet rs) throws SQLException {
+            this.documentId = documentId;
+            this.sequence = sequence;
+            this.documentType = rs.getString(2);
+            this.documentNumber = rs.getString(3);
+            this.documentDate = rs.getDate(4).toLocalDate();
+            BigDecimal rate = rs.getBigDecimal(5);
+            this.exchangeRate = rate != null && rate.signum() > 0 ? rate : BigDecimal.ONE;
+            this.counterpartyName = rs.getString(6);
+            String vatNumber = rs.getString(7);
+            this.counterpartyId = vatNumber != null && !vatNumber.isBlank() ? vatNumber : rs.getString(8);
+            this.euVatPayer = rs.getBoolean(9);
+        }
+
+        void addLine(ResultSet rs) throws SQLException {
+            BigDecimal base = rs.getBigDecimal(10);
+            BigDecimal vat = rs.getBigDecimal(11);
+            BigDecimal vatRate = rs.getBigDecimal(12);
+            if (description == null) {
+                description = rs.getString(13);
+            }
+            add(SalesLedgerColumn.TOTAL_BASE, base);
+            add(SalesLedgerColumn.TOTAL_VAT, vat);
+            SalesLedgerColumn column = baseColumn(vatRate, rs.getString(14), rs.getString(15), euVatPayer);
+            if (column != null) {
+                add(column, base);
+                if (column == SalesLedgerColumn.BASE_20) {
+                    add(SalesLedgerColumn.VAT_20, vat);
+                } else if (column == SalesLedgerColumn.BASE_9) {
+                    add(SalesLedgerColumn.VAT_9, vat);
+                }
+            }
+        }
+
+        private void add(SalesLedgerColumn column, BigDecimal amount) {
+            if (amount != null) {
+                amounts.merge(column, amount, BigDecimal::add);
+            }
+        }
+
+        // Курсът е "1 базова валута = X валута на документа", както в DocumentService
+        SalesLedgerEntry toEntry(BigDecimal currencyFactor) {
+            EnumMap<SalesLedgerColumn, BigDecimal> converted = new EnumMap<>(SalesLedgerColumn.class);
+            amounts.forEach((column, amount) -> converted.put(column,
+                    amount.multiply(currencyFactor).divide(exchangeRate, 2, RoundingMode.HALF_UP)));
+            return new SalesLedgerEntry(sequence, documentTypeCode(documentType), documentNumber, documentDate,
+                    counterpartyId, counterpartyName, description, converted);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.invoiceapp.backend.service.vat;
+
+/**
+ * Сумовите колони на дневника за продажбите, в реда на записа в PRODAGBI.TXT
+ * (след описателните полета - виж NraSalesLedgerWriter)
+ */
+public enum SalesLedgerColumn {
+    TOTAL_BASE("Общ размер на ДО за облагане с ДДС"),
+    TOTAL_VAT("Всичко начислен ДДС"),
+    BASE_20("ДО на облагаемите доставки със ставка 20%"),
+    VAT_20("Начислен ДДС 20%"),
+    BASE_ACQUISITIONS("ДО на ВОП"),
+    BASE_ART82("ДО на получените доставки по чл. 82, ал. 2-5"),
+    VAT_ACQUISITIONS_ART82("Начислен ДДС за ВОП и доставки по чл. 82, ал. 2-5"),
+    BASE_9("ДО на облагаемите доставки със ставка 9%"),
+    VAT_9("Начислен ДДС 9%"),
+    BASE_ZERO_RATE("ДО на доставки със ставка 0% по глава трета"),
+    BASE_INTRA_COMMUNITY("ДО на ВОД"),
+    BASE_ART140_146_173("ДО на доставки със ставка 0% по чл. 140, 146 и 173"),
+    BASE_ART21_SERVICES("ДО на услуги по чл. 21, ал. 2 в друга държава членка"),
+    BASE_ART69("ДО на доставки по чл. 69, ал. 2 и с място на изпълнение извън страната"),
+    BASE_EXEMPT("ДО на освободени доставки"),
+    BASE_TRIANGULAR("ДО на доставки като посредник в тристранна операция");
+
+    private final String title;
+
+    SalesLedgerColumn(String title) {
+        this.title = title;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+}
@@ -0,0 +1,34 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Един ред от дневника за продажбите - един данъчен документ, сумите по колони в базова валута
+ * @param documentTypeCode код на вида документ по ППЗДДС (01 фактура, 02 дебитно, 03 кредитно известие)
+ * @param counterpartyId ДДС номерът на клиента, а ако няма - ЕИК
+ * @param description описанието на първия ред на документа
+ */
+public record SalesLedgerEntry(
+    long sequence,
+    String documentTypeCode,
+    String documentNumber,
+    LocalDate documentDate,
+    String counterpartyId,
+    String counterpartyName,
+    String description,
+    EnumMap<SalesLedgerColumn, BigDecimal> amounts
+) {
+    public BigDecimal amount(SalesLedgerColumn column) {
+        return amounts.getOrDefault(column, BigDecimal.ZERO);
+    }
+
+    /**
+     * Сумите по колони за целия дневник
+     */
+    public static void addTo(Map<SalesLedgerColumn, BigDecimal> totals, SalesLedgerEntry entry) {
+        entry.amounts.forEach((column, amount) -> totals.merge(column, amount, BigDecimal::add));
+    }
+}
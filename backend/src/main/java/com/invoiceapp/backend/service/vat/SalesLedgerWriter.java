@@ -0,0 +1,22 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Формат на изхода на дневника за продажбите. Редовете идват един по един, в реда на дневника.
+ */
+public interface SalesLedgerWriter {
+
+    default void begin() throws IOException {
+    }
+
+    void write(SalesLedgerEntry entry) throws IOException;
+
+    /**
+     * @param totals сумите по колони за целия дневник
+     */
+    default void finish(Map<SalesLedgerColumn, BigDecimal> totals) throws IOException {
+    }
+}
@@ -0,0 +1,160 @@
+package com.invoiceapp.backend.service.vat;
+
+import com.invoiceapp.backend.config.CurrencyConfiguration;
+import com.invoiceapp.backend.model.Company;
+import com.invoiceapp.backend.repository.CompanyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Дневниците по ДДС и VIES декларацията за подаване в НАП, записвани направо в изходящия поток
+ */
+@Service
+public class VatLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VatLedgerService.class);
+
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    public enum Format {
+        TXT, CSV
+    }
+
+    /**
+     * Проверените параметри на експорта
+     * @param currencyFactor множител от базовата валута към валутата на дневника
+     */
+    public record LedgerRequest(
+        Company company,
+        YearMonth period,
+        Format format,
+        String currency,
+        BigDecimal currencyFactor
+    ) {}
+
+    private final DataSource dataSource;
+    private final CompanyRepository companyRepository;
+    private final CurrencyConfiguration currencyConfig;
+
+    public VatLedgerService(DataSource dataSource, CompanyRepository companyRepository, CurrencyConfiguration currencyConfig) {
+        this.dataSource = dataSource;
+        this.companyRepository = companyRepository;
+        this.currencyConfig = currencyConfig;
+    }
+
+    /**
+     * @param period във формат yyyy-MM
+     * @param format txt (файл за НАП) или csv (преглед); по подразбиране txt
+     * @param currency EUR или BGN (по фиксирания курс); по подразбиране базовата валута
+     * @throws IllegalArgumentException при невалидни параметри
+     */
+    public LedgerRequest request(Long companyId, String period, String format, String currency) {
+        Company company = companyRepository.findById(companyId)
+                .orElseThrow(() -> new IllegalArgumentException("Фирмата не е намерена"));
+        YearMonth taxPeriod;
+        try {
+            taxPeriod = YearMonth.parse(period);
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Невалиден данъчен период: " + period + " (очаква се yyyy-MM)");
+        }
+        Format ledgerFormat;
+        try {
+            ledgerFormat = format == null ? Format.TXT : Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неподдържан формат: " + format + " (txt или csv)");
+        }
+        String baseCurrency = currencyConfig.getBaseCurrency();
+        String ledgerCurrency = currency == null || currency.isBlank() ? baseCurrency : currency.toUpperCase(Locale.ROOT);
+        return new LedgerRequest(company, taxPeriod, ledgerFormat, ledgerCurrency, currencyFactor(baseCurrency, ledgerCurrency));
+    }
+
+    private BigDecimal currencyFactor(String baseCurrency, String ledgerCurrency) {
+        if (ledgerCurrency.equals(baseCurrency)) {
+            return BigDecimal.ONE;
+        }
+        if ("EUR".equals(baseCurrency) && "BGN".equals(ledgerCurrency)) {
+            return currencyConfig.getBgnToEurRate();
+        }
+        if ("BGN".equals(baseCurrency) && "EUR".equals(ledgerCurrency)) {
+            return BigDecimal.ONE.divide(currencyConfig.getBgnToEurRate(), MathContext.DECIMAL64);
+        }
+        throw new IllegalArgumentException("Дневникът може да е в EUR или BGN, не в " + ledgerCurrency);
+    }
+
+    public String salesLedgerFileName(LedgerRequest request) {
+        return request.format() == Format.TXT ? NraSalesLedgerWriter.FILE_NAME : CsvSalesLedgerWriter.FILE_NAME;
+    }
+
+    /**
+     * Записва дневника за продажбите; в паметта е само текущият документ
+     */
+    public void writeSalesLedger(LedgerRequest request, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out,
+                request.format() == Format.TXT ? NraSalesLedgerWriter.CHARSET : StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+        SalesLedgerWriter ledgerWriter = request.format() == Format.TXT
+                ? new NraSalesLedgerWriter(writer, request.company().getVatNumber(), request.period())
+                : new CsvSalesLedgerWriter(writer);
+        withCursorConnection(connection -> SalesLedger.export(connection, request.company().getId(), request.period(),
+                request.currencyFactor(), ledgerWriter));
+        writer.flush();
+        logger.info("Sales ledger {} of company {} for {} written in {} ms", request.format(),
+                request.company().getId(), request.period(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Записва VIES декларацията за периода; формата на заявката се пренебрегва - декларацията е само VIES.TXT
+     */
+    public void writeViesStatement(LedgerRequest request, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Company company = request.company();
+        List<ViesLine> lines = new ArrayList<>();
+        withCursorConnection(connection -> lines.addAll(ViesStatement.aggregate(connection, company.getId(),
+                request.period(), request.currencyFactor())));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, NraSalesLedgerWriter.CHARSET), STREAM_BUFFER_SIZE);
+        new NraViesWriter(writer, company.getVatNumber(), company.getName(), company.getAddress(),
+                company.getCompiledBy(), request.period()).write(lines);
+        logger.info("VIES statement of company {} for {} with {} counterparties written in {} ms",
+                company.getId(), request.period(), lines.size(), System.currentTimeMillis() - start);
+    }
+
+    private interface CursorWork {
+        void run(Connection connection) throws SQLException, IOException;
+    }
+
+    // Курсорът на PostgreSQL драйвера работи само в транзакция
+    private void withCursorConnection(CursorWork work) throws IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try {
+                work.run(connection);
+            } finally {
+                connection.rollback();
+                connection.setReadOnly(false);
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Грешка при четене на документите за дневника", e);
+        }
+    }
+}
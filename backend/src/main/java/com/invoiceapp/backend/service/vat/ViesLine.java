@@ -0,0 +1,19 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.math.BigDecimal;
+
+/**
+ * Един ред от VIES декларацията - сумите за един контрагент в цели единици от валутата на декларацията
+ * @param vatNumber ДДС номерът на контрагента с префикса на държавата, напр. DE123456789
+ * @param goods данъчна основа на вътреобщностните доставки на стоки
+ * @param services данъчна основа на доставките на услуги по чл. 21, ал. 2
+ */
+public record ViesLine(
+    String vatNumber,
+    BigDecimal goods,
+    BigDecimal services
+) {
+    public boolean isEmpty() {
+        return goods.signum() == 0 && services.signum() == 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.invoiceapp.backend.service.vat;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VIES декларацията на фирма за данъчен период - вътреобщностните доставки на стоки (категория K)
+ * и услугите по чл. 21, ал. 2 (VATEX-EU-S-21) към регистрирани по ДДС клиенти от ЕС, сумирани
+ * по ДДС номер на контрагента.
+ *
+ * Сумирането е в една заявка: редовете на документите в периода се групират първо по клиент, после
+ * по нормализирания ДДС номер, за да се съберат клиентите с един и същ номер. Кредитните и дебитните
+ * известия влизат с техния знак в периода, в който са издадени, и така коригират доставките -
+ * известията нямат връзка с фактурата, за която се отнасят.
+ */
+public final class ViesStatement {
+
+    // Същите документи и израз за датата като в SalesLedger - използва idx_documents_vat_period.
+    // ДДС номерът се чисти от интервали, точки и тирета; ако няма префикс, се взима кодът на
+    // държавата на клиента (за Гърция префиксът е EL).
+    private static final String SQL = """
+            SELECT counterparty, sum(goods), sum(services)
+            FROM (
+                SELECT CASE WHEN v.vat ~ '^[A-Z]{2}' THEN v.vat
+                            ELSE replace(upper(coalesce(c.country_code, '')), 'GR', 'EL') || v.vat END AS counterparty,
+                       t.goods, t.services
+                FROM (
+                    SELECT d.client_id,
+                           coalesce(sum(di.line_total / coalesce(nullif(d.exchange_rate, 0), 1))
+                               FILTER (WHERE r.ubl_category_code = 'K'), 0) AS goods,
+                           coalesce(sum(di.line_total / coalesce(nullif(d.exchange_rate, 0), 1))
+                               FILTER (WHERE r.reason_code = 'VATEX-EU-S-21'), 0) AS services
+                    FROM documents d
+                    JOIN document_items di ON di.document_id = d.id
+                    JOIN vat_exemption_reasons r ON r.id = di.vat_exemption_reason_id
+                    WHERE d.company_id = ? AND d.status = 'FINAL' AND d.document_type IN ('INVOICE', 'DEBIT_NOTE', 'CREDIT_NOTE')
+                      AND coalesce(d.vat_date, d.issue_date) BETWEEN ? AND ?
+                      AND (r.ubl_category_code = 'K' OR r.reason_code = 'VATEX-EU-S-21')
+                    GROUP BY d.client_id
+                ) t
+                JOIN clients c ON c.id = t.client_id
+                CROSS JOIN LATERAL (SELECT upper(regexp_replace(coalesce(c.vat_number, ''), '[^A-Za-z0-9]', '', 'g')) AS vat) v
+                WHERE c.is_eu_vat_payer AND v.vat <> ''
+            ) lines
+            WHERE counterparty NOT LIKE 'BG%'
+            GROUP BY counterparty
+            ORDER BY counterparty
+            """;
+
+    private ViesStatement() {
+    }
+
+    /**
+     * @param currencyFactor множител от базовата валута на документите към валутата на декларацията
+     * @return редовете по ДДС номер, без контрагентите, при които известията са нулирали доставките
+     */
+    public static List<ViesLine> aggregate(Connection connection, long companyId, YearMonth period,
+                                           BigDecimal currencyFactor) throws SQLException {
+        List<ViesLine> lines = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(SQL)) {
+            statement.setLong(1, companyId);
+            statement.setDate(2, Date.valueOf(period.atDay(1)));
+            statement.setDate(3, Date.valueOf(period.atEndOfMonth()));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    ViesLine line = new ViesLine(rs.getString(1),
+                            wholeUnits(rs.getBigDecimal(2), currencyFactor),
+                            wholeUnits(rs.getBigDecimal(3), currencyFactor));
+                    if (!line.isEmpty()) {
+                        lines.add(line);
+                    }
+                }
+            }
+        }
+        return lines;
+    }
+
+    // Сумите в декларацията са в цели единици
+    private static BigDecimal wholeUnits(BigDecimal amount, BigDecimal currencyFactor) {
+        return amount.multiply(currencyFactor).setScale(0, RoundingMode.HALF_UP);
+    }
+}
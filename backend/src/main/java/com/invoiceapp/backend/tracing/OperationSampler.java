@@ -0,0 +1,47 @@
+package com.invoiceapp.backend.tracing;
+
+import com.invoiceapp.backend.metrics.GraphQlOperationInterceptor;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.data.LinkData;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingResult;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Samples new traces with a probability per GraphQL operation.
+ *
+ * The operation is taken from the current request (set by GraphQlOperationInterceptor before
+ * the operation executes), so it is known when the graphql.request span - the root span of a
+ * GraphQL request - starts. Traces of other requests and background jobs use the default
+ * probability. Meant as the root sampler of a parent-based sampler; child spans follow the root.
+ */
+public class OperationSampler implements Sampler {
+
+    private final Sampler defaultSampler;
+    private final Map<String, Sampler> operationSamplers = new HashMap<>();
+
+    public OperationSampler(double defaultProbability, Map<String, Double> operationProbabilities) {
+        this.defaultSampler = Sampler.traceIdRatioBased(defaultProbability);
+        operationProbabilities.forEach((operation, probability) ->
+                operationSamplers.put(operation, Sampler.traceIdRatioBased(probability)));
+    }
+
+    @Override
+    public SamplingResult shouldSample(Context parentContext, String traceId, String name, SpanKind spanKind,
+                                       Attributes attributes, List<LinkData> parentLinks) {
+        String operation = GraphQlOperationInterceptor.currentOperation();
+        Sampler sampler = operation != null ? operationSamplers.getOrDefault(operation, defaultSampler) : defaultSampler;
+        return sampler.shouldSample(parentContext, traceId, name, spanKind, attributes, parentLinks);
+    }
+
+    @Override
+    public String getDescription() {
+        return "OperationSampler{default=" + defaultSampler.getDescription()
+                + ", operations=" + operationSamplers.keySet() + "}";
+    }
+}
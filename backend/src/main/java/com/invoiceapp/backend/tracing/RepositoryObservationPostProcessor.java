@@ -0,0 +1,71 @@
+package com.invoiceapp.backend.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+
+/**
+ * Observes every Spring Data repository call as "repository.invocations" (timer and span named
+ * e.g. "DocumentRepository.findById"), so a slow resolver shows which queries it waited on.
+ * Replaces Spring Boot's repository timer, which is switched off in the properties.
+ */
+public class RepositoryObservationPostProcessor implements BeanPostProcessor {
+
+    public static final String OBSERVATION = "repository.invocations";
+
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    public RepositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> factoryBean) {
+            factoryBean.addRepositoryFactoryCustomizer(factory -> factory.addRepositoryProxyPostProcessor(
+                    (proxyFactory, information) -> proxyFactory.addAdvice(
+                            new ObservingInterceptor(information.getRepositoryInterface().getSimpleName()))));
+        }
+        return bean;
+    }
+
+    private final class ObservingInterceptor implements MethodInterceptor {
+
+        private final String repository;
+        private ObservationRegistry registry;
+
+        private ObservingInterceptor(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String method = invocation.getMethod().getName();
+            Observation observation = Observation.createNotStarted(OBSERVATION, registry())
+                    .contextualName(repository + "." + method)
+                    .lowCardinalityKeyValue("repository", repository)
+                    .lowCardinalityKeyValue("method", method)
+                    .start();
+            try (Observation.Scope scope = observation.openScope()) {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                observation.error(e);
+                throw e;
+            } finally {
+                observation.stop();
+            }
+        }
+
+        // Resolved on first use - the registry may not exist yet when repositories are created
+        private ObservationRegistry registry() {
+            if (registry == null) {
+                registry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+            }
+            return registry;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.invoiceapp.backend.tracing;
+
+import io.micrometer.observation.ObservationPredicate;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+/**
+ * OpenTelemetry tracing through Micrometer Observation.
+ *
+ * Spans come from the observations of GraphQL requests and data fetchers, DataLoader batches,
+ * repository calls, the document number lock, e-mail sending and the calls to VIES, ECB, SMTP
+ * and S3. They are exported over OTLP when management.otlp.tracing.endpoint is set (a local
+ * collector) and/or written to the log when tracing.log-exporter.enabled=true (offline use).
+ */
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Replaces Spring Boot's sampler: new traces are sampled per GraphQL operation
+     */
+    @Bean
+    public Sampler otelSampler(@Value("${management.tracing.sampling.probability:0.1}") double probability,
+                               TracingSamplingProperties properties) {
+        return Sampler.parentBased(new OperationSampler(probability, properties.getOperations()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "tracing.log-exporter.enabled", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+
+    /**
+     * GraphQL requests are observed by graphql.request instead of the HTTP server observation,
+     * so the request span - the root of the trace - already knows its operation when it is sampled
+     */
+    @Bean
+    public ObservationPredicate graphQlHttpObservationPredicate(@Value("${spring.graphql.path:/graphql}") String graphQlPath) {
+        return (name, context) -> !(context instanceof ServerRequestObservationContext serverContext
+                && graphQlPath.equals(serverContext.getCarrier().getRequestURI()));
+    }
+
+    @Bean
+    public static RepositoryObservationPostProcessor repositoryObservationPostProcessor(
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new RepositoryObservationPostProcessor(observationRegistry);
+    }
+}
@@ -0,0 +1,26 @@
+package com.invoiceapp.backend.tracing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trace sampling per GraphQL operation, e.g. {@code tracing.sampling.operations.createDocument=1.0}.
+ * Operations not listed use management.tracing.sampling.probability.
+ */
+@Component
+@ConfigurationProperties(prefix = "tracing.sampling")
+public class TracingSamplingProperties {
+
+    private Map<String, Double> operations = new HashMap<>();
+
+    public Map<String, Double> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(Map<String, Double> operations) {
+        this.operations = operations;
+    }
+}
@@ -0,0 +1,92 @@
+package com.invoiceapp.backend.util;
+
+import java.util.Arrays;
+
+/**
+ * Помощни функции за търсенията с trigram индекси (ClientRepository, ItemRepository),
+ * за autocomplete индекса в паметта и за пълнотекстовото търсене в документите
+ */
+public final class SearchTerms {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 200;
+
+    private SearchTerms() {
+    }
+
+    /**
+     * Екранира \, % и _, за да се търси буквално с LIKE (escape символът по подразбиране в PostgreSQL е \)
+     */
+    public static String likeEscape(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Същото като функцията search_normalize в базата (V12__Trigram_Search.sql):
+     * малки букви и кирилица, транслитерирана на латиница ("Щастливец" -> "shtastlivets")
+     */
+    public static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length() + 8);
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            switch (c) {
+                case 'а', 'ъ' -> normalized.append('a');
+                case 'б' -> normalized.append('b');
+                case 'в' -> normalized.append('v');
+                case 'г' -> normalized.append('g');
+                case 'д' -> normalized.append('d');
+                case 'е' -> normalized.append('e');
+                case 'ж' -> normalized.append("zh");
+                case 'з' -> normalized.append('z');
+                case 'и' -> normalized.append('i');
+                case 'й', 'ь' -> normalized.append('y');
+                case 'к' -> normalized.append('k');
+                case 'л' -> normalized.append('l');
+                case 'м' -> normalized.append('m');
+                case 'н' -> normalized.append('n');
+                case 'о' -> normalized.append('o');
+                case 'п' -> normalized.append('p');
+                case 'р' -> normalized.append('r');
+                case 'с' -> normalized.append('s');
+                case 'т' -> normalized.append('t');
+                case 'у' -> normalized.append('u');
+                case 'ф' -> normalized.append('f');
+                case 'х' -> normalized.append('h');
+                case 'ц' -> normalized.append("ts");
+                case 'ч' -> normalized.append("ch");
+                case 'ш' -> normalized.append("sh");
+                case 'щ' -> normalized.append("sht");
+                case 'ю' -> normalized.append("yu");
+                case 'я' -> normalized.append("ya");
+                default -> normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Думите на нормализирания текст (разделени от всичко, което не е буква или цифра)
+     */
+    public static String[] tokens(String text) {
+        return words(normalize(text));
+    }
+
+    /**
+     * Думите на текста без нормализиране - само букви и цифри, затова са безопасни и в tsquery
+     */
+    public static String[] words(String text) {
+        return Arrays.stream(text.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Брой резултати: по подразбиране DEFAULT_LIMIT, най-много MAX_LIMIT
+     */
+    public static int limit(Integer requested) {
+        if (requested == null || requested <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(requested, MAX_LIMIT);
+    }
+}
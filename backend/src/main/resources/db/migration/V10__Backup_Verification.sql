@@ -0,0 +1,12 @@
+-- V10: Backup verification
+-- Row counts of the key tables are taken in the same snapshot as the dump; a verification
+-- restores the backup into a scratch database and compares the counts
+
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS row_counts TEXT;
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS verification_status VARCHAR(20);
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS verification_result TEXT;
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS verified_at TIMESTAMP;
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS verification_duration_seconds BIGINT;
+
+COMMENT ON COLUMN backup_history.row_counts IS 'JSON table -> row count in the snapshot of the dump';
+COMMENT ON COLUMN backup_history.verification_status IS 'PASSED, FAILED; NULL when never verified';
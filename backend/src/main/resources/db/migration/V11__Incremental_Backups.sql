@@ -0,0 +1,25 @@
+-- V11: Incremental backups
+-- An INCREMENTAL backup exports the rows of clients, items, documents (with their lines) and
+-- the number sequences changed since the previous backup's watermark as gzipped NDJSON.
+-- Every increment points to its full base backup and to the backup it continues.
+
+ALTER TABLE backup_settings ADD COLUMN IF NOT EXISTS incremental_enabled BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE backup_settings ADD COLUMN IF NOT EXISTS full_backup_interval_days INT NOT NULL DEFAULT 7;
+
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS watermark TIMESTAMP;
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS base_backup_id BIGINT REFERENCES backup_history(id);
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS previous_backup_id BIGINT REFERENCES backup_history(id);
+
+COMMENT ON COLUMN backup_settings.incremental_enabled IS 'Scheduled backups are incremental between full backups';
+COMMENT ON COLUMN backup_settings.full_backup_interval_days IS 'Days after which the next scheduled backup is full again';
+COMMENT ON COLUMN backup_history.watermark IS 'Rows with updated_at up to this time are contained in the backup chain';
+COMMENT ON COLUMN backup_history.base_backup_id IS 'Full backup an INCREMENTAL backup is replayed onto';
+COMMENT ON COLUMN backup_history.previous_backup_id IS 'Backup whose watermark an INCREMENTAL backup continues from';
+
+CREATE INDEX IF NOT EXISTS idx_backup_history_base ON backup_history(base_backup_id);
+
+-- The export reads only what changed since the watermark
+CREATE INDEX IF NOT EXISTS idx_clients_updated_at ON clients(updated_at);
+CREATE INDEX IF NOT EXISTS idx_items_updated_at ON items(updated_at);
+CREATE INDEX IF NOT EXISTS idx_documents_updated_at ON documents(updated_at);
+CREATE INDEX IF NOT EXISTS idx_document_items_document ON document_items(document_id);
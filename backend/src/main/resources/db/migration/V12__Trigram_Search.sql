@@ -0,0 +1,35 @@
+-- V12: Trigram search for clients and items
+-- Typeahead search matches substrings and near misses (pg_trgm) over a normalized text:
+-- lower case and Cyrillic transliterated to Latin, so "Петров" and "Petrov" find each other.
+-- The expressions below must stay identical to the ones in ClientRepository and ItemRepository,
+-- otherwise the GIN indexes are not used.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Bulgarian streamlined system; upper case Cyrillic is mapped explicitly, lower() alone
+-- does not fold it under the C locale
+CREATE OR REPLACE FUNCTION search_normalize(value TEXT) RETURNS TEXT
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE AS $$
+SELECT translate(
+           replace(replace(replace(replace(replace(replace(replace(
+               lower(translate(value, 'АБВГДЕЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЬЮЯ', 'абвгдежзийклмнопрстуфхцчшщъьюя')),
+               'щ', 'sht'), 'ж', 'zh'), 'ч', 'ch'), 'ш', 'sh'), 'ц', 'ts'), 'ю', 'yu'), 'я', 'ya'),
+           'абвгдезийклмнопрстуфхъь',
+           'abvgdeziyklmnoprstufhay')
+$$;
+
+COMMENT ON FUNCTION search_normalize(TEXT) IS 'Lower case, Cyrillic transliterated to Latin - the text the trigram search indexes';
+
+-- Clients: names (similarity) and EIK / VAT number (substring)
+CREATE INDEX IF NOT EXISTS idx_clients_company ON clients(company_id);
+CREATE INDEX IF NOT EXISTS idx_clients_search_name ON clients
+    USING gin (search_normalize(name || ' ' || coalesce(name_en, '')) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_clients_search_ids ON clients
+    USING gin (lower(coalesce(eik, '') || ' ' || coalesce(vat_number, '')) gin_trgm_ops);
+
+-- Items: names and description (similarity) and item number (substring)
+CREATE INDEX IF NOT EXISTS idx_items_company ON items(company_id);
+CREATE INDEX IF NOT EXISTS idx_items_search_name ON items
+    USING gin (search_normalize(name || ' ' || coalesce(name_en, '') || ' ' || coalesce(description, '')) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_items_search_number ON items
+    USING gin (lower(item_number) gin_trgm_ops);
@@ -0,0 +1,88 @@
+-- V13: Full-text search over documents
+-- documents.search_vector holds the document number, the line descriptions (falling back to the
+-- item name) and the notes. PostgreSQL has no Bulgarian dictionary, so Bulgarian text goes through
+-- the 'simple' configuration (lower case, no stemming - queries match word prefixes instead) and
+-- English text additionally through 'english'. Triggers keep the vector current on every change
+-- of a document or of its lines, whichever code path makes it.
+
+ALTER TABLE documents ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+
+COMMENT ON COLUMN documents.search_vector IS 'Full-text vector of number, line descriptions and notes (maintained by triggers)';
+
+-- Weights: A - document number, B - lines, C - notes
+CREATE OR REPLACE FUNCTION document_search_vector(doc_id BIGINT, doc_number TEXT, doc_notes TEXT) RETURNS TSVECTOR
+    LANGUAGE sql STABLE AS $$
+SELECT setweight(to_tsvector('simple', coalesce(doc_number, '')), 'A')
+    || setweight(to_tsvector('simple', coalesce(lines.bg, '')), 'B')
+    || setweight(to_tsvector('english', coalesce(lines.en, '')), 'B')
+    || setweight(to_tsvector('simple', coalesce(doc_notes, '')), 'C')
+    || setweight(to_tsvector('english', coalesce(doc_notes, '')), 'C')
+FROM (SELECT string_agg(coalesce(di.item_description, i.name), ' ') AS bg,
+             string_agg(coalesce(di.item_description_en, i.name_en), ' ') AS en
+      FROM document_items di
+      JOIN items i ON i.id = di.item_id
+      WHERE di.document_id = doc_id) lines
+$$;
+
+-- The text snippets are cut from: line descriptions and notes
+CREATE OR REPLACE FUNCTION document_search_text(doc_id BIGINT, doc_notes TEXT) RETURNS TEXT
+    LANGUAGE sql STABLE AS $$
+SELECT concat_ws(' ... ',
+                 string_agg(concat_ws(' / ', coalesce(di.item_description, i.name), coalesce(di.item_description_en, i.name_en)),
+                            ' ... ' ORDER BY di.line_number, di.id),
+                 doc_notes)
+FROM document_items di
+JOIN items i ON i.id = di.item_id
+WHERE di.document_id = doc_id
+$$;
+
+-- Every word of the query must match the start of a word, in either configuration
+CREATE OR REPLACE FUNCTION document_search_query(terms TEXT[]) RETURNS TSQUERY
+    LANGUAGE plpgsql STABLE STRICT AS $$
+DECLARE
+    result TSQUERY := ''::TSQUERY;
+    term TEXT;
+BEGIN
+    FOREACH term IN ARRAY terms LOOP
+        result := result && (to_tsquery('simple', term || ':*') || to_tsquery('english', term || ':*'));
+    END LOOP;
+    RETURN result;
+END
+$$;
+
+CREATE OR REPLACE FUNCTION documents_search_vector_trigger() RETURNS TRIGGER
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP = 'INSERT' OR NEW.document_number IS DISTINCT FROM OLD.document_number
+            OR NEW.notes IS DISTINCT FROM OLD.notes THEN
+        NEW.search_vector := document_search_vector(NEW.id, NEW.document_number, NEW.notes);
+    END IF;
+    RETURN NEW;
+END
+$$;
+
+DROP TRIGGER IF EXISTS documents_search_vector ON documents;
+CREATE TRIGGER documents_search_vector BEFORE INSERT OR UPDATE ON documents
+    FOR EACH ROW EXECUTE FUNCTION documents_search_vector_trigger();
+
+CREATE OR REPLACE FUNCTION document_items_search_vector_trigger() RETURNS TRIGGER
+    LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP <> 'INSERT' THEN
+        UPDATE documents SET search_vector = document_search_vector(id, document_number, notes) WHERE id = OLD.document_id;
+    END IF;
+    IF TG_OP <> 'DELETE' AND (TG_OP = 'INSERT' OR NEW.document_id <> OLD.document_id) THEN
+        UPDATE documents SET search_vector = document_search_vector(id, document_number, notes) WHERE id = NEW.document_id;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+DROP TRIGGER IF EXISTS document_items_search_vector ON document_items;
+CREATE TRIGGER document_items_search_vector AFTER INSERT OR UPDATE OR DELETE ON document_items
+    FOR EACH ROW EXECUTE FUNCTION document_items_search_vector_trigger();
+
+UPDATE documents SET search_vector = document_search_vector(id, document_number, notes);
+
+CREATE INDEX IF NOT EXISTS idx_documents_search_vector ON documents USING gin (search_vector);
+CREATE INDEX IF NOT EXISTS idx_documents_company ON documents(company_id);
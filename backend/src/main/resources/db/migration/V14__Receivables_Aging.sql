@@ -0,0 +1,10 @@
+-- V14: Receivables aging
+-- A document is open (unpaid) when it is a final tax document that has been neither paid nor
+-- cancelled. Open documents are a small, shrinking part of the table, so they get a partial
+-- index of their own; it covers the overdue lists and counts and the aging report, and carries
+-- the columns the report sums so they can be read from the index alone.
+-- The predicate must stay identical to DocumentRepository.OPEN_DOCUMENT(_SQL).
+
+CREATE INDEX IF NOT EXISTS idx_documents_open ON documents (company_id, due_date)
+    INCLUDE (client_id, issue_date, payment_method_id, total_amount_with_vat_base_currency)
+    WHERE status = 'FINAL' AND document_type <> 'PROFORMA' AND paid_at IS NULL AND cancelled_at IS NULL;
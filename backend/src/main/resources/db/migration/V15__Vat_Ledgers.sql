@@ -0,0 +1,6 @@
+-- V15: VAT ledgers
+-- The NRA ledgers are built from the final tax documents whose tax event date (vat_date, or the
+-- issue date when it is not set) falls in the tax period. The expression must stay identical
+-- to the one in SalesLedger.
+CREATE INDEX IF NOT EXISTS idx_documents_vat_period ON documents (company_id, (coalesce(vat_date, issue_date)))
+    WHERE status = 'FINAL' AND document_type IN ('INVOICE', 'DEBIT_NOTE', 'CREDIT_NOTE');
@@ -0,0 +1,37 @@
+-- V16: SAF-T audit exports
+-- An export is queued here and written in the background to a gzipped XML file; clients, items
+-- and documents are read in keyset pages (company_id, id), so the indexes below back every page
+
+-- ===========================================
+-- 1. Audit exports
+-- ===========================================
+CREATE TABLE IF NOT EXISTS audit_exports (
+    id BIGSERIAL PRIMARY KEY,
+    company_id BIGINT NOT NULL REFERENCES companies(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    period_from DATE NOT NULL,
+    period_to DATE NOT NULL,
+    total_records BIGINT NOT NULL DEFAULT 0,
+    written_records BIGINT NOT NULL DEFAULT 0,
+    file_path VARCHAR(1024),
+    file_size BIGINT,
+    error TEXT,
+    created_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    progress_at TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+COMMENT ON COLUMN audit_exports.status IS 'PENDING, RUNNING, COMPLETED, FAILED, EXPIRED';
+COMMENT ON COLUMN audit_exports.progress_at IS 'Last page written; a RUNNING export that stops advancing is failed';
+
+CREATE INDEX IF NOT EXISTS idx_audit_exports_company ON audit_exports(company_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_audit_exports_open ON audit_exports(id) WHERE status IN ('PENDING', 'RUNNING');
+
+-- ===========================================
+-- 2. Keyset pages
+-- ===========================================
+CREATE INDEX IF NOT EXISTS idx_clients_company_id ON clients(company_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_company_id ON items(company_id, id);
+CREATE INDEX IF NOT EXISTS idx_documents_company_issue_date ON documents(company_id, issue_date, id);
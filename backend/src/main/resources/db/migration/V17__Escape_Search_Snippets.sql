@@ -0,0 +1,21 @@
+-- V17: HTML-escaped search snippets
+-- ts_headline returns the text it was given with <b>...</b> around the matches, and the API hands
+-- the snippet to the client as HTML. Line descriptions and notes are user input, so the text is
+-- escaped before highlighting; the parser reads &lt; and the like as entity tokens, so matching
+-- and the highlight markers are not affected.
+
+CREATE OR REPLACE FUNCTION html_escape(value TEXT) RETURNS TEXT
+    LANGUAGE sql IMMUTABLE STRICT AS $$
+SELECT replace(replace(replace(replace(value, '&', '&amp;'), '<', '&lt;'), '>', '&gt;'), '"', '&quot;')
+$$;
+
+CREATE OR REPLACE FUNCTION document_search_text(doc_id BIGINT, doc_notes TEXT) RETURNS TEXT
+    LANGUAGE sql STABLE AS $$
+SELECT html_escape(concat_ws(' ... ',
+                 string_agg(concat_ws(' / ', coalesce(di.item_description, i.name), coalesce(di.item_description_en, i.name_en)),
+                            ' ... ' ORDER BY di.line_number, di.id),
+                 doc_notes))
+FROM document_items di
+JOIN items i ON i.id = di.item_id
+WHERE di.document_id = doc_id
+$$;
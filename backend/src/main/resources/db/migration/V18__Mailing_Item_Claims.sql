@@ -0,0 +1,9 @@
+-- V18: Mailing run items claimed for preparation
+-- The PDFs of a chunk are rendered after the transaction that claimed its rows has committed, so the
+-- claim is kept in the row: PREPARING with the time it was taken. A claim that is not recorded in
+-- time (the instance stopped) is returned to PENDING.
+
+ALTER TABLE mailing_run_items ADD COLUMN IF NOT EXISTS claimed_at TIMESTAMP;
+
+COMMENT ON COLUMN mailing_run_items.status IS 'PENDING, PREPARING, QUEUED, SKIPPED';
+COMMENT ON COLUMN mailing_run_items.claimed_at IS 'When a PREPARING item was claimed';
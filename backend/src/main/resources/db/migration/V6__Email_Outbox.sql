@@ -0,0 +1,44 @@
+-- V6: Email outbox for asynchronous delivery of document emails
+-- Mutations enqueue messages here; a background dispatcher sends them in batches with retries
+
+-- ===========================================
+-- 1. Outbox entries
+-- ===========================================
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    company_id BIGINT REFERENCES companies(id) ON DELETE CASCADE,
+    document_id BIGINT REFERENCES documents(id) ON DELETE SET NULL,
+    recipient_email VARCHAR(255) NOT NULL,
+    subject VARCHAR(500) NOT NULL,
+    html_body TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sent_at TIMESTAMP
+);
+
+COMMENT ON COLUMN email_outbox.status IS 'PENDING, SENDING, SENT, FAILED';
+COMMENT ON COLUMN email_outbox.next_attempt_at IS 'Earliest time for the next delivery attempt (exponential backoff)';
+
+-- ===========================================
+-- 2. Outbox attachments
+-- ===========================================
+CREATE TABLE IF NOT EXISTS email_outbox_attachments (
+    id BIGSERIAL PRIMARY KEY,
+    outbox_id BIGINT NOT NULL REFERENCES email_outbox(id) ON DELETE CASCADE,
+    filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100) NOT NULL,
+    content BYTEA NOT NULL
+);
+
+-- ===========================================
+-- 3. Indexes
+-- ===========================================
+-- The dispatcher only scans entries that are still waiting
+CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox(next_attempt_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_email_outbox_document ON email_outbox(document_id);
+CREATE INDEX IF NOT EXISTS idx_email_outbox_attachments_outbox ON email_outbox_attachments(outbox_id);
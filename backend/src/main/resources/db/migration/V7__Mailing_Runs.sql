@@ -0,0 +1,52 @@
+-- V7: Mass document mailing runs
+-- A run resolves a set of documents to recipients and feeds them into the email outbox;
+-- the outbox dispatcher throttles delivery per company and per SMTP provider
+
+-- ===========================================
+-- 1. Provider rate limit
+-- ===========================================
+ALTER TABLE smtp_settings ADD COLUMN IF NOT EXISTS max_messages_per_minute INTEGER;
+
+COMMENT ON COLUMN smtp_settings.max_messages_per_minute IS 'Provider sending limit; NULL means unlimited';
+
+-- ===========================================
+-- 2. Mailing runs
+-- ===========================================
+CREATE TABLE IF NOT EXISTS mailing_runs (
+    id BIGSERIAL PRIMARY KEY,
+    company_id BIGINT NOT NULL REFERENCES companies(id) ON DELETE CASCADE,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    include_ubl BOOLEAN NOT NULL DEFAULT FALSE,
+    total_documents INTEGER NOT NULL DEFAULT 0,
+    created_by VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    started_at TIMESTAMP,
+    prepared_at TIMESTAMP
+);
+
+COMMENT ON COLUMN mailing_runs.status IS 'PENDING, PREPARING, QUEUED, CANCELLED';
+
+-- ===========================================
+-- 3. One row per document/recipient
+-- ===========================================
+CREATE TABLE IF NOT EXISTS mailing_run_items (
+    id BIGSERIAL PRIMARY KEY,
+    mailing_run_id BIGINT NOT NULL REFERENCES mailing_runs(id) ON DELETE CASCADE,
+    document_id BIGINT NOT NULL REFERENCES documents(id) ON DELETE CASCADE,
+    recipient_email VARCHAR(255),
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    error TEXT,
+    outbox_id BIGINT REFERENCES email_outbox(id) ON DELETE SET NULL
+);
+
+COMMENT ON COLUMN mailing_run_items.status IS 'PENDING, QUEUED, SKIPPED';
+
+ALTER TABLE email_outbox ADD COLUMN IF NOT EXISTS mailing_run_id BIGINT REFERENCES mailing_runs(id) ON DELETE SET NULL;
+
+-- ===========================================
+-- 4. Indexes
+-- ===========================================
+CREATE INDEX IF NOT EXISTS idx_mailing_runs_company ON mailing_runs(company_id, created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_mailing_runs_open ON mailing_runs(id) WHERE status IN ('PENDING', 'PREPARING');
+CREATE INDEX IF NOT EXISTS idx_mailing_run_items_run ON mailing_run_items(mailing_run_id, status);
+CREATE INDEX IF NOT EXISTS idx_email_outbox_mailing_run ON email_outbox(mailing_run_id, status);
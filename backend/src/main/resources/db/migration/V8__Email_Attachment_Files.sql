@@ -0,0 +1,10 @@
+-- V8: File-backed email attachments
+-- Uploaded PDFs are kept on disk and referenced by path instead of being copied into the database
+
+ALTER TABLE email_outbox_attachments ALTER COLUMN content DROP NOT NULL;
+ALTER TABLE email_outbox_attachments ADD COLUMN IF NOT EXISTS storage_path VARCHAR(1000);
+
+ALTER TABLE email_outbox_attachments ADD CONSTRAINT chk_email_outbox_attachments_source
+    CHECK (content IS NOT NULL OR storage_path IS NOT NULL);
+
+COMMENT ON COLUMN email_outbox_attachments.storage_path IS 'Attachment file in the email attachment store; NULL when the content is inline';
@@ -0,0 +1,13 @@
+-- V9: Parallel directory-format backups
+-- DIRECTORY backups run pg_dump -Fd -j N and upload every table file as its own object;
+-- the manifest lists the uploaded files with their checksums
+
+ALTER TABLE backup_settings ADD COLUMN IF NOT EXISTS backup_format VARCHAR(20) NOT NULL DEFAULT 'PLAIN';
+ALTER TABLE backup_settings ADD COLUMN IF NOT EXISTS parallel_jobs INT NOT NULL DEFAULT 4;
+
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS backup_format VARCHAR(20) NOT NULL DEFAULT 'PLAIN';
+ALTER TABLE backup_history ADD COLUMN IF NOT EXISTS manifest TEXT;
+
+COMMENT ON COLUMN backup_settings.backup_format IS 'PLAIN (single gzip SQL stream) or DIRECTORY (pg_dump -Fd, parallel)';
+COMMENT ON COLUMN backup_settings.parallel_jobs IS 'pg_dump/pg_restore -j for DIRECTORY backups';
+COMMENT ON COLUMN backup_history.manifest IS 'JSON list of the uploaded files with size and MD5 (DIRECTORY backups)';
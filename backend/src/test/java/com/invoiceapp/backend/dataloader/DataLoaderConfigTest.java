@@ -0,0 +1,127 @@
+package com.invoiceapp.backend.dataloader;
+
+import com.invoiceapp.backend.model.Client;
+import com.invoiceapp.backend.model.DocumentItem;
+import com.invoiceapp.backend.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.dataloader.DataLoader;
+import org.dataloader.DataLoaderRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.*;
+
+class DataLoaderConfigTest {
+
+    @Mock private ClientRepository clientRepository;
+    @Mock private CompanyRepository companyRepository;
+    @Mock private DocumentRepository documentRepository;
+    @Mock private DocumentItemRepository documentItemRepository;
+    @Mock private PaymentMethodRepository paymentMethodRepository;
+    @Mock private BankAccountRepository bankAccountRepository;
+    @Mock private ItemRepository itemRepository;
+    @Mock private VatExemptionReasonRepository vatExemptionReasonRepository;
+    @Mock private CurrencyRepository currencyRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private BatchLoaderExecutor batchLoaderExecutor;
+    private DataLoaderConfig dataLoaderConfig;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        batchLoaderExecutor = new BatchLoaderExecutor(transactionManager, meterRegistry, ObservationRegistry.NOOP, 2, 16);
+        dataLoaderConfig = new DataLoaderConfig(clientRepository, companyRepository, documentRepository, documentItemRepository,
+                paymentMethodRepository, bankAccountRepository, itemRepository, vatExemptionReasonRepository,
+                currencyRepository, userRepository, batchLoaderExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        SecurityContextHolder.clearContext();
+        batchLoaderExecutor.destroy();
+    }
+
+    @Test
+    void testHundredDocumentsNeedOneQueryPerLoader() {
+        List<Object[]> itemRows = new ArrayList<>();
+        List<Client> clients = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            itemRows.add(new Object[]{id, new DocumentItem()});
+            Client client = new Client();
+            client.setId(id);
+            clients.add(client);
+        }
+        when(documentItemRepository.findWithDocumentIdByDocumentIdIn(anySet())).thenReturn(itemRows);
+        when(clientRepository.findAllById(anySet())).thenReturn(clients);
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        DataLoader<Long, List<DocumentItem>> itemsLoader = registry.getDataLoader(DataLoaderConfig.DOCUMENT_ITEMS_BY_DOCUMENT_ID);
+        DataLoader<Long, Client> clientLoader = registry.getDataLoader(DataLoaderConfig.CLIENT_BY_ID);
+
+        List<CompletableFuture<List<DocumentItem>>> items = new ArrayList<>();
+        List<CompletableFuture<Client>> loadedClients = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            items.add(itemsLoader.load(id));
+            loadedClients.add(clientLoader.load(id));
+        }
+        registry.dispatchAll();
+
+        items.forEach(future -> assertEquals(1, future.join().size()));
+        loadedClients.forEach(future -> assertNotNull(future.join()));
+        verify(documentItemRepository, times(1)).findWithDocumentIdByDocumentIdIn(anySet());
+        verify(clientRepository, times(1)).findAllById(anySet());
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(2, batchLoaderExecutor.getCompletedBatches());
+        assertEquals(100.0, meterRegistry.get("graphql.dataloader.batch.size")
+                .tag("loader", DataLoaderConfig.CLIENT_BY_ID).summary().max());
+    }
+
+    @Test
+    void testBatchRunsAsTheRequestUser() {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("alice", null, List.of()));
+        List<String> batchUsers = new ArrayList<>();
+        when(clientRepository.findAllById(anySet())).thenAnswer(invocation -> {
+            batchUsers.add(SecurityContextHolder.getContext().getAuthentication().getName());
+            return List.of();
+        });
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        CompletableFuture<Client> client = registry.<Long, Client>getDataLoader(DataLoaderConfig.CLIENT_BY_ID).load(1L);
+        registry.dispatchAll();
+        client.join();
+
+        assertEquals(List.of("alice"), batchUsers);
+    }
+
+    @Test
+    void testOwnersWithoutRowsGetEmptyList() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, new DocumentItem()});
+
+        var grouped = DataLoaderConfig.groupByOwner(Set.of(1L, 2L), rows, DocumentItem.class);
+
+        assertEquals(1, grouped.get(1L).size());
+        assertTrue(grouped.get(2L).isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+package com.invoiceapp.backend.dataloader;
+
+import com.invoiceapp.backend.controller.CurrencyController;
+import com.invoiceapp.backend.controller.DocumentController;
+import com.invoiceapp.backend.controller.DocumentItemController;
+import com.invoiceapp.backend.metrics.StatementCountingDatabase;
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.model.Currency;
+import com.invoiceapp.backend.repository.*;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.dataloader.DataLoaderRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL statements counted by StatementCounter while the document list and exchange rate fields
+ * resolve through the DataLoaders, against the Flyway schema
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DataLoaderStatementCountTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final int DOCUMENTS = 30;
+
+    private static StatementCountingDatabase database;
+
+    private final DocumentController documentController = new DocumentController();
+    private final DocumentItemController documentItemController = new DocumentItemController();
+    private CurrencyController currencyController;
+    private BatchLoaderExecutor batchLoaderExecutor;
+    private DataLoaderConfig dataLoaderConfig;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        database = new StatementCountingDatabase(postgres);
+        database.jdbc().execute(String.join("\n",
+                "INSERT INTO currencies (code, name) VALUES ('BGN', 'Български лев'), ('EUR', 'Евро'), ('USD', 'Щатски долар');",
+                "INSERT INTO companies (id, name) VALUES (1, 'Фирма ООД');",
+                "INSERT INTO clients (id, name, company_id) VALUES (1, 'Алфа ООД', 1), (2, 'Бета ЕООД', 1), (3, 'Гама АД', 1);",
+                "INSERT INTO items (id, item_number, name, company_id) VALUES (1, 'A-1', 'Консултация', 1), (2, 'A-2', 'Лиценз', 1);",
+                // Клиентите и валутите се редуват, за да има по-малко различни връзки от документи
+                "INSERT INTO documents (id, document_uuid, document_number, document_type, issue_date, due_date, status,",
+                "    company_id, client_id, currency_code, subtotal_amount, vat_amount, total_amount_with_vat,",
+                "    subtotal_amount_base_currency, vat_amount_base_currency, total_amount_with_vat_base_currency)",
+                "SELECT n, 'u-' || n, lpad(n::text, 10, '0'), 'INVOICE', '2026-05-01', '2026-05-15', 'FINAL',",
+                "    1, n % 3 + 1, (ARRAY['BGN', 'EUR', 'USD'])[n % 3 + 1], 100.00, 20.00, 120.00, 100.00, 20.00, 120.00",
+                "FROM generate_series(1, " + DOCUMENTS + ") AS n;",
+                "INSERT INTO document_items (document_id, item_id, quantity, unit_price, vat_rate, vat_exemption_reason_id,",
+                "    line_total, vat_amount, line_total_with_vat, line_number)",
+                "SELECT n, 1, 1, 100.00, 20.00, NULL, 100.00, 20.00, 120.00, 1 FROM generate_series(1, " + DOCUMENTS + ") AS n",
+                "UNION ALL",
+                "SELECT n, 2, 1, 50.00, 0, (SELECT min(id) FROM vat_exemption_reasons), 50.00, 0, 50.00, 2",
+                "FROM generate_series(1, " + DOCUMENTS + ") AS n;",
+                "INSERT INTO exchange_rates (currency_code, rate_date, rate, base_currency) VALUES",
+                "    ('EUR', '2026-05-01', 1.95583, 'BGN'), ('EUR', '2026-05-02', 1.95583, 'BGN'),",
+                "    ('USD', '2026-05-01', 1.72, 'BGN'), ('USD', '2026-05-02', 1.71, 'BGN');"));
+    }
+
+    @AfterAll
+    static void tearDownDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        batchLoaderExecutor = new BatchLoaderExecutor(database.transactionManager(), new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 16);
+        dataLoaderConfig = new DataLoaderConfig(database.repository(ClientRepository.class),
+                database.repository(CompanyRepository.class), database.repository(DocumentRepository.class),
+                database.repository(DocumentItemRepository.class), database.repository(PaymentMethodRepository.class),
+                database.repository(BankAccountRepository.class), database.repository(ItemRepository.class),
+                database.repository(VatExemptionReasonRepository.class), database.repository(CurrencyRepository.class),
+                database.repository(UserRepository.class), batchLoaderExecutor);
+        currencyController = new CurrencyController(database.repository(CurrencyRepository.class),
+                database.repository(ExchangeRateRepository.class), null, null, null);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchLoaderExecutor.destroy();
+    }
+
+    @Test
+    void testDocumentListWithItemsAndClientsIsThreeStatements() {
+        DocumentRepository documentRepository = database.repository(DocumentRepository.class);
+        List<Document> documents = new ArrayList<>();
+        Map<Long, List<DocumentItem>> items = new HashMap<>();
+        Map<Long, Client> clients = new HashMap<>();
+
+        int statements = database.countStatements(() -> {
+            documents.addAll(database.readOnlyTransaction().execute(status ->
+                    documentRepository.findByCompanyIdOrderByCreatedAtDesc(1L)));
+
+            DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+            DataFetchingEnvironment env = environment(registry);
+            Map<Long, CompletableFuture<List<DocumentItem>>> itemFutures = new HashMap<>();
+            Map<Long, CompletableFuture<Client>> clientFutures = new HashMap<>();
+            for (Document document : documents) {
+                itemFutures.put(document.getId(), documentController.documentItems(document, env));
+                clientFutures.put(document.getId(), documentController.client(document, env));
+            }
+            registry.dispatchAll();
+            itemFutures.forEach((id, future) -> items.put(id, future.join()));
+            clientFutures.forEach((id, future) -> clients.put(id, future.join()));
+
+            // Второто ниво: артикулите и основанията идват с редовете на документите
+            List<CompletableFuture<?>> nested = new ArrayList<>();
+            for (List<DocumentItem> documentItems : items.values()) {
+                for (DocumentItem documentItem : documentItems) {
+                    nested.add(documentItemController.item(documentItem, env));
+                    nested.add(documentItemController.vatExemptionReason(documentItem, env));
+                }
+            }
+            registry.dispatchAll();
+            nested.forEach(CompletableFuture::join);
+        });
+
+        assertEquals(3, statements);
+        assertEquals(DOCUMENTS, documents.size());
+        for (Document document : documents) {
+            List<DocumentItem> documentItems = items.get(document.getId());
+            assertEquals(List.of("Консултация", "Лиценз"),
+                    documentItems.stream().map(documentItem -> documentItem.getItem().getName()).toList());
+            assertNull(documentItems.get(0).getVatExemptionReason());
+            assertNotNull(documentItems.get(1).getVatExemptionReason().getReasonCode());
+            assertEquals(document.getClientId(), clients.get(document.getId()).getId());
+            assertNotNull(clients.get(document.getId()).getName());
+        }
+        assertEquals(Set.of("BGN", "EUR", "USD"), new HashSet<>(documents.stream().map(Document::getCurrencyCode).toList()));
+    }
+
+    @Test
+    void testExchangeRateCurrenciesAreOneStatement() {
+        ExchangeRateRepository exchangeRateRepository = database.repository(ExchangeRateRepository.class);
+        List<Currency> currencies = new ArrayList<>();
+
+        int statements = database.countStatements(() -> {
+            List<ExchangeRate> rates = database.readOnlyTransaction().execute(status -> exchangeRateRepository.findAll());
+
+            DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+            DataFetchingEnvironment env = environment(registry);
+            List<CompletableFuture<Currency>> futures = rates.stream()
+                    .map(rate -> currencyController.currency(rate, env))
+                    .toList();
+            registry.dispatchAll();
+            futures.forEach(future -> currencies.add(future.join()));
+        });
+
+        assertEquals(2, statements);
+        assertEquals(4, currencies.size());
+        assertEquals(Set.of("Евро", "Щатски долар"), new HashSet<>(currencies.stream().map(Currency::getName).toList()));
+    }
+
+    private static DataFetchingEnvironment environment(DataLoaderRegistry registry) {
+        return DataFetchingEnvironmentImpl.newDataFetchingEnvironment().dataLoaderRegistry(registry).build();
+    }
+}
@@ -0,0 +1,159 @@
+package com.invoiceapp.backend.dataloader;
+
+import com.invoiceapp.backend.controller.DocumentController;
+import com.invoiceapp.backend.controller.DocumentItemController;
+import com.invoiceapp.backend.metrics.StatementCountingDatabase;
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.repository.*;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.dataloader.DataLoaderRegistry;
+import org.hibernate.LazyInitializationException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Derived fields resolved on entities whose transaction has ended, as they are with open-in-view
+ * off: the lazy associations they read come through the DataLoaders
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DetachedEntityFieldsTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final long CASH_DOCUMENT_ID = 1L;
+    private static final long TRANSFER_DOCUMENT_ID = 2L;
+
+    private static StatementCountingDatabase database;
+
+    private final DocumentController documentController = new DocumentController();
+    private final DocumentItemController documentItemController = new DocumentItemController();
+    private BatchLoaderExecutor batchLoaderExecutor;
+    private DataLoaderConfig dataLoaderConfig;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        database = new StatementCountingDatabase(postgres);
+        database.jdbc().execute(String.join("\n",
+                "INSERT INTO currencies (code, name) VALUES ('EUR', 'Евро');",
+                "INSERT INTO companies (id, name) VALUES (1, 'Фирма ООД');",
+                "INSERT INTO clients (id, name, company_id) VALUES (1, 'Алфа ООД', 1);",
+                "INSERT INTO payment_methods (id, name, method_code, company_id) VALUES",
+                "    (1, 'В брой', 'CASH', 1), (2, 'Банков превод', 'BANK_TRANSFER', 1);",
+                "INSERT INTO items (id, item_number, name, name_en, company_id) VALUES",
+                "    (1, 'A-1', 'Консултация', 'Consulting', 1);",
+                "INSERT INTO documents (id, document_uuid, document_number, document_type, issue_date, due_date, status,",
+                "    company_id, client_id, payment_method_id, currency_code, subtotal_amount, vat_amount,",
+                "    total_amount_with_vat, subtotal_amount_base_currency, vat_amount_base_currency,",
+                "    total_amount_with_vat_base_currency) VALUES",
+                "    (" + CASH_DOCUMENT_ID + ", 'u-1', '0000000001', 'INVOICE', '2026-05-01', '2026-05-15', 'FINAL',",
+                "    1, 1, 1, 'EUR', 100.00, 20.00, 120.00, 100.00, 20.00, 120.00),",
+                "    (" + TRANSFER_DOCUMENT_ID + ", 'u-2', '0000000002', 'INVOICE', '2026-05-01', '2026-05-15', 'FINAL',",
+                "    1, 1, 2, 'EUR', 100.00, 20.00, 120.00, 100.00, 20.00, 120.00);",
+                "INSERT INTO document_items (document_id, item_id, item_description, item_description_en, quantity,",
+                "    unit_price, vat_rate, line_total, vat_amount, line_total_with_vat, line_number) VALUES",
+                "    (" + CASH_DOCUMENT_ID + ", 1, NULL, NULL, 1, 50.00, 20.00, 50.00, 10.00, 60.00, 1),",
+                "    (" + CASH_DOCUMENT_ID + ", 1, 'Одит', 'Audit', 1, 50.00, 20.00, 50.00, 10.00, 60.00, 2);",
+                "INSERT INTO document_number_sequences (company_id, sequence_type, current_number) VALUES",
+                "    (1, 'TAX_DOCUMENT', 2);"));
+    }
+
+    @AfterAll
+    static void tearDownDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        batchLoaderExecutor = new BatchLoaderExecutor(database.transactionManager(), new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 16);
+        dataLoaderConfig = new DataLoaderConfig(database.repository(ClientRepository.class),
+                database.repository(CompanyRepository.class), database.repository(DocumentRepository.class),
+                database.repository(DocumentItemRepository.class), database.repository(PaymentMethodRepository.class),
+                database.repository(BankAccountRepository.class), database.repository(ItemRepository.class),
+                database.repository(VatExemptionReasonRepository.class), database.repository(CurrencyRepository.class),
+                database.repository(UserRepository.class), batchLoaderExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchLoaderExecutor.destroy();
+    }
+
+    @Test
+    void testDocumentFields() {
+        Document cash = detachedDocument(CASH_DOCUMENT_ID);
+        Document transfer = detachedDocument(TRANSFER_DOCUMENT_ID);
+        assertThrows(LazyInitializationException.class, cash::getClientName);
+        assertThrows(LazyInitializationException.class, cash::isPaid);
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        DataFetchingEnvironment env = environment(registry);
+        CompletableFuture<String> clientName = documentController.clientName(cash, env);
+        CompletableFuture<Boolean> cashPaid = documentController.isPaid(cash, env);
+        CompletableFuture<Boolean> transferPaid = documentController.isPaid(transfer, env);
+        registry.dispatchAll();
+
+        assertEquals("Алфа ООД", clientName.join());
+        assertTrue(cashPaid.join());
+        assertFalse(transferPaid.join());
+    }
+
+    @Test
+    void testEffectiveItemNames() {
+        DocumentItemRepository documentItemRepository = database.repository(DocumentItemRepository.class);
+        List<DocumentItem> documentItems = database.readOnlyTransaction().execute(status ->
+                documentItemRepository.findByDocumentIdOrderByLineNumber(CASH_DOCUMENT_ID));
+        assertThrows(LazyInitializationException.class, documentItems.get(0)::getEffectiveItemName);
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        DataFetchingEnvironment env = environment(registry);
+        List<CompletableFuture<String>> names = documentItems.stream()
+                .map(documentItem -> documentItemController.effectiveItemName(documentItem, env))
+                .toList();
+        List<CompletableFuture<String>> namesEn = documentItems.stream()
+                .map(documentItem -> documentItemController.effectiveItemNameEn(documentItem, env))
+                .toList();
+        registry.dispatchAll();
+
+        assertEquals(List.of("Консултация", "Одит"), names.stream().map(CompletableFuture::join).toList());
+        assertEquals(List.of("Consulting", "Audit"), namesEn.stream().map(CompletableFuture::join).toList());
+    }
+
+    @Test
+    void testNumberSequenceCompany() {
+        DocumentNumberSequenceRepository sequenceRepository = database.repository(DocumentNumberSequenceRepository.class);
+        DocumentNumberSequence sequence = database.readOnlyTransaction().execute(status ->
+                sequenceRepository.findByCompanyIdAndSequenceType(1L, SequenceType.TAX_DOCUMENT).orElseThrow());
+        assertThrows(LazyInitializationException.class, () -> sequence.getCompany().getName());
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        CompletableFuture<Company> company = documentController.sequenceCompany(sequence, environment(registry));
+        registry.dispatchAll();
+
+        assertEquals("Фирма ООД", company.join().getName());
+    }
+
+    private static Document detachedDocument(long id) {
+        DocumentRepository documentRepository = database.repository(DocumentRepository.class);
+        return database.readOnlyTransaction().execute(status -> documentRepository.findById(id).orElseThrow());
+    }
+
+    private static DataFetchingEnvironment environment(DataLoaderRegistry registry) {
+        return DataFetchingEnvironmentImpl.newDataFetchingEnvironment().dataLoaderRegistry(registry).build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.invoiceapp.backend.metrics;
+
+import com.invoiceapp.backend.model.Document;
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The entities and repositories on a PostgreSQL container migrated by Flyway, with the JPA properties
+ * of application.properties - StatementCounter included - for tests that count the statements of a
+ * query path
+ */
+public final class StatementCountingDatabase implements AutoCloseable {
+
+    private static final String JPA_PROPERTIES_PREFIX = "spring.jpa.properties.";
+
+    private final JdbcTemplate jdbc;
+    private final LocalContainerEntityManagerFactoryBean factoryBean;
+    private final EntityManager entityManager;
+    private final JpaRepositoryFactory repositoryFactory;
+    private final JpaTransactionManager transactionManager;
+
+    public StatementCountingDatabase(PostgreSQLContainer<?> postgres) throws IOException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").load().migrate();
+        jdbc = new JdbcTemplate(dataSource);
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(Document.class.getPackageName());
+        factoryBean.setJpaPropertyMap(jpaProperties());
+        factoryBean.afterPropertiesSet();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(factoryBean.getObject());
+        repositoryFactory = new JpaRepositoryFactory(entityManager);
+        transactionManager = new JpaTransactionManager(factoryBean.getObject());
+    }
+
+    public JdbcTemplate jdbc() {
+        return jdbc;
+    }
+
+    public EntityManager entityManager() {
+        return entityManager;
+    }
+
+    public PlatformTransactionManager transactionManager() {
+        return transactionManager;
+    }
+
+    public TransactionTemplate readOnlyTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    public <R> R repository(Class<R> repositoryInterface) {
+        return repositoryFactory.getRepository(repositoryInterface);
+    }
+
+    /**
+     * Runs the work in a fresh StatementCounter scope, as StatementCountFilter does for a request
+     * @return the statements Hibernate prepared, DataLoader batches included
+     */
+    public int countStatements(Runnable work) {
+        StatementCounter.Scope scope = new StatementCounter.Scope();
+        StatementCounter.Scope previous = StatementCounter.attach(scope);
+        try {
+            work.run();
+        } finally {
+            StatementCounter.attach(previous);
+        }
+        return scope.getStatements();
+    }
+
+    @Override
+    public void close() {
+        factoryBean.destroy();
+    }
+
+    /**
+     * What Spring Boot passes to Hibernate: spring.jpa.properties.*, ddl-auto and its naming strategies
+     */
+    private static Map<String, Object> jpaProperties() throws IOException {
+        Properties application = PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+        Map<String, Object> properties = new HashMap<>();
+        for (String name : application.stringPropertyNames()) {
+            if (name.startsWith(JPA_PROPERTIES_PREFIX)) {
+                properties.put(name.substring(JPA_PROPERTIES_PREFIX.length()), application.getProperty(name));
+            }
+        }
+        properties.put("hibernate.hbm2ddl.auto", application.getProperty("spring.jpa.hibernate.ddl-auto"));
+        properties.put("hibernate.physical_naming_strategy",
+                "org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy");
+        properties.put("hibernate.implicit_naming_strategy",
+                "org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy");
+        return properties;
+    }
+}
@@ -0,0 +1,82 @@
+package com.invoiceapp.backend.persistedquery;
+
+import graphql.ExecutionInput;
+import graphql.execution.preparsed.PreparsedDocumentEntry;
+import graphql.parser.Parser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistedQueryDocumentProviderTest {
+
+    private static final String QUERY = "query Currencies { activeCurrencies { code } }";
+
+    private final PersistedQueryDocumentProvider provider = new PersistedQueryDocumentProvider(2);
+    private final AtomicInteger parses = new AtomicInteger();
+    private final Function<ExecutionInput, PreparsedDocumentEntry> parse = input -> {
+        parses.incrementAndGet();
+        return new PreparsedDocumentEntry(Parser.parse(input.getQuery()));
+    };
+
+    private static ExecutionInput input(String query, String hash) {
+        ExecutionInput.Builder builder = ExecutionInput.newExecutionInput().query(query);
+        if (hash != null) {
+            builder.extensions(Map.of("persistedQuery", Map.of("version", 1, "sha256Hash", hash)));
+        }
+        return builder.build();
+    }
+
+    @Test
+    void testQueryIsParsedOnce() {
+        PreparsedDocumentEntry first = provider.getDocument(input(QUERY, null), parse);
+        PreparsedDocumentEntry second = provider.getDocument(input(QUERY, null), parse);
+
+        assertSame(first, second);
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void testUnknownHashIsNotFoundUntilRegistered() {
+        String hash = PersistedQueryDocumentProvider.sha256Hex(QUERY);
+
+        PreparsedDocumentEntry missing = provider.getDocument(input("", hash), parse);
+        assertTrue(missing.hasErrors());
+        assertEquals("PersistedQueryNotFound", missing.getErrors().get(0).getMessage());
+
+        provider.getDocument(input(QUERY, hash), parse);
+        PreparsedDocumentEntry persisted = provider.getDocument(input("", hash), parse);
+        assertFalse(persisted.hasErrors());
+        assertEquals(QUERY, provider.lookup(hash).query());
+        assertEquals(1, parses.get());
+    }
+
+    @Test
+    void testHashMustMatchQuery() {
+        PreparsedDocumentEntry entry = provider.getDocument(input(QUERY, "0".repeat(64)), parse);
+
+        assertEquals("PersistedQueryIdInvalid", entry.getErrors().get(0).getMessage());
+        assertEquals(0, parses.get());
+    }
+
+    @Test
+    void testLeastRecentlyUsedQueryIsEvicted() {
+        provider.getDocument(input("{ a }", null), parse);
+        provider.getDocument(input("{ b }", null), parse);
+        provider.getDocument(input("{ a }", null), parse);
+        provider.getDocument(input("{ c }", null), parse);
+
+        assertNotNull(provider.lookup(PersistedQueryDocumentProvider.sha256Hex("{ a }")));
+        assertNull(provider.lookup(PersistedQueryDocumentProvider.sha256Hex("{ b }")));
+    }
+
+    @Test
+    void testIfNoneMatch() {
+        assertTrue(QueryETags.matches("\"a\", W/\"b\"", "\"b\""));
+        assertFalse(QueryETags.matches("\"a\"", "\"b\""));
+        assertFalse(QueryETags.matches(null, "\"b\""));
+    }
+}
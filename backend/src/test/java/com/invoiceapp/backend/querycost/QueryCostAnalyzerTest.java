@@ -0,0 +1,73 @@
+package com.invoiceapp.backend.querycost;
+
+import graphql.execution.CoercedVariables;
+import graphql.parser.Parser;
+import graphql.schema.GraphQLSchema;
+import graphql.schema.idl.SchemaParser;
+import graphql.schema.idl.UnExecutableSchemaGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCostAnalyzerTest {
+
+    private static final GraphQLSchema SCHEMA = UnExecutableSchemaGenerator.makeUnExecutableSchema(new SchemaParser().parse("""
+            directive @cost(weight: Int, multiplier: Int) on FIELD_DEFINITION
+            type Query {
+                documentsByCompany(companyId: ID!): [Document]! @cost(multiplier: 500)
+                documentById(id: ID!): Document
+                validateVatNumber(vatNumber: String!): Result! @cost(weight: 50)
+                tags: [String]
+            }
+            type Document { id: ID! client: Client! documentItems: [DocumentItem] @cost(multiplier: 20) }
+            type DocumentItem { id: ID! item: Item! }
+            type Item { id: ID! company: Company! }
+            type Company { id: ID! users: [User] @cost(multiplier: 20) }
+            type Client { id: ID! name: String }
+            type User { id: ID! }
+            type Result { valid: Boolean }
+            """));
+
+    private final QueryCostAnalyzer analyzer = new QueryCostAnalyzer(10);
+
+    private QueryCostAnalyzer.Result analyze(String query) {
+        return analyzer.analyze(SCHEMA, Parser.parse(query), null, CoercedVariables.emptyVariables());
+    }
+
+    @Test
+    void testScalarsAreFreeAndObjectsCostOne() {
+        assertEquals(new QueryCostAnalyzer.Result(3, 2), analyze("{ documentById(id: 1) { id client { name } } }"));
+        assertEquals(new QueryCostAnalyzer.Result(1, 0), analyze("{ tags }"));
+        assertEquals(50, analyze("{ validateVatNumber(vatNumber: \"BG1\") { valid } }").cost());
+    }
+
+    @Test
+    void testNestedListsMultiply() {
+        // 500 документа x (1 + клиент 1 + 20 реда x (1 + артикул 1))
+        QueryCostAnalyzer.Result report = analyze(
+                "{ documentsByCompany(companyId: 1) { id client { id } documentItems { id item { id } } } }");
+        assertEquals(500L * (1 + 1 + 20 * 2), report.cost());
+        assertEquals(4, report.depth());
+
+        QueryCostAnalyzer.Result everything = analyze(
+                "{ documentsByCompany(companyId: 1) { documentItems { item { company { users { id } } } } } }");
+        assertEquals(500L * (1 + 20 * (1 + 1 + 1 + 20)), everything.cost());
+        assertEquals(6, everything.depth());
+    }
+
+    @Test
+    void testFragmentsAreExpanded() {
+        QueryCostAnalyzer.Result result = analyze("""
+                query Docs { documentsByCompany(companyId: 1) { ...Lines } }
+                fragment Lines on Document { documentItems { id } }
+                """);
+        assertEquals(500L * (1 + 20), result.cost());
+    }
+
+    @Test
+    void testIntrospectionIsNotCounted() {
+        QueryCostAnalyzer.Result result = analyze(
+                "{ __typename __schema { types { fields { type { ofType { ofType { ofType { name } } } } } } } }");
+        assertEquals(new QueryCostAnalyzer.Result(0, 0), result);
+    }
+}
@@ -0,0 +1,26 @@
+package com.invoiceapp.backend.querycost;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryCostBudgetTest {
+
+    @Test
+    void testBudgetIsRefilledPerMinute() {
+        AtomicLong clock = new AtomicLong(1_000_000L);
+        QueryCostBudget budget = new QueryCostBudget(60_000, clock::get);
+
+        assertEquals(0, budget.tryAcquire("company:1", 50_000));
+        // Остават 10 000 - за още 20 000 трябват 10 секунди
+        assertEquals(10_000, budget.tryAcquire("company:1", 20_000));
+        // Бюджетът е отделен за всяка фирма
+        assertEquals(0, budget.tryAcquire("company:2", 20_000));
+
+        clock.addAndGet(10_000);
+        assertEquals(0, budget.tryAcquire("company:1", 20_000));
+        assertEquals(0, budget.remaining("company:1"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.invoiceapp.backend.replica;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing through JPA with the connection handling ReplicaJpaSettings applies: a read-only lookup
+ * followed by a write in the same request, as a @PreAuthorize check before a mutation does
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaJpaRoutingTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DataSource primaryDataSource;
+    private static DataSource replicaDataSource;
+    private static StandardEnvironment environment;
+
+    private LocalContainerEntityManagerFactoryBean factoryBean;
+    private EntityManagerFactory entityManagerFactory;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeAll
+    static void setUpDatabases() throws Exception {
+        primaryDataSource = node(primary, "primary");
+        replicaDataSource = node(replica, "replica");
+        environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test",
+                Map.of(ReplicaJpaSettings.REPLICA_URL, replica.getJdbcUrl())));
+        new ReplicaJpaSettings().postProcessEnvironment(environment, null);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(replicaDataSource, 1000);
+        lagMonitor.check();
+        DataSource dataSource = ReplicaDataSourceConfig.routingDataSource(primaryDataSource, replicaDataSource,
+                lagMonitor, new ReadYourWritesTracker(0));
+
+        factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setPackagesToScan(ReplicaJpaRoutingTest.class.getPackageName());
+        factoryBean.setJpaPropertyMap(Map.of("hibernate.connection.handling_mode",
+                environment.getProperty(ReplicaJpaSettings.HANDLING_MODE)));
+        factoryBean.afterPropertiesSet();
+        entityManagerFactory = factoryBean.getObject();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        factoryBean.destroy();
+    }
+
+    @Test
+    void testOpenInViewIsOff() {
+        assertEquals("false", environment.getProperty(ReplicaJpaSettings.OPEN_IN_VIEW));
+    }
+
+    @Test
+    void testReadOnlyLookupThenWriteInOneRequest() {
+        assertRoutedPerTransaction("alice");
+    }
+
+    @Test
+    void testRequestScopedEntityManagerStillRoutesEachTransaction() {
+        // What open-in-view would do: one EntityManager for the whole request
+        EntityManager requestEntityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory,
+                new EntityManagerHolder(requestEntityManager));
+        try {
+            assertRoutedPerTransaction("bob");
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            requestEntityManager.close();
+        }
+    }
+
+    private void assertRoutedPerTransaction(String username) {
+        login(username);
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+        assertEquals("primary", readWrite.execute(status -> {
+            entityManager.createNativeQuery("INSERT INTO writes (username) VALUES (?1)")
+                    .setParameter(1, username)
+                    .executeUpdate();
+            return nodeName();
+        }));
+        assertEquals(List.of(username), new JdbcTemplate(primaryDataSource)
+                .queryForList("SELECT username FROM writes WHERE username = ?", String.class, username));
+        assertEquals(List.of(), new JdbcTemplate(replicaDataSource)
+                .queryForList("SELECT username FROM writes WHERE username = ?", String.class, username));
+    }
+
+    private String nodeName() {
+        return (String) entityManager.createNativeQuery("SELECT name FROM node").getSingleResult();
+    }
+
+    private static void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static DataSource node(PostgreSQLContainer<?> container, String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE node (name VARCHAR(20) NOT NULL)");
+        template.execute("CREATE TABLE writes (username VARCHAR(50) NOT NULL)");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
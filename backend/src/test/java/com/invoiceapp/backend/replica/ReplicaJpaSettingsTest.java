@@ -0,0 +1,47 @@
+package com.invoiceapp.backend.replica;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaJpaSettingsTest {
+
+    @Test
+    void testWithoutReplicaBootDefaultsStay() {
+        StandardEnvironment environment = environment(Map.of());
+
+        assertNull(environment.getProperty(ReplicaJpaSettings.OPEN_IN_VIEW));
+        assertNull(environment.getProperty(ReplicaJpaSettings.HANDLING_MODE));
+    }
+
+    @Test
+    void testWithReplicaConnectionsEndWithTheTransaction() {
+        StandardEnvironment environment = environment(Map.of(
+                ReplicaJpaSettings.REPLICA_URL, "jdbc:postgresql://replica:5432/sp-inv-app"));
+
+        assertEquals("false", environment.getProperty(ReplicaJpaSettings.OPEN_IN_VIEW));
+        assertEquals(ReplicaJpaSettings.RELEASE_AFTER_TRANSACTION,
+                environment.getProperty(ReplicaJpaSettings.HANDLING_MODE));
+    }
+
+    @Test
+    void testExplicitSettingWins() {
+        StandardEnvironment environment = environment(Map.of(
+                ReplicaJpaSettings.REPLICA_URL, "jdbc:postgresql://replica:5432/sp-inv-app",
+                ReplicaJpaSettings.HANDLING_MODE, "DELAYED_ACQUISITION_AND_HOLD"));
+
+        assertEquals("false", environment.getProperty(ReplicaJpaSettings.OPEN_IN_VIEW));
+        assertEquals("DELAYED_ACQUISITION_AND_HOLD", environment.getProperty(ReplicaJpaSettings.HANDLING_MODE));
+    }
+
+    private static StandardEnvironment environment(Map<String, Object> properties) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("application", properties));
+        new ReplicaJpaSettings().postProcessEnvironment(environment, null);
+        return environment;
+    }
+}
@@ -0,0 +1,179 @@
+package com.invoiceapp.backend.replica;
+
+import com.invoiceapp.backend.dataloader.BatchLoaderExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Routing between two independent PostgreSQL instances, each of which reports its own name
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReplicaRoutingTest {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final long STICKY_MILLIS = 300;
+
+    private static DataSource primaryDataSource;
+    private static DataSource replicaDataSource;
+
+    private ReplicaLagMonitor lagMonitor;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+    private BatchLoaderExecutor batchLoaderExecutor;
+
+    @BeforeAll
+    static void setUpDatabases() {
+        primaryDataSource = node(primary, "primary");
+        replicaDataSource = node(replica, "replica");
+    }
+
+    @BeforeEach
+    void setUp() {
+        lagMonitor = new ReplicaLagMonitor(replicaDataSource, 1000);
+        lagMonitor.check();
+        DataSource dataSource = ReplicaDataSourceConfig.routingDataSource(primaryDataSource, replicaDataSource,
+                lagMonitor, new ReadYourWritesTracker(STICKY_MILLIS));
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        batchLoaderExecutor = new BatchLoaderExecutor(transactionManager, new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 16);
+    }
+
+    @AfterEach
+    void clearUser() throws InterruptedException {
+        SecurityContextHolder.clearContext();
+        batchLoaderExecutor.destroy();
+    }
+
+    @Test
+    void testReadOnlyTransactionsGoToTheReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals(0, lagMonitor.getLagMillis());
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+        assertEquals("primary", readWrite.execute(status -> nodeName()));
+        assertEquals("primary", nodeName());
+    }
+
+    @Test
+    void testReadsFallBackToThePrimaryWhileTheReplicaLags() {
+        lagMonitor.record(5000L);
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+
+        lagMonitor.record(null);
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+
+        lagMonitor.record(200L);
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    void testUnreachableReplicaIsNotUsed() {
+        ReplicaLagMonitor unreachable = new ReplicaLagMonitor(
+                new DriverManagerDataSource("jdbc:postgresql://127.0.0.1:1/none", "none", "none"), 1000);
+        unreachable.check();
+        assertFalse(unreachable.isReplicaUsable());
+        assertEquals(-1, unreachable.getLagMillis());
+    }
+
+    @Test
+    void testUserReadsOwnWritesFromThePrimary() throws Exception {
+        login("alice");
+        readWrite.executeWithoutResult(status -> jdbc.update("INSERT INTO writes (username) VALUES ('alice')"));
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+
+        login("bob");
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+
+        Thread.sleep(STICKY_MILLIS + 100);
+        login("alice");
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    void testDataLoaderBatchReadsOwnWritesFromThePrimary() {
+        login("dave");
+        readWrite.executeWithoutResult(status -> jdbc.update("INSERT INTO writes (username) VALUES ('dave')"));
+        assertEquals("primary", batchLoaderExecutor.submit("node", List.of(1L), this::nodeName).join());
+
+        login("erin");
+        assertEquals("replica", batchLoaderExecutor.submit("node", List.of(1L), this::nodeName).join());
+    }
+
+    @Test
+    void testRolledBackWriteDoesNotPinTheUser() {
+        login("carol");
+        readWrite.executeWithoutResult(status -> {
+            jdbc.update("INSERT INTO writes (username) VALUES ('carol')");
+            status.setRollbackOnly();
+        });
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+        assertEquals(List.of(), new JdbcTemplate(primaryDataSource)
+                .queryForList("SELECT username FROM writes WHERE username = 'carol'", String.class));
+    }
+
+    @Test
+    void testTransactionMadeReadOnlyInSqlStaysOnThePrimary() throws Exception {
+        // As DatabaseBackupService does for the snapshot pg_dump imports from the primary
+        try (Connection connection = jdbc.getDataSource().getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION READ ONLY");
+                try (ResultSet rs = statement.executeQuery("SELECT name FROM node")) {
+                    rs.next();
+                    assertEquals("primary", rs.getString(1));
+                }
+            }
+            connection.rollback();
+        }
+    }
+
+    private String nodeName() {
+        return jdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static void login(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static DataSource node(PostgreSQLContainer<?> container, String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                container.getJdbcUrl(), container.getUsername(), container.getPassword());
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE node (name VARCHAR(20) NOT NULL)");
+        template.execute("CREATE TABLE writes (username VARCHAR(50) NOT NULL)");
+        template.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,135 @@
+package com.invoiceapp.backend.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The document full-text search of DocumentRepository, the triggers of the V13 migration and the
+ * escaped snippets of V17
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DocumentFullTextSearchTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate template;
+    private static NamedParameterJdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        template = new JdbcTemplate(dataSource);
+        template.execute(String.join("\n",
+                "CREATE TABLE items (id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, name_en VARCHAR(255));",
+                "CREATE TABLE documents (id BIGSERIAL PRIMARY KEY, document_number VARCHAR(50) NOT NULL,",
+                "    issue_date DATE NOT NULL, notes TEXT, company_id BIGINT NOT NULL);",
+                "CREATE TABLE document_items (id BIGSERIAL PRIMARY KEY, document_id BIGINT NOT NULL REFERENCES documents(id),",
+                "    item_id BIGINT NOT NULL REFERENCES items(id), item_description TEXT, item_description_en TEXT, line_number INT);"));
+        template.execute(new ClassPathResource("db/migration/V13__Document_Full_Text_Search.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(new ClassPathResource("db/migration/V17__Escape_Search_Snippets.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(String.join("\n",
+                "INSERT INTO items (id, name, name_en) VALUES (1, 'Консултантска услуга', 'Consulting'), (2, 'Хостинг', 'Hosting');",
+                "INSERT INTO documents (id, document_number, issue_date, notes, company_id) VALUES",
+                "    (1, '0000000001', '2026-01-10', NULL, 1),",
+                "    (2, '0000000002', '2026-02-10', 'Миграцията на сървъра в София е по договор 15', 1),",
+                "    (3, '0000000003', '2026-03-10', NULL, 1),",
+                "    (4, '0000000004', '2026-03-10', NULL, 2);",
+                "INSERT INTO document_items (document_id, item_id, item_description, item_description_en, line_number) VALUES",
+                "    (1, 1, 'Миграция на сървър - София', 'Sofia server migration', 1),",
+                "    (1, 2, NULL, NULL, 2),",
+                "    (3, 2, NULL, NULL, 1),",
+                "    (4, 1, 'Миграция на сървър - София', 'Sofia server migration', 1);"));
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Test
+    void testLinesAndNotesInBothLanguages() {
+        assertEquals(List.of(1L), ids(1L, "sofia server migration", 0));
+        // Думите се търсят като начало на дума: "миграция" намира и "Миграцията"
+        assertEquals(List.of(1L, 2L), ids(1L, "миграция софия", 0));
+        // Еднаква релевантност - първо по-новият документ
+        assertEquals(List.of(3L, 1L), ids(1L, "hosting", 0));
+        assertEquals(List.of(3L), ids(1L, "0000000003", 0));
+        assertTrue(ids(1L, "миграция облак", 0).isEmpty());
+    }
+
+    @Test
+    void testEnglishStemming() {
+        assertEquals(List.of(1L), ids(1L, "migrations servers", 0));
+    }
+
+    @Test
+    void testOtherCompaniesAreNotFound() {
+        assertEquals(List.of(4L), ids(2L, "sofia", 0));
+    }
+
+    @Test
+    void testSnippetHighlightsMatches() {
+        List<String> snippets = search(1L, "sofia", 0).stream().map(row -> (String) row.get("snippet")).toList();
+        assertTrue(snippets.get(0).contains("<b>Sofia</b>"), snippets.get(0));
+    }
+
+    @Test
+    void testSnippetEscapesUserText() {
+        template.update("INSERT INTO documents (id, document_number, issue_date, notes, company_id) VALUES " +
+                "(20, '0000000020', '2026-04-01', 'Доставка <script>alert(1)</script> & монтаж', 5)");
+        String snippet = (String) search(5L, "монтаж", 0).get(0).get("snippet");
+        assertFalse(snippet.contains("<script"), snippet);
+        assertTrue(snippet.contains("&lt;script&gt;"), snippet);
+        assertTrue(snippet.contains("&amp; <b>монтаж</b>"), snippet);
+    }
+
+    @Test
+    void testPagesContinueAtTheOffset() {
+        assertEquals(List.of(2L), ids(1L, "миграция", 1));
+    }
+
+    @Test
+    void testTriggersFollowLineAndNoteChanges() {
+        template.update("INSERT INTO documents (id, document_number, issue_date, notes, company_id) VALUES (10, '0000000010', '2026-04-01', NULL, 3)");
+        assertTrue(ids(3L, "ремонт", 0).isEmpty());
+
+        template.update("INSERT INTO document_items (id, document_id, item_id, item_description, line_number) VALUES (100, 10, 2, 'Ремонт на принтер', 1)");
+        assertEquals(List.of(10L), ids(3L, "ремонт", 0));
+
+        template.update("UPDATE document_items SET item_description = 'Смяна на тонер' WHERE id = 100");
+        assertTrue(ids(3L, "ремонт", 0).isEmpty());
+        assertEquals(List.of(10L), ids(3L, "тонер", 0));
+
+        template.update("UPDATE documents SET notes = 'Спешна поръчка' WHERE id = 10");
+        assertEquals(List.of(10L), ids(3L, "спешна тонер", 0));
+
+        template.update("DELETE FROM document_items WHERE id = 100");
+        assertTrue(ids(3L, "тонер", 0).isEmpty());
+        assertEquals(List.of(10L), ids(3L, "спешна", 0));
+    }
+
+    private static List<Long> ids(Long companyId, String terms, int offset) {
+        return search(companyId, terms, offset).stream().map(row -> ((Number) row.get("id")).longValue()).toList();
+    }
+
+    private static List<Map<String, Object>> search(Long companyId, String terms, int offset) {
+        try {
+            String sql = DocumentRepository.class.getMethod("searchFullText", Long.class, String.class, int.class, int.class)
+                    .getAnnotation(Query.class).value();
+            return jdbc.queryForList(sql, Map.of("companyId", companyId, "terms", terms, "offset", offset, "limit", 20));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
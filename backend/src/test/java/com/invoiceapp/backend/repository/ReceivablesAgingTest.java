@@ -0,0 +1,119 @@
+package com.invoiceapp.backend.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The receivables aging query of DocumentRepository against the V14 partial index
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReceivablesAgingTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDate AS_OF = LocalDate.of(2026, 6, 30);
+
+    private static NamedParameterJdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute(String.join("\n",
+                "CREATE TABLE clients (id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL);",
+                "CREATE TABLE payment_methods (id BIGSERIAL PRIMARY KEY, method_code VARCHAR(50) NOT NULL);",
+                "CREATE TABLE documents (id BIGSERIAL PRIMARY KEY, document_type VARCHAR(50) NOT NULL, status VARCHAR(50) NOT NULL,",
+                "    issue_date DATE NOT NULL, due_date DATE NOT NULL, company_id BIGINT NOT NULL, client_id BIGINT NOT NULL,",
+                "    payment_method_id BIGINT, total_amount_with_vat_base_currency DECIMAL(15, 2) NOT NULL,",
+                "    paid_at TIMESTAMP, cancelled_at TIMESTAMP);"));
+        template.execute(new ClassPathResource("db/migration/V14__Receivables_Aging.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(String.join("\n",
+                "INSERT INTO clients (id, name) VALUES (1, 'Алфа ООД'), (2, 'Бета ЕООД'), (3, 'Гама АД');",
+                "INSERT INTO payment_methods (id, method_code) VALUES (1, 'BANK_TRANSFER'), (2, 'CASH');",
+                "INSERT INTO documents (document_type, status, issue_date, due_date, company_id, client_id, payment_method_id,",
+                "    total_amount_with_vat_base_currency, paid_at, cancelled_at) VALUES",
+                // Алфа: по един документ във всеки интервал и кредитно известие
+                "    ('INVOICE', 'FINAL', '2026-06-20', '2026-07-10', 1, 1, 1, 100.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-05-20', '2026-05-31', 1, 1, 1, 200.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-04-20', '2026-05-30', 1, 1, 1, 300.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-03-20', '2026-04-01', 1, 1, NULL, 400.00, NULL, NULL),",
+                "    ('DEBIT_NOTE', 'FINAL', '2026-01-20', '2026-03-01', 1, 1, 1, 500.00, NULL, NULL),",
+                "    ('CREDIT_NOTE', 'FINAL', '2026-06-25', '2026-06-25', 1, 1, 1, -50.00, NULL, NULL),",
+                // Бета: платени, анулирани, чернови, проформи, в брой и издадени след датата не са вземания
+                "    ('INVOICE', 'FINAL', '2026-05-01', '2026-05-15', 1, 2, 1, 1000.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-05-01', '2026-05-15', 1, 2, 1, 70.00, '2026-05-10', NULL),",
+                "    ('INVOICE', 'CANCELLED', '2026-05-01', '2026-05-15', 1, 2, 1, 70.00, NULL, '2026-05-10'),",
+                "    ('INVOICE', 'DRAFT', '2026-05-01', '2026-05-15', 1, 2, 1, 70.00, NULL, NULL),",
+                "    ('PROFORMA', 'FINAL', '2026-05-01', '2026-05-15', 1, 2, 1, 70.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-05-01', '2026-05-15', 1, 2, 2, 70.00, NULL, NULL),",
+                "    ('INVOICE', 'FINAL', '2026-07-01', '2026-07-15', 1, 2, 1, 70.00, NULL, NULL),",
+                // Гама е клиент на друга фирма
+                "    ('INVOICE', 'FINAL', '2026-05-01', '2026-05-15', 2, 3, NULL, 999.00, NULL, NULL);"));
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Test
+    void testBucketsPerClientLargestFirst() {
+        List<Object[]> rows = aging(1L);
+        assertEquals(2, rows.size());
+
+        Object[] alfa = rows.get(0);
+        assertEquals(1L, ((Number) alfa[0]).longValue());
+        assertEquals(6L, ((Number) alfa[2]).longValue());
+        // Падеж 10.07 - ненастъпил; 31.05 и кредитното известие от 25.06 - до 30 дни; 30.05 - 31 дни;
+        // 01.04 - 90 дни; 01.03 - 121 дни
+        assertAmounts(alfa, "100.00", "150.00", "300.00", "400.00", "500.00", "1450.00");
+
+        Object[] beta = rows.get(1);
+        assertEquals("Бета ЕООД", beta[1]);
+        assertEquals(1L, ((Number) beta[2]).longValue());
+        assertAmounts(beta, "0", "1000.00", "0", "0", "0", "1000.00");
+    }
+
+    @Test
+    void testOtherCompaniesAreNotIncluded() {
+        List<Object[]> rows = aging(2L);
+        assertEquals(1, rows.size());
+        assertEquals("Гама АД", rows.get(0)[1]);
+    }
+
+    private static void assertAmounts(Object[] row, String... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(0, new BigDecimal(expected[i]).compareTo((BigDecimal) row[3 + i]),
+                    "column " + (3 + i) + ": " + row[3 + i]);
+        }
+    }
+
+    private static List<Object[]> aging(Long companyId) {
+        try {
+            String sql = DocumentRepository.class.getMethod("receivablesAgingByClient", Long.class, LocalDate.class)
+                    .getAnnotation(Query.class).value();
+            return jdbc.query(sql, Map.of("companyId", companyId, "asOf", AS_OF), (rs, i) -> {
+                Object[] row = new Object[rs.getMetaData().getColumnCount()];
+                for (int column = 0; column < row.length; column++) {
+                    row[column] = rs.getObject(column + 1);
+                }
+                return row;
+            });
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
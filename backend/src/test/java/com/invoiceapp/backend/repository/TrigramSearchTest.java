@@ -0,0 +1,108 @@
+package com.invoiceapp.backend.repository;
+
+import com.invoiceapp.backend.util.SearchTerms;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The ranked client and item searches of the repositories against the V12 migration
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class TrigramSearchTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static NamedParameterJdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute(String.join("\n",
+                "CREATE TABLE clients (id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, name_en VARCHAR(255),",
+                "    eik VARCHAR(50), vat_number VARCHAR(50), company_id BIGINT NOT NULL);",
+                "CREATE TABLE items (id BIGSERIAL PRIMARY KEY, item_number VARCHAR(50) NOT NULL, name VARCHAR(255) NOT NULL,",
+                "    name_en VARCHAR(255), description TEXT, company_id BIGINT NOT NULL);"));
+        template.execute(new ClassPathResource("db/migration/V12__Trigram_Search.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(String.join("\n",
+                "INSERT INTO clients (name, name_en, eik, vat_number, company_id) VALUES",
+                "    ('Петров и син ООД', NULL, '201234567', 'BG201234567', 1),",
+                "    ('Щастливец ЕООД', 'Shtastlivets Ltd', '123456789', 'BG123456789', 1),",
+                "    ('Petrovi Trade', NULL, '987654321', NULL, 1),",
+                "    ('Петров Консулт', NULL, '555555555', NULL, 2),",
+                "    ('Алфа 100% ООД', NULL, '111222333', NULL, 1);",
+                "INSERT INTO items (item_number, name, name_en, description, company_id) VALUES",
+                "    ('A-100', 'Консултантска услуга', 'Consulting', NULL, 1),",
+                "    ('A-1', 'Абонамент', NULL, 'месечна поддръжка', 1),",
+                "    ('X_1', 'Транспорт', NULL, NULL, 1);"));
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Test
+    void testNormalizeTransliteratesCyrillic() {
+        assertEquals("shtastlivets eood", jdbc.getJdbcTemplate()
+                .queryForObject("SELECT search_normalize('Щастливец ЕООД')", String.class));
+    }
+
+    @Test
+    void testClientsAcrossAlphabetsWithinTheCompany() {
+        // Цялата дума съвпада с "Петров", при "Petrovi" - само част от нея
+        assertEquals(List.of("Петров и син ООД", "Petrovi Trade"), clients(1L, "петров"));
+        assertEquals(List.of("Петров и син ООД", "Petrovi Trade"), clients(1L, "Petrov"));
+        assertEquals(List.of("Петров Консулт"), clients(2L, "petrov"));
+    }
+
+    @Test
+    void testExactEikOrVatNumberComesFirst() {
+        assertEquals("Щастливец ЕООД", clients(1L, "bg123456789").get(0));
+        assertEquals("Петров и син ООД", clients(1L, "201234567").get(0));
+    }
+
+    @Test
+    void testTyposAndWildcards() {
+        assertEquals(List.of("Щастливец ЕООД"), clients(1L, "щастливц"));
+        assertEquals(List.of("Алфа 100% ООД"), clients(1L, "100%"));
+    }
+
+    @Test
+    void testItemsByNameNumberAndDescription() {
+        assertEquals(List.of("A-1", "A-100"), items("a-1"));
+        assertEquals(List.of("A-1"), items("поддръжка"));
+        assertEquals(List.of("A-100"), items("konsult"));
+        assertEquals(List.of("X_1"), items("x_"));
+    }
+
+    private static List<String> clients(Long companyId, String term) {
+        return search(ClientRepository.class, companyId, term, "name");
+    }
+
+    private static List<String> items(String term) {
+        return search(ItemRepository.class, 1L, term, "item_number");
+    }
+
+    private static List<String> search(Class<?> repository, Long companyId, String term, String column) {
+        try {
+            String sql = repository.getMethod("searchRanked", Long.class, String.class, String.class, int.class)
+                    .getAnnotation(Query.class).value();
+            return jdbc.query(sql, Map.of("companyId", companyId, "pattern", SearchTerms.likeEscape(term),
+                    "term", term, "limit", SearchTerms.DEFAULT_LIMIT), (rs, i) -> rs.getString(column));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.invoiceapp.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailAttachmentStorageTest {
+
+    @TempDir
+    Path baseDir;
+
+    private EmailAttachmentStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new EmailAttachmentStorage(baseDir.resolve("store").toString(), 1024, 60);
+    }
+
+    @Test
+    void testUploadedPdfIsClaimedOnceAndDeletedAfterSending() throws Exception {
+        String token = storage.storeUpload(pdf("%PDF-1.7 invoice"), "alice", 1L);
+
+        String path = storage.claim(token, 1L);
+        assertTrue(Path.of(path).startsWith(baseDir.resolve("store").resolve("outbox")));
+        assertEquals("%PDF-1.7 invoice", Files.readString(Path.of(path)));
+
+        // Token-ът е еднократен
+        assertThrows(IllegalArgumentException.class, () -> storage.claim(token, 1L));
+
+        storage.delete(List.of(path));
+        assertFalse(Files.exists(Path.of(path)));
+    }
+
+    @Test
+    void testTokenCannotBeClaimedByAnotherCompany() throws Exception {
+        String token = storage.storeUpload(pdf("%PDF-1.7 invoice"), "alice", 1L);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.claim(token, 2L));
+        assertThrows(IllegalArgumentException.class, () -> storage.claim(token, null));
+
+        // Отказът не изразходва token-а
+        assertTrue(Files.exists(Path.of(storage.claim(token, 1L))));
+    }
+
+    @Test
+    void testUploadWithoutCompanyIsClaimedOnlyWithoutCompany() throws Exception {
+        String token = storage.storeUpload(pdf("%PDF-1.7 invoice"), "admin", null);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.claim(token, 1L));
+        assertTrue(Files.exists(Path.of(storage.claim(token, null))));
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotPdfOrTooLarge() {
+        assertThrows(IllegalArgumentException.class, () -> storage.storeUpload(pdf("<html>not a pdf</html>"), "alice", 1L));
+        assertThrows(IllegalArgumentException.class, () -> storage.storeUpload(pdf("%PDF-" + "x".repeat(2048)), "alice", 1L));
+    }
+
+    @Test
+    void testRejectsTokensThatCouldEscapeTheStore() {
+        assertThrows(IllegalArgumentException.class, () -> storage.claim("../../etc/passwd", 1L));
+        assertThrows(IllegalArgumentException.class, () -> storage.claim(null, 1L));
+    }
+
+    @Test
+    void testDeleteIgnoresPathsOutsideTheStore() throws Exception {
+        Path outside = Files.writeString(baseDir.resolve("keep.txt"), "keep");
+
+        storage.delete(List.of(outside.toString()));
+
+        assertTrue(Files.exists(outside));
+    }
+
+    private static MockMultipartFile pdf(String content) {
+        return new MockMultipartFile("file", "invoice.pdf", "application/pdf", content.getBytes(StandardCharsets.US_ASCII));
+    }
+}
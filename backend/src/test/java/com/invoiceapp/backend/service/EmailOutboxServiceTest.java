@@ -0,0 +1,153 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.model.SmtpSettings;
+import com.invoiceapp.backend.repository.EmailOutboxRepository;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmailOutboxServiceTest {
+
+    @Mock
+    private EmailOutboxRepository outboxRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private EmailAttachmentStorage attachmentStorage;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        emailOutboxService = new EmailOutboxService(outboxRepository, emailService, new SendRateLimiter(0),
+                attachmentStorage, transactionManager, 20, 3, 30, 10);
+    }
+
+    @Test
+    void testBackoffGrowsExponentiallyAndIsCapped() {
+        assertEquals(30, emailOutboxService.backoffSeconds(1));
+        assertEquals(60, emailOutboxService.backoffSeconds(2));
+        assertEquals(120, emailOutboxService.backoffSeconds(3));
+        assertEquals(3600, emailOutboxService.backoffSeconds(12));
+    }
+
+    @Test
+    void testBatchIsSentOverOneConnectionAndFailuresAreRescheduled() throws Exception {
+        EmailOutbox first = entry(1L, 1);
+        EmailOutbox second = entry(2L, 1);
+        EmailOutbox exhausted = entry(3L, 3);
+        SmtpSettings settings = new SmtpSettings();
+
+        when(outboxRepository.lockDueIds(any(), eq(20))).thenReturn(List.of(1L, 2L, 3L));
+        when(outboxRepository.findWithAttachmentsByIdIn(anyCollection())).thenReturn(List.of(first, second, exhausted));
+        when(outboxRepository.findAllById(anyIterable())).thenReturn(List.of(first, second, exhausted));
+        when(emailService.getActiveSmtpSettings()).thenReturn(settings);
+        when(emailService.buildOutboxMessage(eq(settings), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(eq(settings), anyList())).thenReturn(Map.of(
+                1, new MessagingException("Mailbox unavailable"),
+                2, new MessagingException("Mailbox unavailable")));
+
+        int processed = emailOutboxService.dispatchBatch();
+
+        assertEquals(3, processed);
+        verify(emailService, times(1)).sendBatch(eq(settings), anyList());
+        assertEquals(EmailOutbox.STATUS_SENT, first.getStatus());
+        assertNotNull(first.getSentAt());
+        assertEquals(EmailOutbox.STATUS_PENDING, second.getStatus());
+        assertTrue(second.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertEquals("Mailbox unavailable", second.getLastError());
+        assertEquals(EmailOutbox.STATUS_FAILED, exhausted.getStatus());
+    }
+
+    @Test
+    void testAttachmentFilesAreDeletedOnlyAfterDelivery() throws Exception {
+        EmailOutbox sent = entry(1L, 1);
+        sent.addFileAttachment("invoice-1.pdf", "application/pdf", "/store/outbox/a.pdf");
+        EmailOutbox retried = entry(2L, 1);
+        retried.addFileAttachment("invoice-2.pdf", "application/pdf", "/store/outbox/b.pdf");
+        SmtpSettings settings = new SmtpSettings();
+
+        when(outboxRepository.lockDueIds(any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(outboxRepository.findWithAttachmentsByIdIn(anyCollection())).thenReturn(List.of(sent, retried));
+        when(outboxRepository.findAllById(anyIterable())).thenReturn(List.of(sent, retried));
+        when(emailService.getActiveSmtpSettings()).thenReturn(settings);
+        when(emailService.buildOutboxMessage(eq(settings), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(eq(settings), anyList())).thenReturn(Map.of(1, new MessagingException("Try again later")));
+
+        emailOutboxService.dispatchBatch();
+
+        verify(attachmentStorage).delete(List.of("/store/outbox/a.pdf"));
+    }
+
+    @Test
+    void testMissingSmtpSettingsKeepsEntriesQueued() throws Exception {
+        EmailOutbox queued = entry(5L, 1);
+        when(outboxRepository.lockDueIds(any(), anyInt())).thenReturn(List.of(5L));
+        when(outboxRepository.findWithAttachmentsByIdIn(anyCollection())).thenReturn(List.of(queued));
+        when(outboxRepository.findAllById(anyIterable())).thenReturn(List.of(queued));
+        when(emailService.getActiveSmtpSettings()).thenReturn(null);
+
+        emailOutboxService.dispatchBatch();
+
+        verify(emailService, never()).sendBatch(any(), anyList());
+        assertEquals(EmailOutbox.STATUS_PENDING, queued.getStatus());
+    }
+
+    @Test
+    void testEntriesOverProviderLimitAreDeferredWithoutUsingAnAttempt() throws Exception {
+        EmailOutbox first = entry(1L, 1);
+        EmailOutbox second = entry(2L, 1);
+        SmtpSettings settings = new SmtpSettings();
+        settings.setMaxMessagesPerMinute(1);
+
+        when(outboxRepository.lockDueIds(any(), anyInt())).thenReturn(List.of(1L, 2L));
+        when(outboxRepository.findWithAttachmentsByIdIn(anyCollection())).thenReturn(List.of(first, second));
+        when(outboxRepository.findAllById(anyIterable())).thenReturn(List.of(first, second));
+        when(emailService.getActiveSmtpSettings()).thenReturn(settings);
+        when(emailService.buildOutboxMessage(eq(settings), any())).thenReturn(mock(MimeMessage.class));
+        when(emailService.sendBatch(eq(settings), anyList())).thenReturn(Map.of());
+
+        int processed = emailOutboxService.dispatchBatch();
+
+        assertEquals(1, processed);
+        verify(emailService, times(1)).buildOutboxMessage(settings, first);
+        verify(emailService, never()).buildOutboxMessage(settings, second);
+        assertEquals(EmailOutbox.STATUS_SENT, first.getStatus());
+        assertEquals(EmailOutbox.STATUS_PENDING, second.getStatus());
+        assertEquals(0, second.getAttempts());
+        assertNull(second.getLastError());
+        assertTrue(second.getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(50)));
+    }
+
+    private static EmailOutbox entry(Long id, int attempts) {
+        EmailOutbox entry = new EmailOutbox();
+        entry.setId(id);
+        entry.setRecipientEmail("client" + id + "@example.com");
+        entry.setSubject("Документ");
+        entry.setHtmlBody("<p>test</p>");
+        entry.setStatus(EmailOutbox.STATUS_SENDING);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+}
@@ -0,0 +1,141 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.repository.EmailOutboxRepository;
+import com.invoiceapp.backend.repository.MailingRunItemRepository;
+import com.invoiceapp.backend.repository.MailingRunRepository;
+import com.invoiceapp.backend.service.pdf.DocumentPdfModel;
+import com.invoiceapp.backend.service.pdf.DocumentPdfRenderer;
+import com.invoiceapp.backend.service.projection.DocumentProjectionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MailingRunServiceTest {
+
+    private static final long RUN_ID = 7L;
+
+    @Mock private MailingRunRepository runRepository;
+    @Mock private MailingRunItemRepository itemRepository;
+    @Mock private DocumentRepository documentRepository;
+    @Mock private EmailOutboxRepository outboxRepository;
+    @Mock private DocumentProjectionService projectionService;
+    @Mock private DocumentEmailComposer emailComposer;
+    @Mock private EmailOutboxService emailOutboxService;
+    @Mock private DocumentPdfRenderer pdfRenderer;
+    @Mock private EmailAttachmentStorage attachmentStorage;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+    private final List<Boolean> renderedInTransaction = new ArrayList<>();
+    private MailingRunService mailingRunService;
+    private MailingRunItem found;
+    private MailingRunItem missing;
+    private Document document;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            inTransaction.set(true);
+            return mock(TransactionStatus.class);
+        });
+        doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        mailingRunService = new MailingRunService(runRepository, itemRepository, documentRepository, outboxRepository,
+                projectionService, emailComposer, emailOutboxService, pdfRenderer, attachmentStorage,
+                transactionManager, 50, 10000, 30);
+
+        MailingRun run = new MailingRun();
+        run.setId(RUN_ID);
+        run.setStatus(MailingRun.STATUS_PENDING);
+        run.setIncludeUbl(false);
+        run.setCreatedBy("admin");
+        when(runRepository.findById(RUN_ID)).thenReturn(Optional.of(run));
+
+        found = item(1L, 10L);
+        missing = item(2L, 20L);
+        when(itemRepository.lockPendingIds(RUN_ID, 50)).thenReturn(List.of(1L, 2L));
+        when(itemRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<MailingRunItem> items = new ArrayList<>();
+            for (Object id : (Iterable<?>) invocation.getArgument(0)) {
+                items.add(id.equals(1L) ? found : missing);
+            }
+            return items;
+        });
+
+        document = document(10L);
+        when(documentRepository.findAllById(anyIterable())).thenReturn(List.of(document));
+        when(pdfRenderer.render(any(DocumentPdfModel.class))).thenAnswer(invocation -> {
+            renderedInTransaction.add(inTransaction.get());
+            return new byte[]{1};
+        });
+        when(attachmentStorage.storeGenerated(any())).thenReturn("generated/1.pdf");
+    }
+
+    @Test
+    void testPdfIsRenderedBetweenClaimAndRecordTransactions() {
+        when(itemRepository.lockClaimedIds(anyCollection(), any())).thenReturn(List.of(1L));
+        EmailOutbox entry = new EmailOutbox();
+        when(emailComposer.compose(document, "client@example.com", "generated/1.pdf", false)).thenReturn(entry);
+        EmailOutbox queued = new EmailOutbox();
+        queued.setId(100L);
+        when(emailOutboxService.enqueue(entry)).thenReturn(queued);
+
+        int prepared = mailingRunService.prepareChunk(RUN_ID);
+
+        assertEquals(2, prepared);
+        assertEquals(List.of(false), renderedInTransaction);
+        verify(transactionManager, times(2)).commit(any());
+        assertEquals(MailingRunItem.STATUS_QUEUED, found.getStatus());
+        assertEquals(100L, found.getOutboxId());
+        assertEquals(RUN_ID, entry.getMailingRunId());
+        assertEquals("admin", entry.getCreatedBy());
+        assertEquals(MailingRunItem.STATUS_SKIPPED, missing.getStatus());
+        verify(attachmentStorage, never()).delete(anyCollection());
+    }
+
+    @Test
+    void testItemNoLongerClaimedIsNotQueued() {
+        // Изпращането е отменено, докато PDF-ът се генерира
+        when(itemRepository.lockClaimedIds(anyCollection(), any())).thenReturn(List.of());
+
+        mailingRunService.prepareChunk(RUN_ID);
+
+        verify(emailOutboxService, never()).enqueue(any());
+        verify(attachmentStorage).delete(List.of("generated/1.pdf"));
+    }
+
+    private static MailingRunItem item(Long id, Long documentId) {
+        MailingRunItem item = new MailingRunItem(RUN_ID, documentId, "client@example.com");
+        item.setId(id);
+        return item;
+    }
+
+    private static Document document(Long id) {
+        Company company = new Company();
+        company.setId(1L);
+        Client client = new Client();
+        client.setId(1L);
+        Document document = new Document();
+        document.setId(id);
+        document.setCompany(company);
+        document.setClient(client);
+        return document;
+    }
+}
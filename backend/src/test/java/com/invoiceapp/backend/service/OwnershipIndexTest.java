@@ -0,0 +1,77 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.repository.ClientRepository;
+import com.invoiceapp.backend.repository.DocumentRepository;
+import com.invoiceapp.backend.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OwnershipIndexTest {
+
+    @Mock
+    private DocumentRepository documentRepository;
+
+    @Mock
+    private ClientRepository clientRepository;
+
+    @Mock
+    private ItemRepository itemRepository;
+
+    private OwnershipIndex ownershipIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ownershipIndex = new OwnershipIndex(documentRepository, clientRepository, itemRepository, 2);
+    }
+
+    @Test
+    void testDocumentLookupIsCached() {
+        when(documentRepository.findCompanyIdById(10L)).thenReturn(Optional.of(1L));
+
+        assertEquals(Optional.of(1L), ownershipIndex.documentCompanyId(10L));
+        assertEquals(Optional.of(1L), ownershipIndex.documentCompanyId(10L));
+
+        verify(documentRepository, times(1)).findCompanyIdById(10L);
+    }
+
+    @Test
+    void testMissingEntityIsNotCached() {
+        when(clientRepository.findCompanyIdById(5L)).thenReturn(Optional.empty());
+
+        assertTrue(ownershipIndex.clientCompanyId(5L).isEmpty());
+        assertTrue(ownershipIndex.clientCompanyId(5L).isEmpty());
+
+        verify(clientRepository, times(2)).findCompanyIdById(5L);
+    }
+
+    @Test
+    void testEvictionKeepsCacheBounded() {
+        when(itemRepository.findCompanyIdById(anyLong())).thenReturn(Optional.of(1L));
+
+        ownershipIndex.itemCompanyId(1L);
+        ownershipIndex.itemCompanyId(2L);
+        ownershipIndex.itemCompanyId(3L);
+        ownershipIndex.itemCompanyId(1L);
+
+        verify(itemRepository, times(2)).findCompanyIdById(1L);
+    }
+
+    @Test
+    void testExplicitEviction() {
+        when(itemRepository.findCompanyIdById(7L)).thenReturn(Optional.of(3L));
+
+        ownershipIndex.itemCompanyId(7L);
+        ownershipIndex.evictItem(7L);
+        ownershipIndex.itemCompanyId(7L);
+
+        verify(itemRepository, times(2)).findCompanyIdById(7L);
+    }
+}
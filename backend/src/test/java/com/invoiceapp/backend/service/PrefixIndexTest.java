@@ -0,0 +1,107 @@
+package com.invoiceapp.backend.service;
+
+import com.invoiceapp.backend.model.dto.AutocompleteEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PrefixIndex();
+        index.load(List.of(
+                client(1L, "123456789", "Петров и син ООД", "BG123456789", true),
+                client(2L, "987654321", "Petrovi Trade EOOD", null, true),
+                client(3L, "111222333", "Иванов Консулт ЕООД", "BG111222333", false),
+                client(4L, "444555666", "Строй Петров АД", null, true)
+        ));
+    }
+
+    private static AutocompleteEntry client(Long id, String eik, String name, String vatNumber, boolean active) {
+        return new AutocompleteEntry(id, eik, name, null, vatNumber, active);
+    }
+
+    private static List<Long> ids(List<AutocompleteEntry> entries) {
+        return entries.stream().map(AutocompleteEntry::id).toList();
+    }
+
+    @Test
+    void testPrefixOfAnyWordMatches() {
+        assertEquals(List.of(2L, 1L, 4L), ids(index.search("петр", 10)));
+        assertEquals(List.of(3L), ids(index.search("конс", 10)));
+        assertTrue(index.search("етров", 10).isEmpty());
+    }
+
+    @Test
+    void testCyrillicAndLatinFindEachOther() {
+        assertEquals(List.of(2L), ids(index.search("Петрови", 10)));
+        assertEquals(List.of(3L), ids(index.search("ivanov", 10)));
+    }
+
+    @Test
+    void testAllQueryWordsMustMatch() {
+        assertEquals(List.of(1L), ids(index.search("петров син", 10)));
+        assertEquals(List.of(4L), ids(index.search("стр пет", 10)));
+    }
+
+    @Test
+    void testCodeMatchesRankFirst() {
+        assertEquals(List.of(3L), ids(index.search("111222333", 10)));
+        assertEquals(List.of(1L), ids(index.search("bg1234", 10)));
+        // Номер с началото на заявката е преди име с началото й
+        index.put(client(5L, "petr-01", "Друга фирма", null, true));
+        assertEquals(5L, index.search("petr", 10).get(0).id());
+    }
+
+    @Test
+    void testInactiveAfterActive() {
+        index.put(client(5L, "555", "Иванова Трейд", null, true));
+        assertEquals(List.of(5L, 3L), ids(index.search("иван", 10)));
+    }
+
+    @Test
+    void testLimitKeepsBestMatches() {
+        assertEquals(List.of(2L), ids(index.search("петр", 1)));
+        assertTrue(index.search("петр", 0).isEmpty());
+        assertTrue(index.search("  ", 10).isEmpty());
+    }
+
+    @Test
+    void testPutUpdatesAndRemoveDeletes() {
+        index.put(client(2L, "987654321", "Georgiev Trade EOOD", null, true));
+        assertTrue(index.search("petrovi", 10).isEmpty());
+        assertEquals(List.of(2L), ids(index.search("georg", 10)));
+
+        index.remove(1L);
+        assertEquals(List.of(4L), ids(index.search("петр", 10)));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void testManyChangesCompactWithoutLosingEntries() {
+        List<AutocompleteEntry> loaded = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            loaded.add(client(id, "E" + id, "Фирма " + id, null, true));
+        }
+        index.load(loaded);
+        for (long id = 1; id <= 600; id++) {
+            index.remove(id);
+        }
+        for (long id = 1001; id <= 1300; id++) {
+            index.put(client(id, "E" + id, "Нова фирма " + id, null, true));
+        }
+
+        assertEquals(700, index.size());
+        assertTrue(index.search("e5", 10).isEmpty());
+        assertEquals(List.of(999L), ids(index.search("e999", 10)));
+        assertEquals(List.of(1250L), ids(index.search("нова 1250", 10)));
+        assertEquals(300, index.search("нова", 1000).size());
+    }
+}
@@ -0,0 +1,62 @@
+package com.invoiceapp.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SendRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private SendRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new SendRateLimiter(2, clock::get);
+    }
+
+    @Test
+    void testWithoutLimitsEverythingPasses() {
+        SendRateLimiter unlimited = new SendRateLimiter(0, clock::get);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, unlimited.tryAcquire(1L, null));
+        }
+    }
+
+    @Test
+    void testProviderLimitIsSharedByAllCompanies() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, 3));
+        assertEquals(0, rateLimiter.tryAcquire(2L, 3));
+        assertEquals(0, rateLimiter.tryAcquire(3L, 3));
+
+        // 3 съобщения в минута - следващото място е след 20 секунди
+        assertEquals(20_000, rateLimiter.tryAcquire(4L, 3));
+
+        clock.addAndGet(20_000);
+        assertEquals(0, rateLimiter.tryAcquire(4L, 3));
+    }
+
+    @Test
+    void testCompanyLimitDoesNotBlockOtherCompanies() {
+        assertEquals(0, rateLimiter.tryAcquire(1L, null));
+        assertEquals(0, rateLimiter.tryAcquire(1L, null));
+        assertEquals(30_000, rateLimiter.tryAcquire(1L, null));
+
+        assertEquals(0, rateLimiter.tryAcquire(2L, null));
+    }
+
+    @Test
+    void testRejectedMessageDoesNotConsumeProviderCapacity() {
+        rateLimiter.tryAcquire(1L, 10);
+        rateLimiter.tryAcquire(1L, 10);
+        assertTrue(rateLimiter.tryAcquire(1L, 10) > 0);
+
+        // Фирма 1 е над своя лимит, но мястото при доставчика остава за другите
+        for (int i = 0; i < 8; i++) {
+            assertEquals(0, rateLimiter.tryAcquire(100L + i, 10));
+        }
+        assertTrue(rateLimiter.tryAcquire(200L, 10) > 0);
+    }
+}
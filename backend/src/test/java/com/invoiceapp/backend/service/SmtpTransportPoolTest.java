@@ -0,0 +1,163 @@
+package com.invoiceapp.backend.service;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
+import com.invoiceapp.backend.model.EmailOutbox;
+import com.invoiceapp.backend.model.SmtpSettings;
+import com.invoiceapp.backend.repository.EmailOutboxRepository;
+import com.invoiceapp.backend.repository.SmtpSettingsRepository;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Изпращане през локален SMTP сървър (GreenMail)
+ */
+class SmtpTransportPoolTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Mock
+    private EncryptionService encryptionService;
+
+    @Mock
+    private SmtpSettingsRepository smtpSettingsRepository;
+
+    @Mock
+    private EmailOutboxRepository outboxRepository;
+
+    @Mock
+    private EmailAttachmentStorage attachmentStorage;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path tempDir;
+
+    private SmtpTransportPool transportPool;
+    private EmailService emailService;
+    private SmtpSettings settings;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(encryptionService.decrypt(any())).thenReturn("secret");
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        settings = new SmtpSettings("localhost", ServerSetupTest.SMTP.getPort(), "invoices", "encrypted", "invoices@example.com");
+        settings.setId(1L);
+        settings.setFromName("Invoice App");
+        settings.setSmtpAuth(false);
+        settings.setUseTls(false);
+        settings.setUseSsl(false);
+        when(smtpSettingsRepository.findActiveSettings()).thenReturn(Optional.of(settings));
+
+        transportPool = new SmtpTransportPool(encryptionService, new IntegrationMetrics(ObservationRegistry.NOOP), 2, 30_000);
+        emailService = new EmailService(smtpSettingsRepository, encryptionService, transportPool, ObservationRegistry.NOOP);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transportPool.destroy();
+    }
+
+    @Test
+    void testBatchIsDeliveredAndSessionIsReused() throws Exception {
+        List<MimeMessage> messages = new ArrayList<>();
+        for (long i = 1; i <= 3; i++) {
+            messages.add(emailService.buildOutboxMessage(settings, entry(i)));
+        }
+
+        assertTrue(emailService.sendBatch(settings, messages).isEmpty());
+        assertTrue(emailService.sendBatch(settings, List.of(emailService.buildOutboxMessage(settings, entry(4L)))).isEmpty());
+
+        assertEquals(4, greenMail.getReceivedMessages().length);
+        assertEquals("client1@example.com", greenMail.getReceivedMessages()[0].getAllRecipients()[0].toString());
+        // Паролата се дешифрира веднъж за версия на настройките
+        verify(encryptionService, times(1)).decrypt("encrypted");
+    }
+
+    @Test
+    void testFileBackedAttachmentIsStreamedFromDisk() throws Exception {
+        Path pdf = tempDir.resolve("invoice.pdf");
+        Files.write(pdf, "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII));
+        EmailOutbox entry = entry(1L);
+        entry.addFileAttachment("invoice-1.pdf", "application/pdf", pdf.toString());
+
+        assertTrue(emailService.sendBatch(settings, List.of(emailService.buildOutboxMessage(settings, entry))).isEmpty());
+
+        MimeMessage received = greenMail.getReceivedMessages()[0];
+        String raw = GreenMailUtil.getWholeMessage(received);
+        assertTrue(raw.contains("invoice-1.pdf"));
+        assertTrue(raw.contains("application/pdf"));
+    }
+
+    @Test
+    void testCredentialsAreSentOnlyWhenAuthIsEnabled() throws Exception {
+        greenMail.setUser("invoices", "secret");
+        settings.setSmtpAuth(true);
+        settings.setUpdatedAt(LocalDateTime.now());
+
+        assertTrue(emailService.sendBatch(settings, List.of(emailService.buildOutboxMessage(settings, entry(1L)))).isEmpty());
+        assertEquals(1, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    void testOutboxRespectsProviderRateLimit() throws Exception {
+        settings.setMaxMessagesPerMinute(2);
+        List<EmailOutbox> entries = List.of(entry(1L), entry(2L), entry(3L));
+        entries.forEach(entry -> {
+            entry.setStatus(EmailOutbox.STATUS_SENDING);
+            entry.setAttempts(1);
+        });
+        when(outboxRepository.lockDueIds(any(), anyInt())).thenReturn(List.of(1L, 2L, 3L));
+        when(outboxRepository.findWithAttachmentsByIdIn(anyCollection())).thenReturn(entries);
+        when(outboxRepository.findAllById(anyIterable())).thenReturn(entries);
+
+        EmailOutboxService outboxService = new EmailOutboxService(outboxRepository, emailService,
+                new SendRateLimiter(0), attachmentStorage, transactionManager, 20, 5, 30, 10);
+        int processed = outboxService.dispatchBatch();
+
+        assertEquals(2, processed);
+        assertEquals(2, greenMail.getReceivedMessages().length);
+        assertEquals(EmailOutbox.STATUS_SENT, entries.get(0).getStatus());
+        assertEquals(EmailOutbox.STATUS_SENT, entries.get(1).getStatus());
+        assertEquals(EmailOutbox.STATUS_PENDING, entries.get(2).getStatus());
+        assertTrue(entries.get(2).getNextAttemptAt().isAfter(LocalDateTime.now()));
+    }
+
+    private static EmailOutbox entry(Long id) {
+        EmailOutbox entry = new EmailOutbox();
+        entry.setId(id);
+        entry.setCompanyId(1L);
+        entry.setRecipientEmail("client" + id + "@example.com");
+        entry.setSubject("Фактура " + id);
+        entry.setHtmlBody("<p>test</p>");
+        entry.addAttachment("ubl-invoice-" + id + ".xml", "application/xml", "<Invoice/>".getBytes());
+        return entry;
+    }
+}
@@ -0,0 +1,114 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Directory backups against a local MinIO server. pg_dump is replaced by a shell script
+ * that writes the same files and verbose messages.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DirectoryBackupTransferTest {
+
+    private static final String BUCKET = "directory-backups";
+
+    @Container
+    static MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2024-05-10T01-41-38Z");
+
+    private static S3Client s3Client;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUp() {
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create(minio.getS3URL()))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(minio.getUserName(), minio.getPassword())))
+                .forcePathStyle(true)
+                .build();
+        s3Client.createBucket(request -> request.bucket(BUCKET));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        s3Client.close();
+    }
+
+    @Test
+    void testFilesAreUploadedAndRestoredWithChecksums() throws Exception {
+        Path dumpDir = tempDir.resolve("dump");
+        ProcessBuilder fakeDump = new ProcessBuilder("sh", "-c", String.join("; ",
+                "mkdir " + dumpDir,
+                "printf 'clients' > " + dumpDir + "/3001.dat.gz",
+                "echo 'pg_dump: finished item 3001 TABLE DATA public clients' >&2",
+                "printf 'documents' > " + dumpDir + "/3002.dat.gz",
+                "echo 'pg_dump: finished item 3002 TABLE DATA public documents' >&2",
+                "printf 'toc' > " + dumpDir + "/toc.dat"));
+
+        DirectoryBackupTransfer transfer = new DirectoryBackupTransfer(s3Client, BUCKET, 2,
+                S3MultipartOutputStream.MIN_PART_SIZE);
+        BackupManifest manifest = transfer.dumpAndUpload(fakeDump, dumpDir, "db-backups/run1/", "invoices", 2);
+
+        assertEquals(List.of("3001.dat.gz", "3002.dat.gz", "toc.dat"),
+                manifest.files().stream().map(BackupManifest.FileEntry::name).toList());
+        assertEquals("db-backups/run1/3002.dat.gz", manifest.files().get(1).s3Key());
+        assertEquals(19, manifest.totalSizeBytes());
+        // Uploaded files are removed from the local disk
+        try (var remaining = Files.list(dumpDir)) {
+            assertEquals(0, remaining.count());
+        }
+        assertEquals(manifest, BackupManifest.fromJson(manifest.toJson()));
+
+        Path restoreDir = Files.createDirectory(tempDir.resolve("restore"));
+        transfer.download(manifest, restoreDir);
+        assertEquals("documents", Files.readString(restoreDir.resolve("3002.dat.gz")));
+        assertEquals("toc", Files.readString(restoreDir.resolve("toc.dat")));
+    }
+
+    @Test
+    void testDownloadRejectsModifiedFile() {
+        s3Client.putObject(PutObjectRequest.builder().bucket(BUCKET).key("tampered/toc.dat").build(),
+                RequestBody.fromString("changed", StandardCharsets.UTF_8));
+        BackupManifest manifest = new BackupManifest("invoices", 1, List.of(
+                new BackupManifest.FileEntry("toc.dat", "tampered/toc.dat", 3, "00000000000000000000000000000000")));
+
+        DirectoryBackupTransfer transfer = new DirectoryBackupTransfer(s3Client, BUCKET, 1,
+                S3MultipartOutputStream.MIN_PART_SIZE);
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> transfer.download(manifest, tempDir));
+        assertTrue(error.getMessage().contains("Checksum mismatch"));
+    }
+
+    @Test
+    void testFailedDumpIsReported() {
+        ProcessBuilder failingDump = new ProcessBuilder("sh", "-c", "echo 'pg_dump: error: connection refused' >&2; exit 1");
+
+        DirectoryBackupTransfer transfer = new DirectoryBackupTransfer(s3Client, BUCKET, 1,
+                S3MultipartOutputStream.MIN_PART_SIZE);
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> transfer.dumpAndUpload(failingDump, tempDir.resolve("missing"), "failed/", "invoices", 1));
+        assertTrue(error.getMessage().contains("connection refused"));
+    }
+}
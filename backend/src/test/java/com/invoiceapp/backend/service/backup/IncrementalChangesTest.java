@@ -0,0 +1,132 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export from one database and replay into a copy of its earlier state, as a restore
+ * of full backup + increment does
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IncrementalChangesTest {
+
+    private static final String SCHEMA = String.join("\n",
+            "CREATE TABLE clients (id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, updated_at TIMESTAMP);",
+            "CREATE TABLE items (id BIGSERIAL PRIMARY KEY, item_number VARCHAR(50) NOT NULL, unit_price DECIMAL(10, 2), updated_at TIMESTAMP);",
+            "CREATE TABLE documents (id BIGSERIAL PRIMARY KEY, client_id BIGINT NOT NULL REFERENCES clients(id),",
+            "    issue_date DATE NOT NULL, total_amount DECIMAL(15, 2) NOT NULL, updated_at TIMESTAMP);",
+            "CREATE TABLE document_items (id BIGSERIAL PRIMARY KEY, document_id BIGINT NOT NULL REFERENCES documents(id),",
+            "    item_id BIGINT NOT NULL REFERENCES items(id), quantity DECIMAL(10, 3) NOT NULL);",
+            "CREATE TABLE document_number_sequences (id BIGSERIAL PRIMARY KEY, sequence_type VARCHAR(50) NOT NULL,",
+            "    current_number BIGINT NOT NULL, last_updated TIMESTAMP);");
+
+    private static final String FULL_BACKUP_STATE = String.join("\n",
+            "INSERT INTO clients VALUES (1, 'Алфа ООД', '2024-01-10 09:00'), (2, 'Бета ЕООД', '2024-01-10 09:00');",
+            "INSERT INTO items VALUES (1, 'A-1', 10.00, '2024-01-10 09:00');",
+            "INSERT INTO documents VALUES (1, 1, '2024-01-10', 20.00, '2024-01-10 09:00');",
+            "INSERT INTO document_items VALUES (1, 1, 1, 1.000), (2, 1, 1, 1.000);",
+            "INSERT INTO document_number_sequences VALUES (1, 'INVOICE', 1, '2024-01-10 09:00');",
+            "SELECT setval('clients_id_seq', 2); SELECT setval('items_id_seq', 1); SELECT setval('documents_id_seq', 1);",
+            "SELECT setval('document_items_id_seq', 2); SELECT setval('document_number_sequences_id_seq', 1);");
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        execute(postgres.getJdbcUrl(), "CREATE DATABASE restored");
+        execute(postgres.getJdbcUrl(), SCHEMA + FULL_BACKUP_STATE);
+        execute(restoredUrl(), SCHEMA + FULL_BACKUP_STATE);
+
+        // A day of activity after the full backup
+        execute(postgres.getJdbcUrl(), String.join("\n",
+                "UPDATE clients SET name = 'Алфа АД', updated_at = '2024-01-11 10:00' WHERE id = 1;",
+                "DELETE FROM clients WHERE id = 2;",
+                "INSERT INTO items (item_number, unit_price, updated_at) VALUES ('B-2', 5.50, '2024-01-11 10:00');",
+                "UPDATE documents SET total_amount = 15.50, updated_at = '2024-01-11 10:00' WHERE id = 1;",
+                "DELETE FROM document_items WHERE id = 2;",
+                "INSERT INTO document_items (document_id, item_id, quantity) VALUES (1, 2, 1.000);",
+                "INSERT INTO documents (client_id, issue_date, total_amount, updated_at) VALUES (1, '2024-01-11', 10.00, '2024-01-11 11:00');",
+                "INSERT INTO document_items (document_id, item_id, quantity) VALUES (2, 1, 1.000);",
+                "UPDATE document_number_sequences SET current_number = 2, last_updated = '2024-01-11 11:00';"));
+    }
+
+    @Test
+    void testReplayBringsTheRestoredCopyUpToDate() throws Exception {
+        StringWriter ndjson = new StringWriter();
+        Map<String, Long> exported;
+        try (Connection source = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())) {
+            exported = IncrementalChanges.export(source, LocalDateTime.of(2024, 1, 10, 12, 0), ndjson);
+        }
+        // Only what changed after the watermark, plus the sequences
+        assertEquals(Map.of("clients", 1L, "items", 1L, "documents", 2L, "document_items", 3L,
+                "document_number_sequences", 1L), exported);
+
+        try (Connection target = DriverManager.getConnection(restoredUrl(), postgres.getUsername(), postgres.getPassword())) {
+            target.setAutoCommit(false);
+            IncrementalChanges.replay(new BufferedReader(new StringReader(ndjson.toString())), target);
+            // Replaying twice (overlapping watermarks) changes nothing
+            IncrementalChanges.replay(new BufferedReader(new StringReader(ndjson.toString())), target);
+            target.commit();
+        }
+
+        for (String query : List.of(
+                "SELECT id, name, updated_at FROM clients ORDER BY id",
+                "SELECT id, item_number, unit_price FROM items ORDER BY id",
+                "SELECT id, client_id, issue_date, total_amount FROM documents ORDER BY id",
+                "SELECT id, document_id, item_id, quantity FROM document_items ORDER BY id",
+                "SELECT id, current_number, last_updated FROM document_number_sequences ORDER BY id")) {
+            assertEquals(rows(postgres.getJdbcUrl(), query), rows(restoredUrl(), query), query);
+        }
+
+        // New rows get ids after the replayed ones
+        assertEquals(List.of("3"), rows(restoredUrl(),
+                "INSERT INTO items (item_number, updated_at) VALUES ('C-3', now()) RETURNING id"));
+    }
+
+    private static String restoredUrl() {
+        return postgres.getJdbcUrl().replace("/" + postgres.getDatabaseName(), "/restored");
+    }
+
+    private static void execute(String url, String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static List<String> rows(String url, String query) throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url, postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(query)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= columns; i++) {
+                    row.append(i > 1 ? "|" : "").append(rs.getString(i));
+                }
+                rows.add(row.toString());
+            }
+        }
+        return rows;
+    }
+}
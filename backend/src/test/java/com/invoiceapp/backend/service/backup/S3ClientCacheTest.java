@@ -0,0 +1,48 @@
+package com.invoiceapp.backend.service.backup;
+
+import com.invoiceapp.backend.metrics.IntegrationMetrics;
+import com.invoiceapp.backend.model.BackupSettings;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3ClientCacheTest {
+
+    private final S3ClientCache cache = new S3ClientCache(new IntegrationMetrics(ObservationRegistry.NOOP));
+
+    @AfterEach
+    void tearDown() {
+        cache.destroy();
+    }
+
+    @Test
+    void testClientIsReusedUntilConnectionSettingsChange() {
+        BackupSettings settings = settings("secret-1");
+
+        try (S3ClientCache.Lease first = cache.acquire(settings);
+             S3ClientCache.Lease second = cache.acquire(settings)) {
+            assertSame(first.client(), second.client());
+            assertSame(first.presigner(), second.presigner());
+        }
+
+        // Status fields are not part of the connection
+        settings.setLastBackupStatus("SUCCESS");
+        S3ClientCache.Lease unchanged = cache.acquire(settings);
+        S3ClientCache.Lease rotated = cache.acquire(settings("secret-2"));
+        assertNotSame(unchanged.client(), rotated.client());
+        unchanged.close();
+        rotated.close();
+    }
+
+    private static BackupSettings settings(String secretKey) {
+        BackupSettings settings = new BackupSettings();
+        settings.setS3Endpoint("https://fsn1.your-objectstorage.com");
+        settings.setS3Region("eu-central");
+        settings.setS3BucketName("backups");
+        settings.setS3AccessKey("access");
+        settings.setS3SecretKey(secretKey);
+        return settings;
+    }
+}
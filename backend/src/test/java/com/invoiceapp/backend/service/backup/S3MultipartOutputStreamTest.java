@@ -0,0 +1,103 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListMultipartUploadsRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Multipart upload against a local MinIO server
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3MultipartOutputStreamTest {
+
+    private static final String BUCKET = "backups";
+
+    @Container
+    static MinIOContainer minio = new MinIOContainer("minio/minio:RELEASE.2024-05-10T01-41-38Z");
+
+    private static S3Client s3Client;
+
+    @BeforeAll
+    static void setUp() {
+        s3Client = S3Client.builder()
+                .endpointOverride(URI.create(minio.getS3URL()))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(minio.getUserName(), minio.getPassword())))
+                .forcePathStyle(true)
+                .build();
+        s3Client.createBucket(request -> request.bucket(BUCKET));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        s3Client.close();
+    }
+
+    @Test
+    void testStreamIsUploadedInPartsWithMatchingChecksum() throws Exception {
+        // Random data does not compress, so the gzip output spans several 5 MB parts
+        byte[] data = new byte[13 * 1024 * 1024];
+        new Random(42).nextBytes(data);
+
+        MessageDigest md5 = MessageDigest.getInstance("MD5");
+        S3MultipartOutputStream upload = new S3MultipartOutputStream(s3Client, BUCKET, "dump.sql.gz",
+                "application/gzip", S3MultipartOutputStream.MIN_PART_SIZE, 3);
+        try (OutputStream out = new GZIPOutputStream(new DigestOutputStream(upload, md5), 64 * 1024)) {
+            for (int offset = 0; offset < data.length; offset += 100_000) {
+                out.write(data, offset, Math.min(100_000, data.length - offset));
+            }
+        }
+
+        long size = s3Client.headObject(HeadObjectRequest.builder().bucket(BUCKET).key("dump.sql.gz").build())
+                .contentLength();
+        assertEquals(upload.getBytesWritten(), size);
+
+        MessageDigest downloaded = MessageDigest.getInstance("MD5");
+        try (InputStream in = new GZIPInputStream(new DigestInputStream(
+                s3Client.getObject(GetObjectRequest.builder().bucket(BUCKET).key("dump.sql.gz").build()), downloaded))) {
+            assertArrayEquals(data, in.readAllBytes());
+        }
+        assertTrue(Arrays.equals(md5.digest(), downloaded.digest()));
+    }
+
+    @Test
+    void testAbortLeavesNoObject() throws IOException {
+        S3MultipartOutputStream upload = new S3MultipartOutputStream(s3Client, BUCKET, "aborted.sql.gz",
+                "application/gzip", S3MultipartOutputStream.MIN_PART_SIZE, 2);
+        upload.write(new byte[6 * 1024 * 1024]);
+        upload.abort();
+        upload.close();
+
+        S3Exception missing = assertThrows(S3Exception.class, () -> s3Client.headObject(
+                HeadObjectRequest.builder().bucket(BUCKET).key("aborted.sql.gz").build()));
+        assertEquals(404, missing.statusCode());
+        assertTrue(s3Client.listMultipartUploads(ListMultipartUploadsRequest.builder().bucket(BUCKET).build())
+                .uploads().isEmpty());
+    }
+}
@@ -0,0 +1,46 @@
+package com.invoiceapp.backend.service.backup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TableRowCountsTest {
+
+    @Test
+    void testMatchingCountsHaveNoDifferences() {
+        Map<String, Long> expected = counts(3L, 120L);
+
+        assertTrue(TableRowCounts.differences(expected, counts(3L, 120L)).isEmpty());
+    }
+
+    @Test
+    void testMissingAndChangedTablesAreReported() {
+        Map<String, Long> expected = counts(3L, 120L);
+        Map<String, Long> restored = new LinkedHashMap<>();
+        restored.put("companies", 3L);
+
+        assertEquals(List.of("documents: null/120"), TableRowCounts.differences(expected, restored));
+        assertEquals(List.of("documents: 119/120"), TableRowCounts.differences(expected, counts(3L, 119L)));
+    }
+
+    @Test
+    void testJsonRoundTripKeepsOrderAndValues() {
+        Map<String, Long> counts = counts(3L, 5_000_000_000L);
+
+        Map<String, Long> parsed = TableRowCounts.fromJson(TableRowCounts.toJson(counts));
+
+        assertEquals(counts, parsed);
+        assertEquals(List.of("companies", "documents"), List.copyOf(parsed.keySet()));
+    }
+
+    private static Map<String, Long> counts(long companies, long documents) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("companies", companies);
+        counts.put("documents", documents);
+        return counts;
+    }
+}
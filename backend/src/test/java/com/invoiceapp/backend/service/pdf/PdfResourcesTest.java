@@ -0,0 +1,65 @@
+package com.invoiceapp.backend.service.pdf;
+
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfResourcesTest {
+
+    @Test
+    void testPrivateAndLocalAddressesAreInternal() throws Exception {
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("127.0.0.1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("10.0.0.1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("169.254.169.254")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("::1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("fe80::1")));
+    }
+
+    @Test
+    void testUniqueLocalIpv6IsInternal() throws Exception {
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("fc00::1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("fd12:3456:789a::1")));
+    }
+
+    @Test
+    void testIpv4InsideIpv6IsCheckedAsIpv4() throws Exception {
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("::ffff:10.0.0.1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("::10.0.0.1")));
+        assertTrue(PdfResources.isInternalAddress(InetAddress.getByName("::ffff:127.0.0.1")));
+        assertFalse(PdfResources.isInternalAddress(InetAddress.getByName("::ffff:93.184.216.34")));
+    }
+
+    @Test
+    void testPublicAddressesAreNotInternal() throws Exception {
+        assertFalse(PdfResources.isInternalAddress(InetAddress.getByName("93.184.216.34")));
+        assertFalse(PdfResources.isInternalAddress(InetAddress.getByName("2606:2800:220:1::1")));
+    }
+
+    @Test
+    void testResolverRefusesInternalNames() {
+        assertThrows(UnknownHostException.class, () -> PdfResources.publicAddresses("localhost"));
+
+        Future<InetSocketAddress> resolved = new PdfResources.PublicAddressResolverGroup()
+                .getResolver(ImmediateEventExecutor.INSTANCE)
+                .resolve(InetSocketAddress.createUnresolved("localhost", 80));
+        assertFalse(resolved.isSuccess());
+        assertInstanceOf(UnknownHostException.class, resolved.cause());
+    }
+
+    @Test
+    void testInternalImageUrlsAreSkipped() {
+        PdfResources resources = new PdfResources(new DefaultResourceLoader(),
+                "classpath:fonts/DejaVuSans.ttf", "classpath:fonts/DejaVuSans-Bold.ttf", 1024, 16);
+
+        assertTrue(resources.getImage("http://[fd00::1]/logo.png").isEmpty());
+        assertTrue(resources.getImage("http://[::ffff:10.0.0.1]/logo.png").isEmpty());
+        assertTrue(resources.getImage("http://localhost/logo.png").isEmpty());
+    }
+}
@@ -0,0 +1,76 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.model.Document;
+import jakarta.persistence.EntityGraph;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Subgraph;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DocumentFetchPlanTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private EntityGraph<Document> graph;
+
+    @Mock
+    private Subgraph<Object> subgraph;
+
+    private DocumentProjectionService documentProjectionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(entityManager.createEntityGraph(Document.class)).thenReturn(graph);
+        when(graph.addSubgraph(anyString())).thenReturn(subgraph);
+        documentProjectionService = new DocumentProjectionService();
+        ReflectionTestUtils.setField(documentProjectionService, "entityManager", entityManager);
+    }
+
+    @Test
+    void testDetailScreenSelectionFetchesAllRelations() {
+        Set<String> selection = Set.of("id", "clientName", "client", "company", "paymentMethod", "bankAccount",
+                "documentItems", "documentItems/effectiveItemName", "documentItems/vatExemptionReason");
+
+        DocumentFetchPlan plan = DocumentFetchPlan.of(selection::contains);
+
+        assertEquals(Set.of("client", "company", "paymentMethod", "bankAccount", "documentItems",
+                "documentItems.item", "documentItems.vatExemptionReason"), plan.getPaths());
+    }
+
+    @Test
+    void testScalarSelectionNeedsNoGraph() {
+        DocumentFetchPlan plan = DocumentFetchPlan.of(Set.of("id", "documentNumber", "clientId")::contains);
+
+        assertTrue(plan.getPaths().isEmpty());
+    }
+
+    @Test
+    void testDocumentIsLoadedWithSingleFind() {
+        Document document = new Document();
+        when(entityManager.find(eq(Document.class), eq(5L), anyMap())).thenReturn(document);
+        Set<String> selection = Set.of("client", "documentItems", "documentItems/item");
+
+        Optional<Document> result = documentProjectionService.findDocumentById(5L, DocumentFetchPlan.of(selection::contains));
+
+        assertSame(document, result.orElseThrow());
+        verify(entityManager, times(1)).find(Document.class, 5L, Map.of("jakarta.persistence.loadgraph", graph));
+        verify(graph).addSubgraph("client");
+        verify(graph).addSubgraph("documentItems");
+        verify(subgraph).addAttributeNodes("item");
+        verify(entityManager, never()).createQuery(anyString());
+    }
+}
@@ -0,0 +1,174 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.controller.DocumentController;
+import com.invoiceapp.backend.controller.DocumentItemController;
+import com.invoiceapp.backend.dataloader.BatchLoaderExecutor;
+import com.invoiceapp.backend.dataloader.DataLoaderConfig;
+import com.invoiceapp.backend.metrics.StatementCountingDatabase;
+import com.invoiceapp.backend.model.*;
+import com.invoiceapp.backend.repository.*;
+import graphql.schema.DataFetchingEnvironment;
+import graphql.schema.DataFetchingEnvironmentImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.dataloader.DataLoaderRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SQL statements counted by StatementCounter while documentById resolves a full detail screen,
+ * against the Flyway schema: one with the entity graph of DocumentFetchPlan, one per DataLoader
+ * batch without it
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class DocumentFetchStatementCountTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final long DOCUMENT_ID = 10L;
+    private static final Set<String> DETAIL_SELECTION = Set.of("id", "clientName", "client", "company",
+            "paymentMethod", "bankAccount", "documentItems", "documentItems/item", "documentItems/vatExemptionReason");
+
+    private static StatementCountingDatabase database;
+
+    private final DocumentController documentController = new DocumentController();
+    private final DocumentItemController documentItemController = new DocumentItemController();
+    private final DocumentProjectionService documentProjectionService = new DocumentProjectionService();
+    private BatchLoaderExecutor batchLoaderExecutor;
+    private DataLoaderConfig dataLoaderConfig;
+
+    @BeforeAll
+    static void setUpDatabase() throws Exception {
+        database = new StatementCountingDatabase(postgres);
+        database.jdbc().execute(String.join("\n",
+                "INSERT INTO currencies (code, name) VALUES ('EUR', 'Евро');",
+                "INSERT INTO companies (id, name) VALUES (1, 'Фирма ООД');",
+                "INSERT INTO clients (id, name, company_id) VALUES (1, 'Алфа ООД', 1);",
+                "INSERT INTO payment_methods (id, name, method_code, company_id) VALUES (1, 'Банков превод', 'BANK_TRANSFER', 1);",
+                "INSERT INTO bank_accounts (id, bank_name, iban, bic, currency_code, company_id) VALUES",
+                "    (1, 'Банка АД', 'BG80BNBG96611020345678', 'BNBGBGSD', 'EUR', 1);",
+                "INSERT INTO items (id, item_number, name, company_id) VALUES",
+                "    (1, 'A-1', 'Консултация', 1), (2, 'A-2', 'Лиценз', 1), (3, 'A-3', 'Обучение', 1);",
+                "INSERT INTO documents (id, document_uuid, document_number, document_type, issue_date, due_date, status,",
+                "    company_id, client_id, payment_method_id, bank_account_id, currency_code, subtotal_amount, vat_amount,",
+                "    total_amount_with_vat, subtotal_amount_base_currency, vat_amount_base_currency,",
+                "    total_amount_with_vat_base_currency) VALUES",
+                "    (" + DOCUMENT_ID + ", 'u-10', '0000000001', 'INVOICE', '2026-05-01', '2026-05-15', 'FINAL',",
+                "    1, 1, 1, 1, 'EUR', 120.00, 20.00, 140.00, 120.00, 20.00, 140.00);",
+                "INSERT INTO document_items (document_id, item_id, quantity, unit_price, vat_rate, vat_exemption_reason_id,",
+                "    line_total, vat_amount, line_total_with_vat, line_number) VALUES",
+                "    (" + DOCUMENT_ID + ", 1, 1, 50.00, 20.00, NULL, 50.00, 10.00, 60.00, 1),",
+                "    (" + DOCUMENT_ID + ", 2, 1, 50.00, 20.00, NULL, 50.00, 10.00, 60.00, 2),",
+                "    (" + DOCUMENT_ID + ", 3, 1, 20.00, 0, (SELECT min(id) FROM vat_exemption_reasons), 20.00, 0, 20.00, 3);"));
+    }
+
+    @AfterAll
+    static void tearDownDatabase() {
+        database.close();
+    }
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(documentProjectionService, "entityManager", database.entityManager());
+        batchLoaderExecutor = new BatchLoaderExecutor(database.transactionManager(), new SimpleMeterRegistry(),
+                ObservationRegistry.NOOP, 2, 16);
+        dataLoaderConfig = new DataLoaderConfig(database.repository(ClientRepository.class),
+                database.repository(CompanyRepository.class), database.repository(DocumentRepository.class),
+                database.repository(DocumentItemRepository.class), database.repository(PaymentMethodRepository.class),
+                database.repository(BankAccountRepository.class), database.repository(ItemRepository.class),
+                database.repository(VatExemptionReasonRepository.class), database.repository(CurrencyRepository.class),
+                database.repository(UserRepository.class), batchLoaderExecutor);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        batchLoaderExecutor.destroy();
+    }
+
+    @Test
+    void testDetailScreenIsOneStatement() {
+        List<Object> fields = new ArrayList<>();
+
+        int statements = database.countStatements(() ->
+                fields.addAll(resolveDetailScreen(DocumentFetchPlan.of(DETAIL_SELECTION::contains))));
+
+        assertEquals(1, statements);
+        assertDetailScreen(fields);
+    }
+
+    @Test
+    void testWithoutGraphEveryRelationIsAStatement() {
+        List<Object> fields = new ArrayList<>();
+
+        int statements = database.countStatements(() ->
+                fields.addAll(resolveDetailScreen(DocumentFetchPlan.of(Set.of("id")::contains))));
+
+        // Документът, после по една заявка за клиент, фирма, начин на плащане, сметка и редове
+        assertEquals(6, statements);
+        assertDetailScreen(fields);
+    }
+
+    /**
+     * Loads the document as documentById does and resolves the detail fields level by level,
+     * as graphql-java dispatches the DataLoaders
+     * @return client, company, payment method, bank account, then item and exemption reason per line
+     */
+    private List<Object> resolveDetailScreen(DocumentFetchPlan plan) {
+        Document document = database.readOnlyTransaction().execute(status ->
+                documentProjectionService.findDocumentById(DOCUMENT_ID, plan).orElseThrow());
+
+        DataLoaderRegistry registry = dataLoaderConfig.createDataLoaderRegistry();
+        DataFetchingEnvironment env = DataFetchingEnvironmentImpl.newDataFetchingEnvironment()
+                .dataLoaderRegistry(registry)
+                .build();
+        List<CompletableFuture<?>> relations = new ArrayList<>(List.of(
+                documentController.client(document, env),
+                documentController.company(document, env),
+                documentController.paymentMethod(document, env),
+                documentController.bankAccount(document, env)));
+        CompletableFuture<List<DocumentItem>> documentItems = documentController.documentItems(document, env);
+        registry.dispatchAll();
+
+        for (DocumentItem documentItem : documentItems.join()) {
+            relations.add(documentItemController.item(documentItem, env));
+            relations.add(documentItemController.vatExemptionReason(documentItem, env));
+        }
+        registry.dispatchAll();
+        return relations.stream().map(CompletableFuture::join).map(Object.class::cast).toList();
+    }
+
+    private static void assertDetailScreen(List<Object> fields) {
+        assertEquals("Алфа ООД", ((Client) fields.get(0)).getName());
+        assertEquals("Фирма ООД", ((Company) fields.get(1)).getName());
+        assertEquals("BANK_TRANSFER", ((PaymentMethod) fields.get(2)).getMethodCode());
+        assertEquals("Банка АД", ((BankAccount) fields.get(3)).getBankName());
+
+        Set<String> itemNames = new HashSet<>();
+        int exemptions = 0;
+        for (int i = 4; i < fields.size(); i += 2) {
+            itemNames.add(((Item) fields.get(i)).getName());
+            if (fields.get(i + 1) != null) {
+                assertNotNull(((VatExemptionReason) fields.get(i + 1)).getReasonCode());
+                exemptions++;
+            }
+        }
+        assertEquals(Set.of("Консултация", "Лиценз", "Обучение"), itemNames);
+        assertEquals(1, exemptions);
+    }
+}
@@ -0,0 +1,69 @@
+package com.invoiceapp.backend.service.projection;
+
+import com.invoiceapp.backend.service.projection.DocumentListPlan.RelationMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentListPlanTest {
+
+    @Test
+    void testListScreenSelectionIsProjected() {
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        selected.put("id", Set.of());
+        selected.put("documentNumber", Set.of());
+        selected.put("issueDate", Set.of());
+        selected.put("totalAmountWithVat", Set.of());
+        selected.put("clientName", Set.of());
+        selected.put("currencyCode", Set.of());
+
+        DocumentListPlan plan = DocumentListPlan.of(selected).orElseThrow();
+
+        assertEquals(Set.of("documentNumber", "issueDate", "totalAmountWithVat"), plan.getAttributes());
+        assertFalse(plan.getAttributes().contains("notes"));
+        assertFalse(plan.getAttributes().contains("cancellationReason"));
+        assertEquals(RelationMode.STUB, plan.getClient());
+        assertEquals(Set.of("name"), plan.getClientFields());
+        assertEquals(RelationMode.NONE, plan.getPaymentMethod());
+        assertTrue(plan.isCurrencyReference());
+    }
+
+    @Test
+    void testIsPaidReadsPaymentMethodCodeInSameQuery() {
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        selected.put("isPaid", Set.of());
+        selected.put("paymentMethod", Set.of("id", "name"));
+
+        DocumentListPlan plan = DocumentListPlan.of(selected).orElseThrow();
+
+        assertTrue(plan.getAttributes().contains("paidAt"));
+        assertEquals(RelationMode.STUB, plan.getPaymentMethod());
+        assertEquals(Set.of("id", "name", "methodCode"), plan.getPaymentMethodFields());
+    }
+
+    @Test
+    void testWideNestedSelectionUsesReference() {
+        Map<String, Set<String>> selected = new LinkedHashMap<>();
+        selected.put("client", Set.of("id", "address", "company"));
+
+        DocumentListPlan plan = DocumentListPlan.of(selected).orElseThrow();
+
+        assertEquals(RelationMode.REFERENCE, plan.getClient());
+    }
+
+    @Test
+    void testFallsBackToEntities() {
+        Map<String, Set<String>> unknownField = Map.of("someFutureField", Set.of());
+        Map<String, Set<String>> nameAndWideClient = Map.of(
+                "clientName", Set.of(),
+                "client", Set.of("id", "address"));
+
+        assertEquals(Optional.empty(), DocumentListPlan.of(unknownField));
+        assertEquals(Optional.empty(), DocumentListPlan.of(nameAndWideClient));
+    }
+}
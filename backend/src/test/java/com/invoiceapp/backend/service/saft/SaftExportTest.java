@@ -0,0 +1,172 @@
+package com.invoiceapp.backend.service.saft;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The keyset-paged SAF-T export against the V16 indexes, with pages smaller than the data
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SaftExportTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final LocalDate FROM = LocalDate.of(2026, 5, 1);
+    private static final LocalDate TO = LocalDate.of(2026, 5, 31);
+
+    private static DriverManagerDataSource dataSource;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute(String.join("\n",
+                "CREATE TABLE companies (id BIGSERIAL PRIMARY KEY);",
+                "CREATE TABLE clients (id BIGSERIAL PRIMARY KEY, name VARCHAR(255) NOT NULL, address TEXT, vat_number VARCHAR(50),",
+                "    eik VARCHAR(50), country_code VARCHAR(2), company_id BIGINT NOT NULL);",
+                "CREATE TABLE items (id BIGSERIAL PRIMARY KEY, item_number VARCHAR(50) NOT NULL, name VARCHAR(255) NOT NULL,",
+                "    unit_of_measure VARCHAR(50), accounting_account_number VARCHAR(50), company_id BIGINT NOT NULL);",
+                "CREATE TABLE vat_exemption_reasons (id BIGSERIAL PRIMARY KEY, reason_code VARCHAR(50));",
+                "CREATE TABLE documents (id BIGSERIAL PRIMARY KEY, document_uuid VARCHAR(36) NOT NULL, document_number VARCHAR(50) NOT NULL,",
+                "    document_type VARCHAR(50) NOT NULL, issue_date DATE NOT NULL, vat_date DATE, status VARCHAR(50) NOT NULL,",
+                "    company_id BIGINT NOT NULL, client_id BIGINT NOT NULL, currency_code VARCHAR(3) NOT NULL, exchange_rate DECIMAL(19, 9),",
+                "    subtotal_amount_base_currency DECIMAL(15, 2) NOT NULL, vat_amount_base_currency DECIMAL(15, 2) NOT NULL,",
+                "    total_amount_with_vat_base_currency DECIMAL(15, 2) NOT NULL);",
+                "CREATE TABLE document_items (id BIGSERIAL PRIMARY KEY, document_id BIGINT NOT NULL, item_id BIGINT NOT NULL,",
+                "    quantity DECIMAL(10, 3) NOT NULL, unit_price DECIMAL(10, 2) NOT NULL, vat_rate DECIMAL(5, 2) NOT NULL,",
+                "    vat_exemption_reason_id BIGINT, line_total DECIMAL(10, 2) NOT NULL, vat_amount DECIMAL(10, 2) NOT NULL,",
+                "    item_description TEXT, line_number INT);"));
+        template.execute(new ClassPathResource("db/migration/V16__Audit_Exports.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(String.join("\n",
+                "INSERT INTO companies (id) VALUES (1), (2);",
+                "INSERT INTO clients (id, name, address, vat_number, eik, country_code, company_id) VALUES",
+                "    (1, 'Алфа ООД', 'София', 'BG111111111', '111111111', 'BG', 1),",
+                "    (2, 'Beta GmbH', 'Berlin', 'DE123456789', NULL, 'DE', 1),",
+                "    (3, 'Гама & синове', NULL, NULL, '333333333', 'BG', 1),",
+                "    (4, 'Друга фирма', NULL, NULL, NULL, 'BG', 2);",
+                "INSERT INTO items (id, item_number, name, unit_of_measure, company_id) VALUES",
+                "    (1, 'A-1', 'Консултация', 'ч.', 1), (2, 'A-2', 'Лиценз', 'бр.', 1), (3, 'B-1', 'Чужд', 'бр.', 2);",
+                "INSERT INTO vat_exemption_reasons (id, reason_code) VALUES (1, 'VATEX-EU-IC');",
+                "INSERT INTO documents (id, document_uuid, document_number, document_type, issue_date, vat_date, status, company_id,",
+                "    client_id, currency_code, exchange_rate, subtotal_amount_base_currency, vat_amount_base_currency,",
+                "    total_amount_with_vat_base_currency) VALUES",
+                // Подредбата е по дата, после по id - по-новият id с по-ранна дата е пръв
+                "    (10, 'u-10', '0000000002', 'INVOICE', '2026-05-20', NULL, 'FINAL', 1, 1, 'EUR', 1, 100.00, 20.00, 120.00),",
+                "    (11, 'u-11', '0000000001', 'INVOICE', '2026-05-01', NULL, 'FINAL', 1, 2, 'USD', 1.1, 1000.00, 0, 1000.00),",
+                "    (12, 'u-12', '0000000003', 'CREDIT_NOTE', '2026-05-20', '2026-05-21', 'FINAL', 1, 1, 'EUR', 1, -50.00, -10.00, -60.00),",
+                "    (13, 'u-13', '0000000004', 'INVOICE', '2026-05-31', NULL, 'FINAL', 1, 3, 'EUR', 1, 10.00, 2.00, 12.00),",
+                // Не влизат: чернова, проформа, извън периода, друга фирма
+                "    (14, 'u-14', '0000000005', 'INVOICE', '2026-05-10', NULL, 'DRAFT', 1, 1, 'EUR', 1, 1.00, 0, 1.00),",
+                "    (15, 'u-15', '0000000006', 'PROFORMA', '2026-05-10', NULL, 'FINAL', 1, 1, 'EUR', 1, 1.00, 0, 1.00),",
+                "    (16, 'u-16', '0000000007', 'INVOICE', '2026-06-01', NULL, 'FINAL', 1, 1, 'EUR', 1, 1.00, 0, 1.00),",
+                "    (17, 'u-17', '0000000008', 'INVOICE', '2026-04-30', NULL, 'FINAL', 1, 1, 'EUR', 1, 1.00, 0, 1.00),",
+                "    (18, 'u-18', '0000000001', 'INVOICE', '2026-05-10', NULL, 'FINAL', 2, 4, 'EUR', 1, 1.00, 0, 1.00);",
+                "INSERT INTO document_items (document_id, item_id, quantity, unit_price, vat_rate, vat_exemption_reason_id,",
+                "    line_total, vat_amount, item_description, line_number) VALUES",
+                "    (10, 2, 1, 60.00, 20, NULL, 60.00, 12.00, NULL, 2),",
+                "    (10, 1, 2, 20.00, 20, NULL, 40.00, 8.00, 'Консултация по договор', 1),",
+                "    (11, 2, 10, 110.00, 0, 1, 1100.00, 0, NULL, 1),",
+                "    (12, 1, -2.5, 20.00, 20, NULL, -50.00, -10.00, NULL, 1),",
+                "    (13, 1, 1, 10.00, 20, NULL, 10.00, 2.00, NULL, 1);"));
+    }
+
+    @Test
+    void testCountsMasterFilesAndDocumentsOfThePeriod() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertEquals(3 + 2 + 4, SaftExport.countRecords(connection, 1L, FROM, TO));
+        }
+    }
+
+    @Test
+    void testWritesAllPagesInKeyOrder() throws Exception {
+        List<Long> progress = new ArrayList<>();
+        org.w3c.dom.Document xml = export(progress);
+
+        Element root = xml.getDocumentElement();
+        assertEquals(SaftExport.NAMESPACE, root.getNamespaceURI());
+        assertEquals("AuditFile", root.getLocalName());
+
+        assertEquals(List.of("1", "2", "3"), texts((Element) xml.getElementsByTagNameNS("*", "Customers").item(0), "CustomerID"));
+        assertEquals(List.of("A-1", "A-2"), texts((Element) xml.getElementsByTagNameNS("*", "Products").item(0), "ProductCode"));
+        assertEquals(List.of("0000000001", "0000000002", "0000000003", "0000000004"), texts(xml, "InvoiceNo"));
+
+        // Страници по 2: клиенти 2 + 1, артикули 2, документи 2 + 2
+        assertEquals(List.of(2L, 3L, 5L, 7L, 9L), progress);
+    }
+
+    @Test
+    void testSignsTotalsAndBaseCurrencyAmounts() throws Exception {
+        org.w3c.dom.Document xml = export(new ArrayList<>());
+
+        assertEquals(List.of("4"), texts(xml, "NumberOfEntries"));
+        assertEquals(List.of("50.00"), texts(xml, "TotalDebit"));
+        assertEquals(List.of("1110.00"), texts(xml, "TotalCredit"));
+
+        NodeList invoices = xml.getElementsByTagNameNS("*", "Invoice");
+        // Фактурата в USD: 1100 USD / 1.1 = 1000 EUR
+        Element usd = (Element) invoices.item(0);
+        assertEquals(List.of("1000.00", "0.00"), texts(usd, "Amount"));
+        assertEquals(List.of("1100.00"), texts(usd, "CurrencyAmount"));
+        assertEquals(List.of("VATEX-EU-IC"), texts(usd, "TaxCode"));
+
+        // Редовете са по номер на реда
+        Element invoice = (Element) invoices.item(1);
+        assertEquals(List.of("1", "2"), texts(invoice, "LineNumber"));
+        assertEquals("Консултация по договор", texts(invoice, "Description").get(0));
+
+        Element creditNote = (Element) invoices.item(2);
+        assertEquals(List.of("D"), texts(creditNote, "DebitCreditIndicator"));
+        assertEquals(List.of("2.500"), texts(creditNote, "Quantity"));
+        assertEquals(List.of("2026-05-21"), texts(creditNote, "TaxPointDate"));
+        assertEquals(List.of("-50.00"), texts(creditNote, "NetTotal"));
+    }
+
+    private static org.w3c.dom.Document export(List<Long> progress) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SaftHeader header = new SaftHeader("Тест ЕООД", "123456789", "BG123456789", "София", "EUR", FROM, TO,
+                LocalDate.of(2026, 6, 5));
+        try (Connection connection = dataSource.getConnection()) {
+            XMLStreamWriter xml = XMLOutputFactory.newFactory().createXMLStreamWriter(out, "UTF-8");
+            SaftExport.write(connection, 1L, header, xml, 2, progress::add);
+            xml.close();
+        }
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static List<String> texts(org.w3c.dom.Document xml, String name) {
+        return texts(xml.getDocumentElement(), name);
+    }
+
+    private static List<String> texts(Element parent, String name) {
+        NodeList nodes = parent.getElementsByTagNameNS("*", name);
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            texts.add(nodes.item(i).getTextContent());
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,74 @@
+package com.invoiceapp.backend.service.vat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesLedgerTest {
+
+    private static SalesLedgerEntry creditNote() {
+        EnumMap<SalesLedgerColumn, BigDecimal> amounts = new EnumMap<>(SalesLedgerColumn.class);
+        amounts.put(SalesLedgerColumn.TOTAL_BASE, new BigDecimal("-100.00"));
+        amounts.put(SalesLedgerColumn.TOTAL_VAT, new BigDecimal("-20.00"));
+        amounts.put(SalesLedgerColumn.BASE_20, new BigDecimal("-100.00"));
+        amounts.put(SalesLedgerColumn.VAT_20, new BigDecimal("-20.00"));
+        return new SalesLedgerEntry(7, "03", "0000000042", LocalDate.of(2026, 5, 3), "BG123456789",
+                "Петров и син \"ООД\"", "Консултантски услуги\nпо договор", amounts);
+    }
+
+    @Test
+    void testBaseColumnByRateAndExemptionReason() {
+        assertEquals(SalesLedgerColumn.BASE_20, SalesLedger.baseColumn(new BigDecimal("20.00"), null, null, false));
+        assertEquals(SalesLedgerColumn.BASE_9, SalesLedger.baseColumn(new BigDecimal("9"), null, null, false));
+        assertEquals(SalesLedgerColumn.BASE_INTRA_COMMUNITY, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-IC", "K", true));
+        assertEquals(SalesLedgerColumn.BASE_ZERO_RATE, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-G", "G", false));
+        assertEquals(SalesLedgerColumn.BASE_ART140_146_173, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-Z-173", "Z", false));
+        assertEquals(SalesLedgerColumn.BASE_ART21_SERVICES, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-S-21", "O", true));
+        assertEquals(SalesLedgerColumn.BASE_ART69, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-S-21", "O", false));
+        assertEquals(SalesLedgerColumn.BASE_EXEMPT, SalesLedger.baseColumn(BigDecimal.ZERO, "VATEX-EU-E-44", "E", false));
+        assertEquals(SalesLedgerColumn.BASE_ZERO_RATE, SalesLedger.baseColumn(BigDecimal.ZERO, null, null, false));
+        assertNull(SalesLedger.baseColumn(new BigDecimal("7"), null, null, false));
+    }
+
+    @Test
+    void testNraRecordHasFixedWidthFields() throws Exception {
+        StringWriter out = new StringWriter();
+        new NraSalesLedgerWriter(out, "BG987654321", YearMonth.of(2026, 5)).write(creditNote());
+
+        String record = out.toString();
+        assertTrue(record.endsWith("\r\n"));
+        String line = record.substring(0, record.length() - 2);
+        assertEquals(167 + SalesLedgerColumn.values().length * 15, line.length());
+        assertEquals("BG987654321    ", line.substring(0, 15));
+        assertEquals("202605", line.substring(15, 21));
+        assertEquals("              7", line.substring(25, 40));
+        assertEquals("03", line.substring(40, 42));
+        assertEquals("0000000042          ", line.substring(42, 62));
+        assertEquals("03/05/2026", line.substring(62, 72));
+        assertEquals("Консултантски услуги по догово", line.substring(137, 167));
+        assertEquals("        -100.00", line.substring(167, 182));
+        assertEquals("         -20.00", line.substring(182, 197));
+        assertEquals("           0.00", line.substring(line.length() - 15));
+    }
+
+    @Test
+    void testCsvQuotesTextAndAddsTotals() throws Exception {
+        StringWriter out = new StringWriter();
+        CsvSalesLedgerWriter writer = new CsvSalesLedgerWriter(out);
+        writer.begin();
+        writer.write(creditNote());
+        writer.finish(Map.of(SalesLedgerColumn.TOTAL_BASE, new BigDecimal("-100")));
+
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1].startsWith("7,03,\"0000000042\",03.05.2026,\"BG123456789\",\"Петров и син \"\"ООД\"\"\","), lines[1]);
+        assertTrue(lines[2].startsWith("Общо,,,,,,,-100.00,0.00,"), lines[2]);
+    }
+}
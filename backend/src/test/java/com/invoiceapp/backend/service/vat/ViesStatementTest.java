@@ -0,0 +1,163 @@
+package com.invoiceapp.backend.service.vat;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The grouped VIES query of ViesStatement against the V15 VAT period index
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ViesStatementTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final YearMonth PERIOD = YearMonth.of(2026, 5);
+
+    private static DriverManagerDataSource dataSource;
+    private static JdbcTemplate template;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        dataSource = new DriverManagerDataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        template = new JdbcTemplate(dataSource);
+        template.execute(String.join("\n",
+                "CREATE TABLE clients (id BIGSERIAL PRIMARY KEY, vat_number VARCHAR(50), country_code VARCHAR(2),",
+                "    is_eu_vat_payer BOOLEAN DEFAULT FALSE);",
+                "CREATE TABLE vat_exemption_reasons (id BIGSERIAL PRIMARY KEY, reason_code VARCHAR(50), ubl_category_code VARCHAR(10));",
+                "CREATE TABLE documents (id BIGSERIAL PRIMARY KEY, document_type VARCHAR(50) NOT NULL, status VARCHAR(50) NOT NULL,",
+                "    issue_date DATE NOT NULL, vat_date DATE, exchange_rate DECIMAL(15, 6), company_id BIGINT NOT NULL,",
+                "    client_id BIGINT NOT NULL);",
+                "CREATE TABLE document_items (id BIGSERIAL PRIMARY KEY, document_id BIGINT NOT NULL, line_total DECIMAL(15, 2) NOT NULL,",
+                "    vat_exemption_reason_id BIGINT);"));
+        template.execute(new ClassPathResource("db/migration/V15__Vat_Ledgers.sql").getContentAsString(StandardCharsets.UTF_8));
+        template.execute(String.join("\n",
+                "INSERT INTO vat_exemption_reasons (id, reason_code, ubl_category_code) VALUES",
+                "    (1, 'VATEX-EU-IC', 'K'), (2, 'VATEX-EU-S-21', 'O'), (3, 'VATEX-EU-G', 'G');",
+                "INSERT INTO clients (id, vat_number, country_code, is_eu_vat_payer) VALUES",
+                "    (1, 'DE 123.456-789', 'DE', TRUE), (2, '123456789', 'DE', TRUE), (3, '094014298', 'GR', TRUE),",
+                "    (4, 'BG123456789', 'BG', TRUE), (5, 'FR12345678901', 'FR', FALSE), (6, 'ATU12345678', 'AT', TRUE);",
+                "INSERT INTO documents (id, document_type, status, issue_date, vat_date, exchange_rate, company_id, client_id) VALUES",
+                // Два клиента с един ДДС номер - стоки, услуги и кредитно известие
+                "    (1, 'INVOICE', 'FINAL', '2026-05-02', NULL, 1, 1, 1),",
+                "    (2, 'INVOICE', 'FINAL', '2026-05-10', NULL, 1, 1, 2),",
+                "    (3, 'CREDIT_NOTE', 'FINAL', '2026-05-20', NULL, 1, 1, 1),",
+                // Сума във валута: 1 EUR = 1.1 USD
+                "    (4, 'INVOICE', 'FINAL', '2026-05-15', NULL, 1.1, 1, 3),",
+                // Не влизат: български и нерегистриран клиент, износ, чернова, проформа, друг период и фирма
+                "    (5, 'INVOICE', 'FINAL', '2026-05-15', NULL, 1, 1, 4),",
+                "    (6, 'INVOICE', 'FINAL', '2026-05-15', NULL, 1, 1, 5),",
+                "    (7, 'INVOICE', 'DRAFT', '2026-05-15', NULL, 1, 1, 6),",
+                "    (8, 'PROFORMA', 'FINAL', '2026-05-15', NULL, 1, 1, 6),",
+                "    (9, 'INVOICE', 'FINAL', '2026-05-31', '2026-06-01', 1, 1, 6),",
+                "    (10, 'INVOICE', 'FINAL', '2026-05-15', NULL, 1, 2, 6),",
+                // Кредитното известие нулира доставката към клиента
+                "    (11, 'INVOICE', 'FINAL', '2026-05-03', NULL, 1, 1, 6),",
+                "    (12, 'CREDIT_NOTE', 'FINAL', '2026-05-04', NULL, 1, 1, 6);",
+                "INSERT INTO document_items (document_id, line_total, vat_exemption_reason_id) VALUES",
+                "    (1, 1000.40, 1), (1, 200.00, 2), (1, 50.00, NULL), (1, 70.00, 3),",
+                "    (2, 500.00, 1), (3, -300.00, 1),",
+                "    (4, 1100.00, 2),",
+                "    (5, 100.00, 1), (6, 100.00, 1), (7, 100.00, 1), (8, 100.00, 1), (9, 100.00, 1), (10, 100.00, 1),",
+                "    (11, 400.00, 1), (12, -400.00, 1);"));
+    }
+
+    @Test
+    void testNetsCreditNotesPerNormalizedVatNumber() throws Exception {
+        List<ViesLine> lines = aggregate(1L, BigDecimal.ONE);
+        assertEquals(2, lines.size(), lines.toString());
+
+        ViesLine germany = lines.get(0);
+        assertEquals("DE123456789", germany.vatNumber());
+        assertEquals(new BigDecimal("1200"), germany.goods());
+        assertEquals(new BigDecimal("200"), germany.services());
+
+        ViesLine greece = lines.get(1);
+        assertEquals("EL094014298", greece.vatNumber());
+        assertEquals(BigDecimal.ZERO, greece.goods());
+        assertEquals(new BigDecimal("1000"), greece.services());
+    }
+
+    @Test
+    void testConvertsToStatementCurrency() throws Exception {
+        List<ViesLine> lines = aggregate(1L, new BigDecimal("1.95583"));
+        // 1200.40 * 1.95583 = 2347.78
+        assertEquals(new BigDecimal("2348"), lines.get(0).goods());
+    }
+
+    @Test
+    void testViesFileRecords() throws Exception {
+        StringWriter out = new StringWriter();
+        new NraViesWriter(out, "BG987654321", "Тест ЕООД", "София", "Иван Иванов", PERIOD).write(aggregate(1L, BigDecimal.ONE));
+
+        String[] records = out.toString().split("\r\n");
+        assertEquals(5, records.length);
+        assertEquals("VHR05/2026    2", records[0]);
+        assertTrue(records[1].startsWith("VDRBG987654321    Тест ЕООД"));
+        assertEquals(3 + 15 + 150 + 200 + 150, records[1].length());
+        assertEquals("VTD" + amount(1200) + amount(1200) + amount(0), records[2]);
+        assertEquals("VTR    1DE123456789    " + amount(1200) + amount(200) + amount(0), records[3]);
+        assertEquals("VTR    2EL094014298    " + amount(0) + amount(1000) + amount(0), records[4]);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "vies.benchmark", matches = "true")
+    void benchmarkFiftyThousandEuInvoicesPerMonth() throws Exception {
+        // Фирма 100: 2000 клиента от ЕС, 50 000 фактури в периода с по два реда и по едно кредитно известие
+        // на всеки 20 фактури, плюс същото количество фактури в предходния месец
+        template.execute(String.join("\n",
+                "INSERT INTO clients (id, vat_number, country_code, is_eu_vat_payer)",
+                "    SELECT 1000 + g, 'DE' || lpad(g::text, 9, '0'), 'DE', TRUE FROM generate_series(1, 2000) g;",
+                "INSERT INTO documents (id, document_type, status, issue_date, exchange_rate, company_id, client_id)",
+                "    SELECT 100000 + g, CASE WHEN g % 20 = 0 THEN 'CREDIT_NOTE' ELSE 'INVOICE' END, 'FINAL',",
+                "        DATE '2026-04-01' + (g % 61), 1, 100, 1001 + g % 2000",
+                "    FROM generate_series(1, 100000) g;",
+                "INSERT INTO document_items (document_id, line_total, vat_exemption_reason_id)",
+                "    SELECT 100000 + g, CASE WHEN g % 20 = 0 THEN -50 ELSE 100 END, 1 + (g + l) % 2",
+                "    FROM generate_series(1, 100000) g, generate_series(1, 2) l;",
+                "CREATE INDEX ON document_items (document_id);",
+                "ANALYZE;"));
+
+        for (int i = 0; i < 5; i++) {
+            aggregate(100L, BigDecimal.ONE);
+        }
+
+        int iterations = 20;
+        List<ViesLine> lines = null;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            lines = aggregate(100L, BigDecimal.ONE);
+        }
+        double averageMillis = (System.nanoTime() - start) / 1_000_000.0 / iterations;
+        System.out.printf("VIES statement: %.2f ms for 50k EU invoices per month%n", averageMillis);
+        assertEquals(2000, lines.size());
+        assertTrue(averageMillis < 500, "Average aggregation time " + averageMillis + " ms");
+    }
+
+    private static String amount(long value) {
+        String text = Long.toString(value);
+        return " ".repeat(15 - text.length()) + text;
+    }
+
+    private static List<ViesLine> aggregate(long companyId, BigDecimal currencyFactor) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            return ViesStatement.aggregate(connection, companyId, PERIOD, currencyFactor);
+        }
+    }
+}
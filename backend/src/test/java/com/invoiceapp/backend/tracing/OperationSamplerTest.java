@@ -0,0 +1,51 @@
+package com.invoiceapp.backend.tracing;
+
+import com.invoiceapp.backend.metrics.GraphQlOperationInterceptor;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationSamplerTest {
+
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+    private final OperationSampler sampler = new OperationSampler(0.0, Map.of("createDocument", 1.0));
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void testListedOperationUsesItsOwnProbability() {
+        assertEquals(SamplingDecision.DROP, sample());
+
+        bindOperation("createDocument");
+        assertEquals(SamplingDecision.RECORD_AND_SAMPLE, sample());
+
+        bindOperation("documents");
+        assertEquals(SamplingDecision.DROP, sample());
+    }
+
+    private SamplingDecision sample() {
+        return sampler.shouldSample(Context.root(), TRACE_ID, "graphql", SpanKind.INTERNAL, Attributes.empty(), List.of())
+                .getDecision();
+    }
+
+    private static void bindOperation(String operation) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/graphql");
+        request.setAttribute(GraphQlOperationInterceptor.OPERATION_ATTRIBUTE, operation);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}